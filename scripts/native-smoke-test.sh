@@ -0,0 +1,71 @@
+#!/usr/bin/env bash
+#
+# Runs the REST API end to end against the native executable built with:
+#   ./mvnw -Pnative native:compile -DskipTests
+#
+# The binary is started against an in-memory H2 database so no PostgreSQL is needed. The script exercises every
+# code path that depends on reflection (ModelMapper, Jackson, the labels converter and validator) and fails on
+# the first unexpected status code.
+#
+# Usage:
+#   scripts/native-smoke-test.sh [path to binary]   (default: target/yapily-e-commerce-api)
+
+set -euo pipefail
+
+BINARY="${1:-target/yapily-e-commerce-api}"
+BASE_URL="http://localhost:${PORT:-8080}"
+LOG="/tmp/native-smoke-test.log"
+
+"$BINARY" \
+  --server.port="${PORT:-8080}" \
+  --spring.datasource.url='jdbc:h2:mem:yapily;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;' \
+  --spring.datasource.driver-class-name=org.h2.Driver \
+  --spring.datasource.username=sa \
+  --spring.datasource.password=1234 \
+  --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect > "$LOG" 2>&1 &
+PID=$!
+trap 'kill $PID 2>/dev/null || true' EXIT
+
+for _ in $(seq 1 $(( ${STARTUP_TIMEOUT_SECS:-30} * 10 ))); do
+  curl -sf -o /dev/null "$BASE_URL/products" && break
+  sleep 0.1
+done
+
+# expect <status> <method> <path> [json body]
+expect() {
+  local status="$1" method="$2" path="$3" body="${4:-}"
+  local actual
+  if [[ -n "$body" ]]; then
+    actual=$(curl -s -o /tmp/native-smoke-body -w '%{http_code}' -X "$method" -H 'Content-Type: application/json' \
+      -d "$body" "$BASE_URL$path" || true)
+  else
+    actual=$(curl -s -o /tmp/native-smoke-body -w '%{http_code}' -X "$method" "$BASE_URL$path" || true)
+  fi
+  if [[ "$actual" != "$status" ]]; then
+    echo "FAIL: $method $path returned $actual, expected $status" >&2
+    cat /tmp/native-smoke-body >&2
+    echo "(application log: $LOG)" >&2
+    exit 1
+  fi
+  echo "ok: $method $path -> $actual"
+}
+
+# json_field <name>: numeric field of the last response body
+json_field() {
+  grep -o "\"$1\":[0-9]*" /tmp/native-smoke-body | head -1 | cut -d: -f2
+}
+
+expect 201 POST /products '{"name":"Native Coffee","price":2.5,"labels":["drink","food"]}'
+PRODUCT_ID=$(json_field product_id)
+expect 400 POST /products '{"name":"Bad Label","price":1.0,"labels":["weapon"]}'
+expect 200 GET /products
+expect 200 GET "/products/$PRODUCT_ID"
+expect 201 POST /carts '{}'
+CART_ID=$(json_field cart_id)
+expect 200 PUT "/carts/$CART_ID" "{\"product_id\":$PRODUCT_ID,\"quantity\":2}"
+expect 200 GET "/carts/$CART_ID"
+expect 200 GET /carts
+expect 200 POST "/carts/$CART_ID/checkout"
+expect 204 DELETE "/carts/$CART_ID"
+
+echo "native smoke test passed"
@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+#
+# Measures the time from process launch until the first successful (2xx) HTTP response.
+#
+# Usage:
+#   scripts/startup-benchmark.sh [runs] -- <command to start the service>
+#
+# Examples:
+#   scripts/startup-benchmark.sh 5 -- docker run --rm --network yapily -p 8080:8080 yapily
+#   scripts/startup-benchmark.sh 3 -- java -jar target/yapily-e-commerce-api-1.1.0.jar
+#
+# Environment:
+#   PROBE_URL    URL polled until it answers 2xx (default: http://localhost:8080/products)
+#   TIMEOUT_SECS maximum time to wait for a single start (default: 120)
+
+set -euo pipefail
+
+RUNS=1
+if [[ $# -gt 0 && "$1" != "--" ]]; then
+  RUNS="$1"
+  shift
+fi
+if [[ $# -eq 0 || "$1" != "--" ]]; then
+  echo "usage: $0 [runs] -- <command to start the service>" >&2
+  exit 1
+fi
+shift
+
+PROBE_URL="${PROBE_URL:-http://localhost:8080/products}"
+TIMEOUT_SECS="${TIMEOUT_SECS:-120}"
+
+now_ms() {
+  date +%s%3N
+}
+
+total=0
+for run in $(seq 1 "$RUNS"); do
+  start=$(now_ms)
+  "$@" > "/tmp/startup-benchmark-$run.log" 2>&1 &
+  pid=$!
+
+  elapsed=""
+  while (( $(now_ms) - start < TIMEOUT_SECS * 1000 )); do
+    if curl -sf -o /dev/null "$PROBE_URL"; then
+      elapsed=$(( $(now_ms) - start ))
+      break
+    fi
+    if ! kill -0 "$pid" 2>/dev/null; then
+      break
+    fi
+    sleep 0.05
+  done
+
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+
+  if [[ -z "$elapsed" ]]; then
+    echo "run $run: no successful response (see /tmp/startup-benchmark-$run.log)" >&2
+    exit 1
+  fi
+  echo "run $run: first successful request after ${elapsed} ms"
+  total=$(( total + elapsed ))
+done
+
+echo "average time to first successful request: $(( total / RUNS )) ms over $RUNS run(s)"
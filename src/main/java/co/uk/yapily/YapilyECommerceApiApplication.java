@@ -2,8 +2,10 @@ package co.uk.yapily;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class YapilyECommerceApiApplication {
 
   public static void main(final String[] args) {
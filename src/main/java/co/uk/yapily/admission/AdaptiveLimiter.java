@@ -0,0 +1,145 @@
+package co.uk.yapily.admission;
+
+import co.uk.yapily.config.AdmissionControlProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit that adapts to observed latency.
+ * <p>
+ * Two moving averages of the request latency are kept: a short one (about the last 10 requests) and a long one
+ * (about the last 600), which serves as the no-load baseline. While the short average stays within
+ * {@code tolerance} times the baseline, the limit grows by roughly its square root per sample. Once requests get
+ * slower than that, the limit is scaled down by the ratio of the two averages, so it shrinks towards the concurrency
+ * the backend can serve at acceptable latency. The limit only moves while it is in use, and each estimate is
+ * smoothed.
+ * <p>
+ * Metrics, tagged with {@code class}: the {@code yapily.admission.limit} and {@code yapily.admission.in.flight}
+ * gauges, and the {@code yapily.admission.requests} counter tagged with {@code outcome} ({@code accepted} or
+ * {@code rejected}).
+ *
+ * @since 1.1.0
+ */
+public class AdaptiveLimiter {
+
+  private static final double SHORT_WINDOW_WEIGHT = 0.1;
+  private static final double LONG_WINDOW_WEIGHT = 1.0 / 600;
+  private static final double MIN_GRADIENT = 0.5;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double tolerance;
+  private final double smoothing;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final Counter accepted;
+  private final Counter rejected;
+
+  private volatile double limit;
+  private double shortRtt;
+  private double longRtt;
+  private boolean sampled;
+
+  /**
+   * Creates a limiter and registers its metrics.
+   *
+   * @param name       the traffic class, used as the {@code class} tag
+   * @param limits     the initial limit and its bounds
+   * @param properties the shared tuning
+   * @param registry   the meter registry
+   */
+  public AdaptiveLimiter(final String name, final AdmissionControlProperties.Limits limits,
+                         final AdmissionControlProperties properties, final MeterRegistry registry) {
+    this.minLimit = limits.min();
+    this.maxLimit = limits.max();
+    this.tolerance = properties.tolerance();
+    this.smoothing = properties.smoothing();
+    this.limit = Math.max(minLimit, Math.min(maxLimit, limits.initial()));
+
+    this.accepted = Counter.builder("yapily.admission.requests")
+        .description("Requests by whether they were admitted or shed")
+        .tags("class", name, "outcome", "accepted")
+        .register(registry);
+    this.rejected = Counter.builder("yapily.admission.requests")
+        .description("Requests by whether they were admitted or shed")
+        .tags("class", name, "outcome", "rejected")
+        .register(registry);
+    Gauge.builder("yapily.admission.limit", this, AdaptiveLimiter::getLimit)
+        .description("Current concurrency limit")
+        .tag("class", name)
+        .register(registry);
+    Gauge.builder("yapily.admission.in.flight", inFlight, AtomicInteger::get)
+        .description("Admitted requests still running")
+        .tag("class", name)
+        .register(registry);
+  }
+
+  /**
+   * Admits a request if fewer than the current limit are running. Every admitted request must be followed by exactly
+   * one {@link #release(long)}.
+   *
+   * @return {@code true} if the request is admitted
+   */
+  public boolean tryAcquire() {
+    while (true) {
+      final int current = inFlight.get();
+      if (current >= (int) limit) {
+        rejected.increment();
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        accepted.increment();
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Completes an admitted request and feeds its latency into the limit.
+   *
+   * @param rttNanos the time the request took, in nanoseconds
+   */
+  public void release(final long rttNanos) {
+    final int inFlightAtCompletion = inFlight.getAndDecrement();
+    onSample(Math.max(1, rttNanos), inFlightAtCompletion);
+  }
+
+  /**
+   * @return the current concurrency limit
+   */
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * @return the number of admitted requests still running
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  private synchronized void onSample(final long rttNanos, final int inFlightAtCompletion) {
+    if (!sampled) {
+      shortRtt = rttNanos;
+      longRtt = rttNanos;
+      sampled = true;
+      return;
+    }
+    shortRtt += (rttNanos - shortRtt) * SHORT_WINDOW_WEIGHT;
+    longRtt += (rttNanos - longRtt) * LONG_WINDOW_WEIGHT;
+    // latency has recovered well below a baseline raised by a slow period: let the baseline catch up
+    if (longRtt / shortRtt > 2) {
+      longRtt *= 0.95;
+    }
+    // a limit that is not being used says nothing about how much load the backend can take
+    if (inFlightAtCompletion < limit / 2) {
+      return;
+    }
+    final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRtt / shortRtt));
+    final double estimate = limit * gradient + Math.sqrt(limit);
+    final double smoothed = limit * (1 - smoothing) + estimate * smoothing;
+    limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+  }
+}
@@ -0,0 +1,79 @@
+package co.uk.yapily.admission;
+
+import co.uk.yapily.dto.exception.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Sheds requests over the adaptive concurrency limit with {@code 503 Service Unavailable} and a {@code Retry-After}
+ * header, before they take a request thread's worth of time from the database.
+ * <p>
+ * Reads ({@code GET} and {@code HEAD}) and writes have separate limiters, so slow checkouts do not shed cheap product
+ * reads.
+ *
+ * @since 1.1.0
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+  private final AdaptiveLimiter readLimiter;
+  private final AdaptiveLimiter writeLimiter;
+  private final ObjectMapper objectMapper;
+  private final String retryAfterSeconds;
+
+  /**
+   * Creates the filter.
+   *
+   * @param readLimiter  the limiter for reads
+   * @param writeLimiter the limiter for writes
+   * @param objectMapper the mapper for the error body
+   * @param retryAfter   the delay suggested to shed clients
+   */
+  public AdmissionControlFilter(final AdaptiveLimiter readLimiter, final AdaptiveLimiter writeLimiter,
+                                final ObjectMapper objectMapper, final Duration retryAfter) {
+    this.readLimiter = readLimiter;
+    this.writeLimiter = writeLimiter;
+    this.objectMapper = objectMapper;
+    this.retryAfterSeconds = String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+  }
+
+  @Override
+  protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                  final FilterChain filterChain) throws ServletException, IOException {
+    final AdaptiveLimiter limiter = isRead(request) ? readLimiter : writeLimiter;
+    if (!limiter.tryAcquire()) {
+      reject(response);
+      return;
+    }
+    final long start = System.nanoTime();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      limiter.release(System.nanoTime() - start);
+    }
+  }
+
+  private static boolean isRead(final HttpServletRequest request) {
+    final String method = request.getMethod();
+    return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+  }
+
+  private void reject(final HttpServletResponse response) throws IOException {
+    final ErrorResponse errorResponse = new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.name(),
+        "The service is overloaded, please retry later", HttpStatus.SERVICE_UNAVAILABLE.value());
+    response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    objectMapper.writeValue(response.getOutputStream(), errorResponse);
+  }
+}
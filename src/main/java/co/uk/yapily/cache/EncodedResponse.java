@@ -0,0 +1,56 @@
+package co.uk.yapily.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Locale;
+
+/**
+ * A JSON response body serialized once, with an optional gzip-compressed copy.
+ *
+ * @param identity  the JSON bytes
+ * @param gzip      the compressed JSON bytes, or {@code null} if the body is not worth compressing
+ * @param createdAt the {@link System#nanoTime()} at which the body was serialized
+ *
+ * @since 1.1.0
+ */
+public record EncodedResponse(byte[] identity, byte[] gzip, long createdAt) {
+
+  /**
+   * Builds a 200 response with the copy matching the client's {@code Accept-Encoding}.
+   *
+   * @param acceptEncoding the {@code Accept-Encoding} request header, possibly null
+   * @return the response, written as is by the byte array message converter
+   */
+  public ResponseEntity<byte[]> toResponse(final String acceptEncoding) {
+    final ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                                                              .contentType(MediaType.APPLICATION_JSON)
+                                                              .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip != null && acceptsGzip(acceptEncoding)) {
+      return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+    }
+    return response.body(identity);
+  }
+
+  /**
+   * Tells whether an {@code Accept-Encoding} header allows gzip, i.e. lists {@code gzip} or {@code *} without
+   * {@code q=0}.
+   *
+   * @param acceptEncoding the header value, possibly null
+   * @return whether gzip is accepted
+   */
+  static boolean acceptsGzip(final String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (final String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+      final String[] parts = coding.split(";");
+      final String name = parts[0].trim();
+      if ((name.equals("gzip") || name.equals("*")) && !(parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?"))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
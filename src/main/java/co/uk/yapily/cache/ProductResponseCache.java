@@ -0,0 +1,198 @@
+package co.uk.yapily.cache;
+
+import co.uk.yapily.config.ResponseCacheProperties;
+import co.uk.yapily.event.ProductChangedEvent;
+import co.uk.yapily.event.ProductResyncEvent;
+import co.uk.yapily.exception.ServiceException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of the serialized bodies of {@code GET /products} and {@code GET /products/{id}}, so unchanged products are
+ * neither mapped nor serialized again.
+ * <p>
+ * Entries are dropped by the {@link ProductChangedEvent}s published once a save or delete has committed, locally or
+ * on another instance, and all of them by a {@link ProductResyncEvent}. A body loaded while a change was published
+ * is returned but not cached: every invalidation advances a generation, and a body is only kept if the generation did
+ * not move while it was loaded. Entries also expire after the configured time to live, which bounds the staleness of
+ * changes that arrive without an event, e.g. through the catalog reconciliation.
+ * <p>
+ * Metrics: {@code yapily.response.cache.requests} tagged with {@code result} ({@code hit} or {@code miss}), and
+ * {@code yapily.response.cache.entries}.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class ProductResponseCache {
+
+  /**
+   * Loads the value to serialize on a miss.
+   *
+   * @param <T> the value type
+   */
+  @FunctionalInterface
+  public interface Loader<T> {
+
+    T load() throws ServiceException;
+  }
+
+  private final ResponseCacheProperties properties;
+  private final ObjectMapper objectMapper;
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicReference<EncodedResponse> list = new AtomicReference<>();
+  private final ConcurrentMap<Long, EncodedResponse> products = new ConcurrentHashMap<>();
+  private final Counter hits;
+  private final Counter misses;
+
+  /**
+   * Creates the cache.
+   *
+   * @param properties    the cache configuration
+   * @param objectMapper  the mapper responses are serialized with, the same Spring MVC uses
+   * @param meterRegistry the registry for the cache metrics
+   */
+  public ProductResponseCache(final ResponseCacheProperties properties, final ObjectMapper objectMapper,
+                              final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.objectMapper = objectMapper;
+    this.hits = Counter.builder("yapily.response.cache.requests")
+        .description("Product responses served from the cache or serialized")
+        .tag("result", "hit")
+        .register(meterRegistry);
+    this.misses = Counter.builder("yapily.response.cache.requests")
+        .description("Product responses served from the cache or serialized")
+        .tag("result", "miss")
+        .register(meterRegistry);
+    Gauge.builder("yapily.response.cache.entries", products, map -> map.size() + (list.get() == null ? 0 : 1))
+        .description("Serialized product responses held in memory")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Returns the serialized list of all products.
+   *
+   * @param loader loads the products on a miss
+   * @return the serialized list
+   * @throws ServiceException if the products cannot be loaded or serialized
+   */
+  public EncodedResponse list(final Loader<?> loader) throws ServiceException {
+    if (!properties.enabled()) {
+      return encode(loader.load(), false);
+    }
+    final EncodedResponse cached = list.get();
+    if (isFresh(cached)) {
+      hits.increment();
+      return cached;
+    }
+    misses.increment();
+    final long observed = generation.get();
+    final EncodedResponse encoded = encode(loader.load(), properties.gzip());
+    if (generation.get() == observed && list.compareAndSet(cached, encoded) && generation.get() != observed) {
+      // invalidated while being stored
+      list.compareAndSet(encoded, null);
+    }
+    return encoded;
+  }
+
+  /**
+   * Returns a serialized product.
+   *
+   * @param id     the product ID
+   * @param loader loads the product on a miss
+   * @return the serialized product
+   * @throws ServiceException if the product cannot be loaded or serialized
+   */
+  public EncodedResponse product(final Long id, final Loader<?> loader) throws ServiceException {
+    if (!properties.enabled() || id == null) {
+      return encode(loader.load(), false);
+    }
+    final EncodedResponse cached = products.get(id);
+    if (isFresh(cached)) {
+      hits.increment();
+      return cached;
+    }
+    misses.increment();
+    final long observed = generation.get();
+    final EncodedResponse encoded = encode(loader.load(), properties.gzip());
+    if (generation.get() == observed && (cached != null || products.size() < properties.maxEntries())) {
+      products.put(id, encoded);
+      if (generation.get() != observed) {
+        // invalidated while being stored
+        products.remove(id, encoded);
+      }
+    }
+    return encoded;
+  }
+
+  /**
+   * Drops the changed product and the product list. Runs after the product catalog has applied the change, so bodies
+   * loaded from then on see it.
+   *
+   * @param event the product change
+   */
+  @EventListener
+  public void onProductChanged(final ProductChangedEvent event) {
+    generation.incrementAndGet();
+    list.set(null);
+    if (event.productId() != null) {
+      products.remove(event.productId());
+    }
+  }
+
+  /**
+   * Drops every entry.
+   *
+   * @param event the resync request
+   */
+  @EventListener
+  public void onResync(final ProductResyncEvent event) {
+    generation.incrementAndGet();
+    list.set(null);
+    products.clear();
+  }
+
+  private boolean isFresh(final EncodedResponse response) {
+    return response != null && System.nanoTime() - response.createdAt() < properties.timeToLive().toNanos();
+  }
+
+  /**
+   * Serializes a value, and compresses it when allowed and large enough.
+   *
+   * @param value the value
+   * @param gzip  whether a compressed copy may be made
+   * @return the serialized value
+   * @throws ServiceException if the value cannot be serialized
+   */
+  private EncodedResponse encode(final Object value, final boolean gzip) throws ServiceException {
+    try {
+      final byte[] identity = objectMapper.writeValueAsBytes(value);
+      final byte[] compressed = gzip && identity.length >= properties.gzipMinSize().toBytes() ? compress(identity) : null;
+      return new EncodedResponse(identity, compressed, System.nanoTime());
+    } catch (final IOException e) {
+      log.error("Error serializing product response! Reason: {}", e.getMessage(), e);
+      throw new ServiceException("Error serializing product response", e);
+    }
+  }
+
+  private static byte[] compress(final byte[] bytes) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,65 @@
+package co.uk.yapily.catalog;
+
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.entity.Product;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * An immutable catalog entry.
+ *
+ * @param id      the product ID
+ * @param name    the name, may be {@code null}
+ * @param price   the price, may be {@code null}
+ * @param addedAt the creation time in epoch milliseconds, may be {@code null}
+ * @param labels  the labels
+ * @param version the version of the row: its {@code changeVersion}, {@code 0} if it has none
+ *
+ * @since 1.1.0
+ */
+public record CatalogProduct(long id, String name, Double price, Long addedAt, List<String> labels, long version) {
+
+  public CatalogProduct {
+    labels = labels == null ? List.of() : List.copyOf(labels);
+  }
+
+  /**
+   * @param product the product entity
+   * @return the catalog entry for the entity
+   */
+  public static CatalogProduct of(final Product product) {
+    return new CatalogProduct(product.getId(), product.getName(), product.getPrice(),
+        product.getAddedAt() == null ? null : product.getAddedAt().getTime(), product.getLabels(),
+        versionOf(product.getChangeVersion()));
+  }
+
+  /**
+   * @param product       the product DTO
+   * @param changeVersion the change version of the write, may be {@code null}
+   * @return the catalog entry for the DTO
+   */
+  public static CatalogProduct of(final ProductDto product, final Long changeVersion) {
+    return new CatalogProduct(product.getId(), product.getName(), product.getPrice(),
+        product.getAddedAt() == null ? null : product.getAddedAt().getTime(), product.getLabels(),
+        versionOf(changeVersion));
+  }
+
+  private static long versionOf(final Long changeVersion) {
+    return changeVersion == null ? 0 : changeVersion;
+  }
+
+  /**
+   * @return a new, mutable DTO for this entry
+   */
+  public ProductDto toDto() {
+    return ProductDto.builder()
+        .id(id)
+        .name(name)
+        .price(price)
+        .addedAt(addedAt == null ? null : new Date(addedAt))
+        .labels(new ArrayList<>(labels))
+        .build();
+  }
+}
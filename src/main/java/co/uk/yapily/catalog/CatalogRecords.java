@@ -0,0 +1,164 @@
+package co.uk.yapily.catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The binary layout of a catalog product, shared by the snapshot file and the off-heap store: a fixed part of
+ * {@value #FIXED_SIZE} bytes followed by the variable-length strings.
+ * <pre>
+ * fixed    long id, long version, long addedAt (Long.MIN_VALUE if null), double price (NaN if null)
+ * variable int name length (-1 if null) + UTF-8 name, int label count + per label: int length + UTF-8 label
+ * </pre>
+ * All methods use absolute positions and leave the buffer position untouched; buffers are expected little-endian.
+ *
+ * @since 1.1.0
+ */
+final class CatalogRecords {
+
+  static final int FIXED_SIZE = 32;
+
+  private CatalogRecords() {
+  }
+
+  /**
+   * @param product a product
+   * @return the number of bytes its record takes
+   */
+  static int sizeOf(final CatalogProduct product) {
+    int size = FIXED_SIZE + 4 + (product.name() == null ? 0 : utf8Length(product.name())) + 4;
+    for (final String label : product.labels()) {
+      size += 4 + utf8Length(label);
+    }
+    return size;
+  }
+
+  /**
+   * Writes a product record.
+   *
+   * @param buffer   the target buffer, with at least {@link #sizeOf(CatalogProduct)} bytes from {@code position}
+   * @param position the position of the record
+   * @param product  the product
+   * @return the position after the record
+   */
+  static int write(final ByteBuffer buffer, final int position, final CatalogProduct product) {
+    buffer.putLong(position, product.id())
+          .putLong(position + 8, product.version())
+          .putLong(position + 16, product.addedAt() == null ? Long.MIN_VALUE : product.addedAt())
+          .putDouble(position + 24, product.price() == null ? Double.NaN : product.price());
+    int next = position + FIXED_SIZE;
+    if (product.name() == null) {
+      buffer.putInt(next, -1);
+      next += 4;
+    } else {
+      next = writeString(buffer, next, product.name());
+    }
+    buffer.putInt(next, product.labels().size());
+    next += 4;
+    for (final String label : product.labels()) {
+      next = writeString(buffer, next, label);
+    }
+    return next;
+  }
+
+  /**
+   * @param buffer   the buffer holding the record
+   * @param position the position of the record
+   * @return the product ID of the record
+   */
+  static long idAt(final ByteBuffer buffer, final int position) {
+    return buffer.getLong(position);
+  }
+
+  /**
+   * @param buffer   the buffer holding the record
+   * @param position the position of the record
+   * @return the version of the record
+   */
+  static long versionAt(final ByteBuffer buffer, final int position) {
+    return buffer.getLong(position + 8);
+  }
+
+  /**
+   * @param buffer   the buffer holding the record
+   * @param position the position of the record
+   * @return the number of bytes the record takes, read from its length fields without decoding the strings
+   */
+  static int sizeAt(final ByteBuffer buffer, final int position) {
+    int next = position + FIXED_SIZE;
+    next += 4 + Math.max(buffer.getInt(next), 0);
+    final int labelCount = buffer.getInt(next);
+    next += 4;
+    for (int i = 0; i < labelCount; i++) {
+      next += 4 + buffer.getInt(next);
+    }
+    return next - position;
+  }
+
+  /**
+   * Decodes a product record.
+   *
+   * @param buffer   the buffer holding the record
+   * @param position the position of the record
+   * @return the product
+   */
+  static CatalogProduct read(final ByteBuffer buffer, final int position) {
+    final long id = buffer.getLong(position);
+    final long version = buffer.getLong(position + 8);
+    final long addedAt = buffer.getLong(position + 16);
+    final double price = buffer.getDouble(position + 24);
+    int next = position + FIXED_SIZE;
+    final int nameLength = buffer.getInt(next);
+    next += 4;
+    String name = null;
+    if (nameLength >= 0) {
+      name = readString(buffer, next, nameLength);
+      next += nameLength;
+    }
+    final int labelCount = buffer.getInt(next);
+    next += 4;
+    final List<String> labels = new ArrayList<>(labelCount);
+    for (int i = 0; i < labelCount; i++) {
+      final int length = buffer.getInt(next);
+      labels.add(readString(buffer, next + 4, length));
+      next += 4 + length;
+    }
+    return new CatalogProduct(id, name, Double.isNaN(price) ? null : price,
+        addedAt == Long.MIN_VALUE ? null : addedAt, labels, version);
+  }
+
+  private static int writeString(final ByteBuffer buffer, final int position, final String value) {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.putInt(position, bytes.length).put(position + 4, bytes);
+    return position + 4 + bytes.length;
+  }
+
+  private static String readString(final ByteBuffer buffer, final int position, final int length) {
+    final byte[] bytes = new byte[length];
+    buffer.get(position, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int utf8Length(final String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        // a lone surrogate is encoded as '?'
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+}
@@ -0,0 +1,180 @@
+package co.uk.yapily.catalog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Writes catalog snapshots in the format read by {@link MappedCatalogSnapshot}.
+ * <p>
+ * A snapshot is written to a temporary file, forced to disk and moved over the previous one atomically, so a crash
+ * never leaves a partial snapshot behind and readers that mapped the previous file keep a consistent view of it.
+ * Products are streamed to the file in two passes, one for the index and one for the records, so writing a snapshot
+ * only needs a small, fixed amount of heap whatever the size of the catalog.
+ *
+ * @since 1.1.0
+ */
+public final class CatalogSnapshotWriter {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Products in ascending ID order, which can be read more than once.
+   */
+  @FunctionalInterface
+  public interface ProductSource {
+
+    void forEach(Consumer<CatalogProduct> consumer);
+  }
+
+  private CatalogSnapshotWriter() {
+  }
+
+  /**
+   * Writes a snapshot.
+   *
+   * @param target   the snapshot file
+   * @param version  the highest product version included
+   * @param products the products
+   * @throws IOException if the snapshot cannot be written
+   */
+  public static void write(final Path target, final long version, final Collection<CatalogProduct> products) throws IOException {
+    final List<CatalogProduct> sorted = products.stream().sorted(Comparator.comparingLong(CatalogProduct::id)).toList();
+    write(target, version, sorted.size(), sorted::forEach);
+  }
+
+  /**
+   * Writes a snapshot from a product source.
+   *
+   * @param target   the snapshot file
+   * @param version  the highest product version included
+   * @param count    the number of products the source yields
+   * @param products the products, in ascending ID order; read twice
+   * @throws IOException if the snapshot cannot be written, or the source does not yield {@code count} products
+   */
+  public static void write(final Path target, final long version, final int count, final ProductSource products)
+  throws IOException {
+    Files.createDirectories(target.toAbsolutePath().getParent());
+    final Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      final Output output = new Output(channel, MappedCatalogSnapshot.HEADER_SIZE);
+      final long recordsStart = MappedCatalogSnapshot.HEADER_SIZE + (long) count * MappedCatalogSnapshot.INDEX_ENTRY_SIZE;
+
+      final long[] state = {recordsStart, 0};
+      products.forEach(product -> {
+        output.putLong(product.id()).putInt((int) Math.min(state[0], Integer.MAX_VALUE));
+        state[0] += CatalogRecords.sizeOf(product);
+        state[1]++;
+      });
+      if (state[1] != count) {
+        throw new IOException("Expected " + count + " products for the catalog snapshot, got " + state[1]);
+      }
+      if (state[0] > Integer.MAX_VALUE) {
+        throw new IOException("Catalog snapshot too large: " + state[0] + " bytes");
+      }
+      products.forEach(output::putRecord);
+      output.flush();
+
+      final ByteBuffer header = ByteBuffer.allocate(MappedCatalogSnapshot.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+          .putInt(MappedCatalogSnapshot.MAGIC)
+          .putInt(MappedCatalogSnapshot.FORMAT_VERSION)
+          .putLong(version)
+          .putLong(System.currentTimeMillis())
+          .putInt(count)
+          .putInt((int) output.crc.getValue())
+          .flip();
+      while (header.hasRemaining()) {
+        channel.write(header, header.position());
+      }
+      channel.force(true);
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+    try {
+      Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (final AtomicMoveNotSupportedException e) {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Buffered, checksummed output to the snapshot file, starting after the header. Errors are rethrown unchecked so
+   * the output can be used from a {@link ProductSource} callback.
+   */
+  private static final class Output {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer scratch = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+
+    Output(final FileChannel channel, final long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+
+    Output putLong(final long value) {
+      ensure(8);
+      buffer.putLong(value);
+      return this;
+    }
+
+    Output putInt(final int value) {
+      ensure(4);
+      buffer.putInt(value);
+      return this;
+    }
+
+    void putRecord(final CatalogProduct product) {
+      final int size = CatalogRecords.sizeOf(product);
+      if (scratch.capacity() < size) {
+        scratch = ByteBuffer.allocate(Math.max(size, scratch.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+      }
+      CatalogRecords.write(scratch, 0, product);
+      ensure(Math.min(size, BUFFER_SIZE));
+      if (size > buffer.remaining()) {
+        flush();
+        write(scratch.slice(0, size));
+      } else {
+        buffer.put(scratch.array(), 0, size);
+      }
+    }
+
+    void flush() {
+      buffer.flip();
+      write(buffer);
+      buffer.clear();
+    }
+
+    private void ensure(final int bytes) {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void write(final ByteBuffer bytes) {
+      crc.update(bytes.duplicate());
+      try {
+        while (bytes.hasRemaining()) {
+          position += channel.write(bytes, position);
+        }
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
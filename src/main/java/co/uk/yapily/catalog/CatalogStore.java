@@ -0,0 +1,108 @@
+package co.uk.yapily.catalog;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Holds the catalog entries that are not in the mapped snapshot yet: products written or deleted since it was taken,
+ * and everything during the first load when there is no snapshot.
+ * <p>
+ * Implementations are safe for concurrent use. For a product entry, the entry version is the product version.
+ *
+ * @since 1.1.0
+ */
+interface CatalogStore {
+
+  /**
+   * A stored entry; a {@code null} product marks a deletion.
+   *
+   * @param id      the product ID
+   * @param product the product, or {@code null} if it was deleted
+   * @param version the version of the entry
+   */
+  record Entry(long id, CatalogProduct product, long version) {
+  }
+
+  /**
+   * A consistent view of the entries at the time it was taken, which stays readable while the store changes. Must be
+   * closed, so that an off-heap store can reclaim the memory of entries replaced meanwhile.
+   */
+  interface View extends AutoCloseable {
+
+    /**
+     * @return the IDs of every entry, deletions included, in ascending order
+     */
+    long[] ids();
+
+    /**
+     * @param id the product ID
+     * @return the entry of the product in this view, or {@code null} if there is none
+     */
+    Entry get(long id);
+
+    /**
+     * @param id the product ID
+     * @return whether this view has an entry for the product
+     */
+    boolean contains(long id);
+
+    @Override
+    void close();
+  }
+
+  /**
+   * @param id the product ID
+   * @return the entry of the product, or {@code null} if the store has none
+   */
+  Entry get(long id);
+
+  /**
+   * @param id the product ID
+   * @return whether the store has an entry for the product
+   */
+  boolean contains(long id);
+
+  /**
+   * Stores an entry atomically, unless {@code accepts} rejects the version currently stored.
+   *
+   * @param id      the product ID
+   * @param product the product, or {@code null} to record a deletion
+   * @param version the version of the entry
+   * @param accepts tells from the stored version, or {@code -1} if there is none, whether to replace it
+   * @return whether the entry was stored
+   */
+  boolean put(long id, CatalogProduct product, long version, LongPredicate accepts);
+
+  /**
+   * Takes a consistent view of the entries.
+   *
+   * @return the view, to be closed after use
+   */
+  View view();
+
+  /**
+   * Removes the entries of a view that were not replaced since it was taken, e.g. once they are in a snapshot.
+   *
+   * @param view an open view of this store
+   */
+  void removeUnchanged(View view);
+
+  /**
+   * @return the number of entries
+   */
+  int size();
+
+  /**
+   * @return the bytes reserved outside the Java heap, 0 for a heap store
+   */
+  long offHeapReservedBytes();
+
+  /**
+   * @return the bytes of the off-heap reservation holding live entries, 0 for a heap store
+   */
+  long offHeapLiveBytes();
+
+  /**
+   * @return the bytes of the heap arrays indexing an off-heap store, 0 for a heap store
+   */
+  long indexBytes();
+}
@@ -0,0 +1,88 @@
+package co.uk.yapily.catalog;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Catalog store keeping entries as objects in a concurrent map; the default, fine for catalogs that fit comfortably
+ * in the heap. A view is a copy of the map.
+ *
+ * @since 1.1.0
+ */
+final class HeapCatalogStore implements CatalogStore {
+
+  private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+  @Override
+  public Entry get(final long id) {
+    return entries.get(id);
+  }
+
+  @Override
+  public boolean contains(final long id) {
+    return entries.containsKey(id);
+  }
+
+  @Override
+  public boolean put(final long id, final CatalogProduct product, final long version, final LongPredicate accepts) {
+    final Entry entry = new Entry(id, product, version);
+    return entries.compute(id, (key, existing) -> accepts.test(existing == null ? -1 : existing.version()) ? entry : existing) == entry;
+  }
+
+  @Override
+  public View view() {
+    final Map<Long, Entry> copy = new HashMap<>(entries);
+    return new View() {
+
+      @Override
+      public long[] ids() {
+        return copy.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+      }
+
+      @Override
+      public Entry get(final long id) {
+        return copy.get(id);
+      }
+
+      @Override
+      public boolean contains(final long id) {
+        return copy.containsKey(id);
+      }
+
+      @Override
+      public void close() {
+        copy.clear();
+      }
+    };
+  }
+
+  @Override
+  public void removeUnchanged(final View view) {
+    for (final long id : view.ids()) {
+      entries.remove(id, view.get(id));
+    }
+  }
+
+  @Override
+  public int size() {
+    return entries.size();
+  }
+
+  @Override
+  public long offHeapReservedBytes() {
+    return 0;
+  }
+
+  @Override
+  public long offHeapLiveBytes() {
+    return 0;
+  }
+
+  @Override
+  public long indexBytes() {
+    return 0;
+  }
+}
@@ -0,0 +1,192 @@
+package co.uk.yapily.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * A read-only, memory-mapped product catalog snapshot. Opening one only validates the file; products are decoded on
+ * access, so a snapshot of any size serves reads as soon as it is open.
+ * <p>
+ * File layout, little-endian:
+ * <pre>
+ * header   int magic "YCAT", int format version, long snapshot version, long created at (epoch ms),
+ *          int product count, int CRC32 of everything after the header
+ * index    per product, in ascending ID order: long id, int offset of its record
+ * records  in the layout of {@link CatalogRecords}
+ * </pre>
+ * Lookups binary-search the index. All reads use absolute positions, so a snapshot is safe to share between threads.
+ *
+ * @since 1.1.0
+ */
+public final class MappedCatalogSnapshot {
+
+  static final int MAGIC = 0x59434154;
+  /**
+   * Version 2 keys products by change version; version 1 snapshots, keyed by update time, are not read.
+   */
+  static final int FORMAT_VERSION = 2;
+  static final int HEADER_SIZE = 32;
+  static final int INDEX_ENTRY_SIZE = 12;
+
+  private final ByteBuffer buffer;
+  private final long version;
+  private final long createdAt;
+  private final int size;
+
+  private MappedCatalogSnapshot(final ByteBuffer buffer) throws IOException {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a catalog snapshot");
+    }
+    if (buffer.getInt(4) != FORMAT_VERSION) {
+      throw new IOException("Unsupported catalog snapshot format " + buffer.getInt(4));
+    }
+    this.buffer = buffer;
+    this.version = buffer.getLong(8);
+    this.createdAt = buffer.getLong(16);
+    this.size = buffer.getInt(24);
+    if (size < 0 || HEADER_SIZE + (long) size * INDEX_ENTRY_SIZE > buffer.capacity()) {
+      throw new IOException("Corrupt catalog snapshot: bad product count " + size);
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+    if ((int) crc.getValue() != buffer.getInt(28)) {
+      throw new IOException("Corrupt catalog snapshot: checksum mismatch");
+    }
+  }
+
+  /**
+   * Maps and validates a snapshot file.
+   *
+   * @param path the snapshot file
+   * @return the snapshot
+   * @throws IOException if the file cannot be read or is not a valid snapshot
+   */
+  public static MappedCatalogSnapshot open(final Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Catalog snapshot too large: " + channel.size());
+      }
+      // the mapping stays valid after the channel is closed
+      return new MappedCatalogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+          .order(ByteOrder.LITTLE_ENDIAN));
+    }
+  }
+
+  /**
+   * @return the highest product version in the snapshot
+   */
+  public long version() {
+    return version;
+  }
+
+  /**
+   * @return when the snapshot was written, in epoch milliseconds
+   */
+  public long createdAt() {
+    return createdAt;
+  }
+
+  /**
+   * @return the number of products in the snapshot
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param id the product ID
+   * @return the product, if it is in the snapshot
+   */
+  public Optional<CatalogProduct> find(final long id) {
+    final int slot = slotOf(id);
+    return slot < 0 ? Optional.empty() : Optional.of(decode(recordOffset(slot)));
+  }
+
+  /**
+   * @param id the product ID
+   * @return the version of the product, or {@code -1} if it is not in the snapshot
+   */
+  public long versionOf(final long id) {
+    final int slot = slotOf(id);
+    return slot < 0 ? -1 : CatalogRecords.versionAt(buffer, recordOffset(slot));
+  }
+
+  /**
+   * @param id the product ID
+   * @return whether the product is in the snapshot
+   */
+  public boolean contains(final long id) {
+    return slotOf(id) >= 0;
+  }
+
+  /**
+   * Decodes every product, in ascending ID order.
+   *
+   * @param consumer receives the products
+   */
+  public void forEach(final Consumer<CatalogProduct> consumer) {
+    for (int slot = 0; slot < size; slot++) {
+      consumer.accept(decode(recordOffset(slot)));
+    }
+  }
+
+  /**
+   * Visits every product ID, in ascending order, without decoding the records.
+   *
+   * @param consumer receives the IDs
+   */
+  public void forEachId(final LongConsumer consumer) {
+    for (int slot = 0; slot < size; slot++) {
+      consumer.accept(idAt(slot));
+    }
+  }
+
+  /**
+   * @param slot an index position
+   * @return the product ID at that position
+   */
+  long idAt(final int slot) {
+    return buffer.getLong(HEADER_SIZE + slot * INDEX_ENTRY_SIZE);
+  }
+
+  /**
+   * @param slot an index position
+   * @return the product at that position
+   */
+  CatalogProduct productAt(final int slot) {
+    return decode(recordOffset(slot));
+  }
+
+  private int slotOf(final long id) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final long midId = idAt(mid);
+      if (midId < id) {
+        low = mid + 1;
+      } else if (midId > id) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private int recordOffset(final int slot) {
+    return buffer.getInt(HEADER_SIZE + slot * INDEX_ENTRY_SIZE + 8);
+  }
+
+  private CatalogProduct decode(final int offset) {
+    return CatalogRecords.read(buffer, offset);
+  }
+}
@@ -0,0 +1,304 @@
+package co.uk.yapily.catalog;
+
+import co.uk.yapily.util.LongLongHashMap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Catalog store keeping product records outside the Java heap, for catalogs of millions of products.
+ * <p>
+ * Records use the layout of {@link CatalogRecords} and are appended to direct buffers of a fixed chunk size. A
+ * primitive {@link LongLongHashMap} maps product IDs to record addresses ({@code chunk << 32 | position}), and a second
+ * one holds the versions of deletions. The heap cost of an entry is therefore a few dozen bytes of primitive arrays,
+ * which the garbage collector does not trace, and products are only materialized when read.
+ * <p>
+ * Replacing or removing a product leaves its old record behind as garbage. Once garbage exceeds both the live bytes
+ * and one chunk, the live records are copied to fresh chunks and the old ones are released. Records never move while
+ * a {@link View} is open, so views simply copy the index. Reads share a lock; writes and compaction are exclusive.
+ *
+ * @since 1.1.0
+ */
+final class OffHeapCatalogStore implements CatalogStore {
+
+  private final int chunkSize;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final LongLongHashMap deletions = new LongLongHashMap(16);
+  private LongLongHashMap addresses = new LongLongHashMap(1024);
+  private List<ByteBuffer> chunks = new ArrayList<>();
+  private int writePosition;
+  private long liveBytes;
+  private int openViews;
+
+  /**
+   * Creates an empty store; memory is reserved one chunk at a time.
+   *
+   * @param chunkSize the size of each direct buffer, which bounds the size of a record
+   */
+  OffHeapCatalogStore(final int chunkSize) {
+    if (chunkSize < CatalogRecords.FIXED_SIZE * 2) {
+      throw new IllegalArgumentException("Chunk size too small: " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public Entry get(final long id) {
+    lock.readLock().lock();
+    try {
+      return entryOf(id, addresses, deletions, chunks);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean contains(final long id) {
+    lock.readLock().lock();
+    try {
+      return addresses.containsKey(id) || deletions.containsKey(id);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean put(final long id, final CatalogProduct product, final long version, final LongPredicate accepts) {
+    if (product != null && product.version() != version) {
+      throw new IllegalArgumentException("Entry version " + version + " differs from product version " + product.version());
+    }
+    lock.writeLock().lock();
+    try {
+      final long address = addresses.get(id, -1);
+      final long current = address >= 0 ? CatalogRecords.versionAt(chunk(address), position(address)) : deletions.get(id, -1);
+      if (!accepts.test(current)) {
+        return false;
+      }
+      if (address >= 0) {
+        liveBytes -= CatalogRecords.sizeAt(chunk(address), position(address));
+      }
+      if (product == null) {
+        addresses.remove(id);
+        deletions.put(id, version);
+      } else {
+        addresses.put(id, append(product));
+        deletions.remove(id);
+      }
+      maybeCompact();
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public View view() {
+    lock.writeLock().lock();
+    try {
+      openViews++;
+      final LongLongHashMap viewAddresses = addresses.copy();
+      final LongLongHashMap viewDeletions = deletions.copy();
+      final List<ByteBuffer> viewChunks = List.copyOf(chunks);
+      return new View() {
+
+        private boolean closed;
+
+        @Override
+        public long[] ids() {
+          final long[] products = viewAddresses.sortedKeys();
+          if (viewDeletions.isEmpty()) {
+            return products;
+          }
+          final long[] deleted = viewDeletions.sortedKeys();
+          final long[] ids = new long[products.length + deleted.length];
+          System.arraycopy(products, 0, ids, 0, products.length);
+          System.arraycopy(deleted, 0, ids, products.length, deleted.length);
+          Arrays.sort(ids);
+          return ids;
+        }
+
+        @Override
+        public Entry get(final long id) {
+          // the records of a view are immutable until it is closed
+          return entryOf(id, viewAddresses, viewDeletions, viewChunks);
+        }
+
+        @Override
+        public boolean contains(final long id) {
+          return viewAddresses.containsKey(id) || viewDeletions.containsKey(id);
+        }
+
+        @Override
+        public void close() {
+          lock.writeLock().lock();
+          try {
+            if (!closed) {
+              closed = true;
+              openViews--;
+              maybeCompact();
+            }
+          } finally {
+            lock.writeLock().unlock();
+          }
+        }
+      };
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeUnchanged(final View view) {
+    final long[] ids = view.ids();
+    lock.writeLock().lock();
+    try {
+      for (final long id : ids) {
+        final Entry captured = view.get(id);
+        if (captured.product() == null) {
+          if (deletions.get(id, -1) == captured.version()) {
+            deletions.remove(id);
+          }
+          continue;
+        }
+        final long address = addresses.get(id, -1);
+        // records are append-only, so an unchanged entry still has the address it had in the view
+        if (address >= 0 && CatalogRecords.versionAt(chunk(address), position(address)) == captured.version()
+            && CatalogRecords.idAt(chunk(address), position(address)) == id) {
+          liveBytes -= CatalogRecords.sizeAt(chunk(address), position(address));
+          addresses.remove(id);
+        }
+      }
+      maybeCompact();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return addresses.size() + deletions.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long offHeapReservedBytes() {
+    lock.readLock().lock();
+    try {
+      return (long) chunks.size() * chunkSize;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long offHeapLiveBytes() {
+    lock.readLock().lock();
+    try {
+      return liveBytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long indexBytes() {
+    lock.readLock().lock();
+    try {
+      return addresses.memoryBytes() + deletions.memoryBytes();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static Entry entryOf(final long id, final LongLongHashMap addresses, final LongLongHashMap deletions,
+                               final List<ByteBuffer> chunks) {
+    final long address = addresses.get(id, -1);
+    if (address >= 0) {
+      final CatalogProduct product = CatalogRecords.read(chunks.get((int) (address >>> 32)), (int) address);
+      return new Entry(id, product, product.version());
+    }
+    return deletions.containsKey(id) ? new Entry(id, null, deletions.get(id, -1)) : null;
+  }
+
+  /**
+   * Appends a record, reserving a new chunk when the current one is full.
+   *
+   * @param product the product
+   * @return the address of the record
+   */
+  private long append(final CatalogProduct product) {
+    final int size = CatalogRecords.sizeOf(product);
+    if (size > chunkSize) {
+      throw new IllegalArgumentException("Catalog record of product " + product.id() + " exceeds the chunk size: " + size);
+    }
+    if (chunks.isEmpty() || writePosition + size > chunkSize) {
+      chunks.add(ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.LITTLE_ENDIAN));
+      writePosition = 0;
+    }
+    final long address = ((long) (chunks.size() - 1) << 32) | writePosition;
+    CatalogRecords.write(chunks.get(chunks.size() - 1), writePosition, product);
+    writePosition += size;
+    liveBytes += size;
+    return address;
+  }
+
+  /**
+   * Releases every chunk when the store is empty, or copies the live records to fresh chunks when garbage dominates;
+   * never while a view is open.
+   */
+  private void maybeCompact() {
+    if (openViews > 0) {
+      return;
+    }
+    if (addresses.isEmpty()) {
+      if (!chunks.isEmpty()) {
+        chunks = new ArrayList<>();
+        addresses = new LongLongHashMap(1024);
+        writePosition = 0;
+        liveBytes = 0;
+      }
+      return;
+    }
+    final long used = (long) (chunks.size() - 1) * chunkSize + writePosition;
+    final long garbage = used - liveBytes;
+    if (garbage <= liveBytes || garbage <= chunkSize) {
+      return;
+    }
+    final List<ByteBuffer> oldChunks = chunks;
+    final LongLongHashMap oldAddresses = addresses;
+    chunks = new ArrayList<>();
+    addresses = new LongLongHashMap(oldAddresses.size());
+    writePosition = 0;
+    liveBytes = 0;
+    oldAddresses.forEach((id, address) -> {
+      final ByteBuffer source = oldChunks.get((int) (address >>> 32));
+      final int position = (int) address;
+      final int size = CatalogRecords.sizeAt(source, position);
+      if (chunks.isEmpty() || writePosition + size > chunkSize) {
+        chunks.add(ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.LITTLE_ENDIAN));
+        writePosition = 0;
+      }
+      chunks.get(chunks.size() - 1).put(writePosition, source, position, size);
+      addresses.put(id, ((long) (chunks.size() - 1) << 32) | writePosition);
+      writePosition += size;
+      liveBytes += size;
+    });
+  }
+
+  private ByteBuffer chunk(final long address) {
+    return chunks.get((int) (address >>> 32));
+  }
+
+  private static int position(final long address) {
+    return (int) address;
+  }
+}
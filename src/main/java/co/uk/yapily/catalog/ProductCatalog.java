@@ -0,0 +1,447 @@
+package co.uk.yapily.catalog;
+
+import co.uk.yapily.config.CatalogProperties;
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.event.ProductChangedEvent;
+import co.uk.yapily.event.ProductResyncEvent;
+import co.uk.yapily.repository.ProductRepository;
+import co.uk.yapily.util.LongLongHashMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Serves product reads from a local copy of the catalog, so a freshly started replica does not have to warm up
+ * against the database.
+ * <p>
+ * The catalog is a memory-mapped snapshot ({@link MappedCatalogSnapshot}) plus a {@link CatalogStore} of the changes
+ * made since it was written, kept on the heap or, with {@code store: off-heap}, in direct buffers
+ * ({@link OffHeapCatalogStore}). On start the last snapshot is mapped and reads are served from it immediately; a background task then
+ * reconciles it with the database: rows whose {@code changeVersion} is above the catalog version are re-read, and
+ * products missing from the database are dropped. Change versions are committed in increasing order, so every change
+ * up to the version read from the change counter is visible once it is read. Without a snapshot, the first
+ * reconciliation is a full load and reads go to the database until it completes.
+ * <p>
+ * Writes are applied at once from {@link ProductChangedEvent}s: those made through this replica and, with cross-node
+ * invalidation enabled, those made through the others. Changes whose notification was lost show up within
+ * {@code reconcile-interval}, or right away when a {@link ProductResyncEvent} triggers a reconciliation. Every entry carries its change version, and an entry is only
+ * replaced by a newer one, so a slow reconciliation never overwrites a fresher write. Only reconciliations move the
+ * catalog version: a notification may arrive before that of an earlier change that was lost. The snapshot is rewritten every
+ * {@code snapshot-interval} when the catalog changed, and on shutdown.
+ * <p>
+ * Lookups that miss the catalog are not authoritative: callers fall back to the database.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class ProductCatalog {
+
+  static final String SNAPSHOT_FILE = "products.snapshot";
+
+  /**
+   * Version of a deletion: product IDs are never reused, so nothing may replace it.
+   */
+  private static final long DELETED_VERSION = Long.MAX_VALUE;
+
+  /**
+   * Products read from the database per query during a full load.
+   */
+  private static final int LOAD_PAGE_SIZE = 1_000;
+
+  private final CatalogProperties properties;
+  private final ProductRepository repository;
+  private final Path snapshotPath;
+  private final CatalogStore store;
+  private final AtomicBoolean dirty = new AtomicBoolean();
+
+  private volatile MappedCatalogSnapshot base;
+  private volatile boolean serving;
+  private volatile long version;
+  private ScheduledExecutorService executor;
+
+  /**
+   * Creates the catalog; it starts loading once the context is up.
+   *
+   * @param properties    the catalog configuration
+   * @param repository    the product repository
+   * @param meterRegistry the registry for the catalog metrics
+   */
+  public ProductCatalog(final CatalogProperties properties, final ProductRepository repository,
+                        final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.repository = repository;
+    this.snapshotPath = Path.of(properties.directory()).resolve(SNAPSHOT_FILE);
+    this.store = properties.store() == CatalogProperties.Store.OFF_HEAP
+        ? new OffHeapCatalogStore(Math.toIntExact(properties.offHeapChunkSize().toBytes()))
+        : new HeapCatalogStore();
+    Gauge.builder("yapily.catalog.overlay", store, CatalogStore::size)
+        .description("Catalog changes not written to the snapshot yet").register(meterRegistry);
+    Gauge.builder("yapily.catalog.snapshot.products", this, catalog -> catalog.base == null ? 0 : catalog.base.size())
+        .description("Products in the mapped catalog snapshot").register(meterRegistry);
+    Gauge.builder("yapily.catalog.store.bytes", store, CatalogStore::offHeapReservedBytes).tag("area", "off-heap-reserved")
+        .description("Memory of the catalog store").baseUnit("bytes").register(meterRegistry);
+    Gauge.builder("yapily.catalog.store.bytes", store, CatalogStore::offHeapLiveBytes).tag("area", "off-heap-live")
+        .description("Memory of the catalog store").baseUnit("bytes").register(meterRegistry);
+    Gauge.builder("yapily.catalog.store.bytes", store, CatalogStore::indexBytes).tag("area", "index")
+        .description("Memory of the catalog store").baseUnit("bytes").register(meterRegistry);
+  }
+
+  /**
+   * Maps the last snapshot, if any, and starts the background reconciliation and snapshot tasks.
+   */
+  @PostConstruct
+  public void start() {
+    if (!properties.enabled()) {
+      return;
+    }
+    openSnapshot();
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "product-catalog");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::reconcileCycle, 0, properties.reconcileInterval().toMillis(), TimeUnit.MILLISECONDS);
+    final long snapshotInterval = properties.snapshotInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::snapshotCycle, snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops the background tasks and writes a last snapshot for the next start.
+   */
+  @PreDestroy
+  public void stop() {
+    if (executor == null) {
+      return;
+    }
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("Product catalog tasks did not stop in time");
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    snapshotCycle();
+  }
+
+  /**
+   * @return whether reads can be served from the catalog
+   */
+  public boolean isServing() {
+    return serving;
+  }
+
+  /**
+   * @param id the product ID
+   * @return a new DTO for the product, or empty if the catalog is not serving or does not have the product
+   */
+  public Optional<ProductDto> find(final long id) {
+    if (!serving) {
+      return Optional.empty();
+    }
+    final CatalogStore.Entry entry = store.get(id);
+    if (entry != null) {
+      return Optional.ofNullable(entry.product()).map(CatalogProduct::toDto);
+    }
+    final MappedCatalogSnapshot snapshot = base;
+    return snapshot == null ? Optional.empty() : snapshot.find(id).map(CatalogProduct::toDto);
+  }
+
+  /**
+   * @return new DTOs for every product, in ascending ID order; only meaningful while {@link #isServing()}
+   */
+  public List<ProductDto> findAll() {
+    final List<ProductDto> products = new ArrayList<>();
+    try (CatalogStore.View view = store.view()) {
+      merge(base, view, product -> products.add(product.toDto()));
+    }
+    return products;
+  }
+
+  /**
+   * Applies a product read from the database, unless the catalog already holds a newer version of it.
+   *
+   * @param product the product entity
+   */
+  public void remember(final Product product) {
+    if (serving) {
+      apply(product.getId(), CatalogProduct.of(product));
+    }
+  }
+
+  /**
+   * Applies a product change. Runs before the other listeners, so those that read products back, such as the response
+   * cache, see the change.
+   *
+   * @param event the change
+   */
+  @EventListener
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void onProductChanged(final ProductChangedEvent event) {
+    if (!properties.enabled() || event.productId() == null) {
+      return;
+    }
+    if (event.type() == ProductChangedEvent.ChangeType.DELETED) {
+      apply(event.productId(), null);
+    } else {
+      apply(event.productId(), CatalogProduct.of(event.product(), event.changeVersion()));
+    }
+  }
+
+  /**
+   * Reconciles the catalog with the database right away, in the background.
+   *
+   * @param event the resync request
+   */
+  @EventListener
+  public void onResync(final ProductResyncEvent event) {
+    if (executor != null && !executor.isShutdown()) {
+      executor.execute(this::reconcileCycle);
+    }
+  }
+
+  /**
+   * @return the change version up to which the catalog reflects every committed change
+   */
+  public long version() {
+    return version;
+  }
+
+  /**
+   * Brings the catalog up to date with the database: a full load the first time without a snapshot, an incremental
+   * reconciliation afterwards.
+   */
+  void reconcile() {
+    if (!serving && base == null) {
+      fullLoad();
+      return;
+    }
+    // only products known before the ID query can be told apart from products created while it runs
+    final LongLongHashMap known = ids();
+    final List<Long> existingIds = repository.findAllIds();
+    final LongLongHashMap existing = new LongLongHashMap(existingIds.size());
+    existingIds.forEach(id -> existing.put(id, 0));
+    // every version up to the horizon is committed, so none is skipped by moving the catalog version to it
+    final long horizon = currentChangeVersion();
+    final LongLongHashMap changed = new LongLongHashMap(16);
+    long from = version + 1;
+    List<Product> page;
+    do {
+      page = from > horizon ? List.of()
+          : repository.findByChangeVersionBetweenOrderByChangeVersionAsc(from, horizon, Limit.of(LOAD_PAGE_SIZE));
+      for (final Product product : page) {
+        apply(product.getId(), CatalogProduct.of(product));
+        changed.put(product.getId(), 0);
+        from = product.getChangeVersion() + 1;
+      }
+    } while (page.size() == LOAD_PAGE_SIZE);
+    final int[] deleted = {0};
+    known.forEach((id, ignored) -> {
+      if (!existing.containsKey(id) && apply(id, null)) {
+        deleted[0]++;
+      }
+    });
+    // rows without a usable version, e.g. written before the column existed
+    final Set<Long> missing = new HashSet<>();
+    for (final Long id : existingIds) {
+      if (!known.containsKey(id) && !changed.containsKey(id)) {
+        missing.add(id);
+      }
+    }
+    if (!missing.isEmpty()) {
+      repository.findAllById(missing).forEach(product -> apply(product.getId(), CatalogProduct.of(product)));
+    }
+    version = Math.max(version, horizon);
+    if (!changed.isEmpty() || deleted[0] > 0 || !missing.isEmpty()) {
+      log.debug("Catalog reconciled: {} changed, {} deleted, {} missing", changed.size(), deleted[0], missing.size());
+    }
+  }
+
+  /**
+   * Writes the current catalog to a new snapshot and maps it in place of the previous one.
+   *
+   * @throws IOException if the snapshot cannot be written
+   */
+  synchronized void writeSnapshot() throws IOException {
+    dirty.set(false);
+    try (CatalogStore.View view = store.view()) {
+      final long capturedVersion = version;
+      final MappedCatalogSnapshot snapshot = base;
+      final int count = count(snapshot, view);
+      // products are streamed from the current snapshot and the store, never collected on the heap
+      CatalogSnapshotWriter.write(snapshotPath, capturedVersion, count, consumer -> merge(snapshot, view, consumer));
+      base = MappedCatalogSnapshot.open(snapshotPath);
+      // entries changed while the snapshot was written stay in the store
+      store.removeUnchanged(view);
+      log.info("Wrote catalog snapshot of {} products at version {}", count, capturedVersion);
+    }
+  }
+
+  /**
+   * Maps the snapshot left by a previous run, if there is a readable one, and starts serving from it.
+   */
+  void openSnapshot() {
+    if (!Files.exists(snapshotPath)) {
+      log.info("No catalog snapshot in {}, loading the catalog from the database", properties.directory());
+      return;
+    }
+    try {
+      base = MappedCatalogSnapshot.open(snapshotPath);
+      version = base.version();
+      serving = true;
+      log.info("Serving {} products from the catalog snapshot of {}", base.size(), Instant.ofEpochMilli(base.createdAt()));
+    } catch (final IOException e) {
+      log.warn("Ignoring unreadable catalog snapshot {}! Reason: {}", snapshotPath, e.getMessage());
+    }
+  }
+
+  private void fullLoad() {
+    final long horizon = currentChangeVersion();
+    long lastId = 0;
+    int loaded = 0;
+    List<Product> page;
+    do {
+      page = repository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(LOAD_PAGE_SIZE));
+      for (final Product product : page) {
+        apply(product.getId(), CatalogProduct.of(product));
+        lastId = product.getId();
+      }
+      loaded += page.size();
+    } while (page.size() == LOAD_PAGE_SIZE);
+    version = horizon;
+    serving = true;
+    log.info("Loaded {} products into the catalog", loaded);
+    snapshotCycle();
+  }
+
+  private void reconcileCycle() {
+    try {
+      reconcile();
+    } catch (final Exception e) {
+      log.warn("Error reconciling the product catalog, retrying in {}! Reason: {}", properties.reconcileInterval(), e.getMessage(), e);
+    }
+  }
+
+  private void snapshotCycle() {
+    if (!serving || !dirty.get()) {
+      return;
+    }
+    try {
+      writeSnapshot();
+    } catch (final Exception e) {
+      dirty.set(true);
+      log.warn("Error writing the catalog snapshot! Reason: {}", e.getMessage(), e);
+    }
+  }
+
+  private boolean apply(final long id, final CatalogProduct product) {
+    final long entryVersion = product == null ? DELETED_VERSION : product.version();
+    final boolean stored = store.put(id, product, entryVersion, storedVersion -> {
+      final long current = storedVersion >= 0 ? storedVersion : baseVersionOf(id);
+      return current != DELETED_VERSION && (product == null || entryVersion >= current);
+    });
+    if (stored) {
+      dirty.set(true);
+    }
+    return stored;
+  }
+
+  private long currentChangeVersion() {
+    return Optional.ofNullable(repository.currentChangeVersion()).orElse(0L);
+  }
+
+  private long baseVersionOf(final long id) {
+    final MappedCatalogSnapshot snapshot = base;
+    return snapshot == null ? -1 : snapshot.versionOf(id);
+  }
+
+  /**
+   * Visits the products of a snapshot overridden by those of a store view, in ascending ID order.
+   *
+   * @param snapshot the snapshot, may be {@code null}
+   * @param view     the store view
+   * @param consumer receives the products
+   */
+  private static void merge(final MappedCatalogSnapshot snapshot, final CatalogStore.View view,
+                            final Consumer<CatalogProduct> consumer) {
+    final long[] ids = view.ids();
+    final int size = snapshot == null ? 0 : snapshot.size();
+    int slot = 0;
+    int index = 0;
+    while (slot < size || index < ids.length) {
+      final long baseId = slot < size ? snapshot.idAt(slot) : Long.MAX_VALUE;
+      final long storeId = index < ids.length ? ids[index] : Long.MAX_VALUE;
+      if (baseId < storeId) {
+        consumer.accept(snapshot.productAt(slot++));
+        continue;
+      }
+      if (baseId == storeId) {
+        slot++;
+      }
+      final CatalogProduct product = view.get(ids[index++]).product();
+      if (product != null) {
+        consumer.accept(product);
+      }
+    }
+  }
+
+  /**
+   * @param snapshot the snapshot, may be {@code null}
+   * @param view     the store view
+   * @return the number of products {@link #merge} visits
+   */
+  private static int count(final MappedCatalogSnapshot snapshot, final CatalogStore.View view) {
+    int count = snapshot == null ? 0 : snapshot.size();
+    for (final long id : view.ids()) {
+      if (snapshot != null && snapshot.contains(id)) {
+        count--;
+      }
+      if (view.get(id).product() != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return the IDs of the snapshot and of the store, deletions included, as a set
+   */
+  private LongLongHashMap ids() {
+    final MappedCatalogSnapshot snapshot = base;
+    try (CatalogStore.View view = store.view()) {
+      final long[] storeIds = view.ids();
+      final LongLongHashMap ids = new LongLongHashMap((snapshot == null ? 0 : snapshot.size()) + storeIds.length);
+      if (snapshot != null) {
+        snapshot.forEachId(id -> ids.put(id, 0));
+      }
+      for (final long id : storeIds) {
+        ids.put(id, 0);
+      }
+      return ids;
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package co.uk.yapily.cluster;
+
+import co.uk.yapily.config.ClusterProperties;
+import co.uk.yapily.dto.exception.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Routes requests for a cart ({@code /carts/{id}} and below) to the instance owning it, as told by the
+ * {@link CartAffinityRouter}.
+ * <p>
+ * Requests for a cart this instance owns go down the chain. Others are forwarded to the owner and its response is
+ * relayed, or, with {@code routing: redirect}, answered with {@code 307 Temporary Redirect} to it. Every routed response
+ * carries the owner in {@value #OWNER_HEADER}, so clients and load balancers can send the next request straight to it.
+ * <p>
+ * Forwarded requests carry {@value #FORWARDED_HEADER} and are always served where they arrive, so instances briefly
+ * disagreeing on the members never bounce a request around. When the owner cannot be reached at all, refused or not
+ * answering the connection, the request has not run anywhere and is served locally; the database stays the source of truth. A forwarded request that times out
+ * may have run on the owner, so it is answered with {@code 504 Gateway Timeout} rather than retried.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+public class CartAffinityFilter extends OncePerRequestFilter {
+
+  /**
+   * Response header naming the instance owning the cart.
+   */
+  public static final String OWNER_HEADER = "X-Yapily-Cart-Owner";
+
+  /**
+   * Request header marking a request forwarded by another instance, naming it.
+   */
+  public static final String FORWARDED_HEADER = "X-Yapily-Forwarded-By";
+
+  private static final Pattern CART_PATH = Pattern.compile("^/carts/(\\d{1,18})(/.*)?$");
+
+  /**
+   * Headers describing a single connection, not the request, which are not relayed; {@code host} and
+   * {@code content-length} are set by the HTTP client.
+   */
+  private static final Set<String> HOP_BY_HOP = Set.of("connection", "keep-alive", "proxy-authenticate",
+      "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade", "host", "content-length", "expect");
+
+  private final CartAffinityRouter router;
+  private final ClusterProperties properties;
+  private final ObjectMapper objectMapper;
+  private final HttpClient client;
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * Creates the filter.
+   *
+   * @param router        the cart ownership
+   * @param properties    the cluster configuration
+   * @param objectMapper  the mapper for error bodies
+   * @param meterRegistry the registry for the routing metrics
+   */
+  public CartAffinityFilter(final CartAffinityRouter router, final ClusterProperties properties,
+                            final ObjectMapper objectMapper, final MeterRegistry meterRegistry) {
+    this.router = router;
+    this.properties = properties;
+    this.objectMapper = objectMapper;
+    this.meterRegistry = meterRegistry;
+    // the filter also exists with cluster mode off, when it is never registered: spare the client's selector thread
+    this.client = properties.enabled()
+        ? HttpClient.newBuilder()
+            .connectTimeout(properties.forwardTimeout())
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build()
+        : null;
+  }
+
+  @Override
+  protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                  final FilterChain filterChain) throws ServletException, IOException {
+    final Matcher matcher = CART_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length()));
+    if (!matcher.matches() || request.getHeader(FORWARDED_HEADER) != null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    final String owner = router.ownerOf(Long.parseLong(matcher.group(1)));
+    response.setHeader(OWNER_HEADER, owner);
+    if (owner == null || owner.equals(router.self())) {
+      count("local");
+      filterChain.doFilter(request, response);
+      return;
+    }
+    final URI target = targetOf(owner, request);
+    if (properties.routing() == ClusterProperties.Routing.REDIRECT) {
+      count("redirected");
+      response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+      response.setHeader(HttpHeaders.LOCATION, target.toString());
+      return;
+    }
+    forward(request, response, filterChain, target);
+  }
+
+  private void forward(final HttpServletRequest request, final HttpServletResponse response,
+                       final FilterChain filterChain, final URI target) throws ServletException, IOException {
+    final byte[] body = request.getInputStream().readAllBytes();
+    final HttpRequest.Builder forwarded = HttpRequest.newBuilder(target)
+        .timeout(properties.forwardTimeout())
+        .method(request.getMethod(), body.length == 0 ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofByteArray(body));
+    for (final String name : Collections.list(request.getHeaderNames())) {
+      if (!HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT))) {
+        Collections.list(request.getHeaders(name)).forEach(value -> forwarded.header(name, value));
+      }
+    }
+    forwarded.header(FORWARDED_HEADER, router.self());
+
+    final HttpResponse<byte[]> relayed;
+    try {
+      relayed = client.send(forwarded.build(), HttpResponse.BodyHandlers.ofByteArray());
+    } catch (final ConnectException | HttpConnectTimeoutException e) {
+      // the owner never saw the request: serving it here is safe
+      log.warn("Cart owner {} unreachable, serving {} locally! Reason: {}", target.getAuthority(), target.getPath(), e.getMessage());
+      count("fallback");
+      filterChain.doFilter(new BodyReplayingRequest(request, body), response);
+      return;
+    } catch (final HttpTimeoutException e) {
+      count("timeout");
+      error(response, HttpStatus.GATEWAY_TIMEOUT, "The instance owning the cart did not answer in time");
+      return;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      count("timeout");
+      error(response, HttpStatus.SERVICE_UNAVAILABLE, "The request was interrupted");
+      return;
+    }
+    count("forwarded");
+    response.setStatus(relayed.statusCode());
+    relayed.headers().map().forEach((name, values) -> {
+      if (!HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT)) && !name.startsWith(":")) {
+        values.forEach(value -> response.addHeader(name, value));
+      }
+    });
+    response.setContentLength(relayed.body().length);
+    response.getOutputStream().write(relayed.body());
+  }
+
+  private static URI targetOf(final String owner, final HttpServletRequest request) {
+    final String base = owner.endsWith("/") ? owner.substring(0, owner.length() - 1) : owner;
+    final String query = request.getQueryString();
+    return URI.create(base + request.getRequestURI() + (query == null ? "" : "?" + query));
+  }
+
+  private void error(final HttpServletResponse response, final HttpStatus status, final String message) throws IOException {
+    response.setStatus(status.value());
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(status.name(), message, status.value()));
+  }
+
+  private void count(final String outcome) {
+    meterRegistry.counter("yapily.cluster.routing", "outcome", outcome).increment();
+  }
+
+  /**
+   * The request with its body, already read for forwarding, available again to the local chain.
+   */
+  private static final class BodyReplayingRequest extends HttpServletRequestWrapper {
+
+    private final byte[] body;
+
+    private BodyReplayingRequest(final HttpServletRequest request, final byte[] body) {
+      super(request);
+      this.body = body;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+      final ByteArrayInputStream input = new ByteArrayInputStream(body);
+      return new ServletInputStream() {
+
+        @Override
+        public boolean isFinished() {
+          return input.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public void setReadListener(final ReadListener listener) {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read() {
+          return input.read();
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) {
+          return input.read(buffer, offset, length);
+        }
+      };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+      return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+    }
+  }
+}
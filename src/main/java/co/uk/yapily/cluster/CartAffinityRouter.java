@@ -0,0 +1,212 @@
+package co.uk.yapily.cluster;
+
+import co.uk.yapily.config.ClusterProperties;
+import co.uk.yapily.entity.ClusterMember;
+import co.uk.yapily.repository.ClusterMemberRepository;
+import co.uk.yapily.store.ActiveCartStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps every cart to the instance owning it, so that requests for a cart are served by one instance at a time and
+ * per-cart state, such as the {@link ActiveCartStore}, stays local to it.
+ * <p>
+ * Instances register in the {@code cluster_member} table under their {@code advertised-url} and increment their
+ * heartbeat every {@code heartbeat-interval}. On the same schedule each instance reads the table and keeps the members
+ * whose heartbeat moved within {@code member-timeout}, itself always included; a member seen for the first time counts
+ * as alive. Carts are spread over the live members with a {@link HashRing}.
+ * <p>
+ * When the members change, carts move to their new owners. The instance that lost them flushes and drops those it
+ * holds in memory, so the new owner loads their latest state. Changes acknowledged by the old owner between the change
+ * and its next heartbeat cycle are flushed then. Instances leaving gracefully deregister, so their carts move at once;
+ * those that crash are dropped after {@code member-timeout}, and their registration is removed after
+ * {@code purge-after}.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class CartAffinityRouter {
+
+  private final ClusterProperties properties;
+  private final ClusterMemberRepository repository;
+  private final ActiveCartStore activeCartStore;
+  private final Map<String, Observation> observations = new HashMap<>();
+  private final Counter membershipChanges;
+
+  private volatile HashRing ring;
+  private ScheduledExecutorService executor;
+
+  /**
+   * The last heartbeat seen from a member, and when it was first seen, in {@link System#nanoTime()}.
+   */
+  private record Observation(long heartbeat, long seenAt) {
+  }
+
+  /**
+   * Creates the router; it joins the cluster once the context is up, when enabled.
+   *
+   * @param properties      the cluster configuration
+   * @param repository      the member registry
+   * @param activeCartStore the store to hand carts off from when their owner changes
+   * @param meterRegistry   the registry for the cluster metrics
+   */
+  public CartAffinityRouter(final ClusterProperties properties, final ClusterMemberRepository repository,
+                            final ActiveCartStore activeCartStore, final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.repository = repository;
+    this.activeCartStore = activeCartStore;
+    this.ring = new HashRing(List.of(self()), properties.virtualNodes());
+    Gauge.builder("yapily.cluster.members", this, router -> router.ring.members().size())
+        .description("Live instances sharing the carts").register(meterRegistry);
+    this.membershipChanges = Counter.builder("yapily.cluster.membership.changes")
+        .description("Changes of the live instances").register(meterRegistry);
+  }
+
+  /**
+   * Registers this instance and starts the heartbeat.
+   */
+  @PostConstruct
+  public void start() {
+    if (!properties.enabled()) {
+      return;
+    }
+    if (properties.advertisedUrl().isBlank()) {
+      throw new IllegalStateException("yapily.cluster.advertised-url is required when yapily.cluster.enabled is set");
+    }
+    heartbeatCycle();
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "cluster-heartbeat");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long interval = properties.heartbeatInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::heartbeatCycle, interval, interval, TimeUnit.MILLISECONDS);
+    log.info("Joined the cart cluster as {} with {} member(s)", self(), ring.members().size());
+  }
+
+  /**
+   * Stops the heartbeat and deregisters, so the other instances take over the carts without waiting for the timeout.
+   */
+  @PreDestroy
+  public void stop() {
+    if (executor == null) {
+      return;
+    }
+    executor.shutdownNow();
+    try {
+      repository.deleteById(self());
+    } catch (final RuntimeException e) {
+      log.warn("Error leaving the cart cluster! Reason: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * @return whether carts are routed to their owner
+   */
+  public boolean isEnabled() {
+    return properties.enabled();
+  }
+
+  /**
+   * @param cartId the cart ID
+   * @return the advertised URL of the instance owning the cart
+   */
+  public String ownerOf(final long cartId) {
+    return ring.ownerOf(cartId);
+  }
+
+  /**
+   * @param cartId the cart ID
+   * @return whether this instance owns the cart
+   */
+  public boolean isLocal(final long cartId) {
+    return self().equals(ownerOf(cartId));
+  }
+
+  /**
+   * @return the advertised URL of this instance
+   */
+  public String self() {
+    return properties.advertisedUrl();
+  }
+
+  /**
+   * @return the live members, in natural order
+   */
+  public List<String> members() {
+    return ring.members();
+  }
+
+  /**
+   * Sends a heartbeat, refreshes the live members and hands carts off if they changed.
+   */
+  void heartbeatCycle() {
+    try {
+      if (repository.beat(self()) == 0) {
+        register();
+      }
+      refresh(repository.findAll(), System.nanoTime());
+    } catch (final RuntimeException e) {
+      // the ring stays as it was: without a database, carts cannot be read or written anyway
+      log.warn("Error refreshing the cart cluster, retrying in {}! Reason: {}", properties.heartbeatInterval(), e.getMessage());
+    }
+  }
+
+  /**
+   * Recomputes the live members from the registered ones.
+   *
+   * @param registered the registered members
+   * @param now        the current {@link System#nanoTime()}
+   */
+  synchronized void refresh(final List<ClusterMember> registered, final long now) {
+    final Set<String> live = new TreeSet<>();
+    live.add(self());
+    final Set<String> seen = new TreeSet<>();
+    for (final ClusterMember member : registered) {
+      seen.add(member.getUrl());
+      final Observation previous = observations.get(member.getUrl());
+      final Observation current = previous == null || previous.heartbeat() != member.getHeartbeat()
+          ? new Observation(member.getHeartbeat(), now) : previous;
+      observations.put(member.getUrl(), current);
+      final long silence = now - current.seenAt();
+      if (silence <= properties.memberTimeout().toNanos()) {
+        live.add(member.getUrl());
+      } else if (silence > properties.purgeAfter().toNanos() && !member.getUrl().equals(self())) {
+        repository.deleteIfUnchanged(member.getUrl(), member.getHeartbeat());
+      }
+    }
+    observations.keySet().retainAll(seen);
+    if (live.equals(new TreeSet<>(ring.members()))) {
+      return;
+    }
+    log.info("Cart cluster members changed from {} to {}", ring.members(), live);
+    ring = new HashRing(live, properties.virtualNodes());
+    membershipChanges.increment();
+    activeCartStore.handOff(cartId -> !isLocal(cartId));
+  }
+
+  private void register() {
+    try {
+      repository.save(new ClusterMember(self(), 0));
+    } catch (final DataIntegrityViolationException e) {
+      // registered concurrently, e.g. by a previous incarnation still shutting down
+      repository.beat(self());
+    }
+  }
+}
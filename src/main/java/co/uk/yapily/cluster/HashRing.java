@@ -0,0 +1,100 @@
+package co.uk.yapily.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * An immutable consistent-hash ring mapping keys to members.
+ * <p>
+ * Each member is placed at {@code virtualNodes} pseudo-random points; a key belongs to the member of the first point at
+ * or after its hash, wrapping around. Adding or removing a member therefore only moves the keys of the arcs next to its
+ * points, about {@code 1 / members} of them, and every instance that sees the same members computes the same owners.
+ *
+ * @since 1.1.0
+ */
+public final class HashRing {
+
+  private final List<String> members;
+  private final long[] points;
+  private final String[] owners;
+
+  private record Point(long hash, String member) {
+  }
+
+  /**
+   * Builds the ring of the given members.
+   *
+   * @param members      the member identifiers; duplicates are ignored
+   * @param virtualNodes the number of points per member
+   */
+  public HashRing(final Collection<String> members, final int virtualNodes) {
+    if (virtualNodes < 1) {
+      throw new IllegalArgumentException("At least one virtual node per member is needed: " + virtualNodes);
+    }
+    this.members = List.copyOf(new TreeSet<>(members));
+    final List<Point> ring = new ArrayList<>(this.members.size() * virtualNodes);
+    for (final String member : this.members) {
+      for (int node = 0; node < virtualNodes; node++) {
+        ring.add(new Point(hash(member + '#' + node), member));
+      }
+    }
+    // ties are broken by member, so that every instance builds the same ring
+    ring.sort(Comparator.comparingLong(Point::hash).thenComparing(Point::member));
+    this.points = new long[ring.size()];
+    this.owners = new String[ring.size()];
+    for (int i = 0; i < ring.size(); i++) {
+      points[i] = ring.get(i).hash();
+      owners[i] = ring.get(i).member();
+    }
+  }
+
+  /**
+   * @param key the key, e.g. a cart ID
+   * @return the member owning the key, or {@code null} if the ring is empty
+   */
+  public String ownerOf(final long key) {
+    if (points.length == 0) {
+      return null;
+    }
+    final int index = Arrays.binarySearch(points, mix(key));
+    final int slot = index >= 0 ? index : -index - 1;
+    return owners[slot == points.length ? 0 : slot];
+  }
+
+  /**
+   * @return the members, in natural order
+   */
+  public List<String> members() {
+    return members;
+  }
+
+  /**
+   * 64-bit FNV-1a over the UTF-8 bytes of a string, finalised with {@link #mix(long)}.
+   */
+  private static long hash(final String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (final byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  /**
+   * The MurmurHash3 finaliser, spreading sequential keys such as cart IDs over the whole ring.
+   */
+  private static long mix(final long value) {
+    long hash = value;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
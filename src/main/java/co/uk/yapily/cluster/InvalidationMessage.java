@@ -0,0 +1,103 @@
+package co.uk.yapily.cluster;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An invalidation message exchanged between instances: the products one instance changed, or a request to resync.
+ * <p>
+ * Messages are encoded as {@code 1|<origin>|U12,U13,D14} (upserted and deleted product IDs) or {@code 1|<origin>|R}
+ * (resync), split over as many payloads as needed to stay under the PostgreSQL notification payload limit.
+ *
+ * @param origin   the ID of the sending instance
+ * @param resync   whether receivers should re-read every product
+ * @param upserted the IDs of the products created or updated
+ * @param deleted  the IDs of the products deleted
+ *
+ * @since 1.1.0
+ */
+public record InvalidationMessage(String origin, boolean resync, Set<Long> upserted, Set<Long> deleted) {
+
+  /**
+   * Largest payload produced by {@link #encode()}, below the 8000 bytes PostgreSQL accepts.
+   */
+  static final int MAX_PAYLOAD = 7900;
+
+  private static final String FORMAT = "1";
+
+  public InvalidationMessage {
+    upserted = Set.copyOf(upserted);
+    deleted = Set.copyOf(deleted);
+  }
+
+  /**
+   * @param origin the ID of the sending instance
+   * @return a message asking every receiver to resync
+   */
+  public static InvalidationMessage resync(final String origin) {
+    return new InvalidationMessage(origin, true, Set.of(), Set.of());
+  }
+
+  /**
+   * @return the notification payloads carrying this message
+   */
+  public List<String> encode() {
+    final String prefix = FORMAT + "|" + origin + "|";
+    if (resync) {
+      return List.of(prefix + "R");
+    }
+    final List<String> payloads = new ArrayList<>();
+    final StringBuilder payload = new StringBuilder(prefix);
+    final List<String> tokens = new ArrayList<>(upserted.size() + deleted.size());
+    upserted.forEach(id -> tokens.add("U" + id));
+    deleted.forEach(id -> tokens.add("D" + id));
+    for (final String token : tokens) {
+      if (payload.length() > prefix.length() && payload.length() + 1 + token.length() > MAX_PAYLOAD) {
+        payloads.add(payload.toString());
+        payload.setLength(prefix.length());
+      }
+      if (payload.length() > prefix.length()) {
+        payload.append(',');
+      }
+      payload.append(token);
+    }
+    if (payload.length() > prefix.length()) {
+      payloads.add(payload.toString());
+    }
+    return payloads;
+  }
+
+  /**
+   * @param payload a notification payload
+   * @return the message, or empty if the payload is not a valid message
+   */
+  public static Optional<InvalidationMessage> decode(final String payload) {
+    final String[] parts = payload == null ? new String[0] : payload.split("\\|", 3);
+    if (parts.length != 3 || !FORMAT.equals(parts[0]) || parts[1].isEmpty() || parts[2].isEmpty()) {
+      return Optional.empty();
+    }
+    if ("R".equals(parts[2])) {
+      return Optional.of(resync(parts[1]));
+    }
+    final Set<Long> upserted = new LinkedHashSet<>();
+    final Set<Long> deleted = new LinkedHashSet<>();
+    try {
+      for (final String token : parts[2].split(",")) {
+        final long id = Long.parseLong(token.substring(1));
+        switch (token.charAt(0)) {
+          case 'U' -> upserted.add(id);
+          case 'D' -> deleted.add(id);
+          default -> {
+            return Optional.empty();
+          }
+        }
+      }
+    } catch (final RuntimeException e) {
+      return Optional.empty();
+    }
+    return Optional.of(new InvalidationMessage(parts[1], false, upserted, deleted));
+  }
+}
@@ -0,0 +1,328 @@
+package co.uk.yapily.cluster;
+
+import co.uk.yapily.config.InvalidationProperties;
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.event.ProductChangedEvent;
+import co.uk.yapily.event.ProductResyncEvent;
+import co.uk.yapily.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the product data held by every instance coherent, over PostgreSQL {@code LISTEN/NOTIFY}.
+ * <p>
+ * Local product changes ({@link ProductChangedEvent.Origin#LOCAL}) are queued and sent by a publisher thread as
+ * {@link InvalidationMessage}s on the configured channel, batching the changes that accumulated since the previous
+ * message; a full queue turns into a resync message, so a burst of writes never blocks request threads. A listener
+ * thread holds a dedicated connection subscribed to the channel. For every message from another instance it re-reads
+ * the upserted products and publishes {@link ProductChangedEvent.Origin#REMOTE} events, which the product catalog and
+ * the change feed apply like local ones.
+ * <p>
+ * A silent listening connection is checked every {@code heartbeat-interval}. Once it is lost, it is re-established
+ * with exponential backoff, and a {@link ProductResyncEvent} is published since notifications sent meanwhile are
+ * gone. A change whose notification is lost is still picked up by the product catalog reconciliation, so the
+ * staleness of a replica is bounded by {@code yapily.catalog.reconcile-interval} even without notifications.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class ProductInvalidationBus {
+
+  private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+  private static final int MAX_BATCH = 1000;
+
+  private final InvalidationProperties properties;
+  private final DataSourceProperties dataSourceProperties;
+  private final JdbcTemplate jdbcTemplate;
+  private final ProductRepository repository;
+  private final ModelMapper modelMapper;
+  private final ApplicationEventPublisher eventPublisher;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final BlockingQueue<ProductChangedEvent> outbox;
+  private final AtomicBoolean overflowed = new AtomicBoolean();
+  private final Counter sent;
+  private final Counter received;
+  private final Counter resyncs;
+
+  private volatile boolean running;
+  private volatile boolean connected;
+  private Thread listener;
+  private Thread publisher;
+
+  /**
+   * Creates the bus; it only connects when enabled on PostgreSQL.
+   *
+   * @param properties           the invalidation configuration
+   * @param dataSourceProperties the data source configuration, for the listening connection
+   * @param dataSource           the data source notifications are sent through
+   * @param repository           the product repository, to re-read changed products
+   * @param modelMapper          the model mapper
+   * @param eventPublisher       the publisher of remote changes and resync requests
+   * @param meterRegistry        the registry for the invalidation metrics
+   */
+  public ProductInvalidationBus(final InvalidationProperties properties, final DataSourceProperties dataSourceProperties,
+                                final DataSource dataSource, final ProductRepository repository,
+                                final ModelMapper modelMapper, final ApplicationEventPublisher eventPublisher,
+                                final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.dataSourceProperties = dataSourceProperties;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.repository = repository;
+    this.modelMapper = modelMapper;
+    this.eventPublisher = eventPublisher;
+    this.outbox = new ArrayBlockingQueue<>(properties.outboxSize());
+    this.sent = Counter.builder("yapily.invalidation.messages").tag("direction", "sent")
+        .description("Invalidation messages exchanged with the other instances").register(meterRegistry);
+    this.received = Counter.builder("yapily.invalidation.messages").tag("direction", "received")
+        .description("Invalidation messages exchanged with the other instances").register(meterRegistry);
+    this.resyncs = Counter.builder("yapily.invalidation.resyncs")
+        .description("Full product resyncs requested by the invalidation bus").register(meterRegistry);
+    Gauge.builder("yapily.invalidation.connected", this, bus -> bus.connected ? 1 : 0)
+        .description("Whether the invalidation listener is connected").register(meterRegistry);
+  }
+
+  /**
+   * Starts the listener and publisher threads, when enabled on PostgreSQL.
+   */
+  @PostConstruct
+  public void start() {
+    if (!properties.enabled()) {
+      return;
+    }
+    if (!dataSourceProperties.determineUrl().startsWith("jdbc:postgresql:")) {
+      log.warn("Cross-node invalidation needs PostgreSQL, it stays disabled");
+      return;
+    }
+    if (!CHANNEL.matcher(properties.channel()).matches()) {
+      throw new IllegalArgumentException("Invalid invalidation channel: " + properties.channel());
+    }
+    running = true;
+    listener = new Thread(this::listen, "product-invalidation-listener");
+    listener.setDaemon(true);
+    listener.start();
+    publisher = new Thread(this::publish, "product-invalidation-publisher");
+    publisher.setDaemon(true);
+    publisher.start();
+    log.info("Exchanging product invalidations on channel {} as {}", properties.channel(), nodeId);
+  }
+
+  /**
+   * Stops both threads; changes still queued are sent first.
+   */
+  @PreDestroy
+  public void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    publisher.interrupt();
+    listener.interrupt();
+    try {
+      publisher.join(TimeUnit.SECONDS.toMillis(5));
+      listener.join(properties.heartbeatInterval().toMillis() + TimeUnit.SECONDS.toMillis(1));
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return whether the bus is running
+   */
+  public boolean isActive() {
+    return running;
+  }
+
+  /**
+   * Queues a local change for the other instances.
+   *
+   * @param event the change
+   */
+  @EventListener
+  public void onProductChanged(final ProductChangedEvent event) {
+    if (!running || event.origin() != ProductChangedEvent.Origin.LOCAL || event.productId() == null) {
+      return;
+    }
+    if (!outbox.offer(event)) {
+      overflowed.set(true);
+    }
+  }
+
+  /**
+   * Applies a notification payload received from the channel.
+   *
+   * @param payload the payload
+   */
+  void receive(final String payload) {
+    final InvalidationMessage message = InvalidationMessage.decode(payload).orElse(null);
+    if (message == null) {
+      log.warn("Ignoring malformed invalidation message: {}", payload);
+      return;
+    }
+    if (nodeId.equals(message.origin())) {
+      return;
+    }
+    received.increment();
+    if (message.resync()) {
+      requestResync("instance " + message.origin() + " lost track of its changes");
+      return;
+    }
+    message.deleted().forEach(id -> eventPublisher.publishEvent(ProductChangedEvent.remoteDeleted(id)));
+    final Set<Long> upserted = new HashSet<>(message.upserted());
+    upserted.removeAll(message.deleted());
+    if (upserted.isEmpty()) {
+      return;
+    }
+    try {
+      for (final Product product : repository.findAllById(upserted)) {
+        upserted.remove(product.getId());
+        eventPublisher.publishEvent(ProductChangedEvent.remoteUpserted(modelMapper.map(product, ProductDto.class),
+            product.getUpdatedAt(), product.getChangeVersion()));
+      }
+      // deleted since the notification was sent
+      upserted.forEach(id -> eventPublisher.publishEvent(ProductChangedEvent.remoteDeleted(id)));
+    } catch (final RuntimeException e) {
+      log.warn("Error re-reading {} products changed by instance {}! Reason: {}", upserted.size(), message.origin(), e.getMessage(), e);
+      requestResync("changed products could not be re-read");
+    }
+  }
+
+  /**
+   * @return the ID of this instance in invalidation messages
+   */
+  String nodeId() {
+    return nodeId;
+  }
+
+  private void listen() {
+    long backoff = properties.reconnectBackoff().toMillis();
+    boolean connectedBefore = false;
+    while (running) {
+      try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+          dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+        final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + properties.channel());
+        }
+        connected = true;
+        backoff = properties.reconnectBackoff().toMillis();
+        if (connectedBefore) {
+          requestResync("invalidation connection re-established");
+        }
+        connectedBefore = true;
+        while (running) {
+          final PGNotification[] notifications = pgConnection.getNotifications((int) properties.heartbeatInterval().toMillis());
+          if (notifications == null || notifications.length == 0) {
+            try (Statement statement = connection.createStatement()) {
+              statement.execute("SELECT 1");
+            }
+            continue;
+          }
+          for (final PGNotification notification : notifications) {
+            receive(notification.getParameter());
+          }
+        }
+      } catch (final SQLException e) {
+        connected = false;
+        if (!running) {
+          return;
+        }
+        log.warn("Invalidation connection lost, reconnecting in {} ms! Reason: {}", backoff, e.getMessage());
+        try {
+          Thread.sleep(backoff);
+        } catch (final InterruptedException interrupted) {
+          return;
+        }
+        backoff = Math.min(backoff * 2, properties.maxReconnectBackoff().toMillis());
+      }
+    }
+    connected = false;
+  }
+
+  private void publish() {
+    final List<ProductChangedEvent> batch = new ArrayList<>();
+    while (running || !outbox.isEmpty()) {
+      try {
+        final ProductChangedEvent first = outbox.poll(properties.heartbeatInterval().toMillis(), TimeUnit.MILLISECONDS);
+        if (first != null) {
+          batch.add(first);
+          outbox.drainTo(batch, MAX_BATCH - 1);
+        }
+      } catch (final InterruptedException e) {
+        if (running) {
+          continue;
+        }
+        outbox.drainTo(batch);
+      }
+      final InvalidationMessage message = overflowed.getAndSet(false) ? InvalidationMessage.resync(nodeId) : toMessage(batch);
+      batch.clear();
+      if (!message.resync() && message.upserted().isEmpty() && message.deleted().isEmpty()) {
+        continue;
+      }
+      try {
+        for (final String payload : message.encode()) {
+          jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> { }, properties.channel(), payload);
+        }
+        sent.increment();
+      } catch (final RuntimeException e) {
+        // the other instances catch up through the resync, or their catalog reconciliation
+        overflowed.set(true);
+        log.warn("Error sending product invalidations! Reason: {}", e.getMessage());
+        try {
+          Thread.sleep(properties.reconnectBackoff().toMillis());
+        } catch (final InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  private InvalidationMessage toMessage(final List<ProductChangedEvent> batch) {
+    final Set<Long> upserted = new HashSet<>();
+    final Set<Long> deleted = new HashSet<>();
+    for (final ProductChangedEvent event : batch) {
+      if (event.type() == ProductChangedEvent.ChangeType.DELETED) {
+        deleted.add(event.productId());
+      } else {
+        upserted.add(event.productId());
+      }
+    }
+    upserted.removeAll(deleted);
+    return new InvalidationMessage(nodeId, false, upserted, deleted);
+  }
+
+  private void requestResync(final String reason) {
+    resyncs.increment();
+    log.info("Resyncing products: {}", reason);
+    eventPublisher.publishEvent(new ProductResyncEvent(reason));
+  }
+}
@@ -0,0 +1,25 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the in-memory active-cart store ({@code yapily.cart-store.*}).
+ *
+ * @param enabled        whether not-yet-checked-out carts are kept in memory and persisted write-behind
+ * @param flushInterval  delay between two write-behind flushes; bounds how much can be lost on a crash
+ * @param flushBatchSize maximum number of carts persisted by a single flush
+ * @param lockStripes    number of locks the carts are striped across
+ * @param idleTimeout    time after which a clean cart that has not been accessed is dropped from memory
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.cart-store")
+public record ActiveCartStoreProperties(@DefaultValue("false") boolean enabled,
+                                        @DefaultValue("500ms") Duration flushInterval,
+                                        @DefaultValue("200") int flushBatchSize,
+                                        @DefaultValue("64") int lockStripes,
+                                        @DefaultValue("10m") Duration idleTimeout) {
+}
@@ -0,0 +1,48 @@
+package co.uk.yapily.config;
+
+import co.uk.yapily.admission.AdaptiveLimiter;
+import co.uk.yapily.admission.AdmissionControlFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registers the admission control filter on the cart and product endpoints.
+ * <p>
+ * The registration always exists and {@code yapily.admission.enabled} only decides whether the servlet container gets
+ * the filter, so the flag is read at startup even in an ahead-of-time processed build, where conditions on properties
+ * are evaluated once, when the application is built.
+ *
+ * @since 1.1.0
+ */
+@Configuration
+public class AdmissionControlConfig {
+
+  /**
+   * Registers the filter ahead of the rest of the chain, so shed requests cost as little as possible. When admission
+   * control is disabled, the registration is disabled and requests pass straight through.
+   *
+   * @param properties    the admission control configuration
+   * @param objectMapper  the mapper for the error body
+   * @param meterRegistry the registry for the limiter metrics
+   * @return the filter registration
+   */
+  @Bean
+  public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(final AdmissionControlProperties properties,
+                                                                               final ObjectMapper objectMapper,
+                                                                               final MeterRegistry meterRegistry) {
+    final AdmissionControlFilter filter = new AdmissionControlFilter(
+        new AdaptiveLimiter("read", properties.read(), properties, meterRegistry),
+        new AdaptiveLimiter("write", properties.write(), properties, meterRegistry),
+        objectMapper, properties.retryAfter());
+
+    final FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(filter);
+    registration.addUrlPatterns("/carts", "/carts/*", "/products", "/products/*");
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+    registration.setEnabled(properties.enabled());
+    return registration;
+  }
+}
@@ -0,0 +1,40 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the adaptive admission control in front of the cart and product endpoints
+ * ({@code yapily.admission.*}).
+ *
+ * @param enabled    whether requests over the concurrency limit are shed with 503
+ * @param read       limits for {@code GET} and {@code HEAD} requests
+ * @param write      limits for every other request
+ * @param tolerance  how much slower than the baseline latency a request may get before the limit shrinks
+ * @param smoothing  weight of each new limit estimate, between 0 and 1
+ * @param retryAfter value of the {@code Retry-After} header on shed requests
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.admission")
+public record AdmissionControlProperties(@DefaultValue("true") boolean enabled,
+                                         @DefaultValue Limits read,
+                                         @DefaultValue Limits write,
+                                         @DefaultValue("2.0") double tolerance,
+                                         @DefaultValue("0.2") double smoothing,
+                                         @DefaultValue("1s") Duration retryAfter) {
+
+  /**
+   * Bounds of one concurrency limit.
+   *
+   * @param initial the limit before any latency has been observed
+   * @param min     the limit never shrinks below this
+   * @param max     the limit never grows above this
+   */
+  public record Limits(@DefaultValue("20") int initial,
+                       @DefaultValue("4") int min,
+                       @DefaultValue("200") int max) {
+  }
+}
@@ -0,0 +1,26 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the cart event journal ({@code yapily.journal.*}).
+ *
+ * @param enabled       whether cart events are journaled
+ * @param directory     the directory holding the journal segments
+ * @param segmentSize   size of one segment file; a new segment is started when the current one is full
+ * @param ringSize      capacity of the in-memory buffer between request threads and the writer, a power of two
+ * @param forceInterval maximum delay before written events are forced from the page cache to disk
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.journal")
+public record CartJournalProperties(@DefaultValue("false") boolean enabled,
+                                    @DefaultValue("journal") String directory,
+                                    @DefaultValue("64MB") DataSize segmentSize,
+                                    @DefaultValue("8192") int ringSize,
+                                    @DefaultValue("1s") Duration forceInterval) {
+}
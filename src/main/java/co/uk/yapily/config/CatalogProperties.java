@@ -0,0 +1,48 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the product catalog snapshot ({@code yapily.catalog.*}).
+ *
+ * @param enabled           whether product reads are served from the catalog
+ * @param directory         the directory holding the snapshot file
+ * @param reconcileInterval delay between two reconciliations against the database; bounds how long changes made by
+ *                          other replicas take to show up
+ * @param snapshotInterval  delay between two snapshot writes, when the catalog changed
+ * @param store             where changes made since the last snapshot are kept
+ * @param offHeapChunkSize  the size of the direct buffers of the off-heap store, which bounds the size of a product
+ *                          record
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.catalog")
+public record CatalogProperties(@DefaultValue("false") boolean enabled,
+                                @DefaultValue("catalog") String directory,
+                                @DefaultValue("30s") Duration reconcileInterval,
+                                @DefaultValue("5m") Duration snapshotInterval,
+                                @DefaultValue("heap") Store store,
+                                @DefaultValue("16MB") DataSize offHeapChunkSize) {
+
+  /**
+   * Storage of the catalog changes not written to the snapshot yet.
+   */
+  public enum Store {
+
+    /**
+     * Product objects on the Java heap; fine while changes between two snapshots stay small.
+     */
+    HEAP,
+
+    /**
+     * Encoded records in direct buffers, indexed by a primitive hash map; for catalogs of millions of products, where a
+     * full load or a burst of changes would otherwise fill the heap.
+     */
+    OFF_HEAP
+  }
+}
@@ -0,0 +1,46 @@
+package co.uk.yapily.config;
+
+import co.uk.yapily.cluster.CartAffinityFilter;
+import co.uk.yapily.cluster.CartAffinityRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registers the cart-affinity filter on the cart endpoints.
+ * <p>
+ * The registration always exists and {@code yapily.cluster.enabled} only decides whether the servlet container gets
+ * the filter, so the flag is read at startup even in an ahead-of-time processed build, where conditions on properties
+ * are evaluated once, when the application is built.
+ *
+ * @since 1.1.0
+ */
+@Configuration
+public class ClusterConfig {
+
+  /**
+   * Registers the filter after admission control, so forwarded requests count against this instance's limits while
+   * they hold a request thread. Without cluster mode, the registration is disabled and requests pass straight through.
+   *
+   * @param router        the cart ownership
+   * @param properties    the cluster configuration
+   * @param objectMapper  the mapper for error bodies
+   * @param meterRegistry the registry for the routing metrics
+   * @return the filter registration
+   */
+  @Bean
+  public FilterRegistrationBean<CartAffinityFilter> cartAffinityFilter(final CartAffinityRouter router,
+                                                                       final ClusterProperties properties,
+                                                                       final ObjectMapper objectMapper,
+                                                                       final MeterRegistry meterRegistry) {
+    final FilterRegistrationBean<CartAffinityFilter> registration =
+        new FilterRegistrationBean<>(new CartAffinityFilter(router, properties, objectMapper, meterRegistry));
+    registration.addUrlPatterns("/carts/*");
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+    registration.setEnabled(properties.enabled());
+    return registration;
+  }
+}
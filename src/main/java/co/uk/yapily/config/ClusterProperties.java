@@ -0,0 +1,48 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of cart-affinity routing between instances ({@code yapily.cluster.*}).
+ *
+ * @param enabled           whether requests for a cart are routed to the instance owning it
+ * @param advertisedUrl     the base URL the other instances reach this one at, e.g. {@code http://10.0.0.12:8080};
+ *                          also identifies the instance, so it must be unique and stable across restarts
+ * @param routing           what an instance does with a request for a cart it does not own
+ * @param heartbeatInterval delay between two heartbeats, which also refresh the membership
+ * @param memberTimeout     how long a member may go without a heartbeat before it leaves the ring
+ * @param purgeAfter        how long a member may go without a heartbeat before its registration is removed
+ * @param virtualNodes      points of each member on the hash ring; more points spread carts more evenly
+ * @param forwardTimeout    timeout of a forwarded request, after which the client gets {@code 504 Gateway Timeout}
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.cluster")
+public record ClusterProperties(@DefaultValue("false") boolean enabled,
+                                @DefaultValue("") String advertisedUrl,
+                                @DefaultValue("forward") Routing routing,
+                                @DefaultValue("2s") Duration heartbeatInterval,
+                                @DefaultValue("10s") Duration memberTimeout,
+                                @DefaultValue("10m") Duration purgeAfter,
+                                @DefaultValue("128") int virtualNodes,
+                                @DefaultValue("10s") Duration forwardTimeout) {
+
+  /**
+   * Handling of a request for a cart owned by another instance.
+   */
+  public enum Routing {
+
+    /**
+     * Proxy the request to the owner and relay its response.
+     */
+    FORWARD,
+
+    /**
+     * Answer {@code 307 Temporary Redirect} to the owner, for clients and load balancers that can follow it.
+     */
+    REDIRECT
+  }
+}
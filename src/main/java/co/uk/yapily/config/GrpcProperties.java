@@ -0,0 +1,26 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the gRPC API ({@code yapily.grpc.*}).
+ *
+ * @param enabled               whether the gRPC server is started next to the REST API
+ * @param port                  port the gRPC server listens on
+ * @param maxInboundMessageSize largest request message accepted
+ * @param exportPageSize        products read per query while streaming the catalog
+ * @param shutdownGracePeriod   how long calls in flight may take to complete on shutdown before they are cancelled
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.grpc")
+public record GrpcProperties(@DefaultValue("false") boolean enabled,
+                             @DefaultValue("9090") int port,
+                             @DefaultValue("1MB") DataSize maxInboundMessageSize,
+                             @DefaultValue("500") int exportPageSize,
+                             @DefaultValue("10s") Duration shutdownGracePeriod) {
+}
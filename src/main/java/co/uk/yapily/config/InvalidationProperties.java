@@ -0,0 +1,28 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of cross-node product invalidation over PostgreSQL {@code LISTEN/NOTIFY} ({@code yapily.invalidation.*}).
+ *
+ * @param enabled             whether product changes are exchanged with the other instances; needs PostgreSQL
+ * @param channel             the notification channel, a lower-case SQL identifier shared by every instance
+ * @param heartbeatInterval   delay after which an idle listening connection is checked; bounds how long a broken
+ *                            connection goes unnoticed
+ * @param reconnectBackoff    delay before the first reconnection attempt, doubled after every failure
+ * @param maxReconnectBackoff upper bound of the reconnection delay
+ * @param outboxSize          number of local changes waiting to be sent; when it overflows, a resync is sent instead
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.invalidation")
+public record InvalidationProperties(@DefaultValue("false") boolean enabled,
+                                     @DefaultValue("yapily_product_changes") String channel,
+                                     @DefaultValue("10s") Duration heartbeatInterval,
+                                     @DefaultValue("1s") Duration reconnectBackoff,
+                                     @DefaultValue("30s") Duration maxReconnectBackoff,
+                                     @DefaultValue("10000") int outboxSize) {
+}
@@ -0,0 +1,37 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the cluster-wide background jobs ({@code yapily.jobs.*}).
+ *
+ * @param enabled      whether this instance takes part in running the jobs
+ * @param pollInterval delay between two checks of whether a job is due; bounds how late a job starts
+ * @param lease        how long a run is reserved for its instance without renewal; a crashed runner blocks the job
+ *                     for at most this long
+ * @param cartCleanup  the removal of old checked-out carts
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.jobs")
+public record JobsProperties(@DefaultValue("false") boolean enabled,
+                             @DefaultValue("30s") Duration pollInterval,
+                             @DefaultValue("5m") Duration lease,
+                             @DefaultValue CartCleanup cartCleanup) {
+
+  /**
+   * Configuration of the cart clean-up job.
+   *
+   * @param enabled   whether the job runs
+   * @param interval  delay between two runs across the cluster
+   * @param retention how long checked-out carts are kept once their order is archived; carts checked out before
+   *                  orders were archived are never removed by the job
+   */
+  public record CartCleanup(@DefaultValue("true") boolean enabled,
+                            @DefaultValue("1h") Duration interval,
+                            @DefaultValue("7d") Duration retention) {
+  }
+}
@@ -1,17 +1,22 @@
 package co.uk.yapily.config;
 
+import co.uk.yapily.config.hints.ApplicationRuntimeHints;
 import org.modelmapper.ModelMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 /**
  * Configures ModelMapper for the application.
  * Adds a mapping between LeaseOfferPrettyGoodCarDealsToLeaseOffer.
+ * <p>
+ * ModelMapper works through reflection, which is registered for native images by {@link ApplicationRuntimeHints}.
  *
  * @author Samuel Catalano
  * @since 1.0.0
  */
 @Configuration
+@ImportRuntimeHints(ApplicationRuntimeHints.class)
 public class ModelMapperConfig {
 
   /**
@@ -0,0 +1,23 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the server-sent events feed of product changes ({@code yapily.feed.*}).
+ *
+ * @param replaySize        number of recent changes kept in memory for subscribers resuming with {@code Last-Event-ID}
+ * @param maxSubscribers    largest number of open subscriptions; further ones are rejected with 503
+ * @param heartbeatInterval delay between two keep-alive comments sent to every subscriber
+ * @param timeout           lifetime of a subscription, after which the client reconnects and resumes
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.feed")
+public record ProductFeedProperties(@DefaultValue("1024") int replaySize,
+                                    @DefaultValue("1000") int maxSubscribers,
+                                    @DefaultValue("15s") Duration heartbeatInterval,
+                                    @DefaultValue("30m") Duration timeout) {
+}
@@ -0,0 +1,19 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the promotion rules ({@code yapily.promotions.*}).
+ *
+ * @param enabled         whether carts are priced with the rules of the {@code promotion_rule} table
+ * @param refreshInterval delay between two reads of the rules; bounds how long a change takes to apply
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.promotions")
+public record PromotionProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("30s") Duration refreshInterval) {
+}
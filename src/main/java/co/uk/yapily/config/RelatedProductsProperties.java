@@ -0,0 +1,29 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the "frequently bought together" index ({@code yapily.related.*}).
+ *
+ * @param enabled          whether checked-out carts are counted and related products served
+ * @param directory        the directory holding the snapshot of the counters
+ * @param candidates       the number of counters a product keeps when its row is pruned; bounds memory and should
+ *                         exceed the number of related products requested
+ * @param maxCartProducts  the number of distinct products of a cart that are counted; larger carts say little about
+ *                         which products go together and cost the square of their size
+ * @param queueSize        the number of checkouts waiting to be counted before new ones are dropped, a power of two
+ * @param snapshotInterval delay between two snapshot writes, when the counters changed
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.related")
+public record RelatedProductsProperties(@DefaultValue("false") boolean enabled,
+                                        @DefaultValue("related") String directory,
+                                        @DefaultValue("64") int candidates,
+                                        @DefaultValue("50") int maxCartProducts,
+                                        @DefaultValue("8192") int queueSize,
+                                        @DefaultValue("5m") Duration snapshotInterval) {
+}
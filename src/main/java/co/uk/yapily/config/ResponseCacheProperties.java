@@ -0,0 +1,27 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the cache of serialized product responses ({@code yapily.response-cache.*}).
+ *
+ * @param enabled        whether {@code GET /products} and {@code GET /products/{id}} are answered from cached bytes
+ * @param gzip           whether a gzip-compressed copy is kept for clients accepting {@code gzip}
+ * @param gzipMinSize    smallest response worth compressing
+ * @param maxEntries     largest number of single products cached; further ones are serialized on every request
+ * @param timeToLive     age after which an entry is serialized again, which bounds the staleness of changes that
+ *                       reach this instance without a product change event
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.response-cache")
+public record ResponseCacheProperties(@DefaultValue("false") boolean enabled,
+                                      @DefaultValue("true") boolean gzip,
+                                      @DefaultValue("1KB") DataSize gzipMinSize,
+                                      @DefaultValue("10000") int maxEntries,
+                                      @DefaultValue("30s") Duration timeToLive) {
+}
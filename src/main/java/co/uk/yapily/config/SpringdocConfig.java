@@ -22,7 +22,7 @@ public class SpringdocConfig {
         .info(new Info()
             .title("e-commerce API")
             .description("Exposing e-commerce REST methods")
-            .version("1.0.0")
+            .version("1.1.0")
             .license(new License()
                 .name("Apache 2.0")
                 .url("https://springdoc.org")))
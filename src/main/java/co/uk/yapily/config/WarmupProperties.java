@@ -0,0 +1,29 @@
+package co.uk.yapily.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the startup warm-up ({@code yapily.warmup.*}).
+ *
+ * @param enabled       whether the instance warms up before it reports ready
+ * @param batchSize     number of warm-up iterations whose median latency is compared with the previous batch
+ * @param minBatches    number of batches always run, before stability is looked at
+ * @param stableBatches number of consecutive stable batches after which the warm-up stops
+ * @param tolerance     largest relative change of the batch median still considered stable
+ * @param maxDuration   time after which the warm-up stops even if latency has not stabilised
+ * @param writes        whether each iteration also inserts a product and a cart in a transaction that is rolled back
+ *
+ * @since 1.1.0
+ */
+@ConfigurationProperties(prefix = "yapily.warmup")
+public record WarmupProperties(@DefaultValue("false") boolean enabled,
+                               @DefaultValue("100") int batchSize,
+                               @DefaultValue("5") int minBatches,
+                               @DefaultValue("3") int stableBatches,
+                               @DefaultValue("0.1") double tolerance,
+                               @DefaultValue("60s") Duration maxDuration,
+                               @DefaultValue("true") boolean writes) {
+}
@@ -0,0 +1,88 @@
+package co.uk.yapily.config.hints;
+
+import co.uk.yapily.converter.OrderLinesConverter;
+import co.uk.yapily.converter.StringListConverter;
+import co.uk.yapily.dto.BulkDeleteDto;
+import co.uk.yapily.dto.BulkDeleteResultDto;
+import co.uk.yapily.dto.CartBulkDeleteDto;
+import co.uk.yapily.dto.CartDto;
+import co.uk.yapily.dto.CartItemDto;
+import co.uk.yapily.dto.CartItemResponseDto;
+import co.uk.yapily.dto.CartProductDto;
+import co.uk.yapily.dto.CheckoutDto;
+import co.uk.yapily.dto.OrderDto;
+import co.uk.yapily.dto.ProductBatchDto;
+import co.uk.yapily.dto.ProductChangeDto;
+import co.uk.yapily.dto.ProductChangesDto;
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.dto.exception.ErrorResponse;
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.OrderLine;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.entity.base.BaseEntity;
+import co.uk.yapily.validation.LabelsValidator;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers the reflection the application relies on at runtime, so it keeps working in a GraalVM native image.
+ * <p>
+ * ModelMapper discovers getters and setters of DTOs and entities reflectively and instantiates destination types
+ * through their no-args constructors; Hibernate instantiates the {@link StringListConverter} and
+ * {@link OrderLinesConverter}, and Hibernate Validator the {@link LabelsValidator}. None of these are visible to the native-image static analysis.
+ *
+ * @since 1.1.0
+ */
+public class ApplicationRuntimeHints implements RuntimeHintsRegistrar {
+
+  /**
+   * Types mapped by ModelMapper, in both directions.
+   */
+  static final List<Class<?>> MAPPED_TYPES = List.of(
+      BaseEntity.class, Cart.class, Product.class,
+      CartDto.class, CartItemDto.class, CartItemResponseDto.class, CartProductDto.class, CheckoutDto.class, ProductDto.class,
+      ArrayList.class);
+
+  /**
+   * Types read or written by Jackson.
+   */
+  static final List<Class<?>> SERIALIZED_TYPES = List.of(
+      CartDto.class, CartItemDto.class, CartItemResponseDto.class, CartProductDto.class, CheckoutDto.class, ProductDto.class,
+      OrderDto.class, OrderLine.class, ErrorResponse.class,
+      BulkDeleteDto.class, CartBulkDeleteDto.class, BulkDeleteResultDto.class,
+      ProductBatchDto.class, ProductChangeDto.class, ProductChangesDto.class);
+
+  private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+  /**
+   * Contributes the reflection hints.
+   *
+   * @param hints       the hints to contribute to
+   * @param classLoader the class loader, if any
+   */
+  @Override
+  public void registerHints(final RuntimeHints hints, final ClassLoader classLoader) {
+    MAPPED_TYPES.forEach(type -> hints.reflection().registerType(type,
+        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+        MemberCategory.INVOKE_PUBLIC_METHODS,
+        MemberCategory.INTROSPECT_DECLARED_METHODS,
+        MemberCategory.DECLARED_FIELDS));
+
+    bindingRegistrar.registerReflectionHints(hints.reflection(), SERIALIZED_TYPES.toArray(Class<?>[]::new));
+
+    hints.reflection().registerType(StringListConverter.class,
+        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+        MemberCategory.INVOKE_PUBLIC_METHODS);
+    hints.reflection().registerType(OrderLinesConverter.class,
+        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+        MemberCategory.INVOKE_PUBLIC_METHODS);
+    hints.reflection().registerType(LabelsValidator.class,
+        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+        MemberCategory.INVOKE_PUBLIC_METHODS);
+  }
+}
@@ -15,14 +15,22 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import co.uk.yapily.dto.BulkDeleteResultDto;
+import co.uk.yapily.dto.CartBulkDeleteDto;
 import co.uk.yapily.dto.CartDto;
+import co.uk.yapily.dto.CartField;
 import co.uk.yapily.dto.CartItemDto;
 import co.uk.yapily.dto.CheckoutDto;
+import co.uk.yapily.dto.SparseField;
 import co.uk.yapily.exception.ApiException;
+import co.uk.yapily.exception.InvalidRequestException;
 import co.uk.yapily.exception.ServiceException;
 import co.uk.yapily.service.CartService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
@@ -31,14 +39,22 @@ import lombok.extern.slf4j.Slf4j;
 @RequestMapping(value = "/carts")
 public class CartController {
 
+  /**
+   * Value of the {@code expand} parameter that embeds product details in the cart lines.
+   */
+  static final String EXPAND_PRODUCTS = "products";
+
   private final CartService service;
+  private final ObjectMapper objectMapper;
 
   /**
    * Constructor for CartController with service
-   * @param service the service to connect to the CartService
+   * @param service      the service to connect to the CartService
+   * @param objectMapper the mapper sparse fieldsets are rendered with
    */
-  public CartController(final CartService service) {
+  public CartController(final CartService service, final ObjectMapper objectMapper) {
     this.service = service;
+    this.objectMapper = objectMapper;
   }
 
   /**
@@ -60,7 +76,7 @@ public class CartController {
                            .contentType(APPLICATION_JSON)
                            .body(response);
     } catch (final ServiceException e) {
-      throw new ApiException(e.getMessage(), e);
+      throw ApiException.of(e.getMessage(), e);
     }
   }
 
@@ -73,23 +89,29 @@ public class CartController {
    *
    * @param dto The CartItemDto containing the updated cart information.
    * @param id The ID of the cart to be updated.
+   * @param expand {@code products} to embed name, unit price, labels and line total in each cart line
    * @return ResponseEntity containing the updated CartDto and HTTP status OK if successful.
    * @throws ApiException If there are errors during the update process, wrapped with a meaningful message.
    */
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Cart updated successfully"),
+      @ApiResponse(responseCode = "400", description = "Unknown expansion"),
+      @ApiResponse(responseCode = "404", description = "Cart or product not found"),
+      @ApiResponse(responseCode = "409", description = "Cart already checked out"),
       @ApiResponse(responseCode = "500", description = "Problems encountered while updating the cart")
   })
   @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<CartDto> updateCart(@Validated @RequestBody final CartItemDto dto, @PathVariable(name = "id") final Long id)
+  public ResponseEntity<CartDto> updateCart(@Validated @RequestBody final CartItemDto dto, @PathVariable(name = "id") final Long id,
+                                            @RequestParam(name = "expand", required = false) final List<String> expand)
   throws ApiException {
+    final boolean expandProducts = expandsProducts(expand);
     try {
-      final var response = service.update(dto, id);
+      final var response = service.update(dto, id, expandProducts);
       return ResponseEntity.status(HttpStatus.OK)
                            .contentType(APPLICATION_JSON)
                            .body(response);
     } catch (final ServiceException e) {
-      throw new ApiException(e.getMessage(), e);
+      throw ApiException.of(e.getMessage(), e);
     }
   }
 
@@ -109,6 +131,8 @@ public class CartController {
    */
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Cart checked out successfully"),
+      @ApiResponse(responseCode = "404", description = "Cart not found"),
+      @ApiResponse(responseCode = "409", description = "Cart already checked out"),
       @ApiResponse(responseCode = "500", description = "Problems encountered while checking out the cart")
   })
   @PostMapping(path = "/{id}/checkout")
@@ -119,7 +143,7 @@ public class CartController {
           .contentType(APPLICATION_JSON)
           .body(response);
     } catch (final ServiceException e) {
-      throw new ApiException(e.getMessage(), e);
+      throw ApiException.of(e.getMessage(), e);
     }
   }
 
@@ -140,7 +164,34 @@ public class CartController {
       service.delete(id);
       return ResponseEntity.noContent().build();
     } catch (final ServiceException e) {
-      throw new ApiException("An unexpected error occurred while deleting cart with ID: " + id, e);
+      throw ApiException.of("An unexpected error occurred while deleting cart with ID: " + id, e);
+    }
+  }
+
+  /**
+   * Endpoint for deleting carts in bulk, either by a list of IDs or every cart checked out before a date.
+   * <p>
+   * Carts and their product lines are deleted with set-based statements in bounded chunks, each in its own
+   * transaction, instead of one request and one entity load per cart.
+   *
+   * @param dto the deletion criteria: {@code ids} or {@code checked_out_before}
+   * @return a ResponseEntity containing the number of carts deleted, with status 200 (OK)
+   * @throws ApiException if an unexpected error occurs while deleting the carts
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Carts deleted successfully"),
+      @ApiResponse(responseCode = "400", description = "Neither or both deletion criteria given"),
+      @ApiResponse(responseCode = "500", description = "Problems encountered while deleting the carts")
+  })
+  @PostMapping(path = "/bulk-delete", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<BulkDeleteResultDto> deleteCarts(@Validated @RequestBody final CartBulkDeleteDto dto) throws ApiException {
+    try {
+      final long deleted = dto.getCheckedOutBefore() != null
+                           ? service.deleteCheckedOutBefore(dto.getCheckedOutBefore())
+                           : service.deleteAll(dto.getIds());
+      return ResponseEntity.ok(BulkDeleteResultDto.builder().deleted(deleted).build());
+    } catch (final ServiceException e) {
+      throw ApiException.of(e.getMessage(), e);
     }
   }
 
@@ -148,40 +199,128 @@ public class CartController {
    * Endpoint for retrieving a cart with the specified ID.
    *
    * @param id the ID of the cart to retrieve
+   * @param expand {@code products} to embed name, unit price, labels and line total in each cart line
    * @return a ResponseEntity containing the CartDto representing the retrieved cart, with status 200 (OK) if found
    * @throws ApiException if an unexpected error occurs while retrieving the cart
    */
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Cart found successfully"),
+      @ApiResponse(responseCode = "400", description = "Unknown expansion"),
+      @ApiResponse(responseCode = "404", description = "Cart not found"),
       @ApiResponse(responseCode = "500", description = "Problems encountered while finding the cart")
   })
   @GetMapping(path = "/{id}")
-  public ResponseEntity<CartDto> findCartById(@PathVariable(name = "id") final Long id) throws ApiException {
+  public ResponseEntity<CartDto> findCartById(@PathVariable(name = "id") final Long id,
+                                              @RequestParam(name = "expand", required = false) final List<String> expand)
+  throws ApiException {
+    final boolean expandProducts = expandsProducts(expand);
     try {
-      final var response = service.findById(id);
+      final var response = service.findById(id, expandProducts);
       return ResponseEntity.ok(response);
     } catch (final ServiceException e) {
-      throw new ApiException("An unexpected error occurred while finding cart with ID: " + id, e);
+      throw ApiException.of("An unexpected error occurred while finding cart with ID: " + id, e);
     }
   }
 
   /**
-   * Endpoint for retrieving all carts.
+   * Endpoint for retrieving selected fields of a cart, e.g. {@code GET /carts/1?fields=cart_id,total_cost}. Only the
+   * requested columns are read from the database, and product lines are counted by it.
    *
-   * @return a ResponseEntity containing a list of CartDto representing all carts, with status 200 (OK) if found
+   * @param id     the ID of the cart to retrieve
+   * @param fields the JSON names of the fields to return
+   * @param expand {@code products} to embed name, unit price, labels and line total in each cart line
+   * @return a ResponseEntity containing the requested fields of the cart, with status 200 (OK) if found
+   * @throws ApiException if a field or expansion is unknown or an unexpected error occurs while retrieving the cart
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Cart found successfully"),
+      @ApiResponse(responseCode = "400", description = "Unknown field or expansion"),
+      @ApiResponse(responseCode = "404", description = "Cart not found"),
+      @ApiResponse(responseCode = "500", description = "Problems encountered while finding the cart")
+  })
+  @GetMapping(path = "/{id}", params = "fields")
+  public ResponseEntity<ObjectNode> findCartFieldsById(@PathVariable(name = "id") final Long id,
+                                                       @RequestParam(name = "fields") final List<String> fields,
+                                                       @RequestParam(name = "expand", required = false) final List<String> expand)
+  throws ApiException {
+    final boolean expandProducts = expandsProducts(expand);
+    try {
+      final var requested = SparseField.parse(CartField.class, fields);
+      return ResponseEntity.ok(SparseFieldsets.select(objectMapper, service.findById(id, requested, expandProducts), requested));
+    } catch (final ServiceException e) {
+      throw ApiException.of(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Endpoint for retrieving selected fields of the active carts, e.g. {@code GET /carts?fields=cart_id,total_cost}.
+   * Only the requested columns are read from the database, and product lines are counted by it.
+   *
+   * @param fields the JSON names of the fields to return
+   * @param expand {@code products} to embed name, unit price, labels and line total in each cart line
+   * @return a ResponseEntity containing the requested fields of every cart, with status 200 (OK)
+   * @throws ApiException if a field or expansion is unknown or an unexpected error occurs while retrieving the carts
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "List of Carts found successfully"),
+      @ApiResponse(responseCode = "400", description = "Unknown field or expansion"),
+      @ApiResponse(responseCode = "500", description = "Problems encountered while finding list of carts")
+  })
+  @GetMapping(params = "fields")
+  public ResponseEntity<List<ObjectNode>> findAllCartFields(@RequestParam(name = "fields") final List<String> fields,
+                                                            @RequestParam(name = "expand", required = false) final List<String> expand)
+  throws ApiException {
+    final boolean expandProducts = expandsProducts(expand);
+    try {
+      final var requested = SparseField.parse(CartField.class, fields);
+      return ResponseEntity.ok(SparseFieldsets.select(objectMapper, service.findAll(requested, expandProducts), requested));
+    } catch (final ServiceException e) {
+      throw ApiException.of(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Endpoint for retrieving the active carts. Checked-out carts are left out; their purchases are read from
+   * {@code /orders/{id}}.
+   *
+   * @param expand {@code products} to embed name, unit price, labels and line total in each cart line
+   * @return a ResponseEntity containing a list of CartDto representing the active carts, with status 200 (OK) if found
    * @throws ApiException if an unexpected error occurs while retrieving all carts
    */
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "List of Carts found successfully"),
+      @ApiResponse(responseCode = "400", description = "Unknown expansion"),
       @ApiResponse(responseCode = "500", description = "Problems encountered while finding list of carts")
   })
   @GetMapping
-  public ResponseEntity<List<CartDto>> findAllCarts() throws ApiException {
+  public ResponseEntity<List<CartDto>> findAllCarts(@RequestParam(name = "expand", required = false) final List<String> expand)
+  throws ApiException {
+    final boolean expandProducts = expandsProducts(expand);
     try {
-      final var response = service.findAll();
+      final var response = service.findAll(expandProducts);
       return ResponseEntity.ok(response);
     } catch (final ServiceException e) {
-      throw new ApiException("An unexpected error occurred while finding all carts: ", e);
+      throw ApiException.of("An unexpected error occurred while finding all carts: ", e);
+    }
+  }
+
+  /**
+   * Reads the {@code expand} parameter of the cart endpoints, e.g. {@code ?expand=products}.
+   *
+   * @param expand the requested expansions, possibly null
+   * @return whether the product details are requested
+   * @throws ApiException with status 400 if an expansion other than {@value #EXPAND_PRODUCTS} is requested
+   */
+  private static boolean expandsProducts(final List<String> expand) throws ApiException {
+    if (expand == null) {
+      return false;
+    }
+    for (final String value : expand) {
+      if (!EXPAND_PRODUCTS.equals(value)) {
+        final String message = "Unknown expansion: " + value;
+        throw ApiException.of(message, new InvalidRequestException(message));
+      }
     }
+    return !expand.isEmpty();
   }
 }
@@ -0,0 +1,54 @@
+package co.uk.yapily.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import co.uk.yapily.dto.OrderDto;
+import co.uk.yapily.exception.ApiException;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.service.OrderService;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+
+/**
+ * Serves the orders archived at checkout. Orders are immutable, so they are only read.
+ *
+ * @since 1.1.0
+ */
+@RestController
+@RequestMapping(value = "/orders")
+public class OrderController {
+
+  private final OrderService service;
+
+  /**
+   * @param service the order service
+   */
+  public OrderController(final OrderService service) {
+    this.service = service;
+  }
+
+  /**
+   * Endpoint for retrieving an order, with the product names, prices and labels as they were at checkout.
+   *
+   * @param id the ID of the order, as returned by the checkout
+   * @return a ResponseEntity containing the order, with status 200 (OK) if found
+   * @throws ApiException if the order is not found or an unexpected error occurs while retrieving it
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Order found successfully"),
+      @ApiResponse(responseCode = "404", description = "Order not found"),
+      @ApiResponse(responseCode = "500", description = "Problems encountered while finding the order")
+  })
+  @GetMapping(path = "/{id}")
+  public ResponseEntity<OrderDto> findOrderById(@PathVariable(name = "id") final Long id) throws ApiException {
+    try {
+      return ResponseEntity.ok(service.findById(id));
+    } catch (final ServiceException e) {
+      throw ApiException.of("An unexpected error occurred while finding order with ID: " + id, e);
+    }
+  }
+}
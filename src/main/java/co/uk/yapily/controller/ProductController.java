@@ -4,6 +4,7 @@ import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 import java.util.List;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -14,12 +15,29 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import co.uk.yapily.cache.ProductResponseCache;
+import co.uk.yapily.dto.BulkDeleteDto;
+import co.uk.yapily.dto.BulkDeleteResultDto;
+import co.uk.yapily.dto.ProductBatchDto;
+import co.uk.yapily.dto.ProductChangesDto;
 import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.dto.ProductField;
+import co.uk.yapily.dto.SparseField;
 import co.uk.yapily.exception.ApiException;
 import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.feed.ProductChangeFeed;
 import co.uk.yapily.service.ProductService;
+import co.uk.yapily.service.RelatedProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
@@ -29,13 +47,26 @@ import lombok.extern.slf4j.Slf4j;
 public class ProductController {
 
   private final ProductService service;
+  private final ProductChangeFeed feed;
+  private final ObjectMapper objectMapper;
+  private final ProductResponseCache responseCache;
+  private final RelatedProductService relatedService;
 
   /**
    * Constructor for ProductController with service
-   * @param service the service to connect to the ProductService
+   * @param service       the service to connect to the ProductService
+   * @param feed          the feed of product changes
+   * @param objectMapper  the mapper sparse fieldsets are rendered with
+   * @param responseCache the cache of serialized product responses
+   * @param relatedService the service of the products frequently bought together
    */
-  public ProductController(final ProductService service) {
+  public ProductController(final ProductService service, final ProductChangeFeed feed, final ObjectMapper objectMapper,
+                           final ProductResponseCache responseCache, final RelatedProductService relatedService) {
     this.service = service;
+    this.feed = feed;
+    this.objectMapper = objectMapper;
+    this.responseCache = responseCache;
+    this.relatedService = relatedService;
   }
 
   /**
@@ -57,7 +88,7 @@ public class ProductController {
                            .contentType(APPLICATION_JSON)
                            .body(response);
     } catch (final ServiceException e) {
-      throw new ApiException(e.getMessage(), e);
+      throw ApiException.of(e.getMessage(), e);
     }
   }
 
@@ -78,48 +109,232 @@ public class ProductController {
       service.delete(id);
       return ResponseEntity.noContent().build();
     } catch (final ServiceException e) {
-      throw new ApiException("An unexpected error occurred while deleting product with ID: " + id, e);
+      throw ApiException.of("An unexpected error occurred while deleting product with ID: " + id, e);
+    }
+  }
+
+  /**
+   * Endpoint for deleting products in bulk by a list of IDs.
+   * <p>
+   * The products are removed from every cart and deleted with set-based statements in bounded chunks.
+   *
+   * @param dto the IDs of the products to delete
+   * @return a ResponseEntity containing the number of products deleted, with status 200 (OK)
+   * @throws ApiException if an unexpected error occurs while deleting the products
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Products deleted successfully"),
+      @ApiResponse(responseCode = "400", description = "Empty or too long list of IDs"),
+      @ApiResponse(responseCode = "500", description = "Problems encountered while deleting the products")
+  })
+  @PostMapping(path = "/bulk-delete", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<BulkDeleteResultDto> deleteProducts(@Validated @RequestBody final BulkDeleteDto dto) throws ApiException {
+    try {
+      final long deleted = service.deleteAll(dto.getIds());
+      return ResponseEntity.ok(BulkDeleteResultDto.builder().deleted(deleted).build());
+    } catch (final ServiceException e) {
+      throw ApiException.of(e.getMessage(), e);
     }
   }
 
   /**
    * Endpoint for retrieving a product with the specified ID.
+   * <p>
+   * The serialized product is served from the response cache when it holds it, gzip-compressed if the client accepts it.
    *
-   * @param id the ID of the product to retrieve
-   * @return a ResponseEntity containing the ProductDto representing the retrieved product, with status 200 (OK) if found
+   * @param id             the ID of the product to retrieve
+   * @param acceptEncoding the content codings accepted by the client
+   * @return a ResponseEntity containing the JSON of the retrieved product, with status 200 (OK) if found
    * @throws ApiException if an unexpected error occurs while retrieving the product
    */
   @ApiResponses(value = {
-      @ApiResponse(responseCode = "200", description = "Product found successfully"),
+      @ApiResponse(responseCode = "200", description = "Product found successfully",
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ProductDto.class))),
+      @ApiResponse(responseCode = "404", description = "Product not found"),
       @ApiResponse(responseCode = "500", description = "Problems encountered while finding the product")
   })
   @GetMapping(path = "/{id}")
-  public ResponseEntity<ProductDto> findProductById(@PathVariable(name = "id") final Long id) throws ApiException {
+  public ResponseEntity<byte[]> findProductById(@PathVariable(name = "id") final Long id,
+                                                @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding)
+  throws ApiException {
+    try {
+      return responseCache.product(id, () -> service.findById(id)).toResponse(acceptEncoding);
+    } catch (final ServiceException e) {
+      throw ApiException.of("An unexpected error occurred while finding product with ID: " + id, e);
+    }
+  }
+
+  /**
+   * Endpoint for retrieving the products frequently bought together with a product, e.g.
+   * {@code GET /products/1/related?limit=5}.
+   *
+   * @param id    the ID of the product
+   * @param limit the maximum number of products, at most {@value RelatedProductService#RELATED_MAX_LIMIT}
+   * @return a ResponseEntity containing the related products, most often bought together first, with status 200 (OK)
+   * @throws ApiException if the limit is out of range, the product is not found or an unexpected error occurs
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Related products found successfully"),
+      @ApiResponse(responseCode = "400", description = "Limit out of range"),
+      @ApiResponse(responseCode = "404", description = "Product not found"),
+      @ApiResponse(responseCode = "500", description = "Problems encountered while finding the related products")
+  })
+  @GetMapping(path = "/{id}/related", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<List<ProductDto>> findRelatedProducts(@PathVariable(name = "id") final Long id,
+                                                              @RequestParam(name = "limit", defaultValue = "10") final int limit)
+      throws ApiException {
+    try {
+      return ResponseEntity.ok(relatedService.findRelated(id, limit));
+    } catch (final ServiceException e) {
+      throw ApiException.of("An unexpected error occurred while finding products related to product with ID: " + id, e);
+    }
+  }
+
+  /**
+   * Endpoint for retrieving selected fields of a product, e.g. {@code GET /products/1?fields=product_id,name,price}.
+   * Only the requested columns are read from the database.
+   *
+   * @param id     the ID of the product to retrieve
+   * @param fields the JSON names of the fields to return
+   * @return a ResponseEntity containing the requested fields of the product, with status 200 (OK) if found
+   * @throws ApiException if a field is unknown or an unexpected error occurs while retrieving the product
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Product found successfully"),
+      @ApiResponse(responseCode = "400", description = "Unknown field"),
+      @ApiResponse(responseCode = "404", description = "Product not found"),
+      @ApiResponse(responseCode = "500", description = "Problems encountered while finding the product")
+  })
+  @GetMapping(path = "/{id}", params = "fields")
+  public ResponseEntity<ObjectNode> findProductFieldsById(@PathVariable(name = "id") final Long id,
+                                                          @RequestParam(name = "fields") final List<String> fields)
+  throws ApiException {
+    try {
+      final var requested = SparseField.parse(ProductField.class, fields);
+      return ResponseEntity.ok(SparseFieldsets.select(objectMapper, service.findById(id, requested), requested));
+    } catch (final ServiceException e) {
+      throw ApiException.of(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Endpoint for retrieving several products by ID in one request, e.g. {@code GET /products?ids=3,1,2}.
+   *
+   * @param ids the IDs of the products to retrieve, at most {@value ProductService#MULTI_GET_MAX_IDS}
+   * @return a ResponseEntity containing the products found, in request order, and the IDs not found, with status 200 (OK)
+   * @throws ApiException if the list of IDs is invalid or an unexpected error occurs while retrieving the products
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Products found successfully"),
+      @ApiResponse(responseCode = "400", description = "Empty or too long list of IDs"),
+      @ApiResponse(responseCode = "500", description = "Problems encountered while finding the products")
+  })
+  @GetMapping(params = "ids")
+  public ResponseEntity<ProductBatchDto> findProductsByIds(@RequestParam(name = "ids") final List<Long> ids) throws ApiException {
+    try {
+      return ResponseEntity.ok(service.findAllById(ids));
+    } catch (final ServiceException e) {
+      throw ApiException.of(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Endpoint listing the product inserts, updates and deletions after a change version, for mirrors syncing the
+   * catalog incrementally.
+   *
+   * @param since the {@code version} of the last change already seen, or the {@code next_since} of the previous page;
+   *              0 for a full sync
+   * @param limit the maximum number of changes, at most {@value ProductService#CHANGES_MAX_LIMIT}
+   * @return a ResponseEntity containing the changes, oldest first, with status 200 (OK)
+   * @throws ApiException if the parameters are invalid or an unexpected error occurs while retrieving the changes
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Changes found successfully"),
+      @ApiResponse(responseCode = "400", description = "Negative version or limit out of range"),
+      @ApiResponse(responseCode = "500", description = "Problems encountered while finding the changes")
+  })
+  @GetMapping(path = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ProductChangesDto> findProductChanges(@RequestParam(name = "since", defaultValue = "0") final long since,
+                                                              @RequestParam(name = "limit", defaultValue = "500") final int limit)
+      throws ApiException {
+    try {
+      return ResponseEntity.ok(service.findChanges(since, limit));
+    } catch (final ServiceException e) {
+      throw ApiException.of(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Endpoint streaming product changes as server-sent events.
+   * <p>
+   * Each {@code product-change} event carries the change type, the product ID and, unless the product was deleted,
+   * the product. Clients reconnecting with {@code Last-Event-ID} receive the changes they missed; a {@code reset}
+   * event tells them to re-read the products instead, when those changes are no longer available.
+   *
+   * @param lastEventId the ID of the last event received, sent by clients when they reconnect
+   * @return the emitter streaming the changes
+   * @throws ApiException if too many clients are subscribed
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Stream of product changes opened"),
+      @ApiResponse(responseCode = "503", description = "Too many subscribers, retry later")
+  })
+  @GetMapping(path = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamProductChanges(@RequestHeader(name = "Last-Event-ID", required = false) final String lastEventId)
+      throws ApiException {
     try {
-      final var response = service.findById(id);
-      return ResponseEntity.ok(response);
+      return feed.subscribe(lastEventId);
     } catch (final ServiceException e) {
-      throw new ApiException("An unexpected error occurred while finding product with ID: " + id, e);
+      throw ApiException.of(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Endpoint for retrieving selected fields of all products, e.g. {@code GET /products?fields=product_id,name,price}.
+   * Only the requested columns are read from the database.
+   *
+   * @param fields the JSON names of the fields to return
+   * @return a ResponseEntity containing the requested fields of every product, with status 200 (OK)
+   * @throws ApiException if a field is unknown or an unexpected error occurs while retrieving the products
+   */
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "List of Products found successfully"),
+      @ApiResponse(responseCode = "400", description = "Unknown field"),
+      @ApiResponse(responseCode = "500", description = "Problems encountered while finding list of products")
+  })
+  @GetMapping(params = {"fields", "!ids"})
+  public ResponseEntity<List<ObjectNode>> findAllProductFields(@RequestParam(name = "fields") final List<String> fields)
+  throws ApiException {
+    try {
+      final var requested = SparseField.parse(ProductField.class, fields);
+      return ResponseEntity.ok(SparseFieldsets.select(objectMapper, service.findAll(requested), requested));
+    } catch (final ServiceException e) {
+      throw ApiException.of(e.getMessage(), e);
     }
   }
 
   /**
    * Endpoint for retrieving all products.
+   * <p>
+   * The serialized list is served from the response cache when it holds it, gzip-compressed if the client accepts it.
    *
-   * @return a ResponseEntity containing a list of ProductDto representing all products, with status 200 (OK) if found
+   * @param acceptEncoding the content codings accepted by the client
+   * @return a ResponseEntity containing the JSON list of all products, with status 200 (OK) if found
    * @throws ApiException if an unexpected error occurs while retrieving all products
    */
   @ApiResponses(value = {
-      @ApiResponse(responseCode = "200", description = "List of Products found successfully"),
+      @ApiResponse(responseCode = "200", description = "List of Products found successfully",
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+              array = @ArraySchema(schema = @Schema(implementation = ProductDto.class)))),
       @ApiResponse(responseCode = "500", description = "Problems encountered while finding list of products")
   })
   @GetMapping
-  public ResponseEntity<List<ProductDto>> findAllProducts() throws ApiException {
+  public ResponseEntity<byte[]> findAllProducts(@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding)
+  throws ApiException {
     try {
-      final var response = service.findAll();
-      return ResponseEntity.ok(response);
+      return responseCache.list(service::findAll).toResponse(acceptEncoding);
     } catch (final ServiceException e) {
-      throw new ApiException("An unexpected error occurred while finding all products: ", e);
+      throw ApiException.of("An unexpected error occurred while finding all products: ", e);
     }
   }
 }
@@ -0,0 +1,46 @@
+package co.uk.yapily.controller;
+
+import co.uk.yapily.dto.SparseField;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Renders DTOs with only the fields requested through the {@code fields} parameter. The DTOs are serialized as
+ * usual first, so the requested properties keep their normal names and formats.
+ *
+ * @since 1.1.0
+ */
+final class SparseFieldsets {
+
+  private SparseFieldsets() {
+  }
+
+  /**
+   * Renders a DTO with the given fields only.
+   *
+   * @param objectMapper the mapper the DTO is serialized with
+   * @param dto          the DTO
+   * @param fields       the requested fields
+   * @return the JSON object holding the requested properties
+   */
+  static ObjectNode select(final ObjectMapper objectMapper, final Object dto, final Set<? extends SparseField> fields) {
+    final ObjectNode node = objectMapper.valueToTree(dto);
+    node.retain(fields.stream().map(SparseField::jsonName).toList());
+    return node;
+  }
+
+  /**
+   * Renders DTOs with the given fields only.
+   *
+   * @param objectMapper the mapper the DTOs are serialized with
+   * @param dtos         the DTOs
+   * @param fields       the requested fields
+   * @return the JSON objects holding the requested properties
+   */
+  static List<ObjectNode> select(final ObjectMapper objectMapper, final List<?> dtos, final Set<? extends SparseField> fields) {
+    return dtos.stream().map(dto -> select(objectMapper, dto, fields)).toList();
+  }
+}
@@ -0,0 +1,57 @@
+package co.uk.yapily.converter;
+
+import co.uk.yapily.entity.OrderLine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stores the lines of an order as a JSON array in a single column.
+ *
+ * @since 1.1.0
+ */
+@Converter
+public class OrderLinesConverter implements AttributeConverter<List<OrderLine>, String> {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final JavaType LINES_TYPE = MAPPER.getTypeFactory().constructCollectionType(List.class, OrderLine.class);
+
+  /**
+   * Writes the lines as a JSON array; null is written as an empty array.
+   *
+   * @param lines the order lines
+   * @return the JSON document
+   */
+  @Override
+  public String convertToDatabaseColumn(final List<OrderLine> lines) {
+    try {
+      return MAPPER.writeValueAsString(lines != null ? lines : Collections.emptyList());
+    } catch (final JsonProcessingException e) {
+      throw new IllegalArgumentException("Order lines cannot be written", e);
+    }
+  }
+
+  /**
+   * Reads the lines back from their JSON array.
+   *
+   * @param json the JSON document
+   * @return the order lines, or an empty list if the column is null
+   */
+  @Override
+  public List<OrderLine> convertToEntityAttribute(final String json) {
+    if (json == null) {
+      return Collections.emptyList();
+    }
+    try {
+      return MAPPER.readValue(json, LINES_TYPE);
+    } catch (final JsonProcessingException e) {
+      throw new IllegalArgumentException("Order lines cannot be read", e);
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package co.uk.yapily.dto;
+
+import co.uk.yapily.dto.base.BaseDto;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkDeleteDto extends BaseDto {
+
+  @NotEmpty(message = "The list of ids cannot be empty")
+  @Size(max = 10000, message = "At most 10000 ids can be deleted per request")
+  private List<Long> ids;
+
+}
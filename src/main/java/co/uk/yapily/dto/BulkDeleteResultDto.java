@@ -0,0 +1,15 @@
+package co.uk.yapily.dto;
+
+import co.uk.yapily.dto.base.BaseDto;
+import lombok.*;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkDeleteResultDto extends BaseDto {
+
+  private long deleted;
+
+}
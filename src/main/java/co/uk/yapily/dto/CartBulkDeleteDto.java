@@ -0,0 +1,38 @@
+package co.uk.yapily.dto;
+
+import co.uk.yapily.dto.base.BaseDto;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CartBulkDeleteDto extends BaseDto {
+
+  @Size(max = 10000, message = "At most 10000 ids can be deleted per request")
+  private List<Long> ids;
+
+  @JsonProperty(value = "checked_out_before")
+  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy/MM/dd")
+  private Date checkedOutBefore;
+
+  /**
+   * Exactly one of the criteria has to be given.
+   * @return true if either a list of ids or a checkout date was given, but not both
+   */
+  @JsonIgnore
+  @AssertTrue(message = "Either ids or checked_out_before must be given")
+  public boolean isSingleCriterion() {
+    final boolean hasIds = ids != null && !ids.isEmpty();
+    return hasIds != (checkedOutBefore != null);
+  }
+}
@@ -31,4 +31,10 @@ public class CartDto extends BaseDto {
   @JsonProperty(value = "total_cost")
   private Double amount;
 
+  /**
+   * Promotion discount included in the total of an active cart, if any.
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Double discount;
+
 }
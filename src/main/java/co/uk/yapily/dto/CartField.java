@@ -0,0 +1,25 @@
+package co.uk.yapily.dto;
+
+/**
+ * The cart properties that can be requested with the {@code fields} parameter.
+ *
+ * @since 1.1.0
+ */
+public enum CartField implements SparseField {
+
+  ID("cart_id"),
+  CHECKOUT("check_out"),
+  PRODUCTS("products"),
+  TOTAL_COST("total_cost");
+
+  private final String jsonName;
+
+  CartField(final String jsonName) {
+    this.jsonName = jsonName;
+  }
+
+  @Override
+  public String jsonName() {
+    return jsonName;
+  }
+}
@@ -1,17 +1,39 @@
 package co.uk.yapily.dto;
 
 import co.uk.yapily.dto.base.BaseDto;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
+import java.util.List;
+
 @EqualsAndHashCode(callSuper = true)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class CartProductDto extends BaseDto {
 
   @JsonProperty("product_id")
   private Long productId;
   private int quantity;
+
+  /**
+   * Product details, only set when the cart is requested with {@code expand=products}.
+   */
+  private String name;
+
+  @JsonProperty("unit_price")
+  private Double unitPrice;
+
+  private List<String> labels;
+
+  @JsonProperty("line_total")
+  private Double lineTotal;
+
+  /**
+   * Promotion discount on the line, already deducted from its total; only set when a promotion applies.
+   */
+  private Double discount;
 }
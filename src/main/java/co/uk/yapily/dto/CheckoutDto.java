@@ -1,6 +1,7 @@
 package co.uk.yapily.dto;
 
 import co.uk.yapily.dto.base.BaseDto;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -15,4 +16,10 @@ public class CheckoutDto extends BaseDto {
 
   @JsonProperty(value = "total_cost")
   private Double amount;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Double discount;
+
+  @JsonProperty(value = "order_id")
+  private Long orderId;
 }
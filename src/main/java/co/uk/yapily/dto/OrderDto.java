@@ -0,0 +1,37 @@
+package co.uk.yapily.dto;
+
+import co.uk.yapily.dto.base.BaseDto;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderDto extends BaseDto {
+
+  @JsonProperty(value = "order_id")
+  private Long id;
+
+  @JsonProperty(value = "cart_id")
+  private Long cartId;
+
+  @JsonProperty(value = "placed_at")
+  private Instant placedAt;
+
+  /**
+   * The lines with the product details as they were at checkout.
+   */
+  private List<CartProductDto> products;
+
+  @JsonProperty(value = "total_cost")
+  private Double amount;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Double discount;
+}
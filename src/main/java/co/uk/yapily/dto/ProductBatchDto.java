@@ -0,0 +1,24 @@
+package co.uk.yapily.dto;
+
+import co.uk.yapily.dto.base.BaseDto;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductBatchDto extends BaseDto {
+
+  @Builder.Default
+  private List<ProductDto> products = new ArrayList<>();
+
+  @Builder.Default
+  @JsonProperty(value = "missing_ids")
+  private List<Long> missingIds = new ArrayList<>();
+
+}
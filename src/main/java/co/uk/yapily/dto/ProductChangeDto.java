@@ -0,0 +1,33 @@
+package co.uk.yapily.dto;
+
+import co.uk.yapily.dto.base.BaseDto;
+import co.uk.yapily.event.ProductChangedEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.time.Instant;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductChangeDto extends BaseDto {
+
+  private ProductChangedEvent.ChangeType type;
+
+  @JsonProperty(value = "product_id")
+  private Long productId;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private ProductDto product;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  @JsonProperty(value = "updated_at")
+  private Instant updatedAt;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Long version;
+
+}
@@ -0,0 +1,26 @@
+package co.uk.yapily.dto;
+
+import co.uk.yapily.dto.base.BaseDto;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductChangesDto extends BaseDto {
+
+  @Builder.Default
+  private List<ProductChangeDto> changes = new ArrayList<>();
+
+  @JsonProperty(value = "next_since")
+  private long nextSince;
+
+  @JsonProperty(value = "has_more")
+  private boolean hasMore;
+
+}
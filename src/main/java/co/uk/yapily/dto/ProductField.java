@@ -0,0 +1,55 @@
+package co.uk.yapily.dto;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The product properties that can be requested with the {@code fields} parameter, and the {@code Product}
+ * attributes they are read from.
+ *
+ * @since 1.1.0
+ */
+public enum ProductField implements SparseField {
+
+  ID("product_id", "id", (dto, value) -> dto.setId((Long) value)),
+  NAME("name", "name", (dto, value) -> dto.setName((String) value)),
+  PRICE("price", "price", (dto, value) -> dto.setPrice((Double) value)),
+  ADDED_AT("added_at", "addedAt", (dto, value) -> dto.setAddedAt((Date) value)),
+  @SuppressWarnings("unchecked")
+  LABELS("labels", "labels", (dto, value) -> dto.setLabels((List<String>) value));
+
+  private final String jsonName;
+  private final String attribute;
+  private final BiConsumer<ProductDto, Object> setter;
+
+  ProductField(final String jsonName, final String attribute, final BiConsumer<ProductDto, Object> setter) {
+    this.jsonName = jsonName;
+    this.attribute = attribute;
+    this.setter = setter;
+  }
+
+  @Override
+  public String jsonName() {
+    return jsonName;
+  }
+
+  /**
+   * Returns the name of the entity attribute the property is selected from.
+   *
+   * @return the attribute name
+   */
+  public String attribute() {
+    return attribute;
+  }
+
+  /**
+   * Sets the property on a DTO.
+   *
+   * @param dto   the DTO
+   * @param value the selected value
+   */
+  public void set(final ProductDto dto, final Object value) {
+    setter.accept(dto, value);
+  }
+}
@@ -0,0 +1,46 @@
+package co.uk.yapily.dto;
+
+import co.uk.yapily.exception.InvalidRequestException;
+
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * A DTO property that can be requested on its own with the {@code fields} parameter, e.g.
+ * {@code GET /products?fields=product_id,name,price}.
+ *
+ * @since 1.1.0
+ */
+public interface SparseField {
+
+  /**
+   * Returns the JSON name the property is requested and rendered by.
+   *
+   * @return the JSON name
+   */
+  String jsonName();
+
+  /**
+   * Parses the values of a {@code fields} parameter.
+   *
+   * @param type  the field enum
+   * @param names the requested JSON names; duplicates are ignored
+   * @param <E>   the field type
+   * @return the requested fields
+   * @throws InvalidRequestException if no field or an unknown field is requested
+   */
+  static <E extends Enum<E> & SparseField> EnumSet<E> parse(final Class<E> type, final List<String> names)
+  throws InvalidRequestException {
+    final EnumSet<E> fields = EnumSet.noneOf(type);
+    for (final String name : names == null ? List.<String>of() : names) {
+      fields.add(EnumSet.allOf(type).stream()
+                        .filter(field -> field.jsonName().equals(name.trim()))
+                        .findFirst()
+                        .orElseThrow(() -> new InvalidRequestException("Unknown field: " + name)));
+    }
+    if (fields.isEmpty()) {
+      throw new InvalidRequestException("At least one field must be requested");
+    }
+    return fields;
+  }
+}
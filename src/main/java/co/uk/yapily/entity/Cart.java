@@ -7,6 +7,7 @@ import lombok.*;
 import lombok.experimental.SuperBuilder;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 @Data
@@ -31,6 +32,9 @@ public class Cart extends BaseEntity {
   @Column(name = "total_cost")
   private Double amount;
 
+  @Column(name = "checked_out_at")
+  private Date checkedOutAt;
+
   /**
    * Adds a product to the cart.
    * @param product the product to add
@@ -0,0 +1,32 @@
+package co.uk.yapily.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A named counter handing out change versions.
+ * <p>
+ * Writers increment the row inside their own transaction, so its lock is held until they commit: versions become
+ * visible in increasing order, and a reader that has seen version {@code n} will never see a smaller one appear later.
+ *
+ * @since 1.1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "change_counter")
+public class ChangeCounter {
+
+  @Id
+  @Column(name = "name", length = 64)
+  private String name;
+
+  @Column(name = "current_value", nullable = false)
+  private long currentValue;
+}
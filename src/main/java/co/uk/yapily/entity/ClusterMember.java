@@ -0,0 +1,32 @@
+package co.uk.yapily.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An instance taking part in cart-affinity routing, identified by the URL the others reach it at.
+ * <p>
+ * Each instance increments its own {@code heartbeat} periodically. Liveness is judged by how long ago the counter last
+ * moved, on the observer's clock, so it does not depend on the clocks of the instances agreeing.
+ *
+ * @since 1.1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "cluster_member")
+public class ClusterMember {
+
+  @Id
+  @Column(name = "url", length = 255)
+  private String url;
+
+  @Column(name = "heartbeat", nullable = false)
+  private long heartbeat;
+}
@@ -0,0 +1,25 @@
+package co.uk.yapily.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One line of a {@link PurchaseOrder}: a product as it was at checkout and the number of units bought.
+ *
+ * @param productId the product ID
+ * @param name      the product name
+ * @param unitPrice the product price, or null if the product had none
+ * @param quantity  the number of units
+ * @param labels    the product labels
+ * @param discount  the promotion discount on the line, or null; absent from orders placed before promotions
+ *
+ * @since 1.1.0
+ */
+public record OrderLine(@JsonProperty("product_id") Long productId,
+                        @JsonProperty("name") String name,
+                        @JsonProperty("unit_price") Double unitPrice,
+                        @JsonProperty("quantity") int quantity,
+                        @JsonProperty("labels") List<String> labels,
+                        @JsonProperty("discount") Double discount) {
+}
@@ -6,6 +6,8 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.SourceType;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -18,7 +20,10 @@ import java.util.List;
 @NoArgsConstructor
 @SuperBuilder
 @Entity
-@Table(name = "product")
+@Table(name = "product", indexes = {
+    @Index(name = "idx_product_updated_at", columnList = "updated_at"),
+    @Index(name = "idx_product_change_version", columnList = "change_version")
+})
 public class Product extends BaseEntity {
 
   @Column(name = "name", unique = true)
@@ -34,6 +39,21 @@ public class Product extends BaseEntity {
   @Column(name = "labels", nullable = false, columnDefinition = "TEXT")
   private List<String> labels = new ArrayList<>();
 
+  /**
+   * Time of the last insert or update, taken from the database clock. It is not in commit order, so it is only
+   * informational; {@link #changeVersion} orders changes.
+   */
+  @UpdateTimestamp(source = SourceType.DB)
+  @Column(name = "updated_at")
+  private Instant updatedAt;
+
+  /**
+   * Version of the last insert or update, from the {@code product} change counter; increases in commit order, see
+   * {@link ChangeCounter}.
+   */
+  @Column(name = "change_version")
+  private Long changeVersion;
+
   @ManyToMany(mappedBy = "products")
   @JsonBackReference // Prevents infinite recursion
   private List<Cart> carts = new ArrayList<>();
@@ -0,0 +1,35 @@
+package co.uk.yapily.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Records the deletion of a product, so that mirrors syncing changes learn about it.
+ *
+ * @since 1.1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "product_tombstone", indexes = @Index(name = "idx_product_tombstone_change_version", columnList = "change_version"))
+public class ProductTombstone {
+
+  @Id
+  @Column(name = "product_id")
+  private Long productId;
+
+  @Column(name = "change_version", nullable = false)
+  private long changeVersion;
+
+  @Column(name = "deleted_at", nullable = false)
+  private Instant deletedAt;
+}
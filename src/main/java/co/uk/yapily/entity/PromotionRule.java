@@ -0,0 +1,84 @@
+package co.uk.yapily.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A promotion on the products carrying a label. Only the parameters of its {@link Type} are set.
+ * <p>
+ * Rules are read by the {@code PromotionEngine}, which compiles the active ones into an evaluator and picks up changes
+ * to this table without a restart.
+ *
+ * @since 1.1.0
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "promotion_rule")
+public class PromotionRule {
+
+  /**
+   * The kinds of promotion.
+   */
+  public enum Type {
+    /**
+     * Buy {@code buyQuantity} units of a product, pay for {@code payQuantity}.
+     */
+    MULTI_BUY,
+    /**
+     * {@code percentOff} percent off the price of every unit.
+     */
+    PERCENT_OFF,
+    /**
+     * At most {@code maxUnits} units of a product per cart.
+     */
+    QUANTITY_CAP
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.AUTO)
+  private Long id;
+
+  @Column(name = "name", nullable = false, length = 64)
+  private String name;
+
+  @Column(name = "label", nullable = false, length = 32)
+  private String label;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "type", nullable = false, length = 16)
+  private Type type;
+
+  @Column(name = "buy_quantity")
+  private Integer buyQuantity;
+
+  @Column(name = "pay_quantity")
+  private Integer payQuantity;
+
+  @Column(name = "percent_off")
+  private Double percentOff;
+
+  @Column(name = "max_units")
+  private Integer maxUnits;
+
+  /**
+   * Rules with a lower priority win when several of the same type apply to a product.
+   */
+  @Column(name = "priority", nullable = false)
+  private int priority;
+
+  @Column(name = "active", nullable = false)
+  private boolean active;
+}
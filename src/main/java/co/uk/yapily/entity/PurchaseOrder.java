@@ -0,0 +1,63 @@
+package co.uk.yapily.entity;
+
+import co.uk.yapily.converter.OrderLinesConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The record of a checked-out cart: its lines with the product names, prices and labels as they were at checkout,
+ * and the amount charged.
+ * <p>
+ * Orders are written once, at checkout, and never updated, so the cart they came from can be removed without losing
+ * the purchase. The lines are kept as one document in the order row rather than in a line table.
+ *
+ * @since 1.1.0
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Immutable
+@Table(name = "purchase_order", indexes = @Index(name = PurchaseOrder.CART_ID_INDEX, columnList = "cart_id", unique = true))
+public class PurchaseOrder {
+
+  /**
+   * Name of the unique index allowing one order per cart.
+   */
+  public static final String CART_ID_INDEX = "idx_purchase_order_cart_id";
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.AUTO)
+  private Long id;
+
+  @Column(name = "cart_id", nullable = false, updatable = false)
+  private Long cartId;
+
+  @Column(name = "placed_at", nullable = false, updatable = false)
+  private Instant placedAt;
+
+  @Column(name = "total_cost", nullable = false, updatable = false)
+  private double amount;
+
+  @Column(name = "discount", updatable = false)
+  private Double discount;
+
+  @Convert(converter = OrderLinesConverter.class)
+  @Column(name = "line_items", nullable = false, updatable = false, columnDefinition = "TEXT")
+  private List<OrderLine> lines;
+}
@@ -0,0 +1,47 @@
+package co.uk.yapily.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * The cluster-wide state of a background job: when it is due next, and which instance holds the lease of the current
+ * run, if any.
+ *
+ * @since 1.1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "scheduled_job")
+public class ScheduledJob {
+
+  @Id
+  @Column(name = "name", length = 64)
+  private String name;
+
+  @Column(name = "next_run_at", nullable = false)
+  private Instant nextRunAt;
+
+  @Column(name = "lease_owner")
+  private String leaseOwner;
+
+  @Column(name = "lease_until")
+  private Instant leaseUntil;
+
+  @Column(name = "last_started_at")
+  private Instant lastStartedAt;
+
+  @Column(name = "last_finished_at")
+  private Instant lastFinishedAt;
+
+  @Column(name = "last_outcome", length = 16)
+  private String lastOutcome;
+}
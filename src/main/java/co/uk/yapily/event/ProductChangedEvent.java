@@ -0,0 +1,84 @@
+package co.uk.yapily.event;
+
+import co.uk.yapily.dto.ProductDto;
+
+import java.time.Instant;
+
+/**
+ * Published after a product was created, updated or deleted, through this instance or, when cross-node invalidation
+ * is enabled, through another one.
+ * <p>
+ * The product DTO is shared by every listener and must not be modified.
+ *
+ * @param type      what happened to the product
+ * @param productId the product ID
+ * @param product   the product as written, or as re-read for a remote change; {@code null} when it was deleted
+ * @param updatedAt     the database time of the write, {@code null} when the product was deleted
+ * @param changeVersion the change version of the write, {@code null} when the product was deleted or the write has
+ *                      none
+ * @param origin        where the write was made
+ *
+ * @since 1.1.0
+ */
+public record ProductChangedEvent(ChangeType type, Long productId, ProductDto product, Instant updatedAt,
+                                  Long changeVersion, Origin origin) {
+
+  /**
+   * The kind of change.
+   */
+  public enum ChangeType {
+    UPSERTED,
+    DELETED
+  }
+
+  /**
+   * Where a change was made.
+   */
+  public enum Origin {
+    /**
+     * Through this instance.
+     */
+    LOCAL,
+    /**
+     * Through another instance, learned from an invalidation message.
+     */
+    REMOTE
+  }
+
+  /**
+   * @param product       the product as written
+   * @param updatedAt     the database time of the write
+   * @param changeVersion the change version of the write
+   * @return an event for a created or updated product
+   */
+  public static ProductChangedEvent upserted(final ProductDto product, final Instant updatedAt, final Long changeVersion) {
+    return new ProductChangedEvent(ChangeType.UPSERTED, product.getId(), product, updatedAt, changeVersion, Origin.LOCAL);
+  }
+
+  /**
+   * @param productId the product ID
+   * @return an event for a deleted product
+   */
+  public static ProductChangedEvent deleted(final Long productId) {
+    return new ProductChangedEvent(ChangeType.DELETED, productId, null, null, null, Origin.LOCAL);
+  }
+
+  /**
+   * @param product       the product as re-read from the database
+   * @param updatedAt     the database time of the write
+   * @param changeVersion the change version of the write
+   * @return an event for a product created or updated through another instance
+   */
+  public static ProductChangedEvent remoteUpserted(final ProductDto product, final Instant updatedAt,
+                                                   final Long changeVersion) {
+    return new ProductChangedEvent(ChangeType.UPSERTED, product.getId(), product, updatedAt, changeVersion, Origin.REMOTE);
+  }
+
+  /**
+   * @param productId the product ID
+   * @return an event for a product deleted through another instance
+   */
+  public static ProductChangedEvent remoteDeleted(final Long productId) {
+    return new ProductChangedEvent(ChangeType.DELETED, productId, null, null, null, Origin.REMOTE);
+  }
+}
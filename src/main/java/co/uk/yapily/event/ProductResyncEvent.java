@@ -0,0 +1,12 @@
+package co.uk.yapily.event;
+
+/**
+ * Published when product changes made through other instances may have been missed, e.g. after the invalidation
+ * connection was lost; holders of product data should re-read it from the database.
+ *
+ * @param reason why a resync is needed, for logging
+ *
+ * @since 1.1.0
+ */
+public record ProductResyncEvent(String reason) {
+}
@@ -17,4 +17,24 @@ public class ApiException extends Exception {
   public ApiException(final Throwable cause) {
     super(cause);
   }
+
+  private ApiException(final ExpectedServiceException cause) {
+    super(cause.getMessage(), cause, false, false);
+  }
+
+  /**
+   * Wraps a service exception for the web layer. An {@link ExpectedServiceException} keeps its own message, so the
+   * client learns what was wrong with the request, and the wrapper is as cheap as the cause: no stack trace.
+   *
+   * @param message the message used for unexpected failures
+   * @param cause   the service exception
+   * @return the API exception
+   * @since 1.1.0
+   */
+  public static ApiException of(final String message, final ServiceException cause) {
+    if (cause instanceof ExpectedServiceException expected) {
+      return new ApiException(expected);
+    }
+    return new ApiException(message, cause);
+  }
 }
@@ -0,0 +1,14 @@
+package co.uk.yapily.exception;
+
+/**
+ * The request conflicts with the current state of the resource, e.g. adding to a checked-out cart; mapped to
+ * 409 Conflict.
+ *
+ * @since 1.1.0
+ */
+public class ConflictException extends ExpectedServiceException {
+
+  public ConflictException(final String message) {
+    super(message);
+  }
+}
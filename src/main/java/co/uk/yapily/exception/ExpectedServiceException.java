@@ -0,0 +1,19 @@
+package co.uk.yapily.exception;
+
+/**
+ * A {@link ServiceException} for an outcome the client caused and can act on, such as an unknown ID, as opposed to a
+ * failure of the service.
+ * <p>
+ * Expected exceptions carry no stack trace and no suppressed exceptions: they are thrown on ordinary request paths,
+ * where filling in a stack trace would cost more than the lookup that failed. They are passed through unwrapped by
+ * every layer, are not logged as errors, and are mapped to a 4xx status by
+ * {@link co.uk.yapily.exception.handler.CustomExceptionHandler}.
+ *
+ * @since 1.1.0
+ */
+public abstract class ExpectedServiceException extends ServiceException {
+
+  protected ExpectedServiceException(final String message) {
+    super(message, null, false, false);
+  }
+}
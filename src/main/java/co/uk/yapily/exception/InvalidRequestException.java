@@ -0,0 +1,13 @@
+package co.uk.yapily.exception;
+
+/**
+ * The request is malformed, e.g. a missing ID; mapped to 400 Bad Request.
+ *
+ * @since 1.1.0
+ */
+public class InvalidRequestException extends ExpectedServiceException {
+
+  public InvalidRequestException(final String message) {
+    super(message);
+  }
+}
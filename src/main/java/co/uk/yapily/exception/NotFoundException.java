@@ -0,0 +1,13 @@
+package co.uk.yapily.exception;
+
+/**
+ * The requested cart or product does not exist; mapped to 404 Not Found.
+ *
+ * @since 1.1.0
+ */
+public class NotFoundException extends ExpectedServiceException {
+
+  public NotFoundException(final String message) {
+    super(message);
+  }
+}
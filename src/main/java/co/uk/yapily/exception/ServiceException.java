@@ -17,4 +17,9 @@ public class ServiceException extends Exception {
   public ServiceException(final Throwable cause) {
     super(cause);
   }
+
+  protected ServiceException(final String message, final Throwable cause, final boolean enableSuppression,
+                             final boolean writableStackTrace) {
+    super(message, cause, enableSuppression, writableStackTrace);
+  }
 }
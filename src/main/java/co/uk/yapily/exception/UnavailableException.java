@@ -0,0 +1,14 @@
+package co.uk.yapily.exception;
+
+/**
+ * The service cannot take on the request right now, e.g. because a capacity limit is reached; mapped to
+ * 503 Service Unavailable.
+ *
+ * @since 1.1.0
+ */
+public class UnavailableException extends ExpectedServiceException {
+
+  public UnavailableException(final String message) {
+    super(message);
+  }
+}
@@ -2,6 +2,10 @@ package co.uk.yapily.exception.handler;
 
 import co.uk.yapily.dto.exception.ErrorResponse;
 import co.uk.yapily.exception.ApiException;
+import co.uk.yapily.exception.ConflictException;
+import co.uk.yapily.exception.InvalidRequestException;
+import co.uk.yapily.exception.NotFoundException;
+import co.uk.yapily.exception.UnavailableException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -17,20 +21,22 @@ import java.util.Map;
 public class CustomExceptionHandler {
 
   /**
-   * Handle {@link ApiException} exceptions thrown by the application and return an error response
-   * with HTTP status code 500 (INTERNAL_SERVER_ERROR).
+   * Handle {@link ApiException} exceptions thrown by the application and return an error response.
+   * The HTTP status code is 404 (NOT_FOUND), 409 (CONFLICT), 400 (BAD_REQUEST) or 503 (SERVICE_UNAVAILABLE) when the
+   * exception was caused by a {@link NotFoundException}, {@link ConflictException}, {@link InvalidRequestException} or
+   * {@link UnavailableException}, and 500 (INTERNAL_SERVER_ERROR) otherwise.
    *
    * @param ex the exception to handle
    * @param request the current request
-   * @return an error response with HTTP status code 500 (INTERNAL_SERVER_ERROR)
+   * @return an error response with the HTTP status code matching the cause
    * @ExceptionHandler Specifies the type of exception this method handles.
    */
   @ExceptionHandler(value = ApiException.class)
   public ResponseEntity<Object> handleServiceException(final ApiException ex, final WebRequest request) {
-    final ErrorResponse errorResponse = new ErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR.name(), ex.getMessage(),
-          HttpStatus.INTERNAL_SERVER_ERROR.value());
+    final HttpStatus status = statusOf(ex.getCause());
+    final ErrorResponse errorResponse = new ErrorResponse(status.name(), ex.getMessage(), status.value());
 
-    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
+    return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
   }
 
   /**
@@ -51,4 +57,26 @@ public class CustomExceptionHandler {
     });
     return ResponseEntity.badRequest().body(errors);
   }
+
+  /**
+   * Maps the cause of an {@link ApiException} to the HTTP status of the response.
+   *
+   * @param cause the cause, may be {@code null}
+   * @return the HTTP status
+   */
+  private static HttpStatus statusOf(final Throwable cause) {
+    if (cause instanceof NotFoundException) {
+      return HttpStatus.NOT_FOUND;
+    }
+    if (cause instanceof ConflictException) {
+      return HttpStatus.CONFLICT;
+    }
+    if (cause instanceof InvalidRequestException) {
+      return HttpStatus.BAD_REQUEST;
+    }
+    if (cause instanceof UnavailableException) {
+      return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+    return HttpStatus.INTERNAL_SERVER_ERROR;
+  }
 }
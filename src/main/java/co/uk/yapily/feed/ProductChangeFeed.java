@@ -0,0 +1,282 @@
+package co.uk.yapily.feed;
+
+import co.uk.yapily.config.ProductFeedProperties;
+import co.uk.yapily.dto.ProductChangeDto;
+import co.uk.yapily.event.ProductChangedEvent;
+import co.uk.yapily.event.ProductResyncEvent;
+import co.uk.yapily.exception.UnavailableException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams product changes to subscribers as server-sent events.
+ * <p>
+ * Every {@link ProductChangedEvent} is serialized once, numbered and appended to a bounded replay buffer. A single
+ * dispatcher thread delivers buffered events to every subscriber from the position that subscriber has reached;
+ * subscriptions are asynchronous requests and hold no thread while idle. Each event carries an ID of the form
+ * {@code <stream>-<sequence>}: a client reconnecting with {@code Last-Event-ID} receives the events it missed, as long
+ * as they are still in the buffer. When they are not, or the ID belongs to another instance or an earlier run, the
+ * client first receives a {@value #RESET_EVENT} event and should re-read the products it tracks.
+ * <p>
+ * Events are sent for writes made through this instance and, with cross-node invalidation enabled, through the others.
+ * When changes made elsewhere may have been missed ({@link ProductResyncEvent}), every subscriber receives a
+ * {@value #RESET_EVENT} event.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class ProductChangeFeed {
+
+  static final String CHANGE_EVENT = "product-change";
+  static final String RESET_EVENT = "reset";
+
+  /**
+   * A serialized change and its position in the feed.
+   */
+  private record FeedEvent(long sequence, String data) {
+  }
+
+  /**
+   * An open subscription; {@code position} is the sequence of the last event sent, only touched by the dispatcher.
+   */
+  private static final class Subscriber {
+
+    private final SseEmitter emitter;
+    private long position;
+    private boolean reset;
+    private boolean opened;
+
+    private Subscriber(final SseEmitter emitter, final long position, final boolean reset) {
+      this.emitter = emitter;
+      this.position = position;
+      this.reset = reset;
+    }
+  }
+
+  private final ProductFeedProperties properties;
+  private final ObjectMapper objectMapper;
+  private final String streamId = Long.toString(System.currentTimeMillis(), 36);
+  private final FeedEvent[] buffer;
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+  private final Counter events;
+
+  private long head;
+  private ScheduledExecutorService executor;
+
+  /**
+   * Creates the feed.
+   *
+   * @param properties    the feed configuration
+   * @param objectMapper  the object mapper serializing the changes
+   * @param meterRegistry the registry for the feed metrics
+   */
+  public ProductChangeFeed(final ProductFeedProperties properties, final ObjectMapper objectMapper,
+                           final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.objectMapper = objectMapper;
+    this.buffer = new FeedEvent[properties.replaySize()];
+    this.events = Counter.builder("yapily.feed.events")
+        .description("Product changes published to the feed").register(meterRegistry);
+    Gauge.builder("yapily.feed.subscribers", subscribers, Set::size)
+        .description("Open subscriptions to the product feed").register(meterRegistry);
+  }
+
+  /**
+   * Starts the dispatcher thread and the heartbeat.
+   */
+  @PostConstruct
+  public void start() {
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "product-feed");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long heartbeat = properties.heartbeatInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::heartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops the dispatcher and completes every subscription; clients reconnect to another instance.
+   */
+  @PreDestroy
+  public void stop() {
+    executor.shutdownNow();
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    subscribers.clear();
+  }
+
+  /**
+   * Opens a subscription.
+   *
+   * @param lastEventId the ID of the last event the client received, or {@code null} to only receive new changes
+   * @return the emitter streaming the changes
+   * @throws UnavailableException if the subscriber limit is reached
+   */
+  public SseEmitter subscribe(final String lastEventId) throws UnavailableException {
+    if (subscribers.size() >= properties.maxSubscribers()) {
+      throw new UnavailableException("Too many subscribers to the product feed, retry later");
+    }
+    final SseEmitter emitter = new SseEmitter(properties.timeout().toMillis());
+    final Subscriber subscriber;
+    synchronized (buffer) {
+      final long resumeFrom = sequenceOf(lastEventId);
+      final boolean resumable = lastEventId == null || (resumeFrom >= oldestSequence() - 1 && resumeFrom <= head);
+      subscriber = new Subscriber(emitter, resumable && lastEventId != null ? resumeFrom : head, !resumable);
+    }
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(error -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    scheduleDispatch();
+    return emitter;
+  }
+
+  /**
+   * Appends a change to the feed.
+   *
+   * @param event the change
+   */
+  @EventListener
+  public void onProductChanged(final ProductChangedEvent event) {
+    final String data;
+    try {
+      data = objectMapper.writeValueAsString(ProductChangeDto.builder()
+          .type(event.type())
+          .productId(event.productId())
+          .product(event.product())
+          .updatedAt(event.updatedAt())
+          .build());
+    } catch (final JsonProcessingException e) {
+      log.error("Error serializing change of product with ID: {}. Reason: {}", event.productId(), e.getMessage(), e);
+      return;
+    }
+    synchronized (buffer) {
+      head++;
+      buffer[(int) (head % buffer.length)] = new FeedEvent(head, data);
+    }
+    events.increment();
+    if (!subscribers.isEmpty()) {
+      scheduleDispatch();
+    }
+  }
+
+  /**
+   * Tells every subscriber to re-read its products, as changes made through other instances may have been missed.
+   *
+   * @param event the resync request
+   */
+  @EventListener
+  public void onResync(final ProductResyncEvent event) {
+    try {
+      executor.execute(() -> {
+        subscribers.forEach(subscriber -> subscriber.reset = true);
+        dispatch();
+      });
+    } catch (final RuntimeException e) {
+      log.debug("Product feed stopped, resync ignored");
+    }
+  }
+
+  private void scheduleDispatch() {
+    if (dispatchScheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::dispatch);
+      } catch (final RuntimeException e) {
+        dispatchScheduled.set(false);
+      }
+    }
+  }
+
+  private void dispatch() {
+    dispatchScheduled.set(false);
+    for (final Subscriber subscriber : subscribers) {
+      final List<FeedEvent> pending = new ArrayList<>();
+      final long current;
+      synchronized (buffer) {
+        current = head;
+        if (subscriber.position < oldestSequence() - 1) {
+          // fell behind by more than the buffer holds
+          subscriber.reset = true;
+          subscriber.position = current;
+        }
+        for (long sequence = subscriber.position + 1; sequence <= current; sequence++) {
+          pending.add(buffer[(int) (sequence % buffer.length)]);
+        }
+      }
+      try {
+        if (!subscriber.opened) {
+          subscriber.emitter.send(SseEmitter.event().comment("product feed " + streamId));
+          subscriber.opened = true;
+        }
+        if (subscriber.reset) {
+          subscriber.emitter.send(SseEmitter.event().id(eventId(subscriber.position)).name(RESET_EVENT).data("{}"));
+          subscriber.reset = false;
+        }
+        for (final FeedEvent event : pending) {
+          subscriber.emitter.send(SseEmitter.event().id(eventId(event.sequence())).name(CHANGE_EVENT).data(event.data()));
+          subscriber.position = event.sequence();
+        }
+      } catch (final IOException | IllegalStateException e) {
+        // the client went away; the container completes the emitter
+        subscribers.remove(subscriber);
+      }
+    }
+  }
+
+  private void heartbeat() {
+    for (final Subscriber subscriber : subscribers) {
+      try {
+        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+      } catch (final IOException | IllegalStateException e) {
+        subscribers.remove(subscriber);
+      }
+    }
+  }
+
+  /**
+   * @return the sequence of the oldest event still in the buffer; guarded by {@code buffer}
+   */
+  private long oldestSequence() {
+    return Math.max(1, head - buffer.length + 1);
+  }
+
+  private String eventId(final long sequence) {
+    return streamId + "-" + sequence;
+  }
+
+  /**
+   * @param eventId an event ID sent by a client, may be {@code null}
+   * @return the sequence of the event, or -1 if the ID is missing, malformed or from another stream
+   */
+  private long sequenceOf(final String eventId) {
+    if (eventId == null || !eventId.startsWith(streamId + "-")) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(eventId.substring(streamId.length() + 1));
+    } catch (final NumberFormatException e) {
+      return -1;
+    }
+  }
+}
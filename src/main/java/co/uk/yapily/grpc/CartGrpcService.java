@@ -0,0 +1,101 @@
+package co.uk.yapily.grpc;
+
+import co.uk.yapily.dto.CartItemDto;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.grpc.v1.AddItemsRequest;
+import co.uk.yapily.grpc.v1.Cart;
+import co.uk.yapily.grpc.v1.CartsGrpc;
+import co.uk.yapily.grpc.v1.CheckoutRequest;
+import co.uk.yapily.grpc.v1.CheckoutResponse;
+import co.uk.yapily.grpc.v1.GetCartRequest;
+import co.uk.yapily.service.CartService;
+import io.grpc.stub.StreamObserver;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The {@code yapily.v1.Carts} gRPC service, served by the {@link CartService}.
+ * <p>
+ * Like a REST request, each call runs with an open persistence session, which the {@link CartService} relies on to read
+ * the products of a cart lazily. Unlike REST requests, calls are not routed to the instance owning the cart: the
+ * instance receiving a call serves it.
+ *
+ * @since 1.1.0
+ */
+@Component
+public class CartGrpcService extends CartsGrpc.CartsImplBase {
+
+  private final CartService service;
+  private final EntityManagerFactory entityManagerFactory;
+
+  /**
+   * @param service              the cart service
+   * @param entityManagerFactory the factory of the persistence sessions the calls run in
+   */
+  public CartGrpcService(final CartService service, final EntityManagerFactory entityManagerFactory) {
+    this.service = service;
+    this.entityManagerFactory = entityManagerFactory;
+  }
+
+  @Override
+  public void getCart(final GetCartRequest request, final StreamObserver<Cart> responseObserver) {
+    try {
+      responseObserver.onNext(GrpcMessages.cart(inSession(() -> service.findById(request.getCartId(), request.getExpandProducts()))));
+      responseObserver.onCompleted();
+    } catch (final ServiceException e) {
+      responseObserver.onError(GrpcMessages.status(e));
+    }
+  }
+
+  @Override
+  public void addItems(final AddItemsRequest request, final StreamObserver<Cart> responseObserver) {
+    try {
+      final CartItemDto item = new CartItemDto(request.getProductId(), request.getQuantity());
+      responseObserver.onNext(GrpcMessages.cart(inSession(() -> service.update(item, request.getCartId(), request.getExpandProducts()))));
+      responseObserver.onCompleted();
+    } catch (final ServiceException e) {
+      responseObserver.onError(GrpcMessages.status(e));
+    }
+  }
+
+  @Override
+  public void checkout(final CheckoutRequest request, final StreamObserver<CheckoutResponse> responseObserver) {
+    try {
+      responseObserver.onNext(GrpcMessages.checkout(inSession(() -> service.checkout(request.getCartId()))));
+      responseObserver.onCompleted();
+    } catch (final ServiceException e) {
+      responseObserver.onError(GrpcMessages.status(e));
+    }
+  }
+
+  /**
+   * Runs a service call with a persistence session bound to the thread, as the open-in-view interceptor does for a
+   * REST request, unless one is bound already.
+   *
+   * @param call the service call
+   * @return the result of the call
+   * @throws ServiceException if the call fails
+   */
+  private <T> T inSession(final ServiceCall<T> call) throws ServiceException {
+    if (TransactionSynchronizationManager.hasResource(entityManagerFactory)) {
+      return call.run();
+    }
+    final EntityManagerHolder holder = new EntityManagerHolder(entityManagerFactory.createEntityManager());
+    TransactionSynchronizationManager.bindResource(entityManagerFactory, holder);
+    try {
+      return call.run();
+    } finally {
+      TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+      EntityManagerFactoryUtils.closeEntityManager(holder.getEntityManager());
+    }
+  }
+
+  @FunctionalInterface
+  private interface ServiceCall<T> {
+
+    T run() throws ServiceException;
+  }
+}
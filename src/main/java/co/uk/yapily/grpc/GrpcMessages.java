@@ -0,0 +1,147 @@
+package co.uk.yapily.grpc;
+
+import co.uk.yapily.dto.CartDto;
+import co.uk.yapily.dto.CartProductDto;
+import co.uk.yapily.dto.CheckoutDto;
+import co.uk.yapily.dto.ProductBatchDto;
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.exception.ConflictException;
+import co.uk.yapily.exception.InvalidRequestException;
+import co.uk.yapily.exception.NotFoundException;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.exception.UnavailableException;
+import co.uk.yapily.grpc.v1.BatchGetProductsResponse;
+import co.uk.yapily.grpc.v1.Cart;
+import co.uk.yapily.grpc.v1.CartLine;
+import co.uk.yapily.grpc.v1.CheckoutResponse;
+import co.uk.yapily.grpc.v1.Product;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+/**
+ * Maps the DTOs of the services to the protobuf messages of the gRPC API, and their exceptions to gRPC statuses.
+ * Fields that are {@code null} in a DTO are left unset in the message.
+ *
+ * @since 1.1.0
+ */
+final class GrpcMessages {
+
+  private GrpcMessages() {
+  }
+
+  /**
+   * @param dto the product
+   * @return the product message
+   */
+  static Product product(final ProductDto dto) {
+    final Product.Builder product = Product.newBuilder().setProductId(dto.getId());
+    if (dto.getName() != null) {
+      product.setName(dto.getName());
+    }
+    if (dto.getPrice() != null) {
+      product.setPrice(dto.getPrice());
+    }
+    if (dto.getLabels() != null) {
+      product.addAllLabels(dto.getLabels());
+    }
+    if (dto.getAddedAt() != null) {
+      product.setAddedAt(dto.getAddedAt().getTime());
+    }
+    return product.build();
+  }
+
+  /**
+   * @param batch the products found and the IDs not found
+   * @return the batch message
+   */
+  static BatchGetProductsResponse batch(final ProductBatchDto batch) {
+    final BatchGetProductsResponse.Builder response = BatchGetProductsResponse.newBuilder();
+    batch.getProducts().forEach(product -> response.addProducts(product(product)));
+    return response.addAllMissingIds(batch.getMissingIds()).build();
+  }
+
+  /**
+   * @param dto the cart
+   * @return the cart message
+   */
+  static Cart cart(final CartDto dto) {
+    final Cart.Builder cart = Cart.newBuilder().setCheckOut(dto.isCheckout());
+    if (dto.getId() != null) {
+      cart.setCartId(dto.getId());
+    }
+    if (dto.getProducts() != null) {
+      dto.getProducts().forEach(line -> cart.addLines(line(line)));
+    }
+    if (dto.getAmount() != null) {
+      cart.setTotalCost(dto.getAmount());
+    }
+    if (dto.getDiscount() != null) {
+      cart.setDiscount(dto.getDiscount());
+    }
+    return cart.build();
+  }
+
+  /**
+   * @param dto the checkout result
+   * @return the checkout message
+   */
+  static CheckoutResponse checkout(final CheckoutDto dto) {
+    final CheckoutResponse.Builder response = CheckoutResponse.newBuilder().setCart(cart(dto.getCart()));
+    if (dto.getAmount() != null) {
+      response.setTotalCost(dto.getAmount());
+    }
+    if (dto.getDiscount() != null) {
+      response.setDiscount(dto.getDiscount());
+    }
+    if (dto.getOrderId() != null) {
+      response.setOrderId(dto.getOrderId());
+    }
+    return response.build();
+  }
+
+  /**
+   * Maps a service exception to the status a REST client would have been given as an HTTP status. Only the message of
+   * an expected exception reaches the client.
+   *
+   * @param e the service exception
+   * @return the exception to complete the call with
+   */
+  static StatusRuntimeException status(final ServiceException e) {
+    final Status status;
+    if (e instanceof NotFoundException) {
+      status = Status.NOT_FOUND;
+    } else if (e instanceof ConflictException) {
+      status = Status.FAILED_PRECONDITION;
+    } else if (e instanceof InvalidRequestException) {
+      status = Status.INVALID_ARGUMENT;
+    } else if (e instanceof UnavailableException) {
+      status = Status.UNAVAILABLE;
+    } else {
+      return Status.INTERNAL.withDescription("An unexpected error occurred").withCause(e).asRuntimeException();
+    }
+    return status.withDescription(e.getMessage()).asRuntimeException();
+  }
+
+  private static CartLine line(final CartProductDto dto) {
+    final CartLine.Builder line = CartLine.newBuilder().setQuantity(dto.getQuantity());
+    if (dto.getProductId() != null) {
+      line.setProductId(dto.getProductId());
+    }
+    if (dto.getName() != null) {
+      line.setName(dto.getName());
+    }
+    if (dto.getUnitPrice() != null) {
+      line.setUnitPrice(dto.getUnitPrice());
+    }
+    if (dto.getLabels() != null) {
+      line.addAllLabels(dto.getLabels());
+    }
+    if (dto.getLineTotal() != null) {
+      line.setLineTotal(dto.getLineTotal());
+    }
+    if (dto.getDiscount() != null) {
+      line.setDiscount(dto.getDiscount());
+    }
+    return line.build();
+  }
+}
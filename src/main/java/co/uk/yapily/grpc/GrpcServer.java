@@ -0,0 +1,77 @@
+package co.uk.yapily.grpc;
+
+import co.uk.yapily.config.GrpcProperties;
+import io.grpc.BindableService;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the gRPC services of the application on their own port, next to the REST API, when enabled.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class GrpcServer {
+
+  private final GrpcProperties properties;
+  private final List<BindableService> services;
+
+  private Server server;
+
+  /**
+   * @param properties the gRPC configuration
+   * @param services   the gRPC services to serve
+   */
+  public GrpcServer(final GrpcProperties properties, final List<BindableService> services) {
+    this.properties = properties;
+    this.services = services;
+  }
+
+  /**
+   * Starts the server, when enabled.
+   */
+  @PostConstruct
+  public void start() {
+    if (!properties.enabled()) {
+      return;
+    }
+    final NettyServerBuilder builder = NettyServerBuilder.forPort(properties.port())
+        .maxInboundMessageSize((int) properties.maxInboundMessageSize().toBytes());
+    services.forEach(builder::addService);
+    try {
+      server = builder.build().start();
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Cannot start the gRPC server on port " + properties.port(), e);
+    }
+    log.info("Serving {} gRPC services on port {}", services.size(), server.getPort());
+  }
+
+  /**
+   * Stops accepting calls, and cancels the calls still in flight after the grace period.
+   */
+  @PreDestroy
+  public void stop() {
+    if (server == null) {
+      return;
+    }
+    server.shutdown();
+    try {
+      if (!server.awaitTermination(properties.shutdownGracePeriod().toMillis(), TimeUnit.MILLISECONDS)) {
+        server.shutdownNow();
+      }
+    } catch (final InterruptedException e) {
+      server.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package co.uk.yapily.grpc;
+
+import co.uk.yapily.config.GrpcProperties;
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.grpc.v1.BatchGetProductsRequest;
+import co.uk.yapily.grpc.v1.BatchGetProductsResponse;
+import co.uk.yapily.grpc.v1.GetProductRequest;
+import co.uk.yapily.grpc.v1.Product;
+import co.uk.yapily.grpc.v1.ProductsGrpc;
+import co.uk.yapily.grpc.v1.StreamProductsRequest;
+import co.uk.yapily.service.ProductService;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The {@code yapily.v1.Products} gRPC service, served by the {@link ProductService}.
+ *
+ * @since 1.1.0
+ */
+@Component
+public class ProductGrpcService extends ProductsGrpc.ProductsImplBase {
+
+  private final ProductService service;
+  private final int pageSize;
+
+  /**
+   * @param service    the product service
+   * @param properties the gRPC configuration
+   */
+  public ProductGrpcService(final ProductService service, final GrpcProperties properties) {
+    this.service = service;
+    this.pageSize = properties.exportPageSize();
+  }
+
+  @Override
+  public void getProduct(final GetProductRequest request, final StreamObserver<Product> responseObserver) {
+    try {
+      responseObserver.onNext(GrpcMessages.product(service.findById(request.getProductId())));
+      responseObserver.onCompleted();
+    } catch (final ServiceException e) {
+      responseObserver.onError(GrpcMessages.status(e));
+    }
+  }
+
+  @Override
+  public void batchGetProducts(final BatchGetProductsRequest request,
+                               final StreamObserver<BatchGetProductsResponse> responseObserver) {
+    try {
+      responseObserver.onNext(GrpcMessages.batch(service.findAllById(request.getProductIdsList())));
+      responseObserver.onCompleted();
+    } catch (final ServiceException e) {
+      responseObserver.onError(GrpcMessages.status(e));
+    }
+  }
+
+  /**
+   * Streams the products by ascending ID, reading the next page only once the previous one was sent and sending only
+   * while the transport is ready, so a slow client never makes the server buffer more than a page.
+   */
+  @Override
+  public void streamProducts(final StreamProductsRequest request, final StreamObserver<Product> responseObserver) {
+    final ServerCallStreamObserver<Product> call = (ServerCallStreamObserver<Product>) responseObserver;
+    final CatalogExport export = new CatalogExport(call, request.getAfterId());
+    call.setOnCancelHandler(export::cancel);
+    call.setOnReadyHandler(export::drain);
+  }
+
+  /**
+   * The state of one catalog export. gRPC runs the handlers of a call one at a time, so it needs no locking.
+   */
+  private final class CatalogExport {
+
+    private final ServerCallStreamObserver<Product> call;
+    private final Deque<ProductDto> page = new ArrayDeque<>();
+    private long lastId;
+    private boolean done;
+
+    private CatalogExport(final ServerCallStreamObserver<Product> call, final long afterId) {
+      this.call = call;
+      this.lastId = afterId;
+    }
+
+    private void drain() {
+      try {
+        while (!done && call.isReady()) {
+          if (page.isEmpty() && !fetch()) {
+            done = true;
+            call.onCompleted();
+            return;
+          }
+          final ProductDto product = page.poll();
+          lastId = product.getId();
+          call.onNext(GrpcMessages.product(product));
+        }
+      } catch (final ServiceException e) {
+        done = true;
+        call.onError(GrpcMessages.status(e));
+      }
+    }
+
+    private boolean fetch() throws ServiceException {
+      page.addAll(service.findPage(lastId, pageSize));
+      return !page.isEmpty();
+    }
+
+    private void cancel() {
+      done = true;
+      page.clear();
+    }
+  }
+}
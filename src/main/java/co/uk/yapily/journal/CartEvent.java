@@ -0,0 +1,35 @@
+package co.uk.yapily.journal;
+
+import java.time.Instant;
+
+/**
+ * One entry of the cart event journal.
+ *
+ * @param sequence  position in the journal, assigned by the writer and strictly increasing
+ * @param timestamp time the event was published, in epoch milliseconds
+ * @param type      the kind of event
+ * @param cartId    the cart
+ * @param productId the product added, or {@code 0} if the event is not about a product
+ * @param quantity  the quantity added, or the number of items on checkout
+ * @param amount    the unit price added, or the total on checkout; {@code NaN} if not applicable
+ *
+ * @since 1.1.0
+ */
+public record CartEvent(long sequence, long timestamp, CartEventType type, long cartId, long productId, int quantity,
+                        double amount) {
+
+  /**
+   * @param sequence the journal position
+   * @return this event at the given position
+   */
+  CartEvent withSequence(final long sequence) {
+    return new CartEvent(sequence, timestamp, type, cartId, productId, quantity, amount);
+  }
+
+  @Override
+  public String toString() {
+    return sequence + " " + Instant.ofEpochMilli(timestamp) + " " + type + " cart=" + cartId
+        + (productId != 0 ? " product=" + productId : "") + " quantity=" + quantity
+        + (Double.isNaN(amount) ? "" : " amount=" + amount);
+  }
+}
@@ -0,0 +1,84 @@
+package co.uk.yapily.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+
+/**
+ * The fixed-size binary record format of the journal. Every record is {@value #RECORD_SIZE} bytes, little-endian:
+ * <pre>
+ *  0  int    CRC32 of bytes 4..55
+ *  4  byte   event type code (0 marks unwritten space)
+ *  5  byte   format version
+ *  6  short  reserved
+ *  8  long   sequence
+ * 16  long   timestamp, epoch milliseconds
+ * 24  long   cart ID
+ * 32  long   product ID
+ * 40  int    quantity
+ * 44  int    reserved
+ * 48  double amount
+ * </pre>
+ * A record that is torn by a crash fails its checksum and marks the end of the journal.
+ *
+ * @since 1.1.0
+ */
+final class CartEventCodec {
+
+  static final int RECORD_SIZE = 56;
+  private static final byte VERSION = 1;
+
+  private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+  private final CRC32 crc = new CRC32();
+
+  /**
+   * Writes an event at the buffer's position and advances it by one record.
+   *
+   * @param event  the event
+   * @param target the buffer
+   */
+  void encode(final CartEvent event, final ByteBuffer target) {
+    scratch.clear();
+    scratch.putInt(0)
+        .put(event.type().code())
+        .put(VERSION)
+        .putShort((short) 0)
+        .putLong(event.sequence())
+        .putLong(event.timestamp())
+        .putLong(event.cartId())
+        .putLong(event.productId())
+        .putInt(event.quantity())
+        .putInt(0)
+        .putDouble(event.amount());
+    scratch.putInt(0, checksum());
+    scratch.flip();
+    target.put(scratch);
+  }
+
+  /**
+   * Reads the record at the buffer's position and advances it by one record.
+   *
+   * @param source the buffer
+   * @return the event, or {@code null} if there is no complete, valid record at the position
+   */
+  CartEvent decode(final ByteBuffer source) {
+    if (source.remaining() < RECORD_SIZE) {
+      return null;
+    }
+    scratch.clear();
+    scratch.put(source.slice(source.position(), RECORD_SIZE));
+    final CartEventType type = CartEventType.fromCode(scratch.get(4));
+    if (type == null || scratch.getInt(0) != checksum()) {
+      return null;
+    }
+    source.position(source.position() + RECORD_SIZE);
+    return new CartEvent(scratch.getLong(8), scratch.getLong(16), type, scratch.getLong(24), scratch.getLong(32),
+        scratch.getInt(40), scratch.getDouble(48));
+  }
+
+  private int checksum() {
+    crc.reset();
+    crc.update(scratch.array(), 4, RECORD_SIZE - 4);
+    return (int) crc.getValue();
+  }
+}
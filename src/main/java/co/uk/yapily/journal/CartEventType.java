@@ -0,0 +1,52 @@
+package co.uk.yapily.journal;
+
+/**
+ * The kinds of cart events in the journal, with their on-disk codes.
+ *
+ * @since 1.1.0
+ */
+public enum CartEventType {
+
+  /**
+   * Products were added to a cart; carries the product, the quantity and the unit price.
+   */
+  ITEM_ADDED((byte) 1),
+
+  /**
+   * A cart was checked out; carries the number of items and the total amount.
+   */
+  CHECKED_OUT((byte) 2),
+
+  /**
+   * The deletion of a cart was committed.
+   */
+  DELETED((byte) 3);
+
+  private final byte code;
+
+  CartEventType(final byte code) {
+    this.code = code;
+  }
+
+  /**
+   * @return the code stored in the journal
+   */
+  public byte code() {
+    return code;
+  }
+
+  /**
+   * Resolves a stored code.
+   *
+   * @param code the stored code
+   * @return the event type, or {@code null} if the code is unknown
+   */
+  public static CartEventType fromCode(final byte code) {
+    for (final CartEventType type : values()) {
+      if (type.code == code) {
+        return type;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,244 @@
+package co.uk.yapily.journal;
+
+import co.uk.yapily.config.CartJournalProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Records what happens to carts in an append-only journal, without a database write per event.
+ * <p>
+ * Request threads publish events into a lock-free ring buffer; a single writer thread drains it into memory-mapped
+ * segment files (see {@link CartEventCodec} for the record format). Written events reach the page cache immediately,
+ * so they survive a crash of the process, and are forced to disk at least every {@code force-interval}.
+ * <p>
+ * No event is dropped while the journal is running: when the ring buffer is full, publishers wait for the writer.
+ * Events still in the ring buffer when the process dies abruptly are lost; a graceful shutdown drains it first, unless
+ * the disk keeps rejecting writes. An idle writer parks until a publisher wakes it, or until written events are due to
+ * be forced.
+ * Metrics: {@code yapily.journal.events}, {@code yapily.journal.backlog} and {@code yapily.journal.publish.waits}.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class CartJournal {
+
+  private static final long PUBLISH_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final long WRITE_RETRY_MILLIS = 1000;
+
+  private final CartJournalProperties properties;
+  private final MeterRegistry meterRegistry;
+
+  private MpscRingBuffer<CartEvent> ring;
+  private CartJournalWriter writer;
+  private Thread writerThread;
+  private Counter written;
+  private Counter publishWaits;
+  private volatile boolean running;
+  private volatile boolean writerParked;
+
+  /**
+   * Creates the journal; it starts writing once the context is up.
+   *
+   * @param properties    the journal configuration
+   * @param meterRegistry the registry for the journal metrics
+   */
+  public CartJournal(final CartJournalProperties properties, final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Opens the journal and starts the writer thread, if the journal is enabled.
+   *
+   * @throws IOException if the journal cannot be opened
+   */
+  @PostConstruct
+  public void start() throws IOException {
+    if (!properties.enabled()) {
+      return;
+    }
+    ring = new MpscRingBuffer<>(properties.ringSize());
+    writer = new CartJournalWriter(Path.of(properties.directory()), properties.segmentSize().toBytes());
+    written = Counter.builder("yapily.journal.events").description("Cart events written to the journal").register(meterRegistry);
+    publishWaits = Counter.builder("yapily.journal.publish.waits")
+        .description("Times a publisher waited for room in the journal buffer").register(meterRegistry);
+    Gauge.builder("yapily.journal.backlog", ring, MpscRingBuffer::size)
+        .description("Cart events published but not written yet").register(meterRegistry);
+
+    running = true;
+    writerThread = new Thread(this::drain, "cart-journal-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+    log.info("Cart journal enabled in {}, next sequence {}", properties.directory(), writer.nextSequence());
+  }
+
+  /**
+   * Drains the buffer, then forces and closes the journal.
+   */
+  @PreDestroy
+  public void stop() {
+    if (writerThread == null) {
+      return;
+    }
+    running = false;
+    LockSupport.unpark(writerThread);
+    try {
+      writerThread.join(TimeUnit.SECONDS.toMillis(10));
+      if (writerThread.isAlive()) {
+        log.warn("Cart journal writer did not stop in time, {} events not written", ring.size());
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return whether events are being journaled
+   */
+  public boolean isEnabled() {
+    return running;
+  }
+
+  /**
+   * Records products added to a cart.
+   *
+   * @param cartId    the cart
+   * @param productId the product
+   * @param quantity  the quantity added
+   * @param unitPrice the unit price, may be {@code null}
+   */
+  public void itemAdded(final long cartId, final long productId, final int quantity, final Double unitPrice) {
+    publish(CartEventType.ITEM_ADDED, cartId, productId, quantity, unitPrice);
+  }
+
+  /**
+   * Records a checkout.
+   *
+   * @param cartId the cart
+   * @param items  the number of items checked out
+   * @param amount the total amount, may be {@code null}
+   */
+  public void checkedOut(final long cartId, final int items, final Double amount) {
+    publish(CartEventType.CHECKED_OUT, cartId, 0, items, amount);
+  }
+
+  /**
+   * Records the deletion of a cart.
+   *
+   * @param cartId the cart
+   */
+  public void deleted(final long cartId) {
+    publish(CartEventType.DELETED, cartId, 0, 0, null);
+  }
+
+  /**
+   * Replays the journal written so far, in sequence order.
+   *
+   * @param fromSequence the first sequence to replay
+   * @param consumer     receives the events
+   * @return the number of events replayed
+   * @throws IOException if the journal cannot be read
+   */
+  public long replay(final long fromSequence, final Consumer<CartEvent> consumer) throws IOException {
+    return new CartJournalReader(Path.of(properties.directory())).replay(fromSequence, consumer);
+  }
+
+  private void publish(final CartEventType type, final long cartId, final long productId, final int quantity,
+                       final Double amount) {
+    if (!running) {
+      return;
+    }
+    final CartEvent event = new CartEvent(0, System.currentTimeMillis(), type, cartId, productId, quantity,
+        amount != null ? amount : Double.NaN);
+    while (!ring.offer(event)) {
+      publishWaits.increment();
+      LockSupport.parkNanos(PUBLISH_BACKOFF_NANOS);
+      if (!running) {
+        log.warn("Cart journal stopped, event not written: {}", event);
+        return;
+      }
+    }
+    if (writerParked) {
+      LockSupport.unpark(writerThread);
+    }
+  }
+
+  private void drain() {
+    final long forceIntervalNanos = properties.forceInterval().toNanos();
+    long lastForce = System.nanoTime();
+    boolean unforced = false;
+    try {
+      while (running || ring.size() > 0) {
+        final CartEvent event = ring.poll();
+        if (event != null) {
+          append(event);
+          unforced = true;
+        } else {
+          awaitEvents(unforced ? forceIntervalNanos - (System.nanoTime() - lastForce) : Long.MAX_VALUE);
+        }
+        if (unforced && System.nanoTime() - lastForce >= forceIntervalNanos) {
+          writer.force();
+          lastForce = System.nanoTime();
+          unforced = false;
+        }
+      }
+    } catch (final IOException e) {
+      log.error("Cart journal stopped while writes were failing, {} events not written! Reason: {}", ring.size() + 1,
+          e.getMessage(), e);
+    }
+    try {
+      writer.close();
+    } catch (final IOException e) {
+      log.error("Error closing the cart journal! Reason: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Parks the writer until a publisher or {@link #stop()} unparks it.
+   *
+   * @param timeoutNanos the longest time to park, {@link Long#MAX_VALUE} to park until unparked
+   */
+  private void awaitEvents(final long timeoutNanos) {
+    writerParked = true;
+    // checked after the flag is raised, so a publisher either sees the flag or its event is seen here
+    if (running && ring.size() == 0 && timeoutNanos > 0) {
+      LockSupport.parkNanos(this, timeoutNanos);
+    }
+    writerParked = false;
+  }
+
+  /**
+   * Appends an event, retrying until the disk accepts it.
+   *
+   * @param event the event
+   * @throws IOException the last write failure, once the journal is stopped
+   */
+  private void append(final CartEvent event) throws IOException {
+    while (true) {
+      try {
+        writer.append(event);
+        written.increment();
+        return;
+      } catch (final IOException e) {
+        if (!running) {
+          throw e;
+        }
+        // keep the event and hold back publishers until the disk accepts writes again
+        log.error("Error writing to the cart journal, retrying in {} ms! Reason: {}", WRITE_RETRY_MILLIS, e.getMessage(), e);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(WRITE_RETRY_MILLIS));
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package co.uk.yapily.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads the cart event journal, and doubles as a command-line tool:
+ * <pre>
+ * java -cp yapily-e-commerce-api.jar -Dloader.main=co.uk.yapily.journal.CartJournalReader \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher &lt;directory&gt; [from-sequence] [cart-id]
+ * </pre>
+ * Reading is safe while the journal is being written; it stops at the last complete record.
+ *
+ * @since 1.1.0
+ */
+public final class CartJournalReader {
+
+  private static final String SEGMENT_PREFIX = "cart-journal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final Path directory;
+
+  /**
+   * @param directory the journal directory
+   */
+  public CartJournalReader(final Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Replays the journal in sequence order.
+   *
+   * @param fromSequence the first sequence to replay
+   * @param consumer     receives every event from {@code fromSequence} on
+   * @return the number of events replayed
+   * @throws IOException if a segment cannot be read
+   */
+  public long replay(final long fromSequence, final Consumer<CartEvent> consumer) throws IOException {
+    final List<Path> segments = segments(directory);
+    final CartEventCodec codec = new CartEventCodec();
+    long replayed = 0;
+    for (int i = 0; i < segments.size(); i++) {
+      // a segment entirely before the requested sequence does not need to be read
+      if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= fromSequence) {
+        continue;
+      }
+      try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        CartEvent event;
+        while ((event = codec.decode(buffer)) != null) {
+          if (event.sequence() >= fromSequence) {
+            consumer.accept(event);
+            replayed++;
+          }
+        }
+      }
+    }
+    return replayed;
+  }
+
+  /**
+   * Prints the journal, one event per line.
+   *
+   * @param args the journal directory, optionally followed by the first sequence and a cart ID to filter on
+   * @throws IOException if the journal cannot be read
+   */
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 1 || args.length > 3) {
+      System.err.println("Usage: CartJournalReader <directory> [from-sequence] [cart-id]");
+      System.exit(2);
+    }
+    final long fromSequence = args.length > 1 ? Long.parseLong(args[1]) : 0;
+    final Long cartId = args.length > 2 ? Long.valueOf(args[2]) : null;
+    new CartJournalReader(Path.of(args[0])).replay(fromSequence, event -> {
+      if (cartId == null || cartId == event.cartId()) {
+        System.out.println(event);
+      }
+    });
+  }
+
+  /**
+   * Lists the segments of a journal in sequence order.
+   *
+   * @param directory the journal directory
+   * @return the segment files, empty if the directory does not exist
+   * @throws IOException if the directory cannot be listed
+   */
+  static List<Path> segments(final Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      // names are zero-padded, so lexical order is sequence order
+      return files.filter(path -> {
+        final String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+      }).sorted().toList();
+    }
+  }
+
+  static String segmentName(final long firstSequence) {
+    return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+  }
+
+  static long firstSequence(final Path segment) {
+    final String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+}
@@ -0,0 +1,118 @@
+package co.uk.yapily.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends events to memory-mapped segment files. Not thread-safe: the journal has exactly one writer thread.
+ * <p>
+ * Segments are preallocated to their full size and named after the sequence of their first event. On opening, the
+ * last segment is scanned up to its last valid record, so the sequence carries on where the previous process stopped
+ * and a record torn by a crash is overwritten.
+ *
+ * @since 1.1.0
+ */
+final class CartJournalWriter implements Closeable {
+
+  private final Path directory;
+  private final int segmentSize;
+  private final CartEventCodec codec = new CartEventCodec();
+
+  private FileChannel channel;
+  private MappedByteBuffer segment;
+  private long nextSequence;
+  private boolean dirty;
+
+  /**
+   * Opens the journal for appending, creating the directory and the first segment if needed.
+   *
+   * @param directory   the journal directory
+   * @param segmentSize the size of new segments, in bytes
+   * @throws IOException if the journal cannot be opened
+   */
+  CartJournalWriter(final Path directory, final long segmentSize) throws IOException {
+    if (segmentSize < CartEventCodec.RECORD_SIZE || segmentSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Journal segment size out of range: " + segmentSize);
+    }
+    this.directory = directory;
+    this.segmentSize = (int) (segmentSize - segmentSize % CartEventCodec.RECORD_SIZE);
+    Files.createDirectories(directory);
+
+    final List<Path> segments = CartJournalReader.segments(directory);
+    if (segments.isEmpty()) {
+      openSegment(1);
+    } else {
+      recover(segments.get(segments.size() - 1));
+    }
+  }
+
+  /**
+   * Appends an event, assigning it the next sequence.
+   *
+   * @param event the event
+   * @return the assigned sequence
+   * @throws IOException if a new segment cannot be created
+   */
+  long append(final CartEvent event) throws IOException {
+    if (segment.remaining() < CartEventCodec.RECORD_SIZE) {
+      roll();
+    }
+    final long sequence = nextSequence;
+    codec.encode(event.withSequence(sequence), segment);
+    nextSequence++;
+    dirty = true;
+    return sequence;
+  }
+
+  /**
+   * Forces the events written since the last call to disk.
+   */
+  void force() {
+    if (dirty) {
+      segment.force();
+      dirty = false;
+    }
+  }
+
+  /**
+   * @return the sequence the next event will get
+   */
+  long nextSequence() {
+    return nextSequence;
+  }
+
+  @Override
+  public void close() throws IOException {
+    force();
+    channel.close();
+  }
+
+  private void recover(final Path last) throws IOException {
+    channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    nextSequence = CartJournalReader.firstSequence(last);
+    CartEvent event;
+    while ((event = codec.decode(segment)) != null) {
+      nextSequence = event.sequence() + 1;
+    }
+  }
+
+  private void roll() throws IOException {
+    force();
+    channel.close();
+    openSegment(nextSequence);
+  }
+
+  private void openSegment(final long firstSequence) throws IOException {
+    final Path path = directory.resolve(CartJournalReader.segmentName(firstSequence));
+    channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    nextSequence = firstSequence;
+  }
+}
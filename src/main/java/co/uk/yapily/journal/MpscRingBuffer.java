@@ -0,0 +1,90 @@
+package co.uk.yapily.journal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Every slot carries a sequence number. A producer claims a position by advancing the tail with a CAS, stores its
+ * element and then publishes the slot by setting its sequence to {@code position + 1}; the consumer takes a slot only
+ * once it is published, and hands it back to producers by setting its sequence to {@code position + capacity}.
+ *
+ * @param <E> the element type
+ * @since 1.1.0
+ */
+public final class MpscRingBuffer<E> {
+
+  private final int capacity;
+  private final int mask;
+  private final Object[] elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private volatile long head;
+
+  /**
+   * @param capacity the number of slots, a power of two
+   */
+  public MpscRingBuffer(final int capacity) {
+    if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Ring buffer capacity must be a power of two, was " + capacity);
+    }
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.elements = new Object[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Adds an element; safe to call from any thread.
+   *
+   * @param element the element
+   * @return {@code false} if the buffer is full
+   */
+  public boolean offer(final E element) {
+    while (true) {
+      final long position = tail.get();
+      final int index = (int) (position & mask);
+      final long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements[index] = element;
+          sequences.set(index, position + 1);
+          return true;
+        }
+      } else if (difference < 0) {
+        return false;
+      }
+      // another producer claimed this position first: retry with the new tail
+    }
+  }
+
+  /**
+   * Takes the oldest element; must only be called by the consumer thread.
+   *
+   * @return the element, or {@code null} if none is published yet
+   */
+  @SuppressWarnings("unchecked")
+  public E poll() {
+    final long position = head;
+    final int index = (int) (position & mask);
+    if (sequences.get(index) != position + 1) {
+      return null;
+    }
+    final E element = (E) elements[index];
+    elements[index] = null;
+    sequences.set(index, position + capacity);
+    head = position + 1;
+    return element;
+  }
+
+  /**
+   * @return the number of claimed positions not consumed yet
+   */
+  public int size() {
+    return (int) Math.max(0, tail.get() - head);
+  }
+}
@@ -0,0 +1,65 @@
+package co.uk.yapily.pricing;
+
+/**
+ * The promotions applying to the products with a given set of labels, resolved once at compile time. A multi-buy is
+ * applied first, then the percentage off the units still charged.
+ *
+ * @since 1.1.0
+ */
+public final class LinePricing {
+
+  /**
+   * Pricing of products no promotion applies to.
+   */
+  public static final LinePricing NONE = new LinePricing(0, 0, 0, Integer.MAX_VALUE, null);
+
+  private final int buy;
+  private final int pay;
+  private final int percentBasisPoints;
+  private final int maxUnits;
+  private final String capLabel;
+
+  /**
+   * @param buy                the units of a multi-buy, or 0 without one
+   * @param pay                the units charged of every {@code buy}
+   * @param percentBasisPoints the discount in hundredths of a percent, or 0
+   * @param maxUnits           the most units allowed per cart, or {@link Integer#MAX_VALUE}
+   * @param capLabel           the label the cap comes from, if any
+   */
+  LinePricing(final int buy, final int pay, final int percentBasisPoints, final int maxUnits, final String capLabel) {
+    this.buy = buy;
+    this.pay = pay;
+    this.percentBasisPoints = percentBasisPoints;
+    this.maxUnits = maxUnits;
+    this.capLabel = capLabel;
+  }
+
+  /**
+   * Computes the discount on a line.
+   *
+   * @param unitCents the unit price in cents
+   * @param quantity  the number of units
+   * @return the discount in cents
+   */
+  public long discountCents(final long unitCents, final int quantity) {
+    final long charged = buy > 0 ? (long) (quantity / buy) * pay + quantity % buy : quantity;
+    final long afterMultiBuy = unitCents * charged;
+    // rounded half up to the cent; prices are never negative
+    final long percentOff = percentBasisPoints > 0 ? (afterMultiBuy * percentBasisPoints + 5_000) / 10_000 : 0;
+    return unitCents * quantity - afterMultiBuy + percentOff;
+  }
+
+  /**
+   * @return the most units of a product allowed per cart, {@link Integer#MAX_VALUE} if unlimited
+   */
+  public int maxUnits() {
+    return maxUnits;
+  }
+
+  /**
+   * @return the label the cap comes from, or null if unlimited
+   */
+  public String capLabel() {
+    return capLabel;
+  }
+}
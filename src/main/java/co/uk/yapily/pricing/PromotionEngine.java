@@ -0,0 +1,110 @@
+package co.uk.yapily.pricing;
+
+import co.uk.yapily.config.PromotionProperties;
+import co.uk.yapily.entity.PromotionRule;
+import co.uk.yapily.repository.PromotionRuleRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the compiled {@link PromotionRules} carts are priced with.
+ * <p>
+ * The active rules are read from the {@code promotion_rule} table at startup and every {@code refresh-interval}
+ * after. They are compiled again only when they changed, and the new rules replace the old ones at once: a request
+ * reads {@link #current()} once and prices the whole cart with it, so a cart is never priced with a mix of both.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class PromotionEngine {
+
+  private final PromotionProperties properties;
+  private final PromotionRuleRepository repository;
+  private final MeterRegistry meterRegistry;
+
+  private volatile PromotionRules current = PromotionRules.NONE;
+  private List<PromotionRule> loaded = List.of();
+  private ScheduledExecutorService executor;
+
+  /**
+   * @param properties    the promotions configuration
+   * @param repository    the rule repository
+   * @param meterRegistry the registry for the promotion metrics
+   */
+  public PromotionEngine(final PromotionProperties properties, final PromotionRuleRepository repository,
+                         final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.repository = repository;
+    this.meterRegistry = meterRegistry;
+    Gauge.builder("yapily.promotions.rules", this, engine -> engine.current.size())
+        .description("Promotion rules in effect").register(meterRegistry);
+  }
+
+  /**
+   * Compiles the rules and starts refreshing them, when enabled.
+   */
+  @PostConstruct
+  public void start() {
+    if (!properties.enabled()) {
+      return;
+    }
+    refresh();
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "promotion-rules");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long interval = properties.refreshInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops refreshing the rules.
+   */
+  @PreDestroy
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return the rules in effect; {@link PromotionRules#NONE} when promotions are disabled
+   */
+  public PromotionRules current() {
+    return current;
+  }
+
+  /**
+   * Reads the active rules and compiles them if they changed. On error the rules in effect are kept.
+   *
+   * @return whether new rules were compiled
+   */
+  public synchronized boolean refresh() {
+    try {
+      final List<PromotionRule> rules = repository.findByActiveTrueOrderByPriorityAscIdAsc();
+      if (rules.equals(loaded)) {
+        return false;
+      }
+      current = PromotionRules.compile(rules);
+      loaded = rules;
+      meterRegistry.counter("yapily.promotions.reloads", "outcome", "compiled").increment();
+      log.info("Compiled {} promotion rule(s)", current.size());
+      return true;
+    } catch (final RuntimeException e) {
+      meterRegistry.counter("yapily.promotions.reloads", "outcome", "failed").increment();
+      log.warn("Error reading the promotion rules, keeping the {} in effect! Reason: {}", current.size(), e.getMessage());
+      return false;
+    }
+  }
+}
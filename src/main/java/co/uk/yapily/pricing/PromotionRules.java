@@ -0,0 +1,193 @@
+package co.uk.yapily.pricing;
+
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.entity.PromotionRule;
+import co.uk.yapily.service.support.CartLines;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An immutable set of promotion rules compiled for evaluation.
+ * <p>
+ * Every label that has rules gets a bit. At compile time the {@link LinePricing} of every combination of those labels
+ * is resolved once: of the multi-buys and of the percentages off among the product's labels the rule with the lowest
+ * priority wins, and the lowest cap applies. Pricing a line then costs one map lookup per product label and an array
+ * read, whatever the number of rules, and allocates nothing.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+public final class PromotionRules {
+
+  /**
+   * The most labels rules can apply to; the table of combinations has {@code 2^MAX_LABELS} entries.
+   */
+  static final int MAX_LABELS = 12;
+
+  /**
+   * Rules that change nothing.
+   */
+  public static final PromotionRules NONE = compile(List.of());
+
+  private final Map<String, Integer> bitByLabel;
+  private final LinePricing[] pricingByLabels;
+  private final int size;
+
+  private PromotionRules(final Map<String, Integer> bitByLabel, final LinePricing[] pricingByLabels, final int size) {
+    this.bitByLabel = bitByLabel;
+    this.pricingByLabels = pricingByLabels;
+    this.size = size;
+  }
+
+  /**
+   * Compiles rules. Rules with missing or inconsistent parameters, and rules on labels beyond the first
+   * {@link #MAX_LABELS}, are skipped and logged.
+   *
+   * @param rules the rules, in the order they take precedence
+   * @return the compiled rules
+   */
+  public static PromotionRules compile(final List<PromotionRule> rules) {
+    final Map<String, Integer> bitByLabel = new HashMap<>();
+    // the winning rule of each type per label; rules come by precedence, so the first one seen wins
+    final Map<String, PromotionRule> multiBuys = new HashMap<>();
+    final Map<String, PromotionRule> percentages = new HashMap<>();
+    final Map<String, PromotionRule> caps = new HashMap<>();
+    final Map<PromotionRule, Integer> rank = new IdentityHashMap<>();
+    int size = 0;
+    for (final PromotionRule rule : rules) {
+      if (!isValid(rule)) {
+        log.warn("Skipping promotion rule {} ({}): inconsistent parameters", rule.getId(), rule.getName());
+        continue;
+      }
+      if (!bitByLabel.containsKey(rule.getLabel())) {
+        if (bitByLabel.size() == MAX_LABELS) {
+          log.warn("Skipping promotion rule {} ({}): more than {} labels have rules", rule.getId(), rule.getName(), MAX_LABELS);
+          continue;
+        }
+        bitByLabel.put(rule.getLabel(), bitByLabel.size());
+      }
+      rank.put(rule, size++);
+      switch (rule.getType()) {
+        case MULTI_BUY -> multiBuys.putIfAbsent(rule.getLabel(), rule);
+        case PERCENT_OFF -> percentages.putIfAbsent(rule.getLabel(), rule);
+        case QUANTITY_CAP -> caps.merge(rule.getLabel(), rule, (kept, other) -> other.getMaxUnits() < kept.getMaxUnits() ? other : kept);
+      }
+    }
+
+    final String[] labelByBit = new String[bitByLabel.size()];
+    bitByLabel.forEach((label, bit) -> labelByBit[bit] = label);
+    final LinePricing[] pricingByLabels = new LinePricing[1 << labelByBit.length];
+    for (int labels = 0; labels < pricingByLabels.length; labels++) {
+      PromotionRule multiBuy = null;
+      PromotionRule percentage = null;
+      PromotionRule cap = null;
+      for (int bit = 0; bit < labelByBit.length; bit++) {
+        if ((labels & (1 << bit)) == 0) {
+          continue;
+        }
+        multiBuy = first(multiBuy, multiBuys.get(labelByBit[bit]), rank);
+        percentage = first(percentage, percentages.get(labelByBit[bit]), rank);
+        final PromotionRule labelCap = caps.get(labelByBit[bit]);
+        if (labelCap != null && (cap == null || labelCap.getMaxUnits() < cap.getMaxUnits())) {
+          cap = labelCap;
+        }
+      }
+      pricingByLabels[labels] = multiBuy == null && percentage == null && cap == null ? LinePricing.NONE
+          : new LinePricing(multiBuy != null ? multiBuy.getBuyQuantity() : 0,
+                            multiBuy != null ? multiBuy.getPayQuantity() : 0,
+                            percentage != null ? (int) Math.round(percentage.getPercentOff() * 100) : 0,
+                            cap != null ? cap.getMaxUnits() : Integer.MAX_VALUE,
+                            cap != null ? cap.getLabel() : null);
+    }
+    return new PromotionRules(Map.copyOf(bitByLabel), pricingByLabels, size);
+  }
+
+  /**
+   * Resolves the pricing of a product.
+   *
+   * @param labels the product labels, possibly null
+   * @return the promotions applying to the product
+   */
+  public LinePricing forLabels(final List<String> labels) {
+    if (labels == null || bitByLabel.isEmpty()) {
+      return LinePricing.NONE;
+    }
+    int mask = 0;
+    for (int i = 0; i < labels.size(); i++) {
+      final Integer bit = bitByLabel.get(labels.get(i));
+      if (bit != null) {
+        mask |= 1 << bit;
+      }
+    }
+    return pricingByLabels[mask];
+  }
+
+  /**
+   * @return a new quote priced with these rules
+   */
+  public Quote newQuote() {
+    return new Quote(this);
+  }
+
+  /**
+   * Checks the quantity caps of a cart.
+   *
+   * @param units the products of the cart, one per unit
+   * @return a description of the first line over its cap, if any
+   */
+  public Optional<String> capViolation(final List<Product> units) {
+    if (units == null || units.isEmpty()) {
+      return Optional.empty();
+    }
+    final String[] violation = new String[1];
+    CartLines.forEachLine(units, (product, quantity) -> {
+      final LinePricing pricing = forLabels(product.getLabels());
+      if (violation[0] == null && quantity > pricing.maxUnits()) {
+        violation[0] = capMessage(product.getId(), pricing);
+      }
+    });
+    return Optional.ofNullable(violation[0]);
+  }
+
+  /**
+   * @param productId the product ID
+   * @param pricing   the pricing of the product, with a cap
+   * @return the description of the cap
+   */
+  public static String capMessage(final Long productId, final LinePricing pricing) {
+    return "At most " + pricing.maxUnits() + " units of product " + productId + " can be bought per cart ("
+        + pricing.capLabel() + ")";
+  }
+
+  /**
+   * @return the number of rules compiled
+   */
+  public int size() {
+    return size;
+  }
+
+  private static PromotionRule first(final PromotionRule current, final PromotionRule candidate,
+                                     final Map<PromotionRule, Integer> rank) {
+    if (candidate == null) {
+      return current;
+    }
+    return current == null || rank.get(candidate) < rank.get(current) ? candidate : current;
+  }
+
+  private static boolean isValid(final PromotionRule rule) {
+    if (rule.getLabel() == null || rule.getType() == null) {
+      return false;
+    }
+    return switch (rule.getType()) {
+      case MULTI_BUY -> rule.getBuyQuantity() != null && rule.getPayQuantity() != null
+          && rule.getPayQuantity() >= 0 && rule.getPayQuantity() < rule.getBuyQuantity();
+      case PERCENT_OFF -> rule.getPercentOff() != null && rule.getPercentOff() > 0 && rule.getPercentOff() <= 100;
+      case QUANTITY_CAP -> rule.getMaxUnits() != null && rule.getMaxUnits() >= 0;
+    };
+  }
+}
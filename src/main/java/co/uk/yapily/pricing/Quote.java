@@ -0,0 +1,76 @@
+package co.uk.yapily.pricing;
+
+import java.util.List;
+
+/**
+ * Prices the lines of one cart with a fixed set of {@link PromotionRules}, accumulating the totals in cents. Not
+ * thread-safe; a quote is used by one request.
+ *
+ * @since 1.1.0
+ */
+public final class Quote {
+
+  private final PromotionRules rules;
+  private long subtotalCents;
+  private long discountCents;
+
+  Quote(final PromotionRules rules) {
+    this.rules = rules;
+  }
+
+  /**
+   * Adds a line. Products without a price are not charged, as before promotions existed.
+   *
+   * @param labels    the product labels, possibly null
+   * @param unitPrice the product price, possibly null
+   * @param quantity  the number of units
+   * @return the discount on the line, in cents
+   */
+  public long add(final List<String> labels, final Double unitPrice, final int quantity) {
+    if (unitPrice == null) {
+      return 0;
+    }
+    final long unitCents = toCents(unitPrice);
+    final long discount = rules.forLabels(labels).discountCents(unitCents, quantity);
+    subtotalCents += unitCents * quantity;
+    discountCents += discount;
+    return discount;
+  }
+
+  /**
+   * @return the sum of the lines before promotions
+   */
+  public double subtotal() {
+    return toAmount(subtotalCents);
+  }
+
+  /**
+   * @return the sum of the line discounts
+   */
+  public double discount() {
+    return toAmount(discountCents);
+  }
+
+  /**
+   * @return the amount to pay
+   */
+  public double total() {
+    return toAmount(subtotalCents - discountCents);
+  }
+
+  /**
+   * @param amount an amount
+   * @return the amount in cents, rounded to the nearest
+   */
+  public static long toCents(final double amount) {
+    return Math.round(amount * 100);
+  }
+
+  /**
+   * @param cents an amount in cents
+   * @return the amount
+   */
+  public static double toAmount(final long cents) {
+    return cents / 100.0;
+  }
+}
@@ -0,0 +1,241 @@
+package co.uk.yapily.recommendation;
+
+import co.uk.yapily.util.LongLongHashMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Counts how often two products were checked out in the same cart.
+ * <p>
+ * Every product has a sparse row of counters keyed by the IDs of the products bought with it, in a
+ * {@link LongLongHashMap}; the rows themselves are found through a product-to-row map, so nothing is boxed. A row
+ * holds fewer than {@code 2 * candidates} counters: when it reaches that, only the {@code candidates} largest are kept,
+ * ties going to the lowest product IDs. Pairs bought together often enough stay in the row; rare ones are dropped and
+ * start again from 1 if they come back. Memory therefore grows with the number of products, not with the number of
+ * checkouts.
+ * <p>
+ * Not thread-safe.
+ *
+ * @since 1.1.0
+ */
+final class CoPurchaseCounters {
+
+  private static final int MAGIC = 0x59435043;
+  private static final int FORMAT_VERSION = 1;
+  private static final long NO_ROW = -1;
+
+  private final int candidates;
+  private final LongLongHashMap rowOf = new LongLongHashMap(1024);
+  private LongLongHashMap[] rows = new LongLongHashMap[1024];
+  private long[] rowProducts = new long[1024];
+  private int rowCount;
+  private long counters;
+
+  /**
+   * @param candidates the number of counters a row keeps when it is pruned
+   */
+  CoPurchaseCounters(final int candidates) {
+    if (candidates < 1) {
+      throw new IllegalArgumentException("Candidates must be positive, was " + candidates);
+    }
+    this.candidates = candidates;
+  }
+
+  /**
+   * Counts every pair of products of a checked-out cart, in both directions.
+   *
+   * @param products the distinct IDs of the products of the cart
+   */
+  void record(final long[] products) {
+    for (final long product : products) {
+      for (final long related : products) {
+        if (product != related) {
+          add(product, related, 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds to the counter of a pair, in one direction only.
+   *
+   * @param product the product
+   * @param related the product bought with it
+   * @param count   the amount to add
+   */
+  void add(final long product, final long related, final long count) {
+    final LongLongHashMap row = rowFor(product);
+    final int before = row.size();
+    row.addTo(related, count);
+    counters += row.size() - before;
+    // pruned before the row outgrows the table sized for 2 * candidates entries
+    if (row.size() >= 2 * candidates) {
+      prune(row);
+    }
+  }
+
+  /**
+   * @param product the product
+   * @param related the product bought with it
+   * @return how often the two were bought together, as far as the row still holds the pair
+   */
+  long count(final long product, final long related) {
+    final long row = rowOf.get(product, NO_ROW);
+    return row == NO_ROW ? 0 : rows[(int) row].get(related, 0);
+  }
+
+  /**
+   * Returns the products most often bought with a product, most often first and by ascending ID on a tie.
+   *
+   * @param product the product
+   * @param limit   the maximum number of products
+   * @return the IDs of the products
+   */
+  long[] top(final long product, final int limit) {
+    final long row = rowOf.get(product, NO_ROW);
+    if (row == NO_ROW || limit < 1) {
+      return new long[0];
+    }
+    final TopK top = new TopK(Math.min(limit, rows[(int) row].size()));
+    rows[(int) row].forEach(top::offer);
+    return Arrays.copyOf(top.ids, top.filled);
+  }
+
+  /**
+   * @return the number of products with a row
+   */
+  int products() {
+    return rowCount;
+  }
+
+  /**
+   * @return the number of counters over all rows
+   */
+  long counters() {
+    return counters;
+  }
+
+  /**
+   * Writes every counter.
+   *
+   * @param out the output
+   * @throws IOException if the output cannot be written
+   */
+  void write(final DataOutput out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      final LongLongHashMap row = rows[i];
+      out.writeLong(rowProducts[i]);
+      out.writeInt(row.size());
+      final IOException[] failure = new IOException[1];
+      row.forEach((related, count) -> {
+        if (failure[0] != null) {
+          return;
+        }
+        try {
+          out.writeLong(related);
+          out.writeLong(count);
+        } catch (final IOException e) {
+          failure[0] = e;
+        }
+      });
+      if (failure[0] != null) {
+        throw failure[0];
+      }
+    }
+  }
+
+  /**
+   * Adds the counters written by {@link #write(DataOutput)}.
+   *
+   * @param in the input
+   * @throws IOException if the input cannot be read or was not written by {@link #write(DataOutput)}
+   */
+  void read(final DataInput in) throws IOException {
+    if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+      throw new IOException("Not a co-purchase counter file of version " + FORMAT_VERSION);
+    }
+    final int products = in.readInt();
+    for (int i = 0; i < products; i++) {
+      final long product = in.readLong();
+      final int size = in.readInt();
+      for (int j = 0; j < size; j++) {
+        add(product, in.readLong(), in.readLong());
+      }
+    }
+  }
+
+  private LongLongHashMap rowFor(final long product) {
+    final long row = rowOf.get(product, NO_ROW);
+    if (row != NO_ROW) {
+      return rows[(int) row];
+    }
+    if (rowCount == rows.length) {
+      rows = Arrays.copyOf(rows, rowCount * 2);
+      rowProducts = Arrays.copyOf(rowProducts, rowCount * 2);
+    }
+    // most products are bought with a few others only, so rows start small
+    final LongLongHashMap created = new LongLongHashMap(4);
+    rows[rowCount] = created;
+    rowProducts[rowCount] = product;
+    rowOf.put(product, rowCount++);
+    return created;
+  }
+
+  private void prune(final LongLongHashMap row) {
+    final TopK kept = new TopK(candidates);
+    row.forEach(kept::offer);
+    final long lastId = kept.ids[kept.filled - 1];
+    final long lastCount = kept.counts[kept.filled - 1];
+    final long[] dropped = new long[row.size() - kept.filled];
+    final int[] found = new int[1];
+    row.forEach((id, count) -> {
+      if (TopK.before(lastId, lastCount, id, count)) {
+        dropped[found[0]++] = id;
+      }
+    });
+    for (final long id : dropped) {
+      row.remove(id);
+    }
+    counters -= dropped.length;
+  }
+
+  /**
+   * Selects the entries with the largest counts, ties going to the lowest IDs. Sized for the few dozen entries of a
+   * row: insertion into a sorted array is cheaper than a heap at that size.
+   */
+  private static final class TopK {
+
+    private final long[] ids;
+    private final long[] counts;
+    private int filled;
+
+    private TopK(final int size) {
+      this.ids = new long[size];
+      this.counts = new long[size];
+    }
+
+    private void offer(final long id, final long count) {
+      if (ids.length == 0 || (filled == ids.length && !before(id, count, ids[filled - 1], counts[filled - 1]))) {
+        return;
+      }
+      int index = filled < ids.length ? filled++ : filled - 1;
+      while (index > 0 && before(id, count, ids[index - 1], counts[index - 1])) {
+        ids[index] = ids[index - 1];
+        counts[index] = counts[index - 1];
+        index--;
+      }
+      ids[index] = id;
+      counts[index] = count;
+    }
+
+    private static boolean before(final long id, final long count, final long otherId, final long otherCount) {
+      return count > otherCount || (count == otherCount && id < otherId);
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package co.uk.yapily.recommendation;
+
+import co.uk.yapily.config.RelatedProductsProperties;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.journal.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the "frequently bought together" counts of the products, updated with every checkout.
+ * <p>
+ * Checkouts only publish the product IDs of the cart into a lock-free queue, so they never wait for the index: when
+ * the queue is full, the cart is not counted. A single thread counts the queued carts into {@link CoPurchaseCounters}
+ * and writes a snapshot of them every {@code snapshot-interval} when they changed, and on shutdown; the snapshot is
+ * read back at startup. The counts therefore cover the checkouts served by this instance, which with carts spread
+ * evenly over the instances rank products the same way as the checkouts of all of them.
+ * <p>
+ * Metrics: {@code yapily.related.checkouts}, tagged with {@code outcome} {@code counted} once a cart is added to the
+ * counters or {@code dropped} when the queue was full, {@code yapily.related.counters} and
+ * {@code yapily.related.backlog}.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class CoPurchaseIndex {
+
+  /**
+   * Name of the snapshot file in the configured directory.
+   */
+  static final String SNAPSHOT_FILE = "co-purchases.bin";
+
+  private static final long DRAIN_INTERVAL_MILLIS = 100;
+  private static final int DRAIN_BATCH = 1024;
+
+  private final RelatedProductsProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final Object lock = new Object();
+
+  private volatile CoPurchaseCounters counters;
+
+  private MpscRingBuffer<long[]> queue;
+  private ScheduledExecutorService executor;
+  private Counter counted;
+  private Counter dropped;
+  private boolean changed;
+
+  /**
+   * @param properties    the index configuration
+   * @param meterRegistry the registry for the index metrics
+   */
+  public CoPurchaseIndex(final RelatedProductsProperties properties, final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.counters = new CoPurchaseCounters(properties.candidates());
+  }
+
+  /**
+   * Reads the snapshot and starts counting checkouts, if the index is enabled.
+   */
+  @PostConstruct
+  public void start() {
+    if (!properties.enabled()) {
+      return;
+    }
+    readSnapshot();
+    queue = new MpscRingBuffer<>(properties.queueSize());
+    counted = Counter.builder("yapily.related.checkouts").tag("outcome", "counted")
+        .description("Checked-out carts counted into the related products index").register(meterRegistry);
+    dropped = Counter.builder("yapily.related.checkouts").tag("outcome", "dropped")
+        .description("Checked-out carts not counted because the queue was full").register(meterRegistry);
+    Gauge.builder("yapily.related.counters", this, index -> index.counterCount())
+        .description("Co-purchase counters held").register(meterRegistry);
+    Gauge.builder("yapily.related.backlog", queue, MpscRingBuffer::size)
+        .description("Checked-out carts waiting to be counted").register(meterRegistry);
+
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "co-purchase-index");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    final long interval = properties.snapshotInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::snapshotCycle, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Counts the checkouts still queued and writes a last snapshot.
+   */
+  @PreDestroy
+  public void stop() {
+    if (executor == null) {
+      return;
+    }
+    executor.shutdownNow();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("The co-purchase index did not stop in time, its last checkouts are not saved");
+        return;
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    // the index thread is gone, so this thread is the only one updating the counters now
+    drain();
+    snapshotCycle();
+  }
+
+  /**
+   * @return whether checkouts are counted
+   */
+  public boolean isEnabled() {
+    return queue != null;
+  }
+
+  /**
+   * Queues the products of a checked-out cart to be counted; never blocks. Carts with fewer than two distinct products
+   * are ignored.
+   *
+   * @param products the products of the cart, one entry per unit
+   */
+  public void recordCheckout(final Collection<Product> products) {
+    if (queue == null) {
+      return;
+    }
+    final long[] ids = products.stream()
+        .map(Product::getId)
+        .filter(Objects::nonNull)
+        .mapToLong(Long::longValue)
+        .distinct()
+        .limit(properties.maxCartProducts())
+        .toArray();
+    if (ids.length < 2) {
+      return;
+    }
+    if (!queue.offer(ids)) {
+      dropped.increment();
+    }
+  }
+
+  /**
+   * Returns the products most often bought with a product, among the checkouts counted so far.
+   *
+   * @param productId the product
+   * @param limit     the maximum number of products
+   * @return the IDs of the products, most often bought together first
+   */
+  public long[] related(final long productId, final int limit) {
+    synchronized (lock) {
+      return counters.top(productId, limit);
+    }
+  }
+
+  /**
+   * Counts the checkouts queued so far; runs on the index thread.
+   */
+  void drain() {
+    long[] products = queue.poll();
+    while (products != null) {
+      // the lock is only held for a batch at a time, so reads wait for at most one batch
+      synchronized (lock) {
+        for (int i = 0; i < DRAIN_BATCH && products != null; i++) {
+          counters.record(products);
+          counted.increment();
+          products = queue.poll();
+        }
+      }
+      changed = true;
+    }
+  }
+
+  private void snapshotCycle() {
+    if (!changed) {
+      return;
+    }
+    try {
+      writeSnapshot();
+      changed = false;
+    } catch (final IOException | RuntimeException e) {
+      log.error("Error writing the co-purchase snapshot! Reason: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Writes the counters to a temporary file and moves it over the snapshot. Only the index thread updates the
+   * counters, so it reads them without the lock and reads of related products go on meanwhile.
+   *
+   * @throws IOException if the snapshot cannot be written
+   */
+  private void writeSnapshot() throws IOException {
+    final Path target = Path.of(properties.directory(), SNAPSHOT_FILE);
+    Files.createDirectories(target.toAbsolutePath().getParent());
+    final Path temporary = target.resolveSibling(SNAPSHOT_FILE + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+      counters.write(out);
+    }
+    try {
+      Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (final AtomicMoveNotSupportedException e) {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+    log.debug("Wrote {} co-purchase counters of {} products", counters.counters(), counters.products());
+  }
+
+  private void readSnapshot() {
+    final Path source = Path.of(properties.directory(), SNAPSHOT_FILE);
+    final CoPurchaseCounters read = new CoPurchaseCounters(properties.candidates());
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source)))) {
+      read.read(in);
+      counters = read;
+      log.info("Read {} co-purchase counters of {} products", read.counters(), read.products());
+    } catch (final NoSuchFileException e) {
+      log.info("No co-purchase snapshot at {}, counting from scratch", source);
+    } catch (final IOException e) {
+      log.warn("Ignoring unreadable co-purchase snapshot {}! Reason: {}", source, e.getMessage());
+    }
+  }
+
+  private long counterCount() {
+    synchronized (lock) {
+      return counters.counters();
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package co.uk.yapily.repository;
+
+import co.uk.yapily.dto.CartDto;
+import co.uk.yapily.dto.CartField;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Reads selected cart columns, and the product lines as counts per product, without loading {@code Cart} or
+ * {@code Product} entities.
+ *
+ * @since 1.1.0
+ */
+public interface CartProjectionRepository {
+
+  /**
+   * Reads the given fields of every cart not checked out yet.
+   *
+   * @param fields the fields to select
+   * @return DTOs with the selected fields set
+   */
+  List<CartDto> findActiveProjected(Set<CartField> fields);
+
+  /**
+   * Reads the given fields of a cart.
+   *
+   * @param id     the cart ID
+   * @param fields the fields to select
+   * @return a DTO with the selected fields set, if the cart exists
+   */
+  Optional<CartDto> findProjectedById(Long id, Set<CartField> fields);
+}
@@ -0,0 +1,96 @@
+package co.uk.yapily.repository;
+
+import co.uk.yapily.dto.CartDto;
+import co.uk.yapily.dto.CartField;
+import co.uk.yapily.dto.CartProductDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Selects the requested cart attributes as scalar tuples. Product lines are counted per product by the database in
+ * the same statement, so neither carts nor products are instantiated.
+ *
+ * @since 1.1.0
+ */
+class CartProjectionRepositoryImpl implements CartProjectionRepository {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public List<CartDto> findActiveProjected(final Set<CartField> fields) {
+    return toDtos(query(fields, " where c.checkout = false").getResultList(), fields);
+  }
+
+  @Override
+  public Optional<CartDto> findProjectedById(final Long id, final Set<CartField> fields) {
+    return toDtos(query(fields, " where c.id = :id").setParameter("id", id).getResultList(), fields).stream().findFirst();
+  }
+
+  /**
+   * Builds the select statement. The cart ID is always selected to group the lines; with {@link CartField#PRODUCTS}
+   * every row is one product line of a cart, or a cart without lines.
+   *
+   * @param fields the fields to select
+   * @param where  the where clause, possibly empty
+   * @return the query
+   */
+  private TypedQuery<Tuple> query(final Set<CartField> fields, final String where) {
+    final List<String> columns = new ArrayList<>(List.of("c.id"));
+    if (fields.contains(CartField.CHECKOUT)) {
+      columns.add("c.checkout");
+    }
+    if (fields.contains(CartField.TOTAL_COST)) {
+      columns.add("c.amount");
+    }
+    final String select = String.join(", ", columns);
+    final String jpql = fields.contains(CartField.PRODUCTS)
+        ? "select " + select + ", p.id, count(p) from Cart c left join c.products p" + where
+          + " group by " + select + ", p.id order by c.id"
+        : "select " + select + " from Cart c" + where + " order by c.id";
+    return entityManager.createQuery(jpql, Tuple.class);
+  }
+
+  private static List<CartDto> toDtos(final List<Tuple> rows, final Set<CartField> fields) {
+    // column positions, in the order the query selects them
+    final int checkoutAt = fields.contains(CartField.CHECKOUT) ? 1 : -1;
+    final int amountAt = fields.contains(CartField.TOTAL_COST) ? (checkoutAt < 0 ? 1 : 2) : -1;
+    final int productAt = fields.contains(CartField.PRODUCTS) ? 1 + (checkoutAt < 0 ? 0 : 1) + (amountAt < 0 ? 0 : 1) : -1;
+
+    final Map<Long, CartDto> carts = new LinkedHashMap<>();
+    for (final Tuple row : rows) {
+      final CartDto cart = carts.computeIfAbsent(row.get(0, Long.class), cartId -> {
+        final CartDto dto = new CartDto();
+        dto.setId(cartId);
+        if (checkoutAt > 0) {
+          dto.setCheckout(row.get(checkoutAt, Boolean.class));
+        }
+        if (amountAt > 0) {
+          final Double amount = row.get(amountAt, Double.class);
+          dto.setAmount(amount != null && amount >= 0 ? amount : null);
+        }
+        if (productAt > 0) {
+          dto.setProducts(new ArrayList<>());
+        }
+        return dto;
+      });
+      // a cart without lines comes as a single row without product
+      if (productAt > 0 && row.get(productAt) != null) {
+        cart.getProducts().add(CartProductDto.builder()
+                                             .productId(row.get(productAt, Long.class))
+                                             .quantity(row.get(productAt + 1, Long.class).intValue())
+                                             .build());
+      }
+    }
+    return new ArrayList<>(carts.values());
+  }
+}
@@ -1,9 +1,125 @@
 package co.uk.yapily.repository;
 
 import co.uk.yapily.entity.Cart;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface CartRepository extends JpaRepository<Cart, Long>  {
+public interface CartRepository extends JpaRepository<Cart, Long>, CartProjectionRepository {
+
+  /**
+   * Finds a cart for checkout and locks its row until the calling transaction ends, so concurrent checkouts of the
+   * cart run one after the other. The products are not fetched with it, as a row lock cannot cover the outer join.
+   * The lock is taken with a native {@code FOR UPDATE}, which PostgreSQL and H2 both accept whatever the dialect.
+   *
+   * @param id the cart ID
+   * @return the cart, if found
+   */
+  @Query(value = "SELECT * FROM cart WHERE id = :id FOR UPDATE", nativeQuery = true)
+  Optional<Cart> findForCheckoutById(@Param("id") Long id);
+
+  /**
+   * Finds a cart together with its products in a single query.
+   *
+   * @param id the cart ID
+   * @return the cart with its product bag initialised, if found
+   */
+  @Query("select c from Cart c left join fetch c.products where c.id = :id")
+  Optional<Cart> findWithProductsById(@Param("id") Long id);
+
+  /**
+   * Finds the carts not checked out yet.
+   *
+   * @return the active carts
+   */
+  List<Cart> findByCheckoutFalse();
+
+  /**
+   * Finds the carts not checked out yet together with their products in a single query; the product lines keep their
+   * duplicates, one per unit, as in {@link Cart#getProducts()}.
+   *
+   * @return the active carts with their product bags initialised
+   */
+  @Query("select c from Cart c left join fetch c.products where c.checkout = false")
+  List<Cart> findActiveWithProducts();
+
+  /**
+   * Finds the IDs of carts checked out before the given date, oldest IDs first. Carts checked out before the checkout
+   * date was recorded have none, and are treated as checked out before any date.
+   *
+   * @param before   the exclusive upper bound of the checkout date
+   * @param pageable the page to read, which bounds the number of IDs returned
+   * @return the cart IDs
+   */
+  @Query("select c.id from Cart c where c.checkout = true and (c.checkedOutAt is null or c.checkedOutAt < :before)"
+      + " order by c.id")
+  List<Long> findCheckedOutIdsBefore(@Param("before") Date before, Pageable pageable);
+
+  /**
+   * Finds the IDs of carts checked out before the given date whose order is archived, oldest IDs first. A missing
+   * checkout date matches, as in {@link #findCheckedOutIdsBefore(Date, Pageable)}.
+   *
+   * @param before   the exclusive upper bound of the checkout date
+   * @param pageable the page to read, which bounds the number of IDs returned
+   * @return the cart IDs
+   */
+  @Query("select c.id from Cart c where c.checkout = true and (c.checkedOutAt is null or c.checkedOutAt < :before)"
+      + " and exists (select o.id from PurchaseOrder o where o.cartId = c.id) order by c.id")
+  List<Long> findArchivedIdsBefore(@Param("before") Date before, Pageable pageable);
+
+  /**
+   * Locks the rows of the given carts that exist, until the calling transaction ends.
+   *
+   * @param ids the cart IDs
+   * @return the IDs of the carts that exist, in ascending order
+   */
+  @Query(value = "SELECT id FROM cart WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+  List<Long> lockExistingIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Deletes the product lines of the given carts with a single statement.
+   *
+   * @param ids the cart IDs
+   * @return the number of lines deleted
+   */
+  @Modifying
+  @Query(value = "DELETE FROM cart_product WHERE cart_id IN (:ids)", nativeQuery = true)
+  int deleteProductLinesByCartIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Deletes the given cart rows with a single statement, without loading them.
+   *
+   * @param ids the cart IDs
+   * @return the number of carts deleted
+   */
+  @Modifying
+  @Query(value = "DELETE FROM cart WHERE id IN (:ids)", nativeQuery = true)
+  int deleteRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Deletes a chunk of carts and their product lines in one transaction. The carts that exist are locked first, so
+   * a concurrent delete of the same carts does not report them deleted twice.
+   *
+   * @param ids the cart IDs; callers keep the chunk bounded
+   * @return the IDs of the carts deleted; unknown IDs are left out
+   */
+  @Transactional
+  default List<Long> deleteChunk(final Collection<Long> ids) {
+    final List<Long> existing = lockExistingIds(ids);
+    if (!existing.isEmpty()) {
+      deleteProductLinesByCartIdIn(existing);
+      deleteRowsByIdIn(existing);
+    }
+    return existing;
+  }
 }
@@ -0,0 +1,36 @@
+package co.uk.yapily.repository;
+
+import co.uk.yapily.entity.ClusterMember;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ClusterMemberRepository extends JpaRepository<ClusterMember, String> {
+
+  /**
+   * Increments the heartbeat of a member.
+   *
+   * @param url the member URL
+   * @return the number of members updated, 0 if the member is not registered
+   */
+  @Modifying
+  @Transactional
+  @Query("update ClusterMember m set m.heartbeat = m.heartbeat + 1 where m.url = :url")
+  int beat(@Param("url") String url);
+
+  /**
+   * Removes a member, unless it sent a heartbeat since it was observed.
+   *
+   * @param url       the member URL
+   * @param heartbeat the heartbeat last observed
+   * @return the number of members removed
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from ClusterMember m where m.url = :url and m.heartbeat = :heartbeat")
+  int deleteIfUnchanged(@Param("url") String url, @Param("heartbeat") long heartbeat);
+}
@@ -0,0 +1,33 @@
+package co.uk.yapily.repository;
+
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.dto.ProductField;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Reads selected product columns without loading {@code Product} entities.
+ *
+ * @since 1.1.0
+ */
+public interface ProductProjectionRepository {
+
+  /**
+   * Reads the given fields of every product.
+   *
+   * @param fields the fields to select
+   * @return DTOs with only the selected fields set
+   */
+  List<ProductDto> findAllProjected(Set<ProductField> fields);
+
+  /**
+   * Reads the given fields of a product.
+   *
+   * @param id     the product ID
+   * @param fields the fields to select
+   * @return a DTO with only the selected fields set, if the product exists
+   */
+  Optional<ProductDto> findProjectedById(Long id, Set<ProductField> fields);
+}
@@ -0,0 +1,60 @@
+package co.uk.yapily.repository;
+
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.dto.ProductField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Selects the requested product attributes as scalar tuples: no entity is instantiated, so there is no persistence
+ * context entry, dirty-checking snapshot or association proxy to pay for.
+ *
+ * @since 1.1.0
+ */
+class ProductProjectionRepositoryImpl implements ProductProjectionRepository {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public List<ProductDto> findAllProjected(final Set<ProductField> fields) {
+    return query(fields, "").getResultList().stream().map(tuple -> toDto(tuple, fields)).toList();
+  }
+
+  @Override
+  public Optional<ProductDto> findProjectedById(final Long id, final Set<ProductField> fields) {
+    return query(fields, " where p.id = :id").setParameter("id", id)
+                                             .getResultStream()
+                                             .findFirst()
+                                             .map(tuple -> toDto(tuple, fields));
+  }
+
+  /**
+   * Builds the select statement; only attribute names of {@link ProductField} constants end up in it.
+   *
+   * @param fields the fields to select
+   * @param where  the where clause, possibly empty
+   * @return the query
+   */
+  private TypedQuery<Tuple> query(final Set<ProductField> fields, final String where) {
+    final String select = fields.stream().map(field -> "p." + field.attribute()).collect(Collectors.joining(", "));
+    return entityManager.createQuery("select " + select + " from Product p" + where, Tuple.class);
+  }
+
+  private static ProductDto toDto(final Tuple tuple, final Set<ProductField> fields) {
+    final ProductDto dto = new ProductDto();
+    dto.setLabels(null);
+    int index = 0;
+    for (final ProductField field : fields) {
+      field.set(dto, tuple.get(index++));
+    }
+    return dto;
+  }
+}
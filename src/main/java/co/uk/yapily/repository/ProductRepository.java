@@ -1,9 +1,205 @@
 package co.uk.yapily.repository;
 
 import co.uk.yapily.entity.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductProjectionRepository {
+
+  /**
+   * Name of the {@link co.uk.yapily.entity.ChangeCounter} versioning products and their deletions.
+   */
+  String CHANGE_COUNTER = "product";
+
+  /**
+   * Finds the products whose last insert or update has a change version in the given range.
+   *
+   * @param from  the lowest change version
+   * @param to    the highest change version
+   * @param limit the maximum number of products
+   * @return the changed products, by ascending change version
+   */
+  List<Product> findByChangeVersionBetweenOrderByChangeVersionAsc(long from, long to, Limit limit);
+
+  /**
+   * Lists the IDs of the products without a change version, written before versions existed.
+   *
+   * @return the product IDs, in ascending order
+   */
+  @Query("select p.id from Product p where p.changeVersion is null order by p.id")
+  List<Long> findIdsWithoutChangeVersion();
+
+  /**
+   * Sets the change version of a product that has none, without loading it.
+   *
+   * @param id      the product ID
+   * @param version the change version
+   * @return the number of products updated
+   */
+  @Modifying
+  @Query("update Product p set p.changeVersion = :version where p.id = :id and p.changeVersion is null")
+  int updateChangeVersion(@Param("id") Long id, @Param("version") long version);
+
+  /**
+   * Creates the product change counter, starting after the highest change version in use, unless it exists.
+   *
+   * @return the number of counters created
+   */
+  @Modifying
+  @Query(value = "INSERT INTO change_counter (name, current_value) "
+      + "SELECT '" + CHANGE_COUNTER + "', COALESCE(MAX(p.change_version), 0) FROM product p "
+      + "WHERE NOT EXISTS (SELECT 1 FROM change_counter c WHERE c.name = '" + CHANGE_COUNTER + "')", nativeQuery = true)
+  int createChangeCounter();
+
+  /**
+   * Advances the product change counter, locking it until the current transaction ends.
+   *
+   * @param count the number of versions to reserve
+   * @return the number of counters updated, 0 if the counter does not exist
+   */
+  @Modifying
+  @Query(value = "UPDATE change_counter SET current_value = current_value + :count WHERE name = '" + CHANGE_COUNTER + "'",
+      nativeQuery = true)
+  int advanceChangeCounter(@Param("count") int count);
+
+  /**
+   * Outside a transaction that reserved versions, every version up to the value returned is committed.
+   *
+   * @return the current value of the product change counter as seen by the current transaction, {@code null} if the
+   * counter does not exist yet
+   */
+  @Query(value = "SELECT current_value FROM change_counter WHERE name = '" + CHANGE_COUNTER + "'", nativeQuery = true)
+  Long currentChangeVersion();
+
+  /**
+   * Records the deletion of those of the given products that exist, numbering them {@code base + 1}, {@code base + 2}...
+   * by ascending ID.
+   *
+   * @param ids  the product IDs
+   * @param base the change version preceding the first tombstone
+   * @return the number of tombstones recorded
+   */
+  @Modifying
+  @Query(value = "INSERT INTO product_tombstone (product_id, change_version, deleted_at) "
+      + "SELECT p.id, :base + ROW_NUMBER() OVER (ORDER BY p.id), CURRENT_TIMESTAMP FROM product p WHERE p.id IN (:ids)",
+      nativeQuery = true)
+  int insertTombstones(@Param("ids") Collection<Long> ids, @Param("base") long base);
+
+  /**
+   * Reserves consecutive change versions, creating the counter on first use. The counter stays locked until the
+   * calling transaction ends, so versions are committed in increasing order.
+   *
+   * @param count the number of versions to reserve
+   * @return the last version reserved; the first is {@code last - count + 1}
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  default long reserveChangeVersions(final int count) {
+    if (advanceChangeCounter(count) == 0) {
+      createChangeCounter();
+      advanceChangeCounter(count);
+    }
+    return currentChangeVersion();
+  }
+
+  /**
+   * Inserts or updates a product with a new change version, in one transaction.
+   *
+   * @param product the product
+   * @return the saved product
+   */
+  @Transactional
+  default Product saveVersioned(final Product product) {
+    product.setChangeVersion(reserveChangeVersions(1));
+    return save(product);
+  }
+
+  /**
+   * Deletes a product and records its tombstone, in one transaction.
+   *
+   * @param id the product ID
+   * @return whether the product existed
+   */
+  @Transactional
+  default boolean deleteVersioned(final Long id) {
+    if (lockExistingIds(List.of(id)).isEmpty()) {
+      return false;
+    }
+    insertTombstones(List.of(id), reserveChangeVersions(1) - 1);
+    deleteById(id);
+    return true;
+  }
+
+  /**
+   * Finds a page of products by ascending ID, for keyset pagination over the whole table.
+   *
+   * @param id    the highest ID of the previous page, {@code 0} for the first page
+   * @param limit the maximum number of products
+   * @return the products whose ID is above the given one
+   */
+  List<Product> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+  /**
+   * Lists the IDs of every product, without loading the products.
+   *
+   * @return the product IDs
+   */
+  @Query("select p.id from Product p")
+  List<Long> findAllIds();
+
+  /**
+   * Locks the rows of the given products that exist, until the calling transaction ends.
+   *
+   * @param ids the product IDs
+   * @return the IDs of the products that exist, in ascending order
+   */
+  @Query(value = "SELECT id FROM product WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+  List<Long> lockExistingIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Removes the given products from every cart with a single statement.
+   *
+   * @param ids the product IDs
+   * @return the number of cart lines deleted
+   */
+  @Modifying
+  @Query(value = "DELETE FROM cart_product WHERE product_id IN (:ids)", nativeQuery = true)
+  int deleteCartLinesByProductIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Deletes the given product rows with a single statement, without loading them.
+   *
+   * @param ids the product IDs
+   * @return the number of products deleted
+   */
+  @Modifying
+  @Query(value = "DELETE FROM product WHERE id IN (:ids)", nativeQuery = true)
+  int deleteRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Deletes a chunk of products, and their cart lines, in one transaction, and records their tombstones. The products
+   * that exist are locked first, so only they get a tombstone and a concurrent delete does not report them twice.
+   *
+   * @param ids the product IDs; callers keep the chunk bounded
+   * @return the IDs of the products deleted; unknown IDs are left out
+   */
+  @Transactional
+  default List<Long> deleteChunk(final Collection<Long> ids) {
+    final List<Long> existing = lockExistingIds(ids);
+    if (!existing.isEmpty()) {
+      insertTombstones(existing, reserveChangeVersions(existing.size()) - existing.size());
+      deleteCartLinesByProductIdIn(existing);
+      deleteRowsByIdIn(existing);
+    }
+    return existing;
+  }
 }
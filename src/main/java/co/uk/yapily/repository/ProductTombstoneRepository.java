@@ -0,0 +1,22 @@
+package co.uk.yapily.repository;
+
+import co.uk.yapily.entity.ProductTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+
+  /**
+   * Finds the deletions with a change version in the given range.
+   *
+   * @param from  the lowest change version
+   * @param to    the highest change version
+   * @param limit the maximum number of tombstones
+   * @return the tombstones, by ascending change version
+   */
+  List<ProductTombstone> findByChangeVersionBetweenOrderByChangeVersionAsc(long from, long to, Limit limit);
+}
@@ -0,0 +1,18 @@
+package co.uk.yapily.repository;
+
+import co.uk.yapily.entity.PromotionRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PromotionRuleRepository extends JpaRepository<PromotionRule, Long> {
+
+  /**
+   * Finds the active rules, in the order they take precedence.
+   *
+   * @return the active rules by priority, then ID
+   */
+  List<PromotionRule> findByActiveTrueOrderByPriorityAscIdAsc();
+}
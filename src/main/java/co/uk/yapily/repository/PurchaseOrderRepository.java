@@ -0,0 +1,38 @@
+package co.uk.yapily.repository;
+
+import co.uk.yapily.entity.PurchaseOrder;
+import org.springframework.data.repository.Repository;
+
+import java.util.Optional;
+
+/**
+ * Appends and reads orders. Orders are never updated or deleted, so the repository exposes neither.
+ *
+ * @since 1.1.0
+ */
+public interface PurchaseOrderRepository extends Repository<PurchaseOrder, Long> {
+
+  /**
+   * Appends an order.
+   *
+   * @param order the new order
+   * @return the stored order, with its ID
+   */
+  PurchaseOrder save(PurchaseOrder order);
+
+  /**
+   * Finds an order by its ID.
+   *
+   * @param id the order ID
+   * @return the order, if found
+   */
+  Optional<PurchaseOrder> findById(Long id);
+
+  /**
+   * Finds the order placed from a cart.
+   *
+   * @param cartId the cart ID
+   * @return the order, if the cart was checked out
+   */
+  Optional<PurchaseOrder> findByCartId(Long cartId);
+}
@@ -0,0 +1,63 @@
+package co.uk.yapily.repository;
+
+import co.uk.yapily.entity.ScheduledJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface ScheduledJobRepository extends JpaRepository<ScheduledJob, String> {
+
+  /**
+   * Starts a run of a job if it is due and nobody holds its lease, in a single statement, so that only one instance
+   * can win.
+   *
+   * @param name       the job name
+   * @param owner      the instance claiming the run
+   * @param now        the current time
+   * @param leaseUntil the end of the lease
+   * @param nextRunAt  when the job is due next
+   * @return 1 if the run was claimed, 0 otherwise
+   */
+  @Modifying
+  @Transactional
+  @Query("update ScheduledJob j set j.leaseOwner = :owner, j.leaseUntil = :leaseUntil, j.lastStartedAt = :now, "
+      + "j.nextRunAt = :nextRunAt where j.name = :name and j.nextRunAt <= :now "
+      + "and (j.leaseUntil is null or j.leaseUntil < :now)")
+  int claim(@Param("name") String name, @Param("owner") String owner, @Param("now") Instant now,
+            @Param("leaseUntil") Instant leaseUntil, @Param("nextRunAt") Instant nextRunAt);
+
+  /**
+   * Extends the lease of a run.
+   *
+   * @param name       the job name
+   * @param owner      the instance running the job
+   * @param leaseUntil the new end of the lease
+   * @return 1 if the lease was extended, 0 if the instance does not hold it any more
+   */
+  @Modifying
+  @Transactional
+  @Query("update ScheduledJob j set j.leaseUntil = :leaseUntil where j.name = :name and j.leaseOwner = :owner")
+  int renew(@Param("name") String name, @Param("owner") String owner, @Param("leaseUntil") Instant leaseUntil);
+
+  /**
+   * Ends a run and releases its lease.
+   *
+   * @param name       the job name
+   * @param owner      the instance that ran the job
+   * @param finishedAt the end of the run
+   * @param outcome    the outcome of the run
+   * @return 1 if the run was recorded, 0 if the instance did not hold the lease any more
+   */
+  @Modifying
+  @Transactional
+  @Query("update ScheduledJob j set j.leaseOwner = null, j.leaseUntil = null, j.lastFinishedAt = :finishedAt, "
+      + "j.lastOutcome = :outcome where j.name = :name and j.leaseOwner = :owner")
+  int release(@Param("name") String name, @Param("owner") String owner, @Param("finishedAt") Instant finishedAt,
+              @Param("outcome") String outcome);
+}
@@ -0,0 +1,58 @@
+package co.uk.yapily.scheduling;
+
+import co.uk.yapily.config.JobsProperties;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.service.CartService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Deletes the carts checked out longer than {@code retention} ago, with their product lines, in bounded chunks. Only
+ * carts whose order is archived are deleted, so no purchase is lost.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class CartCleanupJob implements ClusterJob {
+
+  private final CartService cartService;
+  private final JobsProperties.CartCleanup properties;
+
+  /**
+   * @param cartService the cart service
+   * @param properties  the jobs configuration
+   */
+  public CartCleanupJob(final CartService cartService, final JobsProperties properties) {
+    this.cartService = cartService;
+    this.properties = properties.cartCleanup();
+  }
+
+  @Override
+  public String name() {
+    return "cart-cleanup";
+  }
+
+  @Override
+  public Duration interval() {
+    return properties.interval();
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return properties.enabled();
+  }
+
+  @Override
+  public void run() throws ServiceException {
+    final Instant before = Instant.now().minus(properties.retention());
+    final long deleted = cartService.deleteArchivedBefore(Date.from(before));
+    if (deleted > 0) {
+      log.info("Deleted {} cart(s) checked out before {}", deleted, before);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package co.uk.yapily.scheduling;
+
+import java.time.Duration;
+
+/**
+ * A background task run by one instance of the cluster at a time, at most once per {@link #interval()}.
+ * <p>
+ * Beans implementing this interface are picked up by the {@link JobScheduler}. A run that throws is recorded as failed
+ * and the job is tried again at its next due time.
+ *
+ * @since 1.1.0
+ */
+public interface ClusterJob {
+
+  /**
+   * @return the job name, unique across the cluster and at most 64 characters long
+   */
+  String name();
+
+  /**
+   * @return the delay between the starts of two runs
+   */
+  Duration interval();
+
+  /**
+   * @return whether the job runs at all
+   */
+  default boolean isEnabled() {
+    return true;
+  }
+
+  /**
+   * Runs the job once.
+   *
+   * @throws Exception if the run fails
+   */
+  void run() throws Exception;
+}
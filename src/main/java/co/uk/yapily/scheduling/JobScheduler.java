@@ -0,0 +1,245 @@
+package co.uk.yapily.scheduling;
+
+import co.uk.yapily.config.JobsProperties;
+import co.uk.yapily.entity.ScheduledJob;
+import co.uk.yapily.repository.ScheduledJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the {@link ClusterJob}s so that each one runs on a single instance at a time, once per interval across the
+ * cluster, however many replicas are up.
+ * <p>
+ * Every {@code poll-interval}, each instance tries to start every due job. A run is claimed by a conditional update
+ * of the job's {@code scheduled_job} row, which only succeeds when the job is due and nobody holds its lease; it also
+ * moves the due time forward by the job interval. The lease lasts {@code lease} and is renewed while the run goes on,
+ * so a crashed runner only blocks the job until its lease expires.
+ * <p>
+ * On PostgreSQL the claim is also guarded by a session-level advisory lock held on a dedicated connection for the
+ * whole run: the database releases it the moment the runner's connection drops, and instances waiting on a slow run
+ * skip it without touching the row. Other databases, such as H2 in tests, rely on the lease alone, which assumes the
+ * instances' clocks agree to within the lease.
+ * <p>
+ * Metrics: the {@code yapily.jobs.runs} timer tagged with {@code job} and {@code outcome} ({@code success} or
+ * {@code failure}), and the {@code yapily.jobs.skips} counter tagged with {@code job} and {@code reason}
+ * ({@code running}, {@code locked}, {@code leased} or {@code not-due}).
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class JobScheduler {
+
+  /**
+   * First key of the advisory locks of jobs, "YJOB", so they do not clash with other users of advisory locks.
+   */
+  private static final int ADVISORY_LOCK_CLASS = 0x594A4F42;
+
+  private final List<ClusterJob> jobs;
+  private final JobsProperties properties;
+  private final ScheduledJobRepository repository;
+  private final DataSource dataSource;
+  private final MeterRegistry meterRegistry;
+  private final String owner = UUID.randomUUID().toString();
+  private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+  private boolean advisoryLocks;
+  private ScheduledExecutorService executor;
+
+  /**
+   * Creates the scheduler; it starts polling once the context is up, when enabled.
+   *
+   * @param jobs          the jobs
+   * @param properties    the jobs configuration
+   * @param repository    the job state repository
+   * @param dataSource    the data source, for advisory locks
+   * @param meterRegistry the registry for the job metrics
+   */
+  public JobScheduler(final List<ClusterJob> jobs, final JobsProperties properties,
+                      final ScheduledJobRepository repository, final DataSource dataSource,
+                      final MeterRegistry meterRegistry) {
+    this.jobs = jobs;
+    this.properties = properties;
+    this.repository = repository;
+    this.dataSource = dataSource;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Schedules the polling of every enabled job, spread over the first poll interval.
+   */
+  @PostConstruct
+  public void start() {
+    if (!properties.enabled()) {
+      return;
+    }
+    advisoryLocks = isPostgres();
+    final List<ClusterJob> enabled = jobs.stream().filter(ClusterJob::isEnabled).toList();
+    // one thread per job, which never runs twice at once, and one for lease renewals, so a long run never delays them
+    final AtomicInteger threads = new AtomicInteger();
+    executor = Executors.newScheduledThreadPool(enabled.size() + 1, runnable -> {
+      final Thread thread = new Thread(runnable, "cluster-job-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long poll = properties.pollInterval().toMillis();
+    enabled.forEach(job -> executor.scheduleWithFixedDelay(() -> poll(job),
+        ThreadLocalRandom.current().nextLong(Math.max(1, poll)), poll, TimeUnit.MILLISECONDS));
+    final long renewal = Math.max(1, properties.lease().toMillis() / 3);
+    executor.scheduleWithFixedDelay(this::renewLeases, renewal, renewal, TimeUnit.MILLISECONDS);
+    log.info("Cluster jobs {} scheduled as {} with {}", enabled.stream().map(ClusterJob::name).toList(), owner,
+        advisoryLocks ? "advisory locks" : "leases only");
+  }
+
+  /**
+   * Stops polling and waits for the runs in progress to finish.
+   */
+  @PreDestroy
+  public void stop() {
+    if (executor == null) {
+      return;
+    }
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+        log.warn("Cluster jobs {} did not finish in time", running);
+        executor.shutdownNow();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs a job if it is due and no other run of it is in progress anywhere.
+   *
+   * @param job the job
+   * @return whether this instance ran the job
+   */
+  boolean poll(final ClusterJob job) {
+    if (!running.add(job.name())) {
+      skip(job, "running");
+      return false;
+    }
+    try {
+      return advisoryLocks ? runLocked(job) : runIfDue(job);
+    } catch (final Exception e) {
+      log.warn("Error polling cluster job {}! Reason: {}", job.name(), e.getMessage(), e);
+      return false;
+    } finally {
+      running.remove(job.name());
+    }
+  }
+
+  private boolean runLocked(final ClusterJob job) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      if (!advisoryLock(connection, "pg_try_advisory_lock", job)) {
+        skip(job, "locked");
+        return false;
+      }
+      try {
+        return runIfDue(job);
+      } finally {
+        try {
+          advisoryLock(connection, "pg_advisory_unlock", job);
+        } catch (final SQLException e) {
+          // a pooled connection must not go back to the pool still holding the lock
+          connection.abort(Runnable::run);
+          throw e;
+        }
+      }
+    }
+  }
+
+  private boolean runIfDue(final ClusterJob job) {
+    register(job);
+    final Instant now = Instant.now();
+    if (repository.claim(job.name(), owner, now, now.plus(properties.lease()), now.plus(job.interval())) == 0) {
+      final boolean leased = repository.findById(job.name())
+          .map(ScheduledJob::getLeaseUntil).filter(now::isBefore).isPresent();
+      skip(job, leased ? "leased" : "not-due");
+      return false;
+    }
+    final Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    try {
+      job.run();
+    } catch (final Exception e) {
+      outcome = "failure";
+      log.error("Cluster job {} failed, retrying in {}! Reason: {}", job.name(), job.interval(), e.getMessage(), e);
+    } finally {
+      if (repository.release(job.name(), owner, Instant.now(), outcome) == 0) {
+        log.warn("Cluster job {} outlived its lease; another instance may have run it meanwhile", job.name());
+      }
+      sample.stop(meterRegistry.timer("yapily.jobs.runs", "job", job.name(), "outcome", outcome));
+    }
+    return true;
+  }
+
+  private void register(final ClusterJob job) {
+    if (repository.existsById(job.name())) {
+      return;
+    }
+    try {
+      repository.save(new ScheduledJob(job.name(), Instant.now(), null, null, null, null, null));
+    } catch (final DataIntegrityViolationException e) {
+      // registered concurrently by another instance
+    }
+  }
+
+  private void renewLeases() {
+    final Instant leaseUntil = Instant.now().plus(properties.lease());
+    for (final String name : running) {
+      try {
+        repository.renew(name, owner, leaseUntil);
+      } catch (final RuntimeException e) {
+        log.warn("Error renewing the lease of cluster job {}! Reason: {}", name, e.getMessage());
+      }
+    }
+  }
+
+  private static boolean advisoryLock(final Connection connection, final String function, final ClusterJob job)
+      throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?, ?)")) {
+      statement.setInt(1, ADVISORY_LOCK_CLASS);
+      statement.setInt(2, job.name().hashCode());
+      try (ResultSet result = statement.executeQuery()) {
+        return result.next() && result.getBoolean(1);
+      }
+    }
+  }
+
+  private boolean isPostgres() {
+    try (Connection connection = dataSource.getConnection()) {
+      return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+    } catch (final SQLException e) {
+      log.warn("Cannot tell the database product, cluster jobs rely on leases only! Reason: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private void skip(final ClusterJob job, final String reason) {
+    meterRegistry.counter("yapily.jobs.skips", "job", job.name(), "reason", reason).increment();
+  }
+}
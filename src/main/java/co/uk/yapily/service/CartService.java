@@ -3,24 +3,46 @@ package co.uk.yapily.service;
 import co.uk.yapily.dto.*;
 import co.uk.yapily.entity.Cart;
 import co.uk.yapily.entity.Product;
+import co.uk.yapily.entity.PurchaseOrder;
+import co.uk.yapily.exception.ConflictException;
+import co.uk.yapily.exception.ExpectedServiceException;
+import co.uk.yapily.exception.InvalidRequestException;
+import co.uk.yapily.exception.NotFoundException;
 import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.journal.CartJournal;
+import co.uk.yapily.pricing.LinePricing;
+import co.uk.yapily.pricing.PromotionEngine;
+import co.uk.yapily.pricing.PromotionRules;
+import co.uk.yapily.pricing.Quote;
+import co.uk.yapily.recommendation.CoPurchaseIndex;
 import co.uk.yapily.repository.CartRepository;
 import co.uk.yapily.service.base.BaseService;
+import co.uk.yapily.service.support.CartLines;
+import co.uk.yapily.service.support.SingleFlight;
+import co.uk.yapily.store.ActiveCartStore;
+import co.uk.yapily.util.Chunks;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import org.springframework.core.ResolvableType;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.text.DecimalFormat;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.Set;
 import java.util.stream.IntStream;
 
 /**
@@ -33,19 +55,59 @@ import java.util.stream.IntStream;
 @Service
 public class CartService implements BaseService<CartDto> {
 
+  /**
+   * Target type for mapping lists of carts; built the same way as in {@link ProductService}, without a TypeToken.
+   */
+  private static final Type CART_DTO_LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, CartDto.class).getType();
+
+  /**
+   * SQL state of a unique constraint violation.
+   */
+  private static final String UNIQUE_VIOLATION_STATE = "23505";
+
+  /**
+   * Number of carts deleted per statement and transaction by the bulk deletes.
+   */
+  static final int BULK_DELETE_CHUNK_SIZE = 500;
+
   private final CartRepository repository;
   private final ProductService productService;
+  private final OrderService orderService;
+  private final PromotionEngine promotions;
   private final ModelMapper modelMapper;
+  private final ActiveCartStore cartStore;
+  private final CartJournal journal;
+  private final CoPurchaseIndex coPurchases;
+  private final SingleFlight<Long, CartDto> lookups;
+  private final SingleFlight<Long, CartDto> expandedLookups;
+  private final TransactionTemplate transactionTemplate;
 
   /**
    * Creates a new cart service.
    *
-   * @param repository the cart repository
+   * @param repository         the cart repository
+   * @param orderService       the service checked-out carts are archived with
+   * @param promotions         the promotion rules carts are priced with
+   * @param cartStore          the in-memory store for active carts, used when enabled
+   * @param journal            the journal cart events are recorded in
+   * @param coPurchases        the index checked-out carts are counted in, for related products
+   * @param meterRegistry      the registry for the lookup coalescing metrics
+   * @param transactionManager the transaction manager a checkout commits its cart and order with
    */
-  public CartService(final CartRepository repository, final ProductService productService, final ModelMapper modelMapper) {
+  public CartService(final CartRepository repository, final ProductService productService, final OrderService orderService,
+                     final PromotionEngine promotions, final ModelMapper modelMapper, final ActiveCartStore cartStore, final CartJournal journal,
+                     final CoPurchaseIndex coPurchases, final MeterRegistry meterRegistry, final PlatformTransactionManager transactionManager) {
     this.repository = repository;
     this.productService = productService;
+    this.orderService = orderService;
+    this.promotions = promotions;
     this.modelMapper = modelMapper;
+    this.cartStore = cartStore;
+    this.journal = journal;
+    this.coPurchases = coPurchases;
+    this.lookups = new SingleFlight<>("cart", meterRegistry);
+    this.expandedLookups = new SingleFlight<>("cart-expanded", meterRegistry);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
   }
 
   /**
@@ -77,34 +139,58 @@ public class CartService implements BaseService<CartDto> {
   /**
    * Updates a cart with the provided CartItemDto and cart ID.
    * This method updates the specified cart with the products from the given CartItemDto
-   * and sets the checkout status to false.
+   * and sets the checkout status to false. When the active-cart store is enabled the change is applied in memory
+   * and persisted write-behind. The addition is recorded in the cart journal.
    *
    * @param dto The CartItemDto containing product information to update the cart.
    * @param id  The ID of the cart to be updated.
    * @return The updated CartDto after saving changes.
+   * @throws InvalidRequestException If the cart ID is null.
+   * @throws NotFoundException If the cart or the product does not exist.
+   * @throws ConflictException If the cart is already checked out.
    * @throws ServiceException If there are errors during the update process.
    */
   public CartDto update(final CartItemDto dto, final Long id) throws ServiceException {
+    return update(dto, id, false);
+  }
+
+  /**
+   * Updates a cart as {@link #update(CartItemDto, Long)} does, optionally embedding the product details in the lines
+   * of the returned cart.
+   *
+   * @param dto            The CartItemDto containing product information to update the cart.
+   * @param id             The ID of the cart to be updated.
+   * @param expandProducts whether to embed name, unit price, labels and line total in each line
+   * @return The updated CartDto after saving changes.
+   * @throws ServiceException If the update fails, see {@link #update(CartItemDto, Long)}.
+   */
+  public CartDto update(final CartItemDto dto, final Long id, final boolean expandProducts) throws ServiceException {
     try {
-      final Long cartId = Optional.ofNullable(id).orElseThrow(() -> new ServiceException("Cart id cannot be null"));
+      final Long cartId = Optional.ofNullable(id).orElseThrow(() -> new InvalidRequestException("Cart id cannot be null"));
 
       final ProductDto productDto = productService.findById(dto.getProductId());
       final Product product = modelMapper.map(productDto, Product.class);
-      final Optional<Cart> optionalCart = repository.findById(cartId);
-      final Cart cart = optionalCart.orElseThrow(() -> new ServiceException("Cart not found with id: " + cartId));
 
-      if (cart.isCheckout()) {
-        throw new ServiceException("You can't add more products because the cart is already checked out!");
+      if (cartStore.isEnabled()) {
+        final CartDto updated = cartStore.update(cartId, cart -> {
+          addItemsToCart(dto, cart, product);
+          return toCartDto(cart, expandProducts);
+        });
+        forget(cartId);
+        journal.itemAdded(cartId, product.getId(), dto.getQuantity(), product.getPrice());
+        return updated;
       }
 
-      addProductsToCart(dto, cart, product);
-      cart.setCheckout(false); // still not checked-out
+      final Optional<Cart> optionalCart = repository.findById(cartId);
+      final Cart cart = optionalCart.orElseThrow(() -> new NotFoundException("Cart not found with id: " + cartId));
+      addItemsToCart(dto, cart, product);
 
       final Cart updatedCart = repository.save(cart);
-      final var updatedCartDto = modelMapper.map(updatedCart, CartDto.class);
-      // Map products to CartProductDto
-      mapProductsToCartProductDto(updatedCart, updatedCartDto);
-      return updatedCartDto;
+      forget(cartId);
+      journal.itemAdded(cartId, product.getId(), dto.getQuantity(), product.getPrice());
+      return toCartDto(updatedCart, expandProducts);
+    } catch (final ExpectedServiceException e) {
+      throw e;
     } catch (final Exception e) {
       log.error("An unexpected error occurred while persisting cart! Reason: {}", e.getMessage(), e);
       throw new ServiceException("An unexpected error occurred while persisting cart! Reason: " + e.getMessage(), e);
@@ -114,28 +200,26 @@ public class CartService implements BaseService<CartDto> {
   /**
    * Performs the checkout operation for a given cart.
    *
+   * The cart is archived as an immutable order in the same transaction, so checked-out carts can later be removed
+   * without losing the purchase, see {@link #deleteArchivedBefore(Date)}.
+   *
    * @param id The ID of the cart to be checked out. Must not be null.
-   * @return A CheckoutDto object containing the checked out cart and the total amount.
-   * @throws ServiceException If the cart ID is null, if no cart is found with the given ID, if the cart is already checked out, or if an
-   * unexpected error occurs during the checkout process.
+   * @return A CheckoutDto object containing the checked out cart, the total amount and the order ID.
+   * @throws InvalidRequestException If the cart ID is null.
+   * @throws NotFoundException If no cart is found with the given ID.
+   * @throws ConflictException If the cart is already checked out.
+   * @throws ServiceException If an unexpected error occurs during the checkout process.
    */
   public CheckoutDto checkout(final Long id) throws ServiceException {
     try {
-      final Long cartId = Optional.ofNullable(id).orElseThrow(() -> new ServiceException("Cart with id cannot be null"));
-      final Optional<Cart> optionalCart = repository.findById(cartId);
-      final Cart cart = optionalCart.orElseThrow(() -> new ServiceException("Cart not found with id: " + cartId));
-
-      if (cart.isCheckout()) {
-        throw new ServiceException("Cart is already checked out!");
+      final Long cartId = Optional.ofNullable(id).orElseThrow(() -> new InvalidRequestException("Cart with id cannot be null"));
+      if (cartStore.isEnabled()) {
+        // the resident cart is flushed first, so the checkout sees every acknowledged change
+        return cartStore.flushAndEvict(cartId, () -> checkoutPersistedCart(cartId));
       }
-      cart.setCheckout(true);
-      cart.setAmount(calculateCartAmount(cart));
-      final var checkedOutCart = repository.save(cart);
-
-      final CartDto cartDto = modelMapper.map(checkedOutCart, CartDto.class);
-      mapProductsToCartProductDto(checkedOutCart, cartDto);
-
-      return CheckoutDto.builder().cart(cartDto).amount(checkedOutCart.getAmount()).build();
+      return checkoutPersistedCart(cartId);
+    } catch (final ExpectedServiceException e) {
+      throw e;
     } catch (final Exception e) {
       log.error("An unexpected error occurred while checking out cart! Reason: {}", e.getMessage(), e);
       throw new ServiceException("An unexpected error occurred while checking out cart: Reason: " + e.getMessage(), e);
@@ -143,7 +227,100 @@ public class CartService implements BaseService<CartDto> {
   }
 
   /**
-   * Deletes an existing cart.
+   * Checks out the persisted state of a cart.
+   * <p>
+   * The cart row is locked while it is read, checked and archived, so of two concurrent checkouts of a cart the second
+   * waits and then finds it checked out. The unique order per cart rejects a second archive all the same.
+   *
+   * @param cartId the cart ID
+   * @return the checkout result
+   * @throws ServiceException if the cart is not found or already checked out
+   */
+  private CheckoutDto checkoutPersistedCart(final Long cartId) throws ServiceException {
+    // one set of rules prices the whole cart, even if they are swapped meanwhile
+    final PromotionRules rules = promotions.current();
+    final Checkout checkout;
+    try {
+      checkout = transactionTemplate.execute(status -> checkoutLocked(cartId, rules));
+    } catch (final DataIntegrityViolationException e) {
+      if (isDuplicateOrder(e)) {
+        throw new ConflictException("Cart is already checked out!");
+      }
+      throw e;
+    }
+    if (checkout.rejection() != null) {
+      throw checkout.rejection();
+    }
+    final Cart cart = checkout.cart();
+    final PurchaseOrder order = checkout.order();
+    forget(cartId);
+    journal.checkedOut(cartId, cart.getProducts().size(), cart.getAmount());
+    coPurchases.recordCheckout(cart.getProducts());
+
+    final CartDto cartDto = modelMapper.map(cart, CartDto.class);
+    mapProductsToCartProductDto(cart, cartDto, false);
+
+    return CheckoutDto.builder()
+        .cart(cartDto)
+        .amount(cart.getAmount())
+        .discount(order.getDiscount() != null && order.getDiscount() > 0 ? order.getDiscount() : null)
+        .orderId(order.getId())
+        .build();
+  }
+
+  /**
+   * Tells whether an integrity violation is a second order for the same cart, rather than any other constraint failing.
+   *
+   * @param e the violation
+   * @return whether the unique index on the cart of an order was violated
+   */
+  private static boolean isDuplicateOrder(final DataIntegrityViolationException e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof final ConstraintViolationException violation) {
+        // 23505 is the unique violation state of both PostgreSQL and H2. The index is named by the dialect when it
+        // recognises the driver message, and otherwise only in the message; H2 also upper-cases it
+        final String constraint = violation.getConstraintName() != null
+            ? violation.getConstraintName()
+            : String.valueOf(violation.getSQLException().getMessage());
+        return UNIQUE_VIOLATION_STATE.equals(violation.getSQLState())
+            && constraint.toLowerCase(Locale.ROOT).contains(PurchaseOrder.CART_ID_INDEX);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reads, checks and archives a cart; runs in the checkout transaction. Nothing is written when the cart is rejected.
+   *
+   * @param cartId the cart ID
+   * @param rules  the rules pricing the cart
+   * @return the checked-out cart and its order, or why the cart cannot be checked out
+   */
+  private Checkout checkoutLocked(final Long cartId, final PromotionRules rules) {
+    final Optional<Cart> optionalCart = repository.findForCheckoutById(cartId);
+    if (optionalCart.isEmpty()) {
+      return Checkout.rejected(new NotFoundException("Cart not found with id: " + cartId));
+    }
+    final Cart cart = optionalCart.get();
+    if (cart.isCheckout()) {
+      return Checkout.rejected(new ConflictException("Cart is already checked out!"));
+    }
+    // the lines are read in the same transaction, as every one of them is priced and copied into the order
+    final Optional<String> overCap = rules.capViolation(cart.getProducts());
+    if (overCap.isPresent()) {
+      return Checkout.rejected(new ConflictException(overCap.get()));
+    }
+    final Instant checkedOutAt = Instant.now();
+    cart.setCheckout(true);
+    cart.setCheckedOutAt(Date.from(checkedOutAt));
+    final PurchaseOrder placed = orderService.place(cart, checkedOutAt, rules);
+    cart.setAmount(placed.getAmount());
+    repository.save(cart);
+    return new Checkout(cart, placed, null);
+  }
+
+  /**
+   * Deletes an existing cart. Deleting an unknown cart is only logged; like the bulk deletes, it is not journaled.
    *
    * @param id the cart ID
    * @throws ServiceException if an error occurs
@@ -151,9 +328,9 @@ public class CartService implements BaseService<CartDto> {
   @Override
   public void delete(final Long id) throws ServiceException {
     try {
-      repository.deleteById(id);
-    } catch (final EmptyResultDataAccessException e) {
-      log.warn("Attempted to delete non-existent cart with ID: {}", id);
+      if (deleteChunk(List.of(id)) == 0) {
+        log.warn("Attempted to delete non-existent cart with ID: {}", id);
+      }
     } catch (final DataAccessException e) {
       log.error("Error deleting cart with ID: {}. Reason: {}", id, e.getMessage(), e);
       throw new ServiceException("Error deleting cart with ID: " + id, e);
@@ -164,19 +341,142 @@ public class CartService implements BaseService<CartDto> {
   }
 
   /**
-   * Returns a list of all carts.
+   * Deletes carts by ID, together with their product lines, in chunks of {@value #BULK_DELETE_CHUNK_SIZE}.
+   * Each chunk is two set-based statements in its own transaction; chunks already deleted stay deleted if a later
+   * one fails.
+   *
+   * @param ids the cart IDs; unknown and duplicate IDs are ignored
+   * @return the number of carts deleted
+   * @throws ServiceException if an error occurs
+   */
+  @Override
+  public long deleteAll(final List<Long> ids) throws ServiceException {
+    long deleted = 0;
+    try {
+      final List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+      for (final List<Long> chunk : Chunks.of(distinctIds, BULK_DELETE_CHUNK_SIZE)) {
+        deleted += deleteChunk(chunk);
+      }
+      return deleted;
+    } catch (final DataAccessException e) {
+      log.error("Error deleting carts in bulk after {} deletions. Reason: {}", deleted, e.getMessage(), e);
+      throw new ServiceException("Error deleting carts in bulk after " + deleted + " deletions", e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while deleting carts in bulk after {} deletions. Reason: {}", deleted, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while deleting carts in bulk after " + deleted + " deletions", e);
+    }
+  }
+
+  /**
+   * Deletes every cart checked out before the given date, one chunk of IDs at a time.
+   *
+   * @param before the exclusive upper bound of the checkout date
+   * @return the number of carts deleted
+   * @throws ServiceException if an error occurs
+   */
+  public long deleteCheckedOutBefore(final Date before) throws ServiceException {
+    return deleteCheckedOutBefore(before, false);
+  }
+
+  /**
+   * Deletes every cart checked out before the given date whose order is archived, one chunk of IDs at a time. Carts
+   * checked out before orders were archived are kept.
+   *
+   * @param before the exclusive upper bound of the checkout date
+   * @return the number of carts deleted
+   * @throws ServiceException if an error occurs
+   */
+  public long deleteArchivedBefore(final Date before) throws ServiceException {
+    return deleteCheckedOutBefore(before, true);
+  }
+
+  /**
+   * Deletes the carts checked out before the given date, one chunk of IDs at a time.
+   *
+   * @param before       the exclusive upper bound of the checkout date
+   * @param archivedOnly whether to delete only the carts with an archived order
+   * @return the number of carts deleted
+   * @throws ServiceException if an error occurs
+   */
+  private long deleteCheckedOutBefore(final Date before, final boolean archivedOnly) throws ServiceException {
+    long deleted = 0;
+    try {
+      List<Long> chunk;
+      do {
+        // deleted rows disappear from the result, so the first page is always the next chunk
+        final PageRequest page = PageRequest.of(0, BULK_DELETE_CHUNK_SIZE);
+        chunk = archivedOnly ? repository.findArchivedIdsBefore(before, page) : repository.findCheckedOutIdsBefore(before, page);
+        if (!chunk.isEmpty()) {
+          deleted += deleteChunk(chunk);
+        }
+      } while (chunk.size() == BULK_DELETE_CHUNK_SIZE);
+      return deleted;
+    } catch (final DataAccessException e) {
+      log.error("Error deleting carts checked out before {} after {} deletions. Reason: {}", before, deleted, e.getMessage(), e);
+      throw new ServiceException("Error deleting carts checked out before " + before + " after " + deleted + " deletions", e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while deleting carts checked out before {} after {} deletions. Reason: {}",
+          before, deleted, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while deleting carts checked out before " + before
+          + " after " + deleted + " deletions", e);
+    }
+  }
+
+  /**
+   * Deletes one bounded chunk of carts, dropping any resident copies first.
+   *
+   * @param chunk the cart IDs
+   * @return the number of carts deleted
+   * @throws ServiceException if an error occurs
+   */
+  private int deleteChunk(final List<Long> chunk) throws ServiceException {
+    final List<Long> deleted = cartStore.isEnabled()
+        ? cartStore.evictAll(chunk, () -> repository.deleteChunk(chunk))
+        : repository.deleteChunk(chunk);
+    // only carts that existed are journaled, so replicas never see deletions of carts they never had
+    deleted.forEach(id -> {
+      forget(id);
+      journal.deleted(id);
+    });
+    return deleted.size();
+  }
+
+  /**
+   * Detaches the lookups in flight for a cart, plain and expanded, after a write to it.
+   *
+   * @param id the cart ID
+   */
+  private void forget(final Long id) {
+    lookups.forget(id);
+    expandedLookups.forget(id);
+  }
+
+  /**
+   * Returns a list of the active carts, the ones not checked out yet.
    *
    * @return a list of carts
    * @throws ServiceException if an error occurs
    */
   @Override
   public List<CartDto> findAll() throws ServiceException {
+    return findAll(false);
+  }
+
+  /**
+   * Returns a list of the active carts, optionally embedding the product details in their lines. Expanded carts are
+   * read together with their products in one query. Checked-out carts are left out; their purchases are read as
+   * orders.
+   *
+   * @param expandProducts whether to embed name, unit price, labels and line total in each line
+   * @return a list of carts
+   * @throws ServiceException if an error occurs
+   */
+  public List<CartDto> findAll(final boolean expandProducts) throws ServiceException {
     try {
-      final List<Cart> carts = repository.findAll();
+      final List<Cart> carts = expandProducts ? repository.findActiveWithProducts() : repository.findByCheckoutFalse();
       // Map the list of cart entities to a list of DTOs using ModelMapper
-      final List<CartDto> cartsDto = modelMapper.map(carts, new TypeToken<List<CartDto>>() {
-      }.getType());
-      mapListOfProductsToCartProductDto(cartsDto, carts);
+      final List<CartDto> cartsDto = modelMapper.map(carts, CART_DTO_LIST_TYPE);
+      mapListOfProductsToCartProductDto(cartsDto, carts, expandProducts);
       return cartsDto;
     } catch (final DataAccessException e) {
       log.error("Error retrieving list of carts! Reason: {}", e.getMessage(), e);
@@ -187,33 +487,176 @@ public class CartService implements BaseService<CartDto> {
     }
   }
 
+  /**
+   * Returns the given fields of the active carts, reading only the requested columns and counting the product lines in the
+   * database. With {@code expandProducts} the carts are read in full, see {@link #findAll(boolean)}.
+   *
+   * @param fields         the requested fields
+   * @param expandProducts whether to embed the product details in each line
+   * @return carts with at least the requested fields set
+   * @throws ServiceException if an error occurs
+   */
+  public List<CartDto> findAll(final Set<CartField> fields, final boolean expandProducts) throws ServiceException {
+    if (expandProducts) {
+      return findAll(true);
+    }
+    try {
+      return repository.findActiveProjected(fields);
+    } catch (final DataAccessException e) {
+      log.error("Error retrieving fields {} of carts! Reason: {}", fields, e.getMessage(), e);
+      throw new ServiceException("Error retrieving list of carts! Reason: ", e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while retrieving fields {} of carts! Reason: {}", fields, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while retrieving list of carts! Reason: ", e);
+    }
+  }
+
   /**
    * Retrieves a cart by its ID.
+   * <p>
+   * Concurrent lookups of the same cart share a single load and receive the same DTO, which callers must not modify.
+   * Every write to a cart detaches the load in flight for it, so a lookup issued after a write never sees an older
+   * state.
    *
    * @param id the ID of the cart to retrieve
    * @return the retrieved cart DTO
-   * @throws ServiceException if the cart with the given ID is not found or an error occurs during retrieval
+   * @throws InvalidRequestException if the ID is null
+   * @throws NotFoundException if the cart with the given ID is not found
+   * @throws ServiceException if an error occurs during retrieval
    */
   @Override
   public CartDto findById(final Long id) throws ServiceException {
-    final Long cartId = Optional.ofNullable(id).orElseThrow(() -> new ServiceException("Cart ID cannot be null"));
+    return findById(id, false);
+  }
+
+  /**
+   * Retrieves a cart by its ID as {@link #findById(Long)} does, optionally embedding the product details in its
+   * lines. An expanded cart is read together with its products in one query.
+   *
+   * @param id             the ID of the cart to retrieve
+   * @param expandProducts whether to embed name, unit price, labels and line total in each line
+   * @return the retrieved cart DTO
+   * @throws ServiceException if the cart is not found or an error occurs, see {@link #findById(Long)}
+   */
+  public CartDto findById(final Long id, final boolean expandProducts) throws ServiceException {
+    final Long cartId = Optional.ofNullable(id).orElseThrow(() -> new InvalidRequestException("Cart ID cannot be null"));
+    return (expandProducts ? expandedLookups : lookups).execute(cartId, () -> loadById(cartId, expandProducts));
+  }
+
+  /**
+   * Retrieves the given fields of a cart. A resident cart of the active-cart store is mapped in full, as it may hold
+   * changes that are not flushed yet; otherwise only the requested columns are read. With {@code expandProducts} the
+   * cart is read in full, see {@link #findById(Long, boolean)}.
+   *
+   * @param id             the ID of the cart to retrieve
+   * @param fields         the requested fields
+   * @param expandProducts whether to embed the product details in each line
+   * @return the cart with at least the requested fields set
+   * @throws InvalidRequestException if the ID is null
+   * @throws NotFoundException if the cart with the given ID is not found
+   * @throws ServiceException if an error occurs during retrieval
+   */
+  public CartDto findById(final Long id, final Set<CartField> fields, final boolean expandProducts) throws ServiceException {
+    if (expandProducts) {
+      return findById(id, true);
+    }
+    final Long cartId = Optional.ofNullable(id).orElseThrow(() -> new InvalidRequestException("Cart ID cannot be null"));
+    try {
+      if (cartStore.isEnabled()) {
+        final Optional<CartDto> resident = cartStore.readIfResident(cartId, cart -> toCartDto(cart, false));
+        if (resident.isPresent()) {
+          return resident.get();
+        }
+      }
+      return repository.findProjectedById(cartId, fields)
+                       .orElseThrow(() -> new NotFoundException("Cart not found with ID: " + cartId));
+    } catch (final ExpectedServiceException e) {
+      throw e;
+    } catch (final DataAccessException e) {
+      log.error("Error retrieving fields {} of cart with ID: {}. Reason: {}", fields, cartId, e.getMessage(), e);
+      throw new ServiceException("Error retrieving cart with ID: " + cartId, e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while retrieving fields {} of cart with ID: {}. Reason: {}", fields, cartId,
+          e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while retrieving cart with ID: " + cartId, e);
+    }
+  }
+
+  /**
+   * Loads a cart by its ID, preferring the resident copy when the active-cart store is enabled.
+   *
+   * @param cartId         the cart ID
+   * @param expandProducts whether to embed the product details in each line
+   * @return the cart DTO
+   * @throws ServiceException if the cart is not found or an error occurs during retrieval
+   */
+  private CartDto loadById(final Long cartId, final boolean expandProducts) throws ServiceException {
     try {
-      final Optional<Cart> cartOptional = repository.findById(cartId);
-      final Cart cart = cartOptional.orElseThrow(() -> new ServiceException("Cart not found with ID: " + cartId));
+      if (cartStore.isEnabled()) {
+        // a resident cart may hold changes that are not flushed yet
+        final Optional<CartDto> resident = cartStore.readIfResident(cartId, cart -> toCartDto(cart, expandProducts));
+        if (resident.isPresent()) {
+          return resident.get();
+        }
+      }
+      final Optional<Cart> cartOptional = expandProducts ? repository.findWithProductsById(cartId) : repository.findById(cartId);
+      final Cart cart = cartOptional.orElseThrow(() -> new NotFoundException("Cart not found with ID: " + cartId));
       // Map the retrieved cart entity to a DTO using ModelMapper
       final var cartDto = modelMapper.map(cart, CartDto.class);
       // Map products to CartProductDto
-      mapProductsToCartProductDto(cart, cartDto);
+      mapProductsToCartProductDto(cart, cartDto, expandProducts);
       return cartDto;
+    } catch (final ExpectedServiceException e) {
+      throw e;
     } catch (final DataAccessException e) {
-      log.error("Error retrieving cart with ID: {}. Reason: {}", id, e.getMessage(), e);
-      throw new ServiceException("Error retrieving cart with ID: " + id, e);
+      log.error("Error retrieving cart with ID: {}. Reason: {}", cartId, e.getMessage(), e);
+      throw new ServiceException("Error retrieving cart with ID: " + cartId, e);
     } catch (final Exception e) {
-      log.error("An unexpected error occurred while retrieving cart with ID: {}. Reason: {}", id, e.getMessage(), e);
-      throw new ServiceException("An unexpected error occurred while retrieving cart with ID: " + id, e);
+      log.error("An unexpected error occurred while retrieving cart with ID: {}. Reason: {}", cartId, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while retrieving cart with ID: " + cartId, e);
     }
   }
 
+  /**
+   * Adds the requested quantity of a product to a cart that is not checked out yet.
+   *
+   * @param dto     The DTO containing information about the product and quantity.
+   * @param cart    The cart to which the product should be added.
+   * @param product The product to be added to the cart.
+   * @throws ServiceException if the cart is already checked out
+   */
+  private void addItemsToCart(final CartItemDto dto, final Cart cart, final Product product) throws ServiceException {
+    if (cart.isCheckout()) {
+      throw new ConflictException("You can't add more products because the cart is already checked out!");
+    }
+    final LinePricing pricing = promotions.current().forLabels(product.getLabels());
+    if (pricing.maxUnits() < Integer.MAX_VALUE) {
+      long units = dto.getQuantity();
+      if (cart.getProducts() != null) {
+        units += cart.getProducts().stream().filter(unit -> Objects.equals(unit.getId(), product.getId())).count();
+      }
+      if (units > pricing.maxUnits()) {
+        throw new ConflictException(PromotionRules.capMessage(product.getId(), pricing));
+      }
+    }
+    addProductsToCart(dto, cart, product);
+    cart.setCheckout(false); // still not checked-out
+  }
+
+  /**
+   * Maps a cart entity, including its product lines, to a DTO.
+   *
+   * @param cart           the cart
+   * @param expandProducts whether to embed the product details in each line
+   * @return the cart DTO
+   */
+  private CartDto toCartDto(final Cart cart, final boolean expandProducts) {
+    final var cartDto = modelMapper.map(cart, CartDto.class);
+    // Map products to CartProductDto
+    mapProductsToCartProductDto(cart, cartDto, expandProducts);
+    return cartDto;
+  }
+
   /**
    * Adds the specified product to the cart multiple times based on the quantity specified in the DTO.
    *
@@ -226,24 +669,53 @@ public class CartService implements BaseService<CartDto> {
   }
 
   /**
-   * Maps products from a Cart object to CartProductDto objects and sets them in a CartDto.
+   * Maps products from a Cart object to CartProductDto objects and sets them in a CartDto. Active carts are priced
+   * with the promotion rules in effect; checked-out carts keep the amount charged at checkout.
    *
-   * @param cart    the Cart object containing products to be mapped
-   * @param cartDto the CartDto object where the mapped products will be set
+   * @param cart           the Cart object containing products to be mapped
+   * @param cartDto        the CartDto object where the mapped products will be set
+   * @param expandProducts whether to copy name, unit price and labels from the cart's products and add line totals
    */
-  private void mapProductsToCartProductDto(final Cart cart, final CartDto cartDto) {
-    // Map products to CartProductDto
-    cartDto.setProducts(
-        cart.getProducts().stream()
-            .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
-            .entrySet().stream()
-            .map(entry -> CartProductDto.builder()
-                .productId(entry.getKey().getId())
-                .quantity(entry.getValue().intValue())
-                .build())
-            .toList()
-    );
-    cartDto.setAmount((cart.getAmount() != null && cart.getAmount() >= 0) ? cart.getAmount() : null);
+  private void mapProductsToCartProductDto(final Cart cart, final CartDto cartDto, final boolean expandProducts) {
+    // One line per product ID, in the order products were added
+    final List<CartProductDto> lines = new ArrayList<>();
+    final Quote quote = cart.isCheckout() ? null : promotions.current().newQuote();
+    CartLines.forEachLine(cart.getProducts(), (product, quantity) -> {
+      final long discount = quote != null ? quote.add(product.getLabels(), product.getPrice(), quantity) : 0;
+      lines.add(toCartProductDto(product, quantity, expandProducts, discount));
+    });
+    cartDto.setProducts(lines);
+    if (quote != null) {
+      cartDto.setAmount(quote.total());
+      cartDto.setDiscount(quote.discount() > 0 ? quote.discount() : null);
+    } else {
+      cartDto.setAmount((cart.getAmount() != null && cart.getAmount() >= 0) ? cart.getAmount() : null);
+    }
+  }
+
+  /**
+   * Maps one product line of a cart.
+   *
+   * @param product        the product
+   * @param quantity       the number of units of the product in the cart
+   * @param expandProducts whether to embed the product details
+   * @param discountCents  the promotion discount on the line, in cents
+   * @return the cart line
+   */
+  private CartProductDto toCartProductDto(final Product product, final int quantity, final boolean expandProducts,
+                                          final long discountCents) {
+    final CartProductDto.CartProductDtoBuilder line = CartProductDto.builder()
+        .productId(product.getId())
+        .quantity(quantity);
+    if (expandProducts) {
+      line.name(product.getName())
+          .unitPrice(product.getPrice())
+          .labels(product.getLabels())
+          .lineTotal(discountCents == 0 ? CartLines.lineTotal(product.getPrice(), quantity)
+                         : Quote.toAmount(Quote.toCents(product.getPrice()) * quantity - discountCents))
+          .discount(discountCents == 0 ? null : Quote.toAmount(discountCents));
+    }
+    return line.build();
   }
 
   /**
@@ -254,43 +726,27 @@ public class CartService implements BaseService<CartDto> {
    * The mapping operation is performed in-place on the {@code cartsDto} list.
    * <p>
    *
-   * @param cartsDto the list of CartDto objects to be updated
-   * @param carts    the list of Cart objects to be mapped to CartDto objects
+   * @param cartsDto       the list of CartDto objects to be updated
+   * @param carts          the list of Cart objects to be mapped to CartDto objects
+   * @param expandProducts whether to embed the product details in each line
    */
-  private void mapListOfProductsToCartProductDto(final List<CartDto> cartsDto, final List<Cart> carts) {
+  private void mapListOfProductsToCartProductDto(final List<CartDto> cartsDto, final List<Cart> carts,
+                                                 final boolean expandProducts) {
     final Iterator<CartDto> iteratorDto = cartsDto.iterator();
     final Iterator<Cart> iterator = carts.iterator();
 
     while (iteratorDto.hasNext() && iterator.hasNext()) {
-      mapProductsToCartProductDto(iterator.next(), iteratorDto.next());
+      mapProductsToCartProductDto(iterator.next(), iteratorDto.next(), expandProducts);
     }
   }
 
   /**
-   * Calculates the total amount of the cart by summing up the prices of all products in the cart.
-   *
-   * @param cart The cart for which the total amount is to be calculated. Must not be null and its product list must not be null.
-   * @return The total amount of the cart. Returns 0.0 if the cart is empty.
-   * @throws IllegalArgumentException if the cart or its product list is null.
-   */
-  private Double calculateCartAmount(final Cart cart) {
-    // Check if the cart or the products are null
-    if (cart == null || cart.getProducts() == null) {
-      throw new IllegalArgumentException("Cart or products list cannot be null");
-    }
-    // Check if the cart is empty
-    if (cart.getProducts().isEmpty()) {
-      return 0.0;
+   * The outcome of the checkout transaction: the cart and its order, or the exception rejecting the cart.
+   */
+  private record Checkout(Cart cart, PurchaseOrder order, ServiceException rejection) {
+
+    private static Checkout rejected(final ServiceException rejection) {
+      return new Checkout(null, null, rejection);
     }
-    // Calculate the total amount
-    final var amount = cart.getProducts().stream()
-        .filter(Objects::nonNull)  // Ignore null products
-        .map(Product::getPrice)
-        .filter(Objects::nonNull)  // Ignore products with null price
-        .reduce(0.0, Double::sum);
-
-    final DecimalFormat df = new DecimalFormat("#.##");
-    df.setMaximumFractionDigits(2);
-    return Double.parseDouble(df.format(amount));
   }
 }
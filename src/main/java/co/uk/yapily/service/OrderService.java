@@ -0,0 +1,125 @@
+package co.uk.yapily.service;
+
+import co.uk.yapily.dto.CartProductDto;
+import co.uk.yapily.dto.OrderDto;
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.OrderLine;
+import co.uk.yapily.entity.PurchaseOrder;
+import co.uk.yapily.exception.ExpectedServiceException;
+import co.uk.yapily.exception.InvalidRequestException;
+import co.uk.yapily.exception.NotFoundException;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.pricing.PromotionRules;
+import co.uk.yapily.pricing.Quote;
+import co.uk.yapily.repository.PurchaseOrderRepository;
+import co.uk.yapily.service.support.CartLines;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Archives checked-out carts as immutable orders and reads them back.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Service
+public class OrderService {
+
+  private final PurchaseOrderRepository repository;
+
+  /**
+   * @param repository the order repository
+   */
+  public OrderService(final PurchaseOrderRepository repository) {
+    this.repository = repository;
+  }
+
+  /**
+   * Prices a cart being checked out and writes its order, copying the name, price and labels of each product. Callers
+   * run this in the transaction that marks the cart as checked out, so neither is stored without the other.
+   *
+   * @param cart     the cart
+   * @param placedAt the checkout time
+   * @param rules    the promotion rules to price the cart with
+   * @return the stored order, whose amount is the one to charge
+   */
+  public PurchaseOrder place(final Cart cart, final Instant placedAt, final PromotionRules rules) {
+    final List<OrderLine> lines = new ArrayList<>();
+    final Quote quote = rules.newQuote();
+    CartLines.forEachLine(cart.getProducts() != null ? cart.getProducts() : List.of(), (product, quantity) -> {
+      final long discount = quote.add(product.getLabels(), product.getPrice(), quantity);
+      lines.add(new OrderLine(product.getId(), product.getName(), product.getPrice(), quantity,
+          product.getLabels() != null ? new ArrayList<>(product.getLabels()) : List.of(),
+          discount > 0 ? Quote.toAmount(discount) : null));
+    });
+    return repository.save(PurchaseOrder.builder()
+        .cartId(cart.getId())
+        .placedAt(placedAt)
+        .amount(quote.total())
+        .discount(quote.discount())
+        .lines(lines)
+        .build());
+  }
+
+  /**
+   * Retrieves an order by its ID.
+   *
+   * @param id the order ID
+   * @return the order
+   * @throws InvalidRequestException if the ID is null
+   * @throws NotFoundException if no order has the given ID
+   * @throws ServiceException if an error occurs during retrieval
+   */
+  public OrderDto findById(final Long id) throws ServiceException {
+    try {
+      final Long orderId = Optional.ofNullable(id).orElseThrow(() -> new InvalidRequestException("Order with id cannot be null"));
+      return repository.findById(orderId)
+                       .map(OrderService::toDto)
+                       .orElseThrow(() -> new NotFoundException("Order not found with id: " + orderId));
+    } catch (final ExpectedServiceException e) {
+      throw e;
+    } catch (final DataAccessException e) {
+      log.error("Error retrieving order with ID: {}. Reason: {}", id, e.getMessage(), e);
+      throw new ServiceException("Error retrieving order with ID: " + id, e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while retrieving order with ID: {}. Reason: {}", id, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while retrieving order with ID: " + id, e);
+    }
+  }
+
+  /**
+   * Maps an order with every line expanded, as carts are with {@code expand=products}.
+   *
+   * @param order the order
+   * @return the order DTO
+   */
+  static OrderDto toDto(final PurchaseOrder order) {
+    final List<CartProductDto> lines = new ArrayList<>(order.getLines().size());
+    for (final OrderLine line : order.getLines()) {
+      lines.add(CartProductDto.builder()
+          .productId(line.productId())
+          .quantity(line.quantity())
+          .name(line.name())
+          .unitPrice(line.unitPrice())
+          .labels(line.labels())
+          .lineTotal(line.discount() == null ? CartLines.lineTotal(line.unitPrice(), line.quantity())
+                     : Quote.toAmount(Quote.toCents(line.unitPrice()) * line.quantity() - Quote.toCents(line.discount())))
+          .discount(line.discount())
+          .build());
+    }
+    return OrderDto.builder()
+        .id(order.getId())
+        .cartId(order.getCartId())
+        .placedAt(order.getPlacedAt())
+        .products(lines)
+        .amount(order.getAmount())
+        .discount(order.getDiscount() != null && order.getDiscount() > 0 ? order.getDiscount() : null)
+        .build();
+  }
+}
@@ -1,20 +1,42 @@
 package co.uk.yapily.service;
 
+import co.uk.yapily.catalog.ProductCatalog;
+import co.uk.yapily.dto.ProductBatchDto;
+import co.uk.yapily.dto.ProductChangeDto;
+import co.uk.yapily.dto.ProductChangesDto;
 import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.dto.ProductField;
 import co.uk.yapily.entity.Product;
+import co.uk.yapily.entity.ProductTombstone;
+import co.uk.yapily.event.ProductChangedEvent;
+import co.uk.yapily.exception.ExpectedServiceException;
+import co.uk.yapily.exception.InvalidRequestException;
+import co.uk.yapily.exception.NotFoundException;
 import co.uk.yapily.exception.ServiceException;
 import co.uk.yapily.repository.ProductRepository;
+import co.uk.yapily.repository.ProductTombstoneRepository;
 import co.uk.yapily.service.base.BaseService;
+import co.uk.yapily.service.support.SingleFlight;
+import co.uk.yapily.util.Chunks;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.ResolvableType;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * The ProductService class provides business logic for managing products.
@@ -26,20 +48,55 @@ import java.util.Optional;
 @Service
 public class ProductService implements BaseService<ProductDto> {
 
+  /**
+   * Target type for mapping lists of products, synthesized rather than captured by an anonymous TypeToken subclass so
+   * no generic signature has to be read reflectively (see native image support).
+   */
+  private static final Type PRODUCT_DTO_LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, ProductDto.class).getType();
+
+  /**
+   * Number of products deleted per statement and transaction by {@link #deleteAll(List)}.
+   */
+  static final int BULK_DELETE_CHUNK_SIZE = 500;
+
+  /**
+   * Largest number of IDs {@link #findAllById(List)} resolves in one call.
+   */
+  public static final int MULTI_GET_MAX_IDS = 100;
+
+  /**
+   * Largest number of changes {@link #findChanges(long, int)} returns in one call.
+   */
+  public static final int CHANGES_MAX_LIMIT = 1000;
+
   private final ProductRepository repository;
+  private final ProductTombstoneRepository tombstoneRepository;
   private final ModelMapper modelMapper;
+  private final ProductCatalog catalog;
+  private final ApplicationEventPublisher eventPublisher;
+  private final SingleFlight<Long, ProductDto> lookups;
 
   /**
    * Creates a new product service.
-   * @param repository the product repository
+   * @param repository          the product repository
+   * @param tombstoneRepository the repository of deleted products
+   * @param catalog        the local product catalog serving reads
+   * @param eventPublisher the publisher of {@link ProductChangedEvent}s
+   * @param meterRegistry  the registry for the lookup coalescing metrics
    */
-  public ProductService(final ProductRepository repository, final ModelMapper modelMapper) {
+  public ProductService(final ProductRepository repository, final ProductTombstoneRepository tombstoneRepository,
+                        final ModelMapper modelMapper, final ProductCatalog catalog,
+                        final ApplicationEventPublisher eventPublisher, final MeterRegistry meterRegistry) {
     this.repository = repository;
+    this.tombstoneRepository = tombstoneRepository;
     this.modelMapper = modelMapper;
+    this.catalog = catalog;
+    this.eventPublisher = eventPublisher;
+    this.lookups = new SingleFlight<>("product", meterRegistry);
   }
 
   /**
-   * Saves a new product.
+   * Saves a new product, with a new change version.
    *
    * @param dto the product data
    * @return the saved product
@@ -48,9 +105,12 @@ public class ProductService implements BaseService<ProductDto> {
   public ProductDto save(final ProductDto dto) throws ServiceException {
     try {
       final Product product = modelMapper.map(dto, Product.class);
-      final Product savedProduct = repository.save(product);
+      final Product savedProduct = repository.saveVersioned(product);
       // Map the persisted entity back to a DTO and return
-      return modelMapper.map(savedProduct, ProductDto.class);
+      final ProductDto savedDto = modelMapper.map(savedProduct, ProductDto.class);
+      eventPublisher.publishEvent(ProductChangedEvent.upserted(savedDto, savedProduct.getUpdatedAt(),
+          savedProduct.getChangeVersion()));
+      return savedDto;
     } catch (final DataIntegrityViolationException e) {
       log.error("Error persisting new product due to data integrity violation: {}", e.getMessage(), e);
       throw new ServiceException("Error persisting product: It is not possible to insert 2 or more products with exactly the same name!", e);
@@ -64,7 +124,7 @@ public class ProductService implements BaseService<ProductDto> {
   }
 
   /**
-   * Deletes an existing product.
+   * Deletes an existing product and records its tombstone.
    *
    * @param id the product ID
    * @throws ServiceException if an error occurs
@@ -72,7 +132,12 @@ public class ProductService implements BaseService<ProductDto> {
   @Override
   public void delete(final Long id) throws ServiceException {
     try {
-      repository.deleteById(id);
+      if (!repository.deleteVersioned(id)) {
+        log.warn("Attempted to delete non-existent product with ID: {}", id);
+        return;
+      }
+      lookups.forget(id);
+      eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
     } catch (final EmptyResultDataAccessException e) {
       log.warn("Attempted to delete non-existent product with ID: {}", id);
     } catch (final DataAccessException e) {
@@ -85,17 +150,54 @@ public class ProductService implements BaseService<ProductDto> {
   }
 
   /**
-   * Returns a list of all products.
+   * Deletes products by ID.
+   * <p>
+   * Every chunk of {@value #BULK_DELETE_CHUNK_SIZE} IDs is removed from all carts and deleted with two set-based
+   * statements in its own transaction, so no entity is loaded and locks are only held for the duration of a chunk.
+   * Chunks already deleted stay deleted if a later one fails.
+   *
+   * @param ids the product IDs; unknown and duplicate IDs are ignored
+   * @return the number of products deleted
+   * @throws ServiceException if an error occurs
+   */
+  @Override
+  public long deleteAll(final List<Long> ids) throws ServiceException {
+    long deleted = 0;
+    try {
+      final List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+      for (final List<Long> chunk : Chunks.of(distinctIds, BULK_DELETE_CHUNK_SIZE)) {
+        final List<Long> deletedIds = repository.deleteChunk(chunk);
+        deleted += deletedIds.size();
+        for (final Long id : deletedIds) {
+          lookups.forget(id);
+          eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
+        }
+      }
+      return deleted;
+    } catch (final DataAccessException e) {
+      log.error("Error deleting products in bulk after {} deletions. Reason: {}", deleted, e.getMessage(), e);
+      throw new ServiceException("Error deleting products in bulk after " + deleted + " deletions", e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while deleting products in bulk after {} deletions. Reason: {}", deleted, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while deleting products in bulk after " + deleted + " deletions", e);
+    }
+  }
+
+  /**
+   * Returns a list of all products, from the product catalog once it is serving.
    *
    * @return a list of products
    * @throws ServiceException if an error occurs
    */
   @Override
   public List<ProductDto> findAll() throws ServiceException {
+    if (catalog.isServing()) {
+      return catalog.findAll();
+    }
     try {
       final List<Product> products = repository.findAll();
       // Map the list of product entities to a list of DTOs using ModelMapper
-      return modelMapper.map(products, new TypeToken<List<ProductDto>>(){}.getType());
+      return modelMapper.map(products, PRODUCT_DTO_LIST_TYPE);
     } catch (final DataAccessException e) {
       log.error("Error retrieving list of products! Reason: {}", e.getMessage(), e);
       throw new ServiceException("Error retrieving list of products! Reason: ", e);
@@ -105,28 +207,245 @@ public class ProductService implements BaseService<ProductDto> {
     }
   }
 
+  /**
+   * Returns the given fields of all products. Once the product catalog is serving, its complete DTOs are returned;
+   * otherwise only the requested columns are read, without loading product entities.
+   *
+   * @param fields the requested fields
+   * @return products with at least the requested fields set
+   * @throws ServiceException if an error occurs
+   */
+  public List<ProductDto> findAll(final Set<ProductField> fields) throws ServiceException {
+    if (catalog.isServing()) {
+      return catalog.findAll();
+    }
+    try {
+      return repository.findAllProjected(fields);
+    } catch (final DataAccessException e) {
+      log.error("Error retrieving fields {} of products! Reason: {}", fields, e.getMessage(), e);
+      throw new ServiceException("Error retrieving list of products! Reason: ", e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while retrieving fields {} of products! Reason: {}", fields, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while retrieving list of products! Reason: ", e);
+    }
+  }
+
   /**
    * Retrieves a product by its ID.
+   * <p>
+   * Products are served from the product catalog when it has them. Otherwise, concurrent lookups of the same product
+   * share a single query and receive the same DTO, which callers must not modify.
    *
    * @param id the ID of the product to retrieve
    * @return the retrieved product DTO
-   * @throws ServiceException if the product with the given ID is not found or an error occurs during retrieval
+   * @throws InvalidRequestException if the ID is null
+   * @throws NotFoundException if the product with the given ID is not found
+   * @throws ServiceException if an error occurs during retrieval
    */
   @Override
   public ProductDto findById(final Long id) throws ServiceException {
-    final Long productId = Optional.ofNullable(id).orElseThrow(() -> new ServiceException("Product ID cannot be null"));
+    final Long productId = Optional.ofNullable(id).orElseThrow(() -> new InvalidRequestException("Product ID cannot be null"));
+    final Optional<ProductDto> cached = catalog.find(productId);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+    return lookups.execute(productId, () -> loadById(productId));
+  }
 
+  /**
+   * Retrieves the given fields of a product, from the product catalog when it has the product, otherwise by reading
+   * only the requested columns.
+   *
+   * @param id     the ID of the product to retrieve
+   * @param fields the requested fields
+   * @return the product with at least the requested fields set
+   * @throws InvalidRequestException if the ID is null
+   * @throws NotFoundException if the product with the given ID is not found
+   * @throws ServiceException if an error occurs during retrieval
+   */
+  public ProductDto findById(final Long id, final Set<ProductField> fields) throws ServiceException {
+    final Long productId = Optional.ofNullable(id).orElseThrow(() -> new InvalidRequestException("Product ID cannot be null"));
+    final Optional<ProductDto> cached = catalog.find(productId);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+    try {
+      return repository.findProjectedById(productId, fields)
+                       .orElseThrow(() -> new NotFoundException("Product not found with ID: " + productId));
+    } catch (final ExpectedServiceException e) {
+      throw e;
+    } catch (final DataAccessException e) {
+      log.error("Error retrieving fields {} of product with ID: {}. Reason: {}", fields, productId, e.getMessage(), e);
+      throw new ServiceException("Error retrieving product with ID: " + productId, e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while retrieving fields {} of product with ID: {}. Reason: {}", fields,
+          productId, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while retrieving product with ID: " + productId, e);
+    }
+  }
+
+  /**
+   * Retrieves products by ID.
+   * <p>
+   * Products held by the product catalog are served from it; the others are loaded with a single query.
+   *
+   * @param ids the product IDs; duplicates and {@code null}s are ignored
+   * @return the products found, in the order of their first occurrence in {@code ids}, and the IDs not found
+   * @throws InvalidRequestException if no ID or more than {@value #MULTI_GET_MAX_IDS} distinct IDs are given
+   * @throws ServiceException if an error occurs during retrieval
+   */
+  public ProductBatchDto findAllById(final List<Long> ids) throws ServiceException {
+    final List<Long> distinctIds = ids == null ? List.of() : ids.stream().filter(Objects::nonNull).distinct().toList();
+    if (distinctIds.isEmpty()) {
+      throw new InvalidRequestException("The list of ids cannot be empty");
+    }
+    if (distinctIds.size() > MULTI_GET_MAX_IDS) {
+      throw new InvalidRequestException("At most " + MULTI_GET_MAX_IDS + " products can be retrieved per request");
+    }
+    try {
+      final Map<Long, ProductDto> found = new HashMap<>();
+      final List<Long> uncached = new ArrayList<>();
+      for (final Long id : distinctIds) {
+        catalog.find(id).ifPresentOrElse(product -> found.put(id, product), () -> uncached.add(id));
+      }
+      if (!uncached.isEmpty()) {
+        for (final Product product : repository.findAllById(uncached)) {
+          catalog.remember(product);
+          found.put(product.getId(), modelMapper.map(product, ProductDto.class));
+        }
+      }
+      final ProductBatchDto batch = new ProductBatchDto();
+      for (final Long id : distinctIds) {
+        final ProductDto product = found.get(id);
+        if (product != null) {
+          batch.getProducts().add(product);
+        } else {
+          batch.getMissingIds().add(id);
+        }
+      }
+      return batch;
+    } catch (final DataAccessException e) {
+      log.error("Error retrieving {} products by ID. Reason: {}", distinctIds.size(), e.getMessage(), e);
+      throw new ServiceException("Error retrieving products by ID", e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while retrieving {} products by ID. Reason: {}", distinctIds.size(), e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while retrieving products by ID", e);
+    }
+  }
+
+  /**
+   * Returns a page of products by ascending ID, for exporting the whole catalog with keyset pagination.
+   *
+   * @param afterId the last ID of the previous page, 0 for the first page
+   * @param limit   the maximum number of products, at most {@value #CHANGES_MAX_LIMIT}
+   * @return the products with an ID greater than {@code afterId}; fewer than {@code limit} on the last page
+   * @throws InvalidRequestException if {@code afterId} is negative or {@code limit} out of range
+   * @throws ServiceException if an error occurs during retrieval
+   */
+  public List<ProductDto> findPage(final long afterId, final int limit) throws ServiceException {
+    if (afterId < 0) {
+      throw new InvalidRequestException("The product ID to resume after cannot be negative");
+    }
+    if (limit < 1 || limit > CHANGES_MAX_LIMIT) {
+      throw new InvalidRequestException("The limit must be between 1 and " + CHANGES_MAX_LIMIT);
+    }
+    try {
+      return modelMapper.map(repository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit)), PRODUCT_DTO_LIST_TYPE);
+    } catch (final DataAccessException e) {
+      log.error("Error retrieving products after ID {}. Reason: {}", afterId, e.getMessage(), e);
+      throw new ServiceException("Error retrieving products after ID " + afterId, e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while retrieving products after ID {}. Reason: {}", afterId, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while retrieving products after ID " + afterId, e);
+    }
+  }
+
+  /**
+   * Lists the product inserts, updates and deletions after a change version, oldest first.
+   * <p>
+   * Only changes committed before the call are returned: change versions are committed in increasing order, so a
+   * caller that resumes from {@link ProductChangesDto#getNextSince()} never misses a change.
+   *
+   * @param since the change version of the last change already seen, 0 for a full sync
+   * @param limit the maximum number of changes, at most {@value #CHANGES_MAX_LIMIT}
+   * @return the changes, the version to resume from and whether more changes are available
+   * @throws InvalidRequestException if {@code since} is negative or {@code limit} out of range
+   * @throws ServiceException if an error occurs during retrieval
+   */
+  public ProductChangesDto findChanges(final long since, final int limit) throws ServiceException {
+    if (since < 0) {
+      throw new InvalidRequestException("The change version cannot be negative");
+    }
+    if (limit < 1 || limit > CHANGES_MAX_LIMIT) {
+      throw new InvalidRequestException("The limit must be between 1 and " + CHANGES_MAX_LIMIT);
+    }
+    try {
+      final ProductChangesDto result = ProductChangesDto.builder().changes(new ArrayList<>()).nextSince(since).build();
+      // every version up to the horizon is committed, so the two queries below see the same changes
+      final long horizon = Optional.ofNullable(repository.currentChangeVersion()).orElse(0L);
+      if (horizon <= since) {
+        return result;
+      }
+      final List<Product> products = repository.findByChangeVersionBetweenOrderByChangeVersionAsc(since + 1, horizon, Limit.of(limit + 1));
+      final List<ProductTombstone> tombstones = tombstoneRepository.findByChangeVersionBetweenOrderByChangeVersionAsc(since + 1, horizon, Limit.of(limit + 1));
+      int p = 0;
+      int t = 0;
+      while (result.getChanges().size() < limit && (p < products.size() || t < tombstones.size())) {
+        final ProductChangeDto change;
+        if (t >= tombstones.size() || (p < products.size() && products.get(p).getChangeVersion() < tombstones.get(t).getChangeVersion())) {
+          final Product product = products.get(p++);
+          change = ProductChangeDto.builder()
+              .type(ProductChangedEvent.ChangeType.UPSERTED)
+              .productId(product.getId())
+              .product(modelMapper.map(product, ProductDto.class))
+              .updatedAt(product.getUpdatedAt())
+              .version(product.getChangeVersion())
+              .build();
+        } else {
+          final ProductTombstone tombstone = tombstones.get(t++);
+          change = ProductChangeDto.builder()
+              .type(ProductChangedEvent.ChangeType.DELETED)
+              .productId(tombstone.getProductId())
+              .updatedAt(tombstone.getDeletedAt())
+              .version(tombstone.getChangeVersion())
+              .build();
+        }
+        result.getChanges().add(change);
+        result.setNextSince(change.getVersion());
+      }
+      result.setHasMore(p < products.size() || t < tombstones.size());
+      return result;
+    } catch (final DataAccessException e) {
+      log.error("Error retrieving product changes since version {}. Reason: {}", since, e.getMessage(), e);
+      throw new ServiceException("Error retrieving product changes since version " + since, e);
+    } catch (final Exception e) {
+      log.error("An unexpected error occurred while retrieving product changes since version {}. Reason: {}", since, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while retrieving product changes since version " + since, e);
+    }
+  }
+
+  /**
+   * Loads a product by its ID.
+   *
+   * @param productId the product ID
+   * @return the product DTO
+   * @throws ServiceException if the product is not found or an error occurs during retrieval
+   */
+  private ProductDto loadById(final Long productId) throws ServiceException {
     try {
       final Optional<Product> productOptional = repository.findById(productId);
-      final Product product = productOptional.orElseThrow(() -> new ServiceException("Product not found with ID: " + productId));
+      final Product product = productOptional.orElseThrow(() -> new NotFoundException("Product not found with ID: " + productId));
+      catalog.remember(product);
       // Map the retrieved product entity to a DTO using ModelMapper
       return modelMapper.map(product, ProductDto.class);
+    } catch (final ExpectedServiceException e) {
+      throw e;
     } catch (final DataAccessException e) {
-      log.error("Error retrieving product with ID: {}. Reason: {}", id, e.getMessage(), e);
-      throw new ServiceException("Error retrieving product with ID: " + id, e);
+      log.error("Error retrieving product with ID: {}. Reason: {}", productId, e.getMessage(), e);
+      throw new ServiceException("Error retrieving product with ID: " + productId, e);
     } catch (final Exception e) {
-      log.error("An unexpected error occurred while retrieving product with ID: {}. Reason: {}", id, e.getMessage(), e);
-      throw new ServiceException("An unexpected error occurred while retrieving product with ID: " + id, e);
+      log.error("An unexpected error occurred while retrieving product with ID: {}. Reason: {}", productId, e.getMessage(), e);
+      throw new ServiceException("An unexpected error occurred while retrieving product with ID: " + productId, e);
     }
   }
 }
@@ -0,0 +1,59 @@
+package co.uk.yapily.service;
+
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.exception.InvalidRequestException;
+import co.uk.yapily.exception.NotFoundException;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.recommendation.CoPurchaseIndex;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serves the products frequently bought together with a product, from the {@link CoPurchaseIndex}.
+ *
+ * @since 1.1.0
+ */
+@Service
+public class RelatedProductService {
+
+  /**
+   * Largest number of related products {@link #findRelated(Long, int)} returns in one call.
+   */
+  public static final int RELATED_MAX_LIMIT = 50;
+
+  private final ProductService productService;
+  private final CoPurchaseIndex index;
+
+  /**
+   * @param productService the service related products are read with
+   * @param index          the co-purchase index
+   */
+  public RelatedProductService(final ProductService productService, final CoPurchaseIndex index) {
+    this.productService = productService;
+    this.index = index;
+  }
+
+  /**
+   * Returns the products most often checked out in the same cart as a product. Products deleted since are skipped.
+   *
+   * @param id    the product ID
+   * @param limit the maximum number of products, at most {@value #RELATED_MAX_LIMIT}
+   * @return the related products, most often bought together first; empty while the index is disabled
+   * @throws InvalidRequestException if the ID is null or the limit out of range
+   * @throws NotFoundException if the product does not exist
+   * @throws ServiceException if an error occurs during retrieval
+   */
+  public List<ProductDto> findRelated(final Long id, final int limit) throws ServiceException {
+    if (limit < 1 || limit > RELATED_MAX_LIMIT) {
+      throw new InvalidRequestException("The limit must be between 1 and " + RELATED_MAX_LIMIT);
+    }
+    final ProductDto product = productService.findById(id);
+    final long[] related = index.related(product.getId(), limit);
+    if (related.length == 0) {
+      return List.of();
+    }
+    return productService.findAllById(Arrays.stream(related).boxed().toList()).getProducts();
+  }
+}
@@ -31,6 +31,15 @@ public interface BaseService<T extends BaseDto> {
    */
   void delete(Long id) throws ServiceException;
 
+  /**
+   * Delete entity objects by id with set-based statements, in bounded chunks
+   *
+   * @param ids ids of the BaseEntity objects to be deleted; unknown ids are ignored
+   * @return the number of objects deleted
+   * @throws ServiceException if there is an error deleting the objects
+   */
+  long deleteAll(List<Long> ids) throws ServiceException;
+
   /**
    * Find all entities objects
    *
@@ -0,0 +1,96 @@
+package co.uk.yapily.service.support;
+
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.util.LongLongHashMap;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the units of a cart, one {@link Product} per unit, into lines of a product and a quantity.
+ * <p>
+ * Units are keyed on the product ID in a primitive map and counted in an {@code int} array, so grouping neither boxes
+ * counts nor calls the entities' {@code equals}/{@code hashCode}, which Lombok derives from every field, including the
+ * {@code carts} back-reference. Lines come out in the order their product first appears in the cart. Products not
+ * persisted yet have no ID and are grouped by reference.
+ *
+ * @since 1.1.0
+ */
+public final class CartLines {
+
+  /**
+   * Receives the lines of a cart.
+   */
+  @FunctionalInterface
+  public interface LineConsumer {
+
+    void accept(Product product, int quantity);
+  }
+
+  private static final int INITIAL_LINES = 16;
+
+  private CartLines() {
+  }
+
+  /**
+   * Groups the units of a cart into lines.
+   *
+   * @param units    the products of the cart, one per unit
+   * @param consumer receives each product with its quantity, by first appearance
+   * @return the number of lines
+   */
+  public static int forEachLine(final List<Product> units, final LineConsumer consumer) {
+    // carts usually hold several units of few products: start small and let the map grow with the lines
+    final LongLongHashMap lineById = new LongLongHashMap(Math.min(units.size(), INITIAL_LINES));
+    Map<Product, Integer> lineByTransient = null;
+    final List<Product> products = new ArrayList<>(Math.min(units.size(), INITIAL_LINES));
+    int[] quantities = new int[Math.min(units.size(), INITIAL_LINES)];
+    for (final Product unit : units) {
+      final int line;
+      if (unit.getId() != null) {
+        line = (int) lineById.get(unit.getId(), -1);
+        if (line < 0) {
+          lineById.put(unit.getId(), products.size());
+        }
+      } else {
+        if (lineByTransient == null) {
+          lineByTransient = new IdentityHashMap<>();
+        }
+        line = lineByTransient.getOrDefault(unit, -1);
+        if (line < 0) {
+          lineByTransient.put(unit, products.size());
+        }
+      }
+      if (line < 0) {
+        if (products.size() == quantities.length) {
+          quantities = Arrays.copyOf(quantities, Math.min(units.size(), quantities.length * 2));
+        }
+        quantities[products.size()] = 1;
+        products.add(unit);
+      } else {
+        quantities[line]++;
+      }
+    }
+    for (int line = 0; line < products.size(); line++) {
+      consumer.accept(products.get(line), quantities[line]);
+    }
+    return products.size();
+  }
+
+  /**
+   * Prices a line, rounded to cents.
+   *
+   * @param unitPrice the product price, possibly null
+   * @param quantity  the number of units
+   * @return the line total, or null if the product has no price
+   */
+  public static Double lineTotal(final Double unitPrice, final int quantity) {
+    return unitPrice == null ? null
+        : BigDecimal.valueOf(unitPrice).multiply(BigDecimal.valueOf(quantity)).setScale(2, RoundingMode.HALF_EVEN).doubleValue();
+  }
+}
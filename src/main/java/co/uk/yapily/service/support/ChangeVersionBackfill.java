@@ -0,0 +1,64 @@
+package co.uk.yapily.service.support;
+
+import co.uk.yapily.repository.ProductRepository;
+import co.uk.yapily.util.Chunks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Gives a change version to the products written before change versions existed, so that mirrors syncing from
+ * version 0 receive them.
+ * <p>
+ * Runs once at startup, before the warm-up and before the instance reports ready. Products are numbered in chunks,
+ * each in its own transaction; running it on several instances at once is harmless, as only products still without a
+ * version are updated.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ChangeVersionBackfill implements ApplicationRunner {
+
+  static final int CHUNK_SIZE = 500;
+
+  private final ProductRepository repository;
+  private final TransactionTemplate transactionTemplate;
+
+  /**
+   * @param repository         the product repository
+   * @param transactionManager the transaction manager
+   */
+  public ChangeVersionBackfill(final ProductRepository repository, final PlatformTransactionManager transactionManager) {
+    this.repository = repository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @Override
+  public void run(final ApplicationArguments args) {
+    final List<Long> ids = repository.findIdsWithoutChangeVersion();
+    if (ids.isEmpty()) {
+      return;
+    }
+    int updated = 0;
+    for (final List<Long> chunk : Chunks.of(ids, CHUNK_SIZE)) {
+      updated += transactionTemplate.execute(status -> {
+        long version = repository.reserveChangeVersions(chunk.size()) - chunk.size();
+        int count = 0;
+        for (final Long id : chunk) {
+          count += repository.updateChangeVersion(id, ++version);
+        }
+        return count;
+      });
+    }
+    log.info("Assigned change versions to {} existing products", updated);
+  }
+}
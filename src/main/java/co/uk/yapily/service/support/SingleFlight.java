@@ -0,0 +1,126 @@
+package co.uk.yapily.service.support;
+
+import co.uk.yapily.exception.ServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent identical lookups: while a load for a key is in flight, further callers for the same key wait
+ * for it and share its result (or its exception) instead of issuing their own query.
+ * <p>
+ * Nothing is cached once the load completes. Shared results are handed to every waiting caller and must be treated as
+ * read-only. Writers call {@link #forget(Object)} after a change so callers arriving afterwards start a fresh load
+ * rather than joining one that may have read the previous state.
+ * <p>
+ * Metrics: {@code yapily.coalescing.calls} tagged with {@code name} and {@code outcome} ({@code executed} or
+ * {@code coalesced}), and the {@code yapily.coalescing.in.flight} gauge.
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ * @since 1.1.0
+ */
+public class SingleFlight<K, V> {
+
+  /**
+   * The lookup being coalesced.
+   *
+   * @param <V> the result type
+   */
+  @FunctionalInterface
+  public interface Loader<V> {
+    V load() throws ServiceException;
+  }
+
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final Counter executed;
+  private final Counter coalesced;
+
+  /**
+   * Creates a coalescer and registers its metrics.
+   *
+   * @param name     the name the metrics are tagged with, e.g. {@code product}
+   * @param registry the meter registry
+   */
+  public SingleFlight(final String name, final MeterRegistry registry) {
+    this.executed = Counter.builder("yapily.coalescing.calls")
+        .description("Lookups by whether they ran the query or joined one in flight")
+        .tags("name", name, "outcome", "executed")
+        .register(registry);
+    this.coalesced = Counter.builder("yapily.coalescing.calls")
+        .description("Lookups by whether they ran the query or joined one in flight")
+        .tags("name", name, "outcome", "coalesced")
+        .register(registry);
+    Gauge.builder("yapily.coalescing.in.flight", inFlight, ConcurrentMap::size)
+        .description("Distinct lookups currently in flight")
+        .tag("name", name)
+        .register(registry);
+  }
+
+  /**
+   * Runs the loader for the key, or waits for the load already in flight for it.
+   *
+   * @param key    the lookup key
+   * @param loader the lookup
+   * @return the result of the load
+   * @throws ServiceException the exception of the load, shared by every caller that waited for it
+   */
+  public V execute(final K key, final Loader<V> loader) throws ServiceException {
+    final CompletableFuture<V> created = new CompletableFuture<>();
+    final CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+    if (existing != null) {
+      coalesced.increment();
+      return await(existing);
+    }
+
+    executed.increment();
+    try {
+      final V value = loader.load();
+      created.complete(value);
+      return value;
+    } catch (final ServiceException | RuntimeException e) {
+      created.completeExceptionally(e);
+      throw e;
+    } catch (final Error e) {
+      created.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, created);
+    }
+  }
+
+  /**
+   * Detaches the load in flight for the key, if any, so later callers do not join it.
+   *
+   * @param key the lookup key
+   */
+  public void forget(final K key) {
+    inFlight.remove(key);
+  }
+
+  private V await(final CompletableFuture<V> future) throws ServiceException {
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceException("Interrupted while waiting for a coalesced lookup", e);
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ServiceException serviceException) {
+        throw serviceException;
+      }
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw new ServiceException(cause);
+    }
+  }
+}
@@ -0,0 +1,468 @@
+package co.uk.yapily.store;
+
+import co.uk.yapily.config.ActiveCartStoreProperties;
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.exception.NotFoundException;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.repository.CartRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Keeps active (not yet checked-out) carts in memory and persists their changes write-behind.
+ * <p>
+ * A cart is loaded from the database on its first mutation and stays resident while it is in use. Mutations are
+ * applied in memory under a per-cart striped lock and the cart is marked dirty; a single background writer persists
+ * dirty carts in batches every {@code flush-interval}. Writes to the database are serialised by a flush lock and every
+ * snapshot is taken while holding it, so an older state of a cart can never overwrite a newer one.
+ * <p>
+ * Crash-recovery semantics:
+ * <ul>
+ *   <li>The database remains the source of truth. After a restart, carts are reloaded from their last flushed state.</li>
+ *   <li>Mutations acknowledged within the last flush interval (plus the duration of a flush) are lost if the process
+ *   dies abruptly. A graceful shutdown flushes every dirty cart before the context closes.</li>
+ *   <li>Checkout and delete take exclusive access to the cart. Checkout flushes it synchronously before running, so the
+ *   contents of a checked-out cart are always durable before the checkout is acknowledged.</li>
+ *   <li>A failed flush keeps the carts dirty and retries them on the next cycle.</li>
+ *   <li>The store assumes a cart is only mutated through one instance. With several replicas, requests for a cart must
+ *   be routed to the same instance, as cart-affinity routing ({@code yapily.cluster}) does, or the store must stay
+ *   disabled.</li>
+ * </ul>
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class ActiveCartStore {
+
+  /**
+   * Work done on a resident cart while holding its lock.
+   *
+   * @param <T> the result type
+   */
+  @FunctionalInterface
+  public interface CartCallback<T> {
+    T apply(Cart cart) throws ServiceException;
+  }
+
+  /**
+   * Work done with exclusive access to a cart that is not resident any more.
+   *
+   * @param <T> the result type
+   */
+  @FunctionalInterface
+  public interface StoreCallback<T> {
+    T call() throws ServiceException;
+  }
+
+  private final CartRepository repository;
+  private final ActiveCartStoreProperties properties;
+  private final ConcurrentMap<Long, ActiveCart> carts = new ConcurrentHashMap<>();
+  private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+  private final ReentrantLock[] stripes;
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private ScheduledExecutorService flusher;
+
+  /**
+   * Creates the store.
+   *
+   * @param repository the cart repository carts are loaded from and flushed to
+   * @param properties the store configuration
+   */
+  public ActiveCartStore(final CartRepository repository, final ActiveCartStoreProperties properties) {
+    this.repository = repository;
+    this.properties = properties;
+    this.stripes = new ReentrantLock[Math.max(1, properties.lockStripes())];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Starts the write-behind flusher when the store is enabled.
+   */
+  @PostConstruct
+  public void start() {
+    if (!properties.enabled()) {
+      return;
+    }
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "cart-write-behind");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long interval = properties.flushInterval().toMillis();
+    flusher.scheduleWithFixedDelay(this::flushCycle, interval, interval, TimeUnit.MILLISECONDS);
+    log.info("Active-cart store enabled, flushing every {} ms", interval);
+  }
+
+  /**
+   * Stops the flusher and persists every dirty cart.
+   */
+  @PreDestroy
+  public void stop() {
+    if (flusher == null) {
+      return;
+    }
+    flusher.shutdown();
+    try {
+      if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("Write-behind flusher did not stop in time");
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushAll();
+    log.info("Active-cart store stopped, {} cart(s) left unflushed", dirty.size());
+  }
+
+  /**
+   * @return whether carts are kept in memory
+   */
+  public boolean isEnabled() {
+    return properties.enabled();
+  }
+
+  /**
+   * Applies a mutation to a cart, loading it from the database first if it is not resident. The cart is then marked
+   * dirty and persisted by a later flush. The callback must validate before changing the cart: if it throws, the
+   * cart is not marked dirty.
+   *
+   * @param cartId   the cart ID
+   * @param mutation the mutation
+   * @param <T>      the result type
+   * @return the result of the mutation
+   * @throws ServiceException if the cart does not exist or the mutation fails
+   */
+  public <T> T update(final Long cartId, final CartCallback<T> mutation) throws ServiceException {
+    final ReentrantLock lock = stripe(cartId);
+    lock.lock();
+    try {
+      final ActiveCart active = loadLocked(cartId);
+      final T result = mutation.apply(active.cart);
+      active.version++;
+      active.lastAccess = System.nanoTime();
+      dirty.add(cartId);
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reads a cart if it is resident, so callers see their own not-yet-flushed changes.
+   *
+   * @param cartId the cart ID
+   * @param reader the read operation; it must not change the cart
+   * @param <T>    the result type
+   * @return the result of the read, or empty if the cart is not resident
+   * @throws ServiceException if the read fails
+   */
+  public <T> Optional<T> readIfResident(final Long cartId, final CartCallback<T> reader) throws ServiceException {
+    if (!carts.containsKey(cartId)) {
+      return Optional.empty();
+    }
+    final ReentrantLock lock = stripe(cartId);
+    lock.lock();
+    try {
+      final ActiveCart active = carts.get(cartId);
+      if (active == null) {
+        return Optional.empty();
+      }
+      active.lastAccess = System.nanoTime();
+      return Optional.ofNullable(reader.apply(active.cart));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Durably flushes a cart, then runs an action with exclusive access to it and drops it from memory.
+   * Used by checkout, which has to see every acknowledged change.
+   *
+   * @param cartId the cart ID
+   * @param action the action to run once the cart is flushed
+   * @param <T>    the result type
+   * @return the result of the action
+   * @throws ServiceException if the action fails
+   */
+  public <T> T flushAndEvict(final Long cartId, final StoreCallback<T> action) throws ServiceException {
+    return exclusively(cartId, true, action);
+  }
+
+  /**
+   * Drops a cart from memory without flushing it, then runs an action with exclusive access to it.
+   * Used by delete, so a pending flush cannot bring a deleted cart back.
+   *
+   * @param cartId the cart ID
+   * @param action the action to run once the cart is dropped
+   * @param <T>    the result type
+   * @return the result of the action
+   * @throws ServiceException if the action fails
+   */
+  public <T> T evict(final Long cartId, final StoreCallback<T> action) throws ServiceException {
+    return exclusively(cartId, false, action);
+  }
+
+  /**
+   * Drops a set of carts from memory without flushing them, then runs an action with exclusive access to all of them.
+   * Used by bulk deletes; callers keep the set bounded.
+   *
+   * @param cartIds the cart IDs
+   * @param action  the action to run once the carts are dropped
+   * @param <T>     the result type
+   * @return the result of the action
+   * @throws ServiceException if the action fails
+   */
+  public <T> T evictAll(final Collection<Long> cartIds, final StoreCallback<T> action) throws ServiceException {
+    // stripes are always taken in index order, after the flush lock, so concurrent callers cannot deadlock
+    final TreeSet<Integer> stripeIndexes = new TreeSet<>();
+    cartIds.forEach(cartId -> stripeIndexes.add(stripeIndex(cartId)));
+    flushLock.lock();
+    try {
+      final List<ReentrantLock> held = new ArrayList<>(stripeIndexes.size());
+      try {
+        for (final Integer index : stripeIndexes) {
+          stripes[index].lock();
+          held.add(stripes[index]);
+        }
+        cartIds.forEach(cartId -> {
+          carts.remove(cartId);
+          dirty.remove(cartId);
+        });
+        return action.call();
+      } finally {
+        held.forEach(ReentrantLock::unlock);
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Flushes and drops the resident carts another instance has taken over, so it loads their latest state.
+   *
+   * @param movedAway tells whether a cart is now owned by another instance
+   * @return the number of carts handed off
+   */
+  public int handOff(final Predicate<Long> movedAway) {
+    int handedOff = 0;
+    for (final Long cartId : carts.keySet()) {
+      if (!movedAway.test(cartId)) {
+        continue;
+      }
+      try {
+        exclusively(cartId, true, () -> null);
+        handedOff++;
+      } catch (final ServiceException | RuntimeException e) {
+        log.error("Error handing off cart {}, it stays resident! Reason: {}", cartId, e.getMessage(), e);
+      }
+    }
+    if (handedOff > 0) {
+      log.info("Handed off {} cart(s) to their new owners", handedOff);
+    }
+    return handedOff;
+  }
+
+  /**
+   * Persists dirty carts until none is left.
+   */
+  public void flushAll() {
+    while (!dirty.isEmpty()) {
+      if (flushBatch() == 0 && !dirty.isEmpty()) {
+        // the last batch failed and was re-queued; leave it to the next cycle
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return the number of carts held in memory
+   */
+  public int residentCount() {
+    return carts.size();
+  }
+
+  /**
+   * @return the number of carts with changes that have not been flushed yet
+   */
+  public int dirtyCount() {
+    return dirty.size();
+  }
+
+  /**
+   * One scheduled cycle: flush everything that is dirty, then drop idle carts.
+   */
+  void flushCycle() {
+    try {
+      flushAll();
+      evictIdle();
+    } catch (final RuntimeException e) {
+      log.error("Write-behind flush cycle failed! Reason: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Persists up to {@code flush-batch-size} dirty carts in a single {@code saveAll}.
+   *
+   * @return the number of carts persisted
+   */
+  int flushBatch() {
+    flushLock.lock();
+    try {
+      final List<PendingFlush> pending = new ArrayList<>();
+      final Iterator<Long> iterator = dirty.iterator();
+      while (iterator.hasNext() && pending.size() < properties.flushBatchSize()) {
+        final Long cartId = iterator.next();
+        iterator.remove();
+        snapshot(cartId).ifPresent(pending::add);
+      }
+      if (pending.isEmpty()) {
+        return 0;
+      }
+      try {
+        repository.saveAll(pending.stream().map(PendingFlush::snapshot).toList());
+      } catch (final RuntimeException e) {
+        log.error("Error flushing {} cart(s), they will be retried! Reason: {}", pending.size(), e.getMessage(), e);
+        pending.forEach(flush -> dirty.add(flush.cartId()));
+        return 0;
+      }
+      pending.forEach(this::markFlushed);
+      return pending.size();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private <T> T exclusively(final Long cartId, final boolean flushFirst, final StoreCallback<T> action) throws ServiceException {
+    // same lock order as the flusher: flush lock first, then the cart stripe
+    flushLock.lock();
+    try {
+      final ReentrantLock lock = stripe(cartId);
+      lock.lock();
+      try {
+        if (flushFirst) {
+          final Optional<PendingFlush> pending = snapshot(cartId);
+          if (pending.isPresent()) {
+            repository.save(pending.get().snapshot());
+          }
+        }
+        carts.remove(cartId);
+        dirty.remove(cartId);
+        return action.call();
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private ActiveCart loadLocked(final Long cartId) throws ServiceException {
+    final ActiveCart resident = carts.get(cartId);
+    if (resident != null) {
+      return resident;
+    }
+    final Cart cart = repository.findWithProductsById(cartId)
+        .orElseThrow(() -> new NotFoundException("Cart not found with id: " + cartId));
+    // detach the product bag so the cart can outlive the persistence context it was loaded in
+    cart.setProducts(cart.getProducts() == null ? new ArrayList<>() : new ArrayList<>(cart.getProducts()));
+    final ActiveCart active = new ActiveCart(cart);
+    carts.put(cartId, active);
+    return active;
+  }
+
+  private Optional<PendingFlush> snapshot(final Long cartId) {
+    final ReentrantLock lock = stripe(cartId);
+    lock.lock();
+    try {
+      final ActiveCart active = carts.get(cartId);
+      if (active == null || active.version == active.flushedVersion) {
+        return Optional.empty();
+      }
+      final Cart cart = active.cart;
+      final Cart snapshot = Cart.builder()
+          .id(cart.getId())
+          .checkout(cart.isCheckout())
+          .amount(cart.getAmount())
+          .checkedOutAt(cart.getCheckedOutAt())
+          .products(new ArrayList<>(cart.getProducts()))
+          .build();
+      return Optional.of(new PendingFlush(cartId, active.version, snapshot));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void markFlushed(final PendingFlush flush) {
+    final ReentrantLock lock = stripe(flush.cartId());
+    lock.lock();
+    try {
+      final ActiveCart active = carts.get(flush.cartId());
+      if (active != null) {
+        active.flushedVersion = Math.max(active.flushedVersion, flush.version());
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void evictIdle() {
+    final long idleBefore = System.nanoTime() - properties.idleTimeout().toNanos();
+    for (final Long cartId : carts.keySet()) {
+      final ReentrantLock lock = stripe(cartId);
+      lock.lock();
+      try {
+        final ActiveCart active = carts.get(cartId);
+        if (active != null && active.version == active.flushedVersion && active.lastAccess - idleBefore < 0) {
+          carts.remove(cartId);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private ReentrantLock stripe(final Long cartId) {
+    return stripes[stripeIndex(cartId)];
+  }
+
+  private int stripeIndex(final Long cartId) {
+    final int hash = Long.hashCode(cartId);
+    return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+  }
+
+  /**
+   * A resident cart. All fields are guarded by the cart's stripe lock.
+   */
+  private static final class ActiveCart {
+    private final Cart cart;
+    private long version;
+    private long flushedVersion;
+    private long lastAccess = System.nanoTime();
+
+    private ActiveCart(final Cart cart) {
+      this.cart = cart;
+    }
+  }
+
+  private record PendingFlush(Long cartId, long version, Cart snapshot) {
+  }
+}
@@ -0,0 +1,34 @@
+package co.uk.yapily.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits lists into bounded chunks.
+ *
+ * @since 1.1.0
+ */
+public final class Chunks {
+
+  private Chunks() {
+  }
+
+  /**
+   * Splits a list into consecutive sub-lists of at most {@code size} elements.
+   *
+   * @param list the list to split
+   * @param size the maximum chunk size
+   * @param <T>  the element type
+   * @return the chunks, as views of the original list
+   */
+  public static <T> List<List<T>> of(final List<T> list, final int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Chunk size must be positive");
+    }
+    final List<List<T>> chunks = new ArrayList<>((list.size() + size - 1) / size);
+    for (int from = 0; from < list.size(); from += size) {
+      chunks.add(list.subList(from, Math.min(from + size, list.size())));
+    }
+    return chunks;
+  }
+}
@@ -0,0 +1,266 @@
+package co.uk.yapily.util;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from {@code long} to {@code long}, backed by two primitive arrays: no boxing and no
+ * entry objects, so millions of entries cost 16 bytes each at most twice over and nothing for the garbage collector
+ * to trace.
+ * <p>
+ * Uses linear probing with backward-shift deletion, so removals leave no tombstones behind. {@link Long#MIN_VALUE} is
+ * reserved as the empty-slot marker and cannot be used as a key. Not thread-safe.
+ *
+ * @since 1.1.0
+ */
+public final class LongLongHashMap {
+
+  /**
+   * Receives the entries of a map.
+   */
+  @FunctionalInterface
+  public interface EntryConsumer {
+
+    void accept(long key, long value);
+  }
+
+  private static final long EMPTY = Long.MIN_VALUE;
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] keys;
+  private long[] values;
+  private int size;
+  private int mask;
+  private int resizeAt;
+
+  /**
+   * Creates a map sized for the given number of entries.
+   *
+   * @param expectedSize the number of entries expected
+   */
+  public LongLongHashMap(final int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  private LongLongHashMap(final LongLongHashMap source) {
+    this.keys = source.keys.clone();
+    this.values = source.values.clone();
+    this.size = source.size;
+    this.mask = source.mask;
+    this.resizeAt = source.resizeAt;
+  }
+
+  /**
+   * @return an independent copy of this map
+   */
+  public LongLongHashMap copy() {
+    return new LongLongHashMap(this);
+  }
+
+  /**
+   * @param key the key
+   * @param defaultValue the value returned when the key is absent
+   * @return the value of the key, or {@code defaultValue}
+   */
+  public long get(final long key, final long defaultValue) {
+    final int slot = slotOf(key);
+    return slot < 0 ? defaultValue : values[slot];
+  }
+
+  /**
+   * @param key the key
+   * @return whether the map holds the key
+   */
+  public boolean containsKey(final long key) {
+    return slotOf(key) >= 0;
+  }
+
+  /**
+   * Maps a key to a value.
+   *
+   * @param key   the key, not {@link Long#MIN_VALUE}
+   * @param value the value
+   */
+  public void put(final long key, final long value) {
+    checkKey(key);
+    int slot = mix(key) & mask;
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > resizeAt) {
+      rehash(keys.length * 2);
+    }
+  }
+
+  /**
+   * Adds a delta to the value of a key, starting from 0 for an absent key.
+   *
+   * @param key   the key, not {@link Long#MIN_VALUE}
+   * @param delta the amount to add
+   * @return the new value
+   */
+  public long addTo(final long key, final long delta) {
+    final int slot = slotOf(key);
+    if (slot >= 0) {
+      return values[slot] += delta;
+    }
+    put(key, delta);
+    return delta;
+  }
+
+  /**
+   * Removes a key.
+   *
+   * @param key the key
+   * @return whether the key was present
+   */
+  public boolean remove(final long key) {
+    int slot = slotOf(key);
+    if (slot < 0) {
+      return false;
+    }
+    // shift the following entries of the probe sequence back, so lookups never cross an empty slot they should not
+    int next = (slot + 1) & mask;
+    while (keys[next] != EMPTY) {
+      final int home = mix(keys[next]) & mask;
+      if (((next - home) & mask) >= ((next - slot) & mask)) {
+        keys[slot] = keys[next];
+        values[slot] = values[next];
+        slot = next;
+      }
+      next = (next + 1) & mask;
+    }
+    keys[slot] = EMPTY;
+    size--;
+    return true;
+  }
+
+  /**
+   * @return the number of entries
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return whether the map is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes every entry and shrinks the map back to its minimum capacity.
+   */
+  public void clear() {
+    allocate(MIN_CAPACITY);
+    size = 0;
+  }
+
+  /**
+   * Visits every entry, in no particular order. The map must not be modified meanwhile.
+   *
+   * @param consumer receives the entries
+   */
+  public void forEach(final EntryConsumer consumer) {
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != EMPTY) {
+        consumer.accept(keys[slot], values[slot]);
+      }
+    }
+  }
+
+  /**
+   * @return the keys, in ascending order
+   */
+  public long[] sortedKeys() {
+    final long[] sorted = new long[size];
+    int index = 0;
+    for (final long key : keys) {
+      if (key != EMPTY) {
+        sorted[index++] = key;
+      }
+    }
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * @return the bytes held by the backing arrays
+   */
+  public long memoryBytes() {
+    return (long) keys.length * Long.BYTES * 2;
+  }
+
+  private int slotOf(final long key) {
+    if (key == EMPTY) {
+      return -1;
+    }
+    int slot = mix(key) & mask;
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void rehash(final int capacity) {
+    final long[] oldKeys = keys;
+    final long[] oldValues = values;
+    allocate(capacity);
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      final long key = oldKeys[slot];
+      if (key != EMPTY) {
+        int target = mix(key) & mask;
+        while (keys[target] != EMPTY) {
+          target = (target + 1) & mask;
+        }
+        keys[target] = key;
+        values[target] = oldValues[slot];
+      }
+    }
+  }
+
+  private void allocate(final int capacity) {
+    keys = new long[capacity];
+    values = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    mask = capacity - 1;
+    // load factor 0.5
+    resizeAt = capacity / 2;
+  }
+
+  private static int capacityFor(final int expectedSize) {
+    final long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 2);
+    if (needed > 1 << 30) {
+      throw new IllegalArgumentException("Too many entries: " + expectedSize);
+    }
+    return Integer.highestOneBit((int) needed - 1) << 1;
+  }
+
+  private static void checkKey(final long key) {
+    if (key == EMPTY) {
+      throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key");
+    }
+  }
+
+  /**
+   * Spreads the key bits so that sequential IDs do not cluster; the finalizer of MurmurHash3.
+   */
+  private static int mix(final long key) {
+    long h = key;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+}
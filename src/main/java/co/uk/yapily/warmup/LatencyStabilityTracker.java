@@ -0,0 +1,89 @@
+package co.uk.yapily.warmup;
+
+import java.util.Arrays;
+
+/**
+ * Decides when warm-up latency has stopped improving.
+ * <p>
+ * Iteration latencies are grouped into batches. The median of each batch is compared with the median of the previous
+ * one; once it has changed by at most {@code tolerance} for {@code stableBatches} batches in a row, latency is
+ * considered stable. Medians rather than means keep a single GC pause or slow query from resetting the count.
+ *
+ * @since 1.1.0
+ */
+final class LatencyStabilityTracker {
+
+  private final long[] batch;
+  private final int minBatches;
+  private final int stableBatches;
+  private final double tolerance;
+
+  private int filled;
+  private int batches;
+  private int stableInARow;
+  private long firstMedian = -1;
+  private long lastMedian = -1;
+
+  /**
+   * @param batchSize     number of latencies per batch
+   * @param minBatches    number of batches before stability is considered
+   * @param stableBatches number of consecutive stable batches required
+   * @param tolerance     largest relative change of the median considered stable
+   */
+  LatencyStabilityTracker(final int batchSize, final int minBatches, final int stableBatches, final double tolerance) {
+    if (batchSize < 1 || stableBatches < 1) {
+      throw new IllegalArgumentException("Batch size and stable batches must be positive");
+    }
+    this.batch = new long[batchSize];
+    this.minBatches = minBatches;
+    this.stableBatches = stableBatches;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Records the latency of one iteration.
+   *
+   * @param nanos the iteration latency in nanoseconds
+   * @return whether latency is now stable
+   */
+  boolean record(final long nanos) {
+    batch[filled++] = nanos;
+    if (filled < batch.length) {
+      return false;
+    }
+    filled = 0;
+    Arrays.sort(batch);
+    final long median = batch[batch.length / 2];
+    if (lastMedian < 0) {
+      firstMedian = median;
+    } else if (Math.abs(median - lastMedian) <= tolerance * lastMedian) {
+      stableInARow++;
+    } else {
+      stableInARow = 0;
+    }
+    lastMedian = median;
+    batches++;
+    return isStable();
+  }
+
+  /**
+   * @return whether latency is stable
+   */
+  boolean isStable() {
+    return batches >= minBatches && stableInARow >= stableBatches;
+  }
+
+  /**
+   * @return the median latency of the first batch in nanoseconds, or -1 before a batch completed
+   */
+  long firstMedian() {
+    return firstMedian;
+  }
+
+  /**
+   * @return the median latency of the last batch in nanoseconds, or -1 before a batch completed
+   */
+  long lastMedian() {
+    return lastMedian;
+  }
+}
@@ -0,0 +1,201 @@
+package co.uk.yapily.warmup;
+
+import co.uk.yapily.config.WarmupProperties;
+import co.uk.yapily.dto.CartDto;
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.exception.NotFoundException;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.repository.CartRepository;
+import co.uk.yapily.repository.ProductRepository;
+import co.uk.yapily.service.CartService;
+import co.uk.yapily.service.ProductService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms up the request code paths before the instance reports ready.
+ * <p>
+ * A fresh JVM runs the service, mapping and serialization code in the interpreter, and its first few thousand requests
+ * are several times slower than later ones. When enabled, this runner drives synthetic data through the same code a
+ * request would use: bean validation (including the labels validator), Jackson serialization of products and carts,
+ * ModelMapper conversions, the product and cart lookups of the services and, unless {@code writes} is off, inserts of
+ * a product and a cart in a transaction that is always rolled back. Nothing is left in the database, though the
+ * rolled-back inserts consume sequence values.
+ * <p>
+ * Application runners complete before Spring Boot moves the readiness state to {@link ReadinessState#ACCEPTING_TRAFFIC},
+ * so {@code /actuator/health/readiness} reports {@code OUT_OF_SERVICE} until the warm-up is over. It stops once the
+ * median latency of consecutive batches of iterations has stabilised (see {@link LatencyStabilityTracker}) or after
+ * {@code max-duration}. A failing warm-up is logged and does not prevent the instance from starting.
+ *
+ * @since 1.1.0
+ */
+@Slf4j
+@Component
+public class WarmupRunner implements ApplicationRunner {
+
+  /**
+   * ID looked up by the warm-up; IDs are generated from 1, so it never exists.
+   */
+  private static final long MISSING_ID = -1L;
+
+  private final WarmupProperties properties;
+  private final ProductService productService;
+  private final CartService cartService;
+  private final ProductRepository productRepository;
+  private final CartRepository cartRepository;
+  private final ModelMapper modelMapper;
+  private final Validator validator;
+  private final ObjectMapper objectMapper;
+  private final TransactionTemplate rollbackTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+
+  private volatile long durationNanos;
+  private volatile long iterations;
+
+  /**
+   * Creates the warm-up runner.
+   *
+   * @param properties         the warm-up configuration
+   * @param productService     the product service
+   * @param cartService        the cart service
+   * @param productRepository  the product repository, for the rolled-back inserts
+   * @param cartRepository     the cart repository, for the rolled-back inserts
+   * @param modelMapper        the model mapper
+   * @param validator          the bean validator
+   * @param objectMapper       the object mapper used for HTTP messages
+   * @param transactionManager the transaction manager
+   * @param eventPublisher     the publisher of the readiness state
+   * @param meterRegistry      the registry for the warm-up metrics
+   */
+  public WarmupRunner(final WarmupProperties properties, final ProductService productService, final CartService cartService,
+                      final ProductRepository productRepository, final CartRepository cartRepository,
+                      final ModelMapper modelMapper, final Validator validator, final ObjectMapper objectMapper,
+                      final PlatformTransactionManager transactionManager, final ApplicationEventPublisher eventPublisher,
+                      final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.productService = productService;
+    this.cartService = cartService;
+    this.productRepository = productRepository;
+    this.cartRepository = cartRepository;
+    this.modelMapper = modelMapper;
+    this.validator = validator;
+    this.objectMapper = objectMapper;
+    this.rollbackTemplate = new TransactionTemplate(transactionManager);
+    this.eventPublisher = eventPublisher;
+    TimeGauge.builder("yapily.warmup.duration", this, TimeUnit.NANOSECONDS, runner -> runner.durationNanos)
+        .description("Time spent warming up at startup").register(meterRegistry);
+    Gauge.builder("yapily.warmup.iterations", this, runner -> runner.iterations)
+        .description("Warm-up iterations run at startup").register(meterRegistry);
+  }
+
+  @Override
+  public void run(final ApplicationArguments args) {
+    if (!properties.enabled()) {
+      return;
+    }
+    AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+    final LatencyStabilityTracker tracker = new LatencyStabilityTracker(properties.batchSize(), properties.minBatches(),
+        properties.stableBatches(), properties.tolerance());
+    final long start = System.nanoTime();
+    final long deadline = start + properties.maxDuration().toNanos();
+    long count = 0;
+    try {
+      boolean stable = false;
+      while (!stable && System.nanoTime() - deadline < 0) {
+        final long iterationStart = System.nanoTime();
+        iteration(count);
+        count++;
+        stable = tracker.record(System.nanoTime() - iterationStart);
+      }
+      durationNanos = System.nanoTime() - start;
+      iterations = count;
+      log.info("Warm-up finished after {} iterations in {} ms ({}): median iteration {} us, down from {} us",
+          count, TimeUnit.NANOSECONDS.toMillis(durationNanos), stable ? "latency stable" : "time limit reached",
+          TimeUnit.NANOSECONDS.toMicros(tracker.lastMedian()), TimeUnit.NANOSECONDS.toMicros(tracker.firstMedian()));
+    } catch (final Exception e) {
+      durationNanos = System.nanoTime() - start;
+      iterations = count;
+      log.warn("Warm-up aborted after {} iterations, starting anyway! Reason: {}", count, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Runs one warm-up iteration.
+   *
+   * @param iteration the iteration number, used to vary the synthetic data
+   * @throws Exception if a code path fails unexpectedly
+   */
+  private void iteration(final long iteration) throws Exception {
+    final ProductDto product = ProductDto.builder()
+        .name("warm-up " + UUID.randomUUID())
+        .price(1.0 + iteration % 100)
+        .labels(iteration % 2 == 0 ? List.of("drink", "limited") : List.of("food"))
+        .build();
+    if (!validator.validate(product).isEmpty()) {
+      throw new IllegalStateException("Synthetic warm-up product is invalid");
+    }
+    final ProductDto invalid = ProductDto.builder().name(product.getName()).labels(List.of("weapons")).build();
+    if (validator.validate(invalid).isEmpty()) {
+      throw new IllegalStateException("Invalid warm-up product passed validation");
+    }
+    objectMapper.readValue(objectMapper.writeValueAsBytes(product), ProductDto.class);
+
+    expectNotFound(() -> productService.findById(MISSING_ID));
+    expectNotFound(() -> cartService.findById(MISSING_ID));
+
+    if (properties.writes()) {
+      rollbackTemplate.executeWithoutResult(status -> {
+        status.setRollbackOnly();
+        final Product entity = productRepository.saveAndFlush(modelMapper.map(product, Product.class));
+        final Cart cart = new Cart();
+        cart.addProduct(entity);
+        cart.setAmount(entity.getPrice());
+        final CartDto cartDto = modelMapper.map(cartRepository.saveAndFlush(cart), CartDto.class);
+        serialize(modelMapper.map(entity, ProductDto.class));
+        serialize(cartDto);
+      });
+    }
+  }
+
+  private void serialize(final Object value) {
+    try {
+      objectMapper.writeValueAsBytes(value);
+    } catch (final JsonProcessingException e) {
+      throw new IllegalStateException("Cannot serialize " + value.getClass().getSimpleName(), e);
+    }
+  }
+
+  private static void expectNotFound(final Lookup lookup) throws ServiceException {
+    try {
+      lookup.run();
+      throw new IllegalStateException("Warm-up lookup of ID " + MISSING_ID + " found an entity");
+    } catch (final NotFoundException e) {
+      // expected
+    }
+  }
+
+  @FunctionalInterface
+  private interface Lookup {
+    void run() throws ServiceException;
+  }
+}
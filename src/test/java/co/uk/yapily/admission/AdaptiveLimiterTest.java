@@ -0,0 +1,109 @@
+package co.uk.yapily.admission;
+
+import co.uk.yapily.config.AdmissionControlProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+  private static final AdmissionControlProperties.Limits LIMITS = new AdmissionControlProperties.Limits(10, 2, 40);
+  private static final AdmissionControlProperties PROPERTIES =
+      new AdmissionControlProperties(true, LIMITS, LIMITS, 2.0, 0.2, Duration.ofSeconds(1));
+
+  private SimpleMeterRegistry registry;
+  private AdaptiveLimiter limiter;
+
+  @BeforeEach
+  public void setUp() {
+    registry = new SimpleMeterRegistry();
+    limiter = new AdaptiveLimiter("write", LIMITS, PROPERTIES, registry);
+  }
+
+  @Test
+  void test_tryAcquire_RejectsOverTheLimit() {
+    // When
+    for (int i = 0; i < 10; i++) {
+      assertTrue(limiter.tryAcquire());
+    }
+
+    // Then
+    assertFalse(limiter.tryAcquire());
+    assertEquals(10, limiter.getInFlight());
+    assertEquals(10.0, registry.get("yapily.admission.requests").tag("outcome", "accepted").counter().count());
+    assertEquals(1.0, registry.get("yapily.admission.requests").tag("outcome", "rejected").counter().count());
+
+    // When
+    limiter.release(millis(5));
+
+    // Then
+    assertTrue(limiter.tryAcquire());
+  }
+
+  @Test
+  void test_release_StableLatencyGrowsTheLimitUpToMax() {
+    // When
+    for (int i = 0; i < 200; i++) {
+      saturate();
+      drain(millis(5));
+    }
+
+    // Then
+    assertEquals(40, limiter.getLimit());
+    assertEquals(40.0, registry.get("yapily.admission.limit").tag("class", "write").gauge().value());
+  }
+
+  @Test
+  void test_release_RisingLatencyShrinksTheLimit() {
+    // Given
+    for (int i = 0; i < 50; i++) {
+      saturate();
+      drain(millis(5));
+    }
+    final int limitBeforeSlowdown = limiter.getLimit();
+
+    // When
+    for (int i = 0; i < 50; i++) {
+      saturate();
+      drain(millis(500));
+    }
+
+    // Then
+    assertEquals(40, limitBeforeSlowdown);
+    assertTrue(limiter.getLimit() <= limitBeforeSlowdown / 4, "limit was " + limiter.getLimit());
+  }
+
+  @Test
+  void test_release_UnusedLimitDoesNotGrow() {
+    // When
+    for (int i = 0; i < 200; i++) {
+      assertTrue(limiter.tryAcquire());
+      limiter.release(millis(5));
+    }
+
+    // Then
+    assertEquals(10, limiter.getLimit());
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  private void saturate() {
+    while (limiter.tryAcquire()) {
+      // fill every slot
+    }
+  }
+
+  private void drain(final long rttNanos) {
+    while (limiter.getInFlight() > 0) {
+      limiter.release(rttNanos);
+    }
+  }
+
+  private static long millis(final long millis) {
+    return TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+}
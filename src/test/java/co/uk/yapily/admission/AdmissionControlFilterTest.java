@@ -0,0 +1,79 @@
+package co.uk.yapily.admission;
+
+import co.uk.yapily.config.AdmissionControlProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlFilterTest {
+
+  private static final AdmissionControlProperties.Limits LIMITS = new AdmissionControlProperties.Limits(1, 1, 1);
+  private static final AdmissionControlProperties PROPERTIES =
+      new AdmissionControlProperties(true, LIMITS, LIMITS, 2.0, 0.2, Duration.ofMillis(1500));
+
+  private AdaptiveLimiter readLimiter;
+  private AdaptiveLimiter writeLimiter;
+  private AdmissionControlFilter filter;
+
+  @BeforeEach
+  public void setUp() {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    readLimiter = new AdaptiveLimiter("read", LIMITS, PROPERTIES, registry);
+    writeLimiter = new AdaptiveLimiter("write", LIMITS, PROPERTIES, registry);
+    filter = new AdmissionControlFilter(readLimiter, writeLimiter, new ObjectMapper(), PROPERTIES.retryAfter());
+  }
+
+  @Test
+  void test_doFilter_AdmitsAndReleases() throws Exception {
+    // Given
+    final MockFilterChain chain = new MockFilterChain();
+
+    // When
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("PUT", "/carts/1"), response, chain);
+
+    // Then
+    assertEquals(200, response.getStatus());
+    assertNotNull(chain.getRequest());
+    assertEquals(0, writeLimiter.getInFlight());
+  }
+
+  @Test
+  void test_doFilter_ShedsWritesOverTheLimitWith503() throws Exception {
+    // Given
+    assertTrue(writeLimiter.tryAcquire());
+    final MockFilterChain chain = new MockFilterChain();
+
+    // When
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("POST", "/carts/1/checkout"), response, chain);
+
+    // Then
+    assertEquals(503, response.getStatus());
+    assertEquals("2", response.getHeader("Retry-After"));
+    assertTrue(response.getContentAsString().contains("\"code\":503"));
+    assertNull(chain.getRequest());
+  }
+
+  @Test
+  void test_doFilter_ReadsAreNotShedBySaturatedWrites() throws Exception {
+    // Given
+    assertTrue(writeLimiter.tryAcquire());
+
+    // When
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("GET", "/products/1"), response, new MockFilterChain());
+
+    // Then
+    assertEquals(200, response.getStatus());
+    assertEquals(0, readLimiter.getInFlight());
+  }
+}
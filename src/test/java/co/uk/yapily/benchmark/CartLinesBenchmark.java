@@ -0,0 +1,87 @@
+package co.uk.yapily.benchmark;
+
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.service.support.CartLines;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of grouping the units of a cart into lines.
+ * <p>
+ * {@code idKeyed} runs {@link CartLines#forEachLine}, keyed on product IDs in a primitive map. {@code entityKeyed}
+ * reproduces the previous grouping: a {@code HashMap} keyed on the entities with boxed {@code Long} counts, whose
+ * Lombok {@code hashCode} hashes every field of the product, including its {@code carts}. Here every product belongs to
+ * one other, empty cart, so the entity hash stays finite; in a cart linked back to its products it would not. Run with
+ * {@code -Dbenchmark.include=CartLinesBenchmark} and add {@code -prof gc} to the JMH arguments to compare allocation
+ * per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartLinesBenchmark {
+
+  @Param({"10", "1000"})
+  private int lines;
+
+  @Param({"3"})
+  private int unitsPerLine;
+
+  private List<Product> units;
+
+  @Setup
+  public void setUp() {
+    final List<Product> products = new ArrayList<>();
+    for (long id = 1; id <= lines; id++) {
+      final Product product = new Product();
+      product.setId(id);
+      product.setName("Product " + id);
+      product.setPrice(1.5 * id);
+      product.setLabels(List.of("limited", "green"));
+      product.getCarts().add(new Cart());
+      products.add(product);
+    }
+    units = new ArrayList<>();
+    for (int unit = 0; unit < unitsPerLine; unit++) {
+      units.addAll(products);
+    }
+  }
+
+  @Benchmark
+  public void idKeyed(final Blackhole blackhole) {
+    CartLines.forEachLine(units, (product, quantity) -> {
+      blackhole.consume(product);
+      blackhole.consume(quantity);
+    });
+  }
+
+  @Benchmark
+  public void entityKeyed(final Blackhole blackhole) {
+    final Map<Product, Long> counts = units.stream()
+        .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    counts.forEach((product, quantity) -> {
+      blackhole.consume(product);
+      blackhole.consume(quantity.intValue());
+    });
+  }
+}
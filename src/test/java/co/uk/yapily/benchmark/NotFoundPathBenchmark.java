@@ -0,0 +1,101 @@
+package co.uk.yapily.benchmark;
+
+import co.uk.yapily.catalog.ProductCatalog;
+import co.uk.yapily.config.CatalogProperties;
+import co.uk.yapily.exception.ApiException;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.repository.ProductRepository;
+import co.uk.yapily.service.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cost of looking up a product that does not exist, from the service call to the exception the controller hands to
+ * the exception handler.
+ * <p>
+ * {@code typedNotFound} runs the real {@link ProductService#findById(Long)} path: a stackless
+ * {@link co.uk.yapily.exception.NotFoundException} wrapped by {@link ApiException#of(String, ServiceException)}.
+ * {@code stackTraceNotFound} reproduces the previous path: a {@link ServiceException} with a stack trace, rewrapped
+ * by the service and again by the controller. Error-level logging of the old path is left out, so the gap is a lower
+ * bound. {@code depth} adds frames below the call, as a servlet container and filter chain would: filling in a stack
+ * trace costs in proportion to the depth of the stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotFoundPathBenchmark {
+
+  private static final Long MISSING_ID = 42L;
+
+  @Param({"0", "100"})
+  private int depth;
+
+  private ProductRepository repository;
+  private ProductService productService;
+
+  @Setup
+  public void setUp() {
+    repository = (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+        new Class<?>[] {ProductRepository.class}, (proxy, method, args) -> Optional.empty());
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final CatalogProperties catalogProperties = new CatalogProperties(false, "catalog", Duration.ofSeconds(30),
+        Duration.ofMinutes(5), CatalogProperties.Store.HEAP, DataSize.ofMegabytes(16));
+    productService = new ProductService(repository, null, new ModelMapper(),
+        new ProductCatalog(catalogProperties, repository, meterRegistry), event -> { }, meterRegistry);
+  }
+
+  @Benchmark
+  public Object typedNotFound() {
+    return atDepth(depth, this::typed);
+  }
+
+  @Benchmark
+  public Object stackTraceNotFound() {
+    return atDepth(depth, this::withStackTraces);
+  }
+
+  private Object typed() {
+    try {
+      return productService.findById(MISSING_ID);
+    } catch (final ServiceException e) {
+      return ApiException.of("An unexpected error occurred while finding product with ID: " + MISSING_ID, e);
+    }
+  }
+
+  private Object withStackTraces() {
+    try {
+      try {
+        return repository.findById(MISSING_ID).orElseThrow(() -> new ServiceException("Product not found with ID: " + MISSING_ID));
+      } catch (final Exception e) {
+        throw new ServiceException("An unexpected error occurred while retrieving product with ID: " + MISSING_ID, e);
+      }
+    } catch (final ServiceException e) {
+      return new ApiException("An unexpected error occurred while finding product with ID: " + MISSING_ID, e);
+    }
+  }
+
+  private static Object atDepth(final int frames, final Supplier<Object> call) {
+    return frames == 0 ? call.get() : atDepth(frames - 1, call);
+  }
+}
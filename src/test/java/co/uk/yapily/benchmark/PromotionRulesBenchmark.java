@@ -0,0 +1,113 @@
+package co.uk.yapily.benchmark;
+
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.entity.PromotionRule;
+import co.uk.yapily.pricing.PromotionRules;
+import co.uk.yapily.pricing.Quote;
+import co.uk.yapily.service.support.CartLines;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of pricing a cart with promotion rules.
+ * <p>
+ * {@code compiled} prices the lines with {@link PromotionRules}, which resolves the promotions of every label
+ * combination once. {@code interpreted} walks the rule list for every line, matching labels and taking the first rule
+ * of each type, with the same result. Both group the units with {@link CartLines} first, as reads and checkouts do.
+ * Run with {@code -Dbenchmark.include=PromotionRulesBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionRulesBenchmark {
+
+  private static final List<List<String>> LABEL_SETS = List.of(
+      List.of("food"), List.of("clothes"), List.of("drink"), List.of("limited", "clothes"), List.of("food", "drink"));
+
+  @Param({"100", "500"})
+  private int lines;
+
+  @Param({"12"})
+  private int rules;
+
+  private List<PromotionRule> ruleList;
+  private PromotionRules compiledRules;
+  private List<Product> units;
+
+  @Setup
+  public void setUp() {
+    final String[] labels = {"food", "clothes", "drink", "limited"};
+    ruleList = new ArrayList<>();
+    for (int i = 0; i < rules; i++) {
+      final PromotionRule.PromotionRuleBuilder rule = PromotionRule.builder().name("rule " + i)
+          .label(labels[i % labels.length]).priority(i).active(true);
+      switch (i / labels.length % 3) {
+        case 0 -> rule.type(PromotionRule.Type.MULTI_BUY).buyQuantity(3).payQuantity(2);
+        case 1 -> rule.type(PromotionRule.Type.PERCENT_OFF).percentOff(5.0 + i);
+        default -> rule.type(PromotionRule.Type.QUANTITY_CAP).maxUnits(100);
+      }
+      ruleList.add(rule.build());
+    }
+    compiledRules = PromotionRules.compile(ruleList);
+    units = new ArrayList<>();
+    for (long id = 1; id <= lines; id++) {
+      final Product product = new Product();
+      product.setId(id);
+      product.setPrice(0.99 + id);
+      product.setLabels(LABEL_SETS.get((int) (id % LABEL_SETS.size())));
+      for (int unit = 0; unit < 1 + id % 4; unit++) {
+        units.add(product);
+      }
+    }
+  }
+
+  @Benchmark
+  public double compiled() {
+    final Quote quote = compiledRules.newQuote();
+    CartLines.forEachLine(units, (product, quantity) -> quote.add(product.getLabels(), product.getPrice(), quantity));
+    return quote.total();
+  }
+
+  @Benchmark
+  public double interpreted() {
+    final long[] totalCents = new long[1];
+    CartLines.forEachLine(units, (product, quantity) -> {
+      PromotionRule multiBuy = null;
+      PromotionRule percentage = null;
+      for (final PromotionRule rule : ruleList) {
+        if (!product.getLabels().contains(rule.getLabel())) {
+          continue;
+        }
+        if (rule.getType() == PromotionRule.Type.MULTI_BUY && multiBuy == null) {
+          multiBuy = rule;
+        } else if (rule.getType() == PromotionRule.Type.PERCENT_OFF && percentage == null) {
+          percentage = rule;
+        }
+      }
+      final long unitCents = Quote.toCents(product.getPrice());
+      final long charged = multiBuy == null ? quantity
+          : (long) (quantity / multiBuy.getBuyQuantity()) * multiBuy.getPayQuantity() + quantity % multiBuy.getBuyQuantity();
+      final long afterMultiBuy = unitCents * charged;
+      final long percentOff = percentage == null ? 0
+          : Math.round(afterMultiBuy * percentage.getPercentOff() / 100);
+      totalCents[0] += afterMultiBuy - percentOff;
+    });
+    return Quote.toAmount(totalCents[0]);
+  }
+}
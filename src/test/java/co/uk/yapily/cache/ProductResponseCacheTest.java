@@ -0,0 +1,123 @@
+package co.uk.yapily.cache;
+
+import co.uk.yapily.config.ResponseCacheProperties;
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.event.ProductChangedEvent;
+import co.uk.yapily.event.ProductResyncEvent;
+import co.uk.yapily.exception.ServiceException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductResponseCacheTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void test_product_ServesCachedBytesUntilChanged() throws ServiceException {
+    // Given
+    final ProductResponseCache cache = cache(true);
+    final AtomicInteger loads = new AtomicInteger();
+    final ProductResponseCache.Loader<ProductDto> loader = () -> {
+      loads.incrementAndGet();
+      return ProductDto.builder().id(1L).name("Pen").build();
+    };
+
+    // When
+    final EncodedResponse first = cache.product(1L, loader);
+    final EncodedResponse second = cache.product(1L, loader);
+    cache.onProductChanged(ProductChangedEvent.deleted(2L));
+    final EncodedResponse third = cache.product(1L, loader);
+    cache.onProductChanged(ProductChangedEvent.deleted(1L));
+    cache.product(1L, loader);
+
+    // Then
+    assertSame(first, second);
+    assertSame(first, third);
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void test_list_DoesNotKeepBodiesLoadedDuringAChange() throws ServiceException {
+    // Given
+    final ProductResponseCache cache = cache(true);
+    final AtomicInteger loads = new AtomicInteger();
+
+    // When
+    cache.list(() -> {
+      loads.incrementAndGet();
+      // a save commits while the list is being read
+      cache.onProductChanged(ProductChangedEvent.deleted(1L));
+      return List.of();
+    });
+    cache.list(() -> {
+      loads.incrementAndGet();
+      return List.of();
+    });
+    cache.list(() -> fail("Expected a cached list"));
+    cache.onResync(new ProductResyncEvent("test"));
+    cache.list(() -> {
+      loads.incrementAndGet();
+      return List.of();
+    });
+
+    // Then
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void test_list_DisabledSerializesEveryTime() throws ServiceException {
+    // Given
+    final ProductResponseCache cache = cache(false);
+    final AtomicInteger loads = new AtomicInteger();
+
+    // When
+    cache.list(() -> List.of(loads.incrementAndGet()));
+    final EncodedResponse response = cache.list(() -> List.of(loads.incrementAndGet()));
+
+    // Then
+    assertEquals(2, loads.get());
+    assertEquals("[2]", new String(response.identity()));
+    assertNull(response.gzip());
+  }
+
+  @Test
+  void test_to_response_CompressesForGzipClients() throws ServiceException, IOException {
+    // Given
+    final ProductResponseCache cache = cache(true);
+    final EncodedResponse encoded = cache.list(() -> List.of("x".repeat(2048)));
+
+    // When
+    final ResponseEntity<byte[]> gzip = encoded.toResponse("br;q=1.0, gzip;q=0.8");
+    final ResponseEntity<byte[]> identity = encoded.toResponse("gzip;q=0");
+
+    // Then
+    assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.getBody()))) {
+      assertArrayEquals(encoded.identity(), in.readAllBytes());
+    }
+    assertNull(identity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertArrayEquals(encoded.identity(), identity.getBody());
+    assertEquals(HttpHeaders.ACCEPT_ENCODING, identity.getHeaders().getFirst(HttpHeaders.VARY));
+    assertFalse(EncodedResponse.acceptsGzip(null));
+    assertTrue(EncodedResponse.acceptsGzip("*"));
+  }
+
+  private ProductResponseCache cache(final boolean enabled) {
+    final ResponseCacheProperties properties = new ResponseCacheProperties(enabled, true, DataSize.ofKilobytes(1), 100,
+        Duration.ofMinutes(1));
+    return new ProductResponseCache(properties, objectMapper, new SimpleMeterRegistry());
+  }
+}
@@ -0,0 +1,88 @@
+package co.uk.yapily.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCatalogSnapshotTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void test_open_RoundTripsProductsInIdOrder() throws IOException {
+    // Given
+    final Path path = directory.resolve(ProductCatalog.SNAPSHOT_FILE);
+    final CatalogProduct bread = new CatalogProduct(7, "Pão de queijo", 3.5, 1_700_000_000_000L, List.of("bakery", "café"), 11);
+    final CatalogProduct unnamed = new CatalogProduct(3, null, null, null, List.of(), 12);
+
+    // When
+    CatalogSnapshotWriter.write(path, 12, List.of(bread, unnamed));
+    final MappedCatalogSnapshot snapshot = MappedCatalogSnapshot.open(path);
+
+    // Then
+    assertEquals(12, snapshot.version());
+    assertEquals(2, snapshot.size());
+    assertEquals(Optional.of(bread), snapshot.find(7));
+    assertEquals(Optional.of(unnamed), snapshot.find(3));
+    assertEquals(11, snapshot.versionOf(7));
+    final List<Long> ids = new ArrayList<>();
+    snapshot.forEach(product -> ids.add(product.id()));
+    assertEquals(List.of(3L, 7L), ids);
+  }
+
+  @Test
+  void test_find_MissingId() throws IOException {
+    // Given
+    final Path path = directory.resolve(ProductCatalog.SNAPSHOT_FILE);
+    CatalogSnapshotWriter.write(path, 1, List.of(new CatalogProduct(2, "Milk", 1.0, null, List.of(), 1)));
+
+    // When
+    final MappedCatalogSnapshot snapshot = MappedCatalogSnapshot.open(path);
+
+    // Then
+    assertTrue(snapshot.find(1).isEmpty());
+    assertTrue(snapshot.find(3).isEmpty());
+    assertEquals(-1, snapshot.versionOf(3));
+    assertFalse(snapshot.contains(3));
+  }
+
+  @Test
+  void test_open_EmptySnapshot() throws IOException {
+    // Given
+    final Path path = directory.resolve(ProductCatalog.SNAPSHOT_FILE);
+
+    // When
+    CatalogSnapshotWriter.write(path, 0, List.of());
+    final MappedCatalogSnapshot snapshot = MappedCatalogSnapshot.open(path);
+
+    // Then
+    assertEquals(0, snapshot.size());
+    assertTrue(snapshot.find(1).isEmpty());
+  }
+
+  @Test
+  void test_open_RejectsCorruptSnapshot() throws IOException {
+    // Given
+    final Path path = directory.resolve(ProductCatalog.SNAPSHOT_FILE);
+    CatalogSnapshotWriter.write(path, 1, List.of(new CatalogProduct(2, "Milk", 1.0, null, List.of(), 1)));
+
+    // When
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {'X'}), channel.size() - 1);
+    }
+
+    // Then
+    assertThrows(IOException.class, () -> MappedCatalogSnapshot.open(path));
+  }
+}
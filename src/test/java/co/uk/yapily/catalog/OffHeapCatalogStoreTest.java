@@ -0,0 +1,121 @@
+package co.uk.yapily.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapCatalogStoreTest {
+
+  private static final int CHUNK_SIZE = 4_096;
+
+  private final OffHeapCatalogStore store = new OffHeapCatalogStore(CHUNK_SIZE);
+
+  @Test
+  void test_put_StoresProductsAndDeletions() {
+    // When
+    store.put(1L, product(1L, "Tea", 10), 10, current -> true);
+    store.put(2L, null, 20, current -> true);
+
+    // Then
+    assertEquals("Tea", store.get(1L).product().name());
+    assertEquals(List.of("green"), store.get(1L).product().labels());
+    assertNull(store.get(2L).product());
+    assertEquals(20, store.get(2L).version());
+    assertNull(store.get(3L));
+    assertTrue(store.contains(2L));
+    assertEquals(2, store.size());
+  }
+
+  @Test
+  void test_put_PassesStoredVersionToGuard() {
+    // Given
+    store.put(1L, product(1L, "New", 20), 20, current -> true);
+
+    // When
+    final boolean stored = store.put(1L, product(1L, "Old", 10), 10, current -> 10 >= current);
+
+    // Then
+    assertFalse(stored);
+    assertEquals("New", store.get(1L).product().name());
+  }
+
+  @Test
+  void test_view_SurvivesLaterChanges() {
+    // Given
+    store.put(1L, product(1L, "Tea", 10), 10, current -> true);
+    store.put(3L, null, 30, current -> true);
+
+    // When
+    try (CatalogStore.View view = store.view()) {
+      store.put(1L, product(1L, "Green tea", 20), 20, current -> true);
+      store.put(2L, product(2L, "Coffee", 20), 20, current -> true);
+
+      // Then
+      assertArrayEquals(new long[] {1L, 3L}, view.ids());
+      assertEquals("Tea", view.get(1L).product().name());
+      assertFalse(view.contains(2L));
+      assertEquals("Green tea", store.get(1L).product().name());
+    }
+  }
+
+  @Test
+  void test_removeUnchanged_KeepsEntriesReplacedSinceTheView() {
+    // Given
+    store.put(1L, product(1L, "Tea", 10), 10, current -> true);
+    store.put(2L, product(2L, "Coffee", 10), 10, current -> true);
+    store.put(3L, null, 10, current -> true);
+
+    // When
+    try (CatalogStore.View view = store.view()) {
+      store.put(2L, product(2L, "Espresso", 20), 20, current -> true);
+      store.removeUnchanged(view);
+    }
+
+    // Then
+    assertEquals(1, store.size());
+    assertEquals("Espresso", store.get(2L).product().name());
+    assertEquals(CatalogRecords.sizeOf(product(2L, "Espresso", 20)), store.offHeapLiveBytes());
+  }
+
+  @Test
+  void test_put_CompactsGarbageAndReleasesEmptyStore() {
+    // Given
+    final CatalogProduct tea = product(1L, "Tea", 1);
+    final int recordSize = CatalogRecords.sizeOf(tea);
+
+    // When
+    for (int version = 1; version <= CHUNK_SIZE / recordSize * 4; version++) {
+      store.put(1L, product(1L, "Tea", version), version, current -> true);
+    }
+
+    // Then
+    assertEquals(recordSize, store.offHeapLiveBytes());
+    assertTrue(store.offHeapReservedBytes() <= 2L * CHUNK_SIZE);
+    assertTrue(store.indexBytes() > 0);
+
+    // When
+    try (CatalogStore.View view = store.view()) {
+      store.removeUnchanged(view);
+    }
+
+    // Then
+    assertEquals(0, store.size());
+    assertEquals(0, store.offHeapReservedBytes());
+    assertEquals(0, store.offHeapLiveBytes());
+  }
+
+  @Test
+  void test_put_RejectsRecordLargerThanChunk() {
+    // Given
+    final CatalogProduct huge = product(1L, "x".repeat(CHUNK_SIZE), 1);
+
+    // When / Then
+    assertThrows(IllegalArgumentException.class, () -> store.put(1L, huge, 1, current -> true));
+  }
+
+  private static CatalogProduct product(final long id, final String name, final long version) {
+    return new CatalogProduct(id, name, 1.5, 1_000L, List.of("green"), version);
+  }
+}
@@ -0,0 +1,184 @@
+package co.uk.yapily.catalog;
+
+import co.uk.yapily.config.CatalogProperties;
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.event.ProductChangedEvent;
+import co.uk.yapily.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCatalogTest {
+
+  private static final long V1 = 1;
+  private static final long V2 = 2;
+
+  @TempDir
+  Path directory;
+
+  @Mock
+  private ProductRepository repository;
+
+  private ProductCatalog catalog;
+
+  @BeforeEach
+  public void setUp() {
+    catalog = open();
+  }
+
+  @Test
+  void test_reconcile_FullLoadWithoutSnapshot() {
+    // Given
+    when(repository.currentChangeVersion()).thenReturn(V2);
+    when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(product(1L, "Tea", V1), product(2L, "Coffee", V2)));
+    assertFalse(catalog.isServing());
+
+    // When
+    catalog.reconcile();
+
+    // Then
+    assertTrue(catalog.isServing());
+    assertEquals("Coffee", catalog.find(2L).orElseThrow().getName());
+    assertEquals(List.of(1L, 2L), catalog.findAll().stream().map(ProductDto::getId).toList());
+    assertEquals(V2, catalog.version());
+  }
+
+  @Test
+  void test_openSnapshot_ServesFromSnapshotAndReconcilesChanges() throws IOException {
+    // Given
+    when(repository.currentChangeVersion()).thenReturn(V1);
+    when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(product(1L, "Tea", V1), product(2L, "Coffee", 0)));
+    catalog.reconcile();
+    catalog.writeSnapshot();
+    final ProductCatalog restarted = open();
+
+    // When
+    restarted.openSnapshot();
+
+    // Then
+    assertTrue(restarted.isServing());
+    assertEquals("Tea", restarted.find(1L).orElseThrow().getName());
+
+    // When
+    when(repository.currentChangeVersion()).thenReturn(V2);
+    when(repository.findAllIds()).thenReturn(List.of(1L, 3L));
+    when(repository.findByChangeVersionBetweenOrderByChangeVersionAsc(eq(V1 + 1), eq(V2), any()))
+        .thenReturn(List.of(product(1L, "Green tea", V2)));
+    when(repository.findAllById(any())).thenReturn(List.of(product(3L, "Cocoa", 0)));
+    restarted.reconcile();
+
+    // Then
+    assertEquals("Green tea", restarted.find(1L).orElseThrow().getName());
+    assertTrue(restarted.find(2L).isEmpty());
+    assertEquals("Cocoa", restarted.find(3L).orElseThrow().getName());
+    verify(repository).findAllById(Set.of(3L));
+    assertEquals(V2, restarted.version());
+  }
+
+  @Test
+  void test_reconcile_NotificationsDoNotMoveTheVersionPastALostChange() {
+    // Given
+    when(repository.currentChangeVersion()).thenReturn(V1);
+    when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(product(1L, "Tea", V1)));
+    catalog.reconcile();
+
+    // When: the notification of version 3 arrives, that of version 2 was lost
+    catalog.onProductChanged(ProductChangedEvent.upserted(dto(3L, "Mate"), null, 3L));
+    when(repository.currentChangeVersion()).thenReturn(3L);
+    when(repository.findAllIds()).thenReturn(List.of(1L, 2L, 3L));
+    when(repository.findByChangeVersionBetweenOrderByChangeVersionAsc(eq(V2), eq(3L), any()))
+        .thenReturn(List.of(product(2L, "Cocoa", V2), product(3L, "Mate", 3)));
+    catalog.reconcile();
+
+    // Then
+    assertEquals("Cocoa", catalog.find(2L).orElseThrow().getName());
+    assertEquals(3L, catalog.version());
+  }
+
+  @Test
+  void test_onProductChanged_OlderVersionDoesNotReplaceNewer() {
+    // Given
+    when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of());
+    catalog.reconcile();
+
+    // When
+    catalog.onProductChanged(ProductChangedEvent.upserted(dto(1L, "New"), null, V2));
+    catalog.remember(product(1L, "Old", V1));
+
+    // Then
+    assertEquals("New", catalog.find(1L).orElseThrow().getName());
+
+    // When
+    catalog.onProductChanged(ProductChangedEvent.deleted(1L));
+    catalog.remember(product(1L, "New", V2));
+
+    // Then
+    assertTrue(catalog.find(1L).isEmpty());
+  }
+
+  @Test
+  void test_writeSnapshot_OffHeapStore() throws IOException {
+    // Given
+    final ProductCatalog offHeap = open(CatalogProperties.Store.OFF_HEAP);
+    when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any()))
+        .thenReturn(List.of(product(1L, "Tea", V1), product(2L, "Coffee", V1), product(3L, "Cocoa", V1)));
+    offHeap.reconcile();
+
+    // When
+    offHeap.onProductChanged(ProductChangedEvent.upserted(dto(2L, "Espresso"), null, V2));
+    offHeap.onProductChanged(ProductChangedEvent.deleted(3L));
+    offHeap.writeSnapshot();
+    offHeap.onProductChanged(ProductChangedEvent.upserted(dto(4L, "Mate"), null, V2));
+
+    // Then
+    assertEquals(List.of("Tea", "Espresso", "Mate"), offHeap.findAll().stream().map(ProductDto::getName).toList());
+    final ProductCatalog restarted = open();
+    restarted.openSnapshot();
+    assertEquals(List.of(1L, 2L), restarted.findAll().stream().map(ProductDto::getId).toList());
+    assertEquals("Espresso", restarted.find(2L).orElseThrow().getName());
+  }
+
+  private ProductCatalog open() {
+    return open(CatalogProperties.Store.HEAP);
+  }
+
+  private ProductCatalog open(final CatalogProperties.Store store) {
+    final CatalogProperties properties = new CatalogProperties(true, directory.toString(), Duration.ofHours(1),
+        Duration.ofHours(1), store, DataSize.ofKilobytes(64));
+    return new ProductCatalog(properties, repository, new SimpleMeterRegistry());
+  }
+
+  private static Product product(final Long id, final String name, final long changeVersion) {
+    final Product product = new Product();
+    product.setId(id);
+    product.setName(name);
+    product.setPrice(1.0);
+    product.setChangeVersion(changeVersion == 0 ? null : changeVersion);
+    return product;
+  }
+
+  private static ProductDto dto(final Long id, final String name) {
+    final ProductDto product = new ProductDto();
+    product.setId(id);
+    product.setName(name);
+    return product;
+  }
+}
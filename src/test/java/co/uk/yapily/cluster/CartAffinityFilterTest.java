@@ -0,0 +1,198 @@
+package co.uk.yapily.cluster;
+
+import co.uk.yapily.config.ClusterProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CartAffinityFilterTest {
+
+  private static final String SELF = "http://node-a:8080";
+
+  @Mock
+  private CartAffinityRouter router;
+
+  private HttpServer owner;
+  private String ownerUrl;
+  private final AtomicReference<String> received = new AtomicReference<>();
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    owner = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    owner.createContext("/", exchange -> {
+      received.set(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " "
+          + exchange.getRequestHeaders().getFirst(CartAffinityFilter.FORWARDED_HEADER) + " "
+          + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+      final byte[] body = "{\"cart_id\":7}".getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(201, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    owner.start();
+    ownerUrl = "http://127.0.0.1:" + owner.getAddress().getPort();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    owner.stop(0);
+  }
+
+  @Test
+  void test_doFilter_ForwardsToOwner() throws Exception {
+    // Given
+    when(router.self()).thenReturn(SELF);
+    when(router.ownerOf(7L)).thenReturn(ownerUrl);
+    final MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/carts/7");
+    request.setQueryString("expand=products");
+    request.setContent("{\"product_id\":1}".getBytes(StandardCharsets.UTF_8));
+    request.addHeader("Content-Type", "application/json");
+    final MockFilterChain chain = new MockFilterChain();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // When
+    filter(ClusterProperties.Routing.FORWARD).doFilter(request, response, chain);
+
+    // Then
+    assertNull(chain.getRequest());
+    assertEquals("PUT /carts/7?expand=products " + SELF + " {\"product_id\":1}", received.get());
+    assertEquals(201, response.getStatus());
+    assertEquals("application/json", response.getHeader("Content-Type"));
+    assertEquals("{\"cart_id\":7}", response.getContentAsString());
+    assertEquals(ownerUrl, response.getHeader(CartAffinityFilter.OWNER_HEADER));
+  }
+
+  @Test
+  void test_doFilter_RedirectsToOwner() throws Exception {
+    // Given
+    when(router.self()).thenReturn(SELF);
+    when(router.ownerOf(7L)).thenReturn(ownerUrl);
+    final MockFilterChain chain = new MockFilterChain();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    // When
+    filter(ClusterProperties.Routing.REDIRECT).doFilter(new MockHttpServletRequest("GET", "/carts/7"), response, chain);
+
+    // Then
+    assertNull(chain.getRequest());
+    assertEquals(307, response.getStatus());
+    assertEquals(ownerUrl + "/carts/7", response.getHeader("Location"));
+  }
+
+  @Test
+  void test_doFilter_ServesOwnedAndForwardedCartsLocally() throws Exception {
+    // Given
+    when(router.self()).thenReturn(SELF);
+    when(router.ownerOf(8L)).thenReturn(SELF);
+    final MockHttpServletRequest forwarded = new MockHttpServletRequest("GET", "/carts/7");
+    forwarded.addHeader(CartAffinityFilter.FORWARDED_HEADER, "http://node-b:8080");
+    final MockFilterChain ownedChain = new MockFilterChain();
+    final MockFilterChain forwardedChain = new MockFilterChain();
+    final MockFilterChain otherChain = new MockFilterChain();
+
+    // When
+    final CartAffinityFilter filter = filter(ClusterProperties.Routing.FORWARD);
+    filter.doFilter(new MockHttpServletRequest("POST", "/carts/8/checkout"), new MockHttpServletResponse(), ownedChain);
+    filter.doFilter(forwarded, new MockHttpServletResponse(), forwardedChain);
+    filter.doFilter(new MockHttpServletRequest("GET", "/carts"), new MockHttpServletResponse(), otherChain);
+
+    // Then
+    assertNotNull(ownedChain.getRequest());
+    assertNotNull(forwardedChain.getRequest());
+    assertNotNull(otherChain.getRequest());
+    verify(router, never()).ownerOf(7L);
+    assertNull(received.get());
+  }
+
+  @Test
+  void test_doFilter_ServesLocallyWhenOwnerUnreachable() throws Exception {
+    // Given
+    final int closedPort;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      closedPort = socket.getLocalPort();
+    }
+    when(router.self()).thenReturn(SELF);
+    when(router.ownerOf(7L)).thenReturn("http://127.0.0.1:" + closedPort);
+    final MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/carts/7");
+    request.setContent("{\"product_id\":1}".getBytes(StandardCharsets.UTF_8));
+    final MockFilterChain chain = new MockFilterChain();
+
+    // When
+    filter(ClusterProperties.Routing.FORWARD).doFilter(request, new MockHttpServletResponse(), chain);
+
+    // Then
+    assertNotNull(chain.getRequest());
+    assertEquals("{\"product_id\":1}", new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void test_doFilter_ServesLocallyWhenOwnerDoesNotAnswerTheConnection() throws Exception {
+    // Given: like a crashed host, a listener whose backlog is full drops connection attempts rather than refusing them
+    final InetAddress loopback = InetAddress.getLoopbackAddress();
+    final List<Socket> backlog = new ArrayList<>();
+    final MockFilterChain chain = new MockFilterChain();
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    try (ServerSocket unresponsive = new ServerSocket(0, 1, loopback)) {
+      for (int i = 0; i < 4; i++) {
+        final Socket socket = new Socket();
+        backlog.add(socket);
+        try {
+          socket.connect(unresponsive.getLocalSocketAddress(), 200);
+        } catch (final SocketTimeoutException e) {
+          break;
+        }
+      }
+      when(router.self()).thenReturn(SELF);
+      when(router.ownerOf(7L)).thenReturn("http://" + loopback.getHostAddress() + ":" + unresponsive.getLocalPort());
+      final MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/carts/7");
+      request.setContent("{\"product_id\":1}".getBytes(StandardCharsets.UTF_8));
+
+      // When
+      filter(ClusterProperties.Routing.FORWARD, Duration.ofMillis(200)).doFilter(request, response, chain);
+    } finally {
+      for (final Socket socket : backlog) {
+        socket.close();
+      }
+    }
+
+    // Then
+    assertNotNull(chain.getRequest());
+    assertEquals(200, response.getStatus());
+    assertEquals("{\"product_id\":1}", new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+  }
+
+  private CartAffinityFilter filter(final ClusterProperties.Routing routing) {
+    return filter(routing, Duration.ofSeconds(2));
+  }
+
+  private CartAffinityFilter filter(final ClusterProperties.Routing routing, final Duration forwardTimeout) {
+    final ClusterProperties properties = new ClusterProperties(true, SELF, routing, forwardTimeout,
+        Duration.ofSeconds(10), Duration.ofMinutes(10), 128, Duration.ofSeconds(5));
+    return new CartAffinityFilter(router, properties, new ObjectMapper(), new SimpleMeterRegistry());
+  }
+}
@@ -0,0 +1,113 @@
+package co.uk.yapily.cluster;
+
+import co.uk.yapily.config.ClusterProperties;
+import co.uk.yapily.entity.ClusterMember;
+import co.uk.yapily.repository.ClusterMemberRepository;
+import co.uk.yapily.store.ActiveCartStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CartAffinityRouterTest {
+
+  private static final String SELF = "http://node-a:8080";
+  private static final String OTHER = "http://node-b:8080";
+  private static final long SECOND = 1_000_000_000L;
+
+  @Mock
+  private ClusterMemberRepository repository;
+
+  @Mock
+  private ActiveCartStore activeCartStore;
+
+  private CartAffinityRouter router;
+
+  @BeforeEach
+  public void setUp() {
+    final ClusterProperties properties = new ClusterProperties(true, SELF, ClusterProperties.Routing.FORWARD,
+        Duration.ofSeconds(2), Duration.ofSeconds(10), Duration.ofMinutes(10), 128, Duration.ofSeconds(10));
+    router = new CartAffinityRouter(properties, repository, activeCartStore, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void test_refresh_NewMemberTakesOverCarts() {
+    // When
+    router.refresh(List.of(new ClusterMember(SELF, 1), new ClusterMember(OTHER, 1)), 0);
+
+    // Then
+    assertEquals(List.of(SELF, OTHER), router.members());
+    final ArgumentCaptor<Predicate<Long>> movedAway = captor();
+    verify(activeCartStore).handOff(movedAway.capture());
+    final long otherCart = firstCartOwnedBy(OTHER);
+    assertTrue(movedAway.getValue().test(otherCart));
+    assertFalse(movedAway.getValue().test(firstCartOwnedBy(SELF)));
+  }
+
+  @Test
+  void test_refresh_SilentMemberLeavesAfterTimeout() {
+    // Given
+    router.refresh(List.of(new ClusterMember(SELF, 1), new ClusterMember(OTHER, 1)), 0);
+
+    // When
+    router.refresh(List.of(new ClusterMember(SELF, 5), new ClusterMember(OTHER, 1)), 5 * SECOND);
+
+    // Then
+    assertEquals(List.of(SELF, OTHER), router.members());
+
+    // When
+    router.refresh(List.of(new ClusterMember(SELF, 6), new ClusterMember(OTHER, 1)), 11 * SECOND);
+
+    // Then
+    assertEquals(List.of(SELF), router.members());
+    assertTrue(router.isLocal(firstCartOwnedBy(SELF)));
+    verify(activeCartStore, times(2)).handOff(any());
+    verify(repository, never()).deleteIfUnchanged(any(), anyLong());
+  }
+
+  @Test
+  void test_refresh_PurgesLongDeadMember() {
+    // Given
+    router.refresh(List.of(new ClusterMember(OTHER, 7)), 0);
+
+    // When
+    router.refresh(List.of(new ClusterMember(OTHER, 7)), 601 * SECOND);
+
+    // Then
+    verify(repository).deleteIfUnchanged(OTHER, 7);
+  }
+
+  @Test
+  void test_refresh_SameMembersKeepCarts() {
+    // When
+    router.refresh(List.of(new ClusterMember(SELF, 1)), 0);
+
+    // Then
+    verify(activeCartStore, never()).handOff(any());
+  }
+
+  private long firstCartOwnedBy(final String member) {
+    long cartId = 1;
+    while (!member.equals(router.ownerOf(cartId))) {
+      cartId++;
+    }
+    return cartId;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ArgumentCaptor<Predicate<Long>> captor() {
+    return ArgumentCaptor.forClass(Predicate.class);
+  }
+}
@@ -0,0 +1,71 @@
+package co.uk.yapily.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+
+  private static final int KEYS = 100_000;
+
+  @Test
+  void test_ownerOf_SameForEveryMemberOrder() {
+    // Given
+    final HashRing ring = new HashRing(List.of("http://a", "http://b", "http://c"), 128);
+    final HashRing reordered = new HashRing(List.of("http://c", "http://a", "http://b", "http://a"), 128);
+
+    // When / Then
+    assertEquals(List.of("http://a", "http://b", "http://c"), reordered.members());
+    for (long key = 1; key <= 1_000; key++) {
+      assertEquals(ring.ownerOf(key), reordered.ownerOf(key));
+    }
+  }
+
+  @Test
+  void test_ownerOf_SpreadsSequentialKeys() {
+    // Given
+    final HashRing ring = new HashRing(List.of("http://a", "http://b", "http://c"), 128);
+    final Map<String, Integer> counts = new HashMap<>();
+
+    // When
+    for (long key = 1; key <= KEYS; key++) {
+      counts.merge(ring.ownerOf(key), 1, Integer::sum);
+    }
+
+    // Then
+    assertEquals(3, counts.size());
+    counts.values().forEach(count -> assertTrue(count > KEYS / 5 && count < KEYS / 2, "unbalanced: " + counts));
+  }
+
+  @Test
+  void test_ownerOf_NewMemberOnlyTakesKeys() {
+    // Given
+    final HashRing before = new HashRing(List.of("http://a", "http://b", "http://c"), 128);
+    final HashRing after = new HashRing(List.of("http://a", "http://b", "http://c", "http://d"), 128);
+    int moved = 0;
+
+    // When
+    for (long key = 1; key <= KEYS; key++) {
+      if (!before.ownerOf(key).equals(after.ownerOf(key))) {
+        assertEquals("http://d", after.ownerOf(key));
+        moved++;
+      }
+    }
+
+    // Then
+    assertTrue(moved > KEYS / 6 && moved < KEYS / 3, "moved: " + moved);
+  }
+
+  @Test
+  void test_ownerOf_EmptyRing() {
+    // Given
+    final HashRing ring = new HashRing(List.of(), 16);
+
+    // When / Then
+    assertNull(ring.ownerOf(1L));
+  }
+}
@@ -0,0 +1,57 @@
+package co.uk.yapily.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidationMessageTest {
+
+  @Test
+  void test_encode_RoundTrip() {
+    // Given
+    final InvalidationMessage message = new InvalidationMessage("node-a", false, Set.of(1L, 2L), Set.of(3L));
+
+    // When
+    final List<String> payloads = message.encode();
+
+    // Then
+    assertEquals(1, payloads.size());
+    assertEquals(Optional.of(message), InvalidationMessage.decode(payloads.get(0)));
+    assertEquals(Optional.of(InvalidationMessage.resync("node-a")), InvalidationMessage.decode(InvalidationMessage.resync("node-a").encode().get(0)));
+  }
+
+  @Test
+  void test_encode_SplitsLargeMessages() {
+    // Given
+    final Set<Long> ids = LongStream.rangeClosed(1_000_000_000L, 1_000_002_000L).boxed().collect(Collectors.toSet());
+    final InvalidationMessage message = new InvalidationMessage("node-a", false, ids, Set.of());
+
+    // When
+    final List<String> payloads = message.encode();
+
+    // Then
+    assertTrue(payloads.size() > 1);
+    final Set<Long> decoded = new HashSet<>();
+    for (final String payload : payloads) {
+      assertTrue(payload.length() <= InvalidationMessage.MAX_PAYLOAD);
+      decoded.addAll(InvalidationMessage.decode(payload).orElseThrow().upserted());
+    }
+    assertEquals(ids, decoded);
+  }
+
+  @Test
+  void test_decode_RejectsMalformedPayloads() {
+    assertTrue(InvalidationMessage.decode(null).isEmpty());
+    assertTrue(InvalidationMessage.decode("hello").isEmpty());
+    assertTrue(InvalidationMessage.decode("2|node-a|U1").isEmpty());
+    assertTrue(InvalidationMessage.decode("1|node-a|X1").isEmpty());
+    assertTrue(InvalidationMessage.decode("1|node-a|U").isEmpty());
+  }
+}
@@ -0,0 +1,69 @@
+package co.uk.yapily.cluster;
+
+import co.uk.yapily.config.InvalidationProperties;
+import co.uk.yapily.event.ProductChangedEvent;
+import co.uk.yapily.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Exchanges invalidations between two buses over a real PostgreSQL, e.g.
+ * {@code YAPILY_TEST_POSTGRES_URL=jdbc:postgresql://localhost:5432/postgres ./mvnw test -Dtest=ProductInvalidationBusPostgresTest};
+ * the credentials default to {@code postgres}/{@code postgres}.
+ */
+@EnabledIfEnvironmentVariable(named = "YAPILY_TEST_POSTGRES_URL", matches = ".+")
+class ProductInvalidationBusPostgresTest {
+
+  private final List<ProductInvalidationBus> buses = new ArrayList<>();
+
+  @AfterEach
+  public void tearDown() {
+    buses.forEach(ProductInvalidationBus::stop);
+  }
+
+  @Test
+  void test_deletion_ReachesTheOtherInstance() {
+    // Given
+    final ApplicationEventPublisher senderEvents = mock(ApplicationEventPublisher.class);
+    final ApplicationEventPublisher receiverEvents = mock(ApplicationEventPublisher.class);
+    final ProductInvalidationBus sender = open(senderEvents);
+    open(receiverEvents);
+
+    // When
+    sender.onProductChanged(ProductChangedEvent.deleted(42L));
+
+    // Then
+    verify(receiverEvents, timeout(5_000)).publishEvent(ProductChangedEvent.remoteDeleted(42L));
+  }
+
+  private ProductInvalidationBus open(final ApplicationEventPublisher eventPublisher) {
+    final DataSourceProperties dataSourceProperties = new DataSourceProperties();
+    dataSourceProperties.setUrl(System.getenv("YAPILY_TEST_POSTGRES_URL"));
+    dataSourceProperties.setUsername(Optional.ofNullable(System.getenv("YAPILY_TEST_POSTGRES_USER")).orElse("postgres"));
+    dataSourceProperties.setPassword(Optional.ofNullable(System.getenv("YAPILY_TEST_POSTGRES_PASSWORD")).orElse("postgres"));
+    final DriverManagerDataSource dataSource = new DriverManagerDataSource(dataSourceProperties.determineUrl(),
+        dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    final InvalidationProperties properties = new InvalidationProperties(true, "yapily_product_changes_test",
+        Duration.ofSeconds(1), Duration.ofMillis(100), Duration.ofSeconds(1), 100);
+    final ProductInvalidationBus bus = new ProductInvalidationBus(properties, dataSourceProperties, dataSource,
+        mock(ProductRepository.class), new ModelMapper(), eventPublisher, new SimpleMeterRegistry());
+    bus.start();
+    buses.add(bus);
+    return bus;
+  }
+}
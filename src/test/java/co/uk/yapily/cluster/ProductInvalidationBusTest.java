@@ -0,0 +1,95 @@
+package co.uk.yapily.cluster;
+
+import co.uk.yapily.config.InvalidationProperties;
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.event.ProductChangedEvent;
+import co.uk.yapily.event.ProductResyncEvent;
+import co.uk.yapily.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductInvalidationBusTest {
+
+  @Mock
+  private DataSource dataSource;
+
+  @Mock
+  private ProductRepository repository;
+
+  @Mock
+  private ModelMapper modelMapper;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  private ProductInvalidationBus bus;
+
+  @BeforeEach
+  public void setUp() {
+    final InvalidationProperties properties = new InvalidationProperties(false, "yapily_product_changes",
+        Duration.ofSeconds(10), Duration.ofSeconds(1), Duration.ofSeconds(30), 100);
+    bus = new ProductInvalidationBus(properties, new DataSourceProperties(), dataSource, repository, modelMapper,
+        eventPublisher, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void test_receive_PublishesRemoteChanges() {
+    // Given
+    final Product product = new Product();
+    product.setId(1L);
+    product.setUpdatedAt(Instant.parse("2024-03-01T10:15:30Z"));
+    product.setChangeVersion(7L);
+    final ProductDto productDto = ProductDto.builder().id(1L).build();
+    when(repository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(product));
+    when(modelMapper.map(product, ProductDto.class)).thenReturn(productDto);
+    final String payload = new InvalidationMessage("other", false, Set.of(1L, 2L, 3L), Set.of(3L)).encode().get(0);
+
+    // When
+    bus.receive(payload);
+
+    // Then
+    verify(eventPublisher).publishEvent(ProductChangedEvent.remoteUpserted(productDto, Instant.parse("2024-03-01T10:15:30Z"), 7L));
+    verify(eventPublisher).publishEvent(ProductChangedEvent.remoteDeleted(2L));
+    verify(eventPublisher).publishEvent(ProductChangedEvent.remoteDeleted(3L));
+  }
+
+  @Test
+  void test_receive_IgnoresOwnMessages() {
+    // When
+    bus.receive(new InvalidationMessage(bus.nodeId(), false, Set.of(1L), Set.of()).encode().get(0));
+    bus.receive(InvalidationMessage.resync(bus.nodeId()).encode().get(0));
+
+    // Then
+    verifyNoInteractions(repository, eventPublisher);
+  }
+
+  @Test
+  void test_receive_ResyncWhenProductsCannotBeRead() {
+    // Given
+    when(repository.findAllById(any())).thenThrow(new IllegalStateException("connection refused"));
+
+    // When
+    bus.receive(new InvalidationMessage("other", false, Set.of(1L), Set.of()).encode().get(0));
+
+    // Then
+    verify(eventPublisher).publishEvent(any(ProductResyncEvent.class));
+  }
+}
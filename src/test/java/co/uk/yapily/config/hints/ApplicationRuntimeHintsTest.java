@@ -0,0 +1,65 @@
+package co.uk.yapily.config.hints;
+
+import co.uk.yapily.converter.StringListConverter;
+import co.uk.yapily.dto.BulkDeleteDto;
+import co.uk.yapily.dto.BulkDeleteResultDto;
+import co.uk.yapily.dto.CartBulkDeleteDto;
+import co.uk.yapily.dto.CartDto;
+import co.uk.yapily.dto.ProductBatchDto;
+import co.uk.yapily.dto.ProductChangeDto;
+import co.uk.yapily.dto.ProductChangesDto;
+import co.uk.yapily.dto.ProductDto;
+import co.uk.yapily.dto.exception.ErrorResponse;
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.validation.LabelsValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApplicationRuntimeHintsTest {
+
+  private RuntimeHints hints;
+
+  @BeforeEach
+  public void setUp() {
+    hints = new RuntimeHints();
+    new ApplicationRuntimeHints().registerHints(hints, getClass().getClassLoader());
+  }
+
+  @Test
+  void test_register_hints_MappedTypesCanBeInstantiatedAndIntrospected() throws NoSuchMethodException {
+    for (final Class<?> type : ApplicationRuntimeHints.MAPPED_TYPES) {
+      assertTrue(RuntimeHintsPredicates.reflection().onType(type).test(hints), type.getName());
+    }
+    assertTrue(RuntimeHintsPredicates.reflection().onConstructor(Product.class.getDeclaredConstructor()).test(hints));
+    assertTrue(RuntimeHintsPredicates.reflection().onConstructor(Cart.class.getDeclaredConstructor()).test(hints));
+    assertTrue(RuntimeHintsPredicates.reflection().onMethod(ProductDto.class, "setLabels").test(hints));
+    assertTrue(RuntimeHintsPredicates.reflection().onMethod(Cart.class, "getProducts").test(hints));
+  }
+
+  @Test
+  void test_register_hints_SerializedTypesAreBound() {
+    assertTrue(ApplicationRuntimeHints.SERIALIZED_TYPES.containsAll(List.of(BulkDeleteDto.class, CartBulkDeleteDto.class,
+        BulkDeleteResultDto.class, ProductBatchDto.class, ProductChangeDto.class, ProductChangesDto.class)));
+    for (final Class<?> type : ApplicationRuntimeHints.SERIALIZED_TYPES) {
+      assertTrue(RuntimeHintsPredicates.reflection().onType(type).test(hints), type.getName());
+    }
+    assertTrue(RuntimeHintsPredicates.reflection().onMethod(CartDto.class, "getAmount").test(hints));
+    assertTrue(RuntimeHintsPredicates.reflection().onMethod(CartBulkDeleteDto.class, "setIds").test(hints));
+    assertTrue(RuntimeHintsPredicates.reflection().onMethod(ProductChangesDto.class, "getChanges").test(hints));
+    assertTrue(RuntimeHintsPredicates.reflection().onType(ErrorResponse.class).test(hints));
+  }
+
+  @Test
+  void test_register_hints_ConverterAndValidatorCanBeInstantiated() throws NoSuchMethodException {
+    assertTrue(RuntimeHintsPredicates.reflection().onConstructor(StringListConverter.class.getConstructor()).test(hints));
+    assertTrue(RuntimeHintsPredicates.reflection().onMethod(StringListConverter.class, "convertToEntityAttribute").test(hints));
+    assertTrue(RuntimeHintsPredicates.reflection().onConstructor(LabelsValidator.class.getConstructor()).test(hints));
+  }
+}
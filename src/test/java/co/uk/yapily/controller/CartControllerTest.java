@@ -1,8 +1,13 @@
 package co.uk.yapily.controller;
 
+import co.uk.yapily.dto.CartBulkDeleteDto;
 import co.uk.yapily.dto.CartDto;
 import co.uk.yapily.dto.CartItemDto;
+import co.uk.yapily.dto.CartProductDto;
 import co.uk.yapily.dto.CheckoutDto;
+import co.uk.yapily.exception.ConflictException;
+import co.uk.yapily.exception.InvalidRequestException;
+import co.uk.yapily.exception.NotFoundException;
 import co.uk.yapily.exception.ServiceException;
 import co.uk.yapily.service.CartService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -21,6 +26,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import static org.mockito.Mockito.*;
@@ -84,7 +90,7 @@ class CartControllerTest {
     final Long cartId = 1L;
     final CartItemDto cartItemDto = new CartItemDto();
     final CartDto updatedCartDto = new CartDto();
-    when(cartService.update(cartItemDto, cartId)).thenReturn(updatedCartDto);
+    when(cartService.update(cartItemDto, cartId, false)).thenReturn(updatedCartDto);
 
     // When
     final ResultActions resultActions = mockMvc.perform(put("/carts/{id}", cartId)
@@ -146,7 +152,7 @@ class CartControllerTest {
     // Given
     final Long cartId = 1L;
     final CartDto cartDto = new CartDto();
-    when(cartService.findById(cartId)).thenReturn(cartDto);
+    when(cartService.findById(cartId, false)).thenReturn(cartDto);
 
     // When
     final ResultActions resultActions = mockMvc.perform(get("/carts/{id}", cartId));
@@ -160,7 +166,7 @@ class CartControllerTest {
   @Order(8)
   void test_find_Cart_by_id_InvalidId_ReturnsNotFound() throws Exception {
     // Given
-    when(cartService.findById(null)).thenThrow(new ServiceException("Cart not found"));
+    when(cartService.findById(null, false)).thenThrow(new ServiceException("Cart not found"));
     // When
     final ResultActions resultActions = mockMvc.perform(get("/carts/{id}", (Object) null));
     // Then
@@ -173,7 +179,7 @@ class CartControllerTest {
     // Given
     final List<CartDto> cartDtos = new ArrayList<>();
     cartDtos.add(new CartDto());
-    when(cartService.findAll()).thenReturn(cartDtos);
+    when(cartService.findAll(false)).thenReturn(cartDtos);
 
     // When
     final ResultActions resultActions = mockMvc.perform(get("/carts"));
@@ -188,7 +194,7 @@ class CartControllerTest {
   void test_find_all_carts_EmptyList_ReturnsOk() throws Exception {
     // Given
     final List<CartDto> emptyCartList = new ArrayList<>();
-    when(cartService.findAll()).thenReturn(emptyCartList);
+    when(cartService.findAll(false)).thenReturn(emptyCartList);
 
     // When
     final ResultActions resultActions = mockMvc.perform(get("/carts"));
@@ -203,10 +209,130 @@ class CartControllerTest {
   @Order(11)
   void test_find_all_carts_ServiceError_ReturnsInternalServerError() throws Exception {
     // Given
-    when(cartService.findAll()).thenThrow(new ServiceException("Service error"));
+    when(cartService.findAll(false)).thenThrow(new ServiceException("Service error"));
     // When
     final ResultActions resultActions = mockMvc.perform(get("/carts"));
     // Then
     resultActions.andExpect(status().isInternalServerError());
   }
+
+  @Test
+  @Order(12)
+  void test_bulk_delete_carts_ByIds_ReturnsDeletedCount() throws Exception {
+    // Given
+    final CartBulkDeleteDto dto = CartBulkDeleteDto.builder().ids(List.of(1L, 2L, 3L)).build();
+    when(cartService.deleteAll(List.of(1L, 2L, 3L))).thenReturn(2L);
+
+    // When
+    final ResultActions resultActions = mockMvc.perform(post("/carts/bulk-delete")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(dto)));
+
+    // Then
+    resultActions.andExpect(status().isOk())
+        .andExpect(jsonPath("$.deleted").value(2));
+  }
+
+  @Test
+  @Order(13)
+  void test_bulk_delete_carts_CheckedOutBefore_ReturnsDeletedCount() throws Exception {
+    // Given
+    when(cartService.deleteCheckedOutBefore(any(Date.class))).thenReturn(7L);
+
+    // When
+    final ResultActions resultActions = mockMvc.perform(post("/carts/bulk-delete")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"checked_out_before\":\"2024/01/01\"}"));
+
+    // Then
+    resultActions.andExpect(status().isOk())
+        .andExpect(jsonPath("$.deleted").value(7));
+    verify(cartService, never()).deleteAll(any());
+  }
+
+  @Test
+  @Order(14)
+  void test_bulk_delete_carts_NoCriteria_ReturnsBadRequest() throws Exception {
+    // When
+    final ResultActions resultActions = mockMvc.perform(post("/carts/bulk-delete")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{}"));
+
+    // Then
+    resultActions.andExpect(status().isBadRequest());
+    verify(cartService, never()).deleteCheckedOutBefore(any());
+  }
+
+  @Test
+  @Order(15)
+  void test_find_cart_by_id_UnknownId_ReturnsNotFoundWithMessage() throws Exception {
+    // Given
+    when(cartService.findById(404L, false)).thenThrow(new NotFoundException("Cart not found with ID: 404"));
+    // When
+    final ResultActions resultActions = mockMvc.perform(get("/carts/{id}", 404L));
+    // Then
+    resultActions.andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.code").value(404))
+        .andExpect(jsonPath("$.message").value("Cart not found with ID: 404"));
+  }
+
+  @Test
+  @Order(16)
+  void test_checkout_cart_AlreadyCheckedOut_ReturnsConflict() throws Exception {
+    // Given
+    when(cartService.checkout(1L)).thenThrow(new ConflictException("Cart is already checked out!"));
+    // When
+    final ResultActions resultActions = mockMvc.perform(post("/carts/{id}/checkout", 1L));
+    // Then
+    resultActions.andExpect(status().isConflict())
+        .andExpect(jsonPath("$.status").value("CONFLICT"))
+        .andExpect(jsonPath("$.message").value("Cart is already checked out!"));
+  }
+
+  @Test
+  @Order(17)
+  void test_update_cart_InvalidRequest_ReturnsBadRequest() throws Exception {
+    // Given
+    final CartItemDto cartItemDto = new CartItemDto(1L, 1);
+    when(cartService.update(any(), eq(1L), eq(false))).thenThrow(new InvalidRequestException("Cart id cannot be null"));
+    // When
+    final ResultActions resultActions = mockMvc.perform(put("/carts/{id}", 1L)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(cartItemDto)));
+    // Then
+    resultActions.andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.code").value(400));
+  }
+
+  @Test
+  @Order(18)
+  void test_find_cart_by_id_ExpandProducts_ReturnsProductDetails() throws Exception {
+    // Given
+    final CartProductDto line = CartProductDto.builder()
+        .productId(3L).quantity(2).name("Pen").unitPrice(1.25).labels(List.of("limited")).lineTotal(2.5).build();
+    when(cartService.findById(1L, true)).thenReturn(CartDto.builder().id(1L).products(List.of(line)).build());
+
+    // When
+    final ResultActions resultActions = mockMvc.perform(get("/carts/{id}", 1L).param("expand", "products"));
+
+    // Then
+    resultActions.andExpect(status().isOk())
+        .andExpect(jsonPath("$.products[0].product_id").value(3))
+        .andExpect(jsonPath("$.products[0].name").value("Pen"))
+        .andExpect(jsonPath("$.products[0].unit_price").value(1.25))
+        .andExpect(jsonPath("$.products[0].labels[0]").value("limited"))
+        .andExpect(jsonPath("$.products[0].line_total").value(2.5));
+  }
+
+  @Test
+  @Order(19)
+  void test_find_all_carts_UnknownExpansion_ReturnsBadRequest() throws Exception {
+    // When
+    final ResultActions resultActions = mockMvc.perform(get("/carts").param("expand", "customer"));
+
+    // Then
+    resultActions.andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Unknown expansion: customer"));
+    verify(cartService, never()).findAll(anyBoolean());
+  }
 }
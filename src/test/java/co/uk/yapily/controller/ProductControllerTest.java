@@ -1,5 +1,6 @@
 package co.uk.yapily.controller;
 
+import co.uk.yapily.dto.BulkDeleteDto;
 import co.uk.yapily.dto.ProductDto;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.MethodOrderer;
@@ -13,10 +14,20 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -72,4 +83,171 @@ class ProductControllerTest {
     mockMvc.perform(delete("/products/{id}", productId))
            .andExpect(status().isNoContent());
   }
+
+  @Test
+  @Order(5)
+  void test_bulk_delete_products_EndpointTest() throws Exception {
+    final ProductDto productDto = ProductDto.builder()
+        .name("Bulk Product")
+        .price(3.5)
+        .labels(List.of("food"))
+        .build();
+    final String response = mockMvc.perform(post("/products")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(productDto)))
+        .andExpect(status().isCreated())
+        .andReturn().getResponse().getContentAsString();
+    final Long productId = objectMapper.readValue(response, ProductDto.class).getId();
+
+    final BulkDeleteDto bulkDeleteDto = BulkDeleteDto.builder().ids(List.of(productId, 999_999L)).build();
+    mockMvc.perform(post("/products/bulk-delete")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(bulkDeleteDto)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.deleted").value(1));
+
+    mockMvc.perform(post("/products/bulk-delete")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"ids\":[]}"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @Order(6)
+  void test_find_products_by_ids_EndpointTest() throws Exception {
+    final Long first = createProduct("Multi-get First");
+    final Long second = createProduct("Multi-get Second");
+
+    mockMvc.perform(get("/products").param("ids", second + ",999999," + first + "," + second))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.products.length()").value(2))
+        .andExpect(jsonPath("$.products[0].product_id").value(second))
+        .andExpect(jsonPath("$.products[1].product_id").value(first))
+        .andExpect(jsonPath("$.missing_ids[0]").value(999999));
+
+    mockMvc.perform(get("/products").param("ids", ""))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @Order(7)
+  void test_product_feed_StreamsAndResumesChanges() throws Exception {
+    final MvcResult subscription = mockMvc.perform(get("/products/feed"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    createProduct("Feed First");
+    createProduct("Feed Second");
+    final String stream = awaitContent(subscription, "Feed Second");
+    final Matcher firstEvent = Pattern.compile("id:(\\S+)\nevent:product-change\ndata:\\{\"type\":\"UPSERTED\"[^\n]*Feed First")
+        .matcher(stream);
+    assertTrue(firstEvent.find(), stream);
+
+    final MvcResult resumed = mockMvc.perform(get("/products/feed").header("Last-Event-ID", firstEvent.group(1)))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    final String replay = awaitContent(resumed, "Feed Second");
+    assertFalse(replay.contains("Feed First"), replay);
+
+    final MvcResult unknown = mockMvc.perform(get("/products/feed").header("Last-Event-ID", "unknown-1"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    awaitContent(unknown, "event:reset");
+  }
+
+  @Test
+  @Order(8)
+  void test_find_product_changes_EndpointTest() throws Exception {
+    final long since = objectMapper.readTree(mockMvc.perform(get("/products/changes").param("since", "0").param("limit", "1000"))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString()).get("next_since").asLong();
+    final Long created = createProduct("Changes Created");
+    final Long deleted = createProduct("Changes Deleted");
+    mockMvc.perform(delete("/products/{id}", deleted))
+        .andExpect(status().isNoContent());
+
+    mockMvc.perform(get("/products/changes").param("since", String.valueOf(since)).param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.changes.length()").value(1))
+        .andExpect(jsonPath("$.changes[0].type").value("UPSERTED"))
+        .andExpect(jsonPath("$.changes[0].product_id").value(created))
+        .andExpect(jsonPath("$.changes[0].product.name").value("Changes Created"))
+        .andExpect(jsonPath("$.changes[0].version").value(since + 1))
+        .andExpect(jsonPath("$.has_more").value(true))
+        .andExpect(jsonPath("$.next_since").value(since + 1));
+
+    // the deleted product only shows up as a tombstone, after its insert (since + 2)
+    mockMvc.perform(get("/products/changes").param("since", String.valueOf(since + 1)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.changes.length()").value(1))
+        .andExpect(jsonPath("$.changes[0].type").value("DELETED"))
+        .andExpect(jsonPath("$.changes[0].product_id").value(deleted))
+        .andExpect(jsonPath("$.changes[0].version").value(since + 3))
+        .andExpect(jsonPath("$.has_more").value(false));
+
+    mockMvc.perform(get("/products/changes").param("limit", "0"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @Order(9)
+  void test_find_product_fields_EndpointTest() throws Exception {
+    final Long id = createProduct("Sparse Fields");
+
+    mockMvc.perform(get("/products").param("fields", "product_id,name,price"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[?(@.product_id == " + id + ")].name").value("Sparse Fields"))
+        .andExpect(jsonPath("$[*].labels").isEmpty())
+        .andExpect(jsonPath("$[*].added_at").isEmpty());
+
+    mockMvc.perform(get("/products/{id}", id).param("fields", "added_at"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$.added_at").isString());
+
+    mockMvc.perform(get("/products").param("fields", "product_id,carts"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Unknown field: carts"));
+
+    mockMvc.perform(get("/products/{id}", 999999).param("fields", "name"))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  void test_find_related_products_EndpointTest() throws Exception {
+    final Long productId = createProduct("Related Product");
+
+    mockMvc.perform(get("/products/{id}/related", productId))
+        .andExpect(status().isOk())
+        .andExpect(content().json("[]"));
+    mockMvc.perform(get("/products/{id}/related", productId).param("limit", "0"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/products/{id}/related", 999999))
+        .andExpect(status().isNotFound());
+  }
+
+  private static String awaitContent(final MvcResult result, final String expected) throws Exception {
+    final long deadline = System.nanoTime() + 5_000_000_000L;
+    while (System.nanoTime() < deadline) {
+      final String content = result.getResponse().getContentAsString();
+      if (content.contains(expected)) {
+        return content;
+      }
+      Thread.sleep(20);
+    }
+    return fail("Expected " + expected + " in " + result.getResponse().getContentAsString());
+  }
+
+  private Long createProduct(final String name) throws Exception {
+    final ProductDto productDto = ProductDto.builder()
+        .name(name)
+        .price(1.5)
+        .labels(List.of("food"))
+        .build();
+    final String response = mockMvc.perform(post("/products")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(productDto)))
+        .andExpect(status().isCreated())
+        .andReturn().getResponse().getContentAsString();
+    return objectMapper.readValue(response, ProductDto.class).getId();
+  }
 }
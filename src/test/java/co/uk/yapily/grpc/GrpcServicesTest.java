@@ -0,0 +1,167 @@
+package co.uk.yapily.grpc;
+
+import co.uk.yapily.config.GrpcProperties;
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.grpc.v1.AddItemsRequest;
+import co.uk.yapily.grpc.v1.BatchGetProductsRequest;
+import co.uk.yapily.grpc.v1.BatchGetProductsResponse;
+import co.uk.yapily.grpc.v1.CartsGrpc;
+import co.uk.yapily.grpc.v1.CheckoutRequest;
+import co.uk.yapily.grpc.v1.CheckoutResponse;
+import co.uk.yapily.grpc.v1.GetProductRequest;
+import co.uk.yapily.grpc.v1.ProductsGrpc;
+import co.uk.yapily.grpc.v1.StreamProductsRequest;
+import co.uk.yapily.repository.CartRepository;
+import co.uk.yapily.repository.ProductRepository;
+import co.uk.yapily.service.CartService;
+import co.uk.yapily.service.ProductService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(locations = "classpath:application-test.yml")
+class GrpcServicesTest {
+
+  @Autowired
+  private ProductService productService;
+
+  @Autowired
+  private CartService cartService;
+
+  @Autowired
+  private ProductRepository productRepository;
+
+  @Autowired
+  private CartRepository cartRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private Server server;
+  private ManagedChannel channel;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    // a page size of 2 makes the export of a few products span several pages
+    final GrpcProperties properties = new GrpcProperties(true, 0, DataSize.ofMegabytes(1), 2, Duration.ZERO);
+    final String name = InProcessServerBuilder.generateName();
+    server = InProcessServerBuilder.forName(name).directExecutor()
+        .addService(new ProductGrpcService(productService, properties))
+        .addService(new CartGrpcService(cartService, entityManagerFactory))
+        .build().start();
+    channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  @Test
+  void test_get_product_MapsProductAndUnknownId() {
+    // Given
+    final Product product = productRepository.save(Product.builder().name("Grpc Mug").price(3.5).labels(new ArrayList<>(List.of("food"))).build());
+    final ProductsGrpc.ProductsBlockingStub products = ProductsGrpc.newBlockingStub(channel);
+
+    // When
+    final co.uk.yapily.grpc.v1.Product found = products.getProduct(GetProductRequest.newBuilder().setProductId(product.getId()).build());
+    final StatusRuntimeException missing = assertThrows(StatusRuntimeException.class,
+        () -> products.getProduct(GetProductRequest.newBuilder().setProductId(Long.MAX_VALUE).build()));
+
+    // Then
+    assertEquals(product.getId(), found.getProductId());
+    assertEquals("Grpc Mug", found.getName());
+    assertEquals(3.5, found.getPrice());
+    assertEquals(List.of("food"), found.getLabelsList());
+    assertEquals(Status.Code.NOT_FOUND, missing.getStatus().getCode());
+  }
+
+  @Test
+  void test_batch_get_products_ReturnsMissingIds() {
+    // Given
+    final Product product = productRepository.save(Product.builder().name("Grpc Plate").price(2.0).labels(new ArrayList<>(List.of("food"))).build());
+    final ProductsGrpc.ProductsBlockingStub products = ProductsGrpc.newBlockingStub(channel);
+
+    // When
+    final BatchGetProductsResponse batch = products.batchGetProducts(BatchGetProductsRequest.newBuilder()
+        .addProductIds(Long.MAX_VALUE).addProductIds(product.getId()).build());
+    final StatusRuntimeException empty = assertThrows(StatusRuntimeException.class,
+        () -> products.batchGetProducts(BatchGetProductsRequest.getDefaultInstance()));
+
+    // Then
+    assertEquals(1, batch.getProductsCount());
+    assertEquals(product.getId(), batch.getProducts(0).getProductId());
+    assertEquals(List.of(Long.MAX_VALUE), batch.getMissingIdsList());
+    assertEquals(Status.Code.INVALID_ARGUMENT, empty.getStatus().getCode());
+  }
+
+  @Test
+  void test_stream_products_StreamsEveryProductAfterIdAcrossPages() {
+    // Given
+    final List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      ids.add(productRepository.save(Product.builder().name("Grpc Export " + i).price(1.0 + i).labels(new ArrayList<>(List.of("clothes"))).build()).getId());
+    }
+    final long afterId = ids.get(0);
+
+    // When
+    final List<Long> streamed = new ArrayList<>();
+    ProductsGrpc.newBlockingStub(channel).streamProducts(StreamProductsRequest.newBuilder().setAfterId(afterId).build())
+        .forEachRemaining(product -> streamed.add(product.getProductId()));
+
+    // Then
+    assertEquals(ids.subList(1, ids.size()), streamed.stream().filter(ids::contains).toList());
+    assertTrue(streamed.stream().allMatch(id -> id > afterId));
+    for (int i = 1; i < streamed.size(); i++) {
+      assertTrue(streamed.get(i - 1) < streamed.get(i));
+    }
+  }
+
+  @Test
+  void test_add_items_and_checkout_PriceCartAndRejectSecondCheckout() {
+    // Given
+    final Product product = productRepository.save(Product.builder().name("Grpc Bowl").price(1.5).labels(new ArrayList<>(List.of("limited"))).build());
+    final Cart cart = cartRepository.save(Cart.builder().products(new ArrayList<>()).build());
+    final CartsGrpc.CartsBlockingStub carts = CartsGrpc.newBlockingStub(channel);
+
+    // When
+    final co.uk.yapily.grpc.v1.Cart updated = carts.addItems(AddItemsRequest.newBuilder().setCartId(cart.getId())
+        .setProductId(product.getId()).setQuantity(2).setExpandProducts(true).build());
+    final CheckoutResponse checkout = carts.checkout(CheckoutRequest.newBuilder().setCartId(cart.getId()).build());
+    final StatusRuntimeException again = assertThrows(StatusRuntimeException.class,
+        () -> carts.checkout(CheckoutRequest.newBuilder().setCartId(cart.getId()).build()));
+
+    // Then
+    assertEquals(1, updated.getLinesCount());
+    assertEquals(2, updated.getLines(0).getQuantity());
+    assertEquals("Grpc Bowl", updated.getLines(0).getName());
+    assertEquals(3.0, updated.getTotalCost());
+    assertEquals(3.0, checkout.getTotalCost());
+    assertTrue(checkout.getCart().getCheckOut());
+    assertTrue(checkout.getOrderId() > 0);
+    assertEquals(Status.Code.FAILED_PRECONDITION, again.getStatus().getCode());
+  }
+}
@@ -0,0 +1,174 @@
+package co.uk.yapily.journal;
+
+import co.uk.yapily.config.CartJournalProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartJournalTest {
+
+  @TempDir
+  Path directory;
+
+  private CartJournal journal;
+
+  @AfterEach
+  public void tearDown() {
+    if (journal != null) {
+      journal.stop();
+    }
+  }
+
+  @Test
+  void test_publish_EventsAreReplayedInOrder() throws IOException {
+    // Given
+    journal = open(DataSize.ofMegabytes(1));
+
+    // When
+    journal.itemAdded(1L, 10L, 2, 2.5);
+    journal.checkedOut(1L, 2, 5.0);
+    journal.deleted(1L);
+    journal.stop();
+
+    // Then
+    final List<CartEvent> events = replay(0);
+    assertEquals(3, events.size());
+    assertEquals(new CartEvent(1, events.get(0).timestamp(), CartEventType.ITEM_ADDED, 1L, 10L, 2, 2.5), events.get(0));
+    assertEquals(CartEventType.CHECKED_OUT, events.get(1).type());
+    assertEquals(5.0, events.get(1).amount());
+    assertEquals(CartEventType.DELETED, events.get(2).type());
+    assertTrue(Double.isNaN(events.get(2).amount()));
+    assertEquals(2, replay(2).size());
+  }
+
+  @Test
+  void test_publish_RollsSegmentsAndContinuesTheSequenceAfterRestart() throws IOException {
+    // Given a segment holding four records
+    final DataSize segmentSize = DataSize.ofBytes(4L * CartEventCodec.RECORD_SIZE);
+    journal = open(segmentSize);
+    for (int i = 0; i < 10; i++) {
+      journal.itemAdded(i, 10L, 1, 1.0);
+    }
+    journal.stop();
+
+    // When
+    journal = open(segmentSize);
+    journal.deleted(99L);
+    journal.stop();
+
+    // Then
+    assertEquals(3, CartJournalReader.segments(directory).size());
+    final List<CartEvent> events = replay(0);
+    assertEquals(11, events.size());
+    for (int i = 0; i < events.size(); i++) {
+      assertEquals(i + 1, events.get(i).sequence());
+    }
+    assertEquals(99L, events.get(10).cartId());
+    assertEquals(List.of(events.get(9), events.get(10)), replay(10));
+  }
+
+  @Test
+  void test_replay_StopsAtATornRecordWhichTheNextWriterOverwrites() throws IOException {
+    // Given
+    journal = open(DataSize.ofMegabytes(1));
+    journal.itemAdded(1L, 10L, 1, 1.0);
+    journal.itemAdded(2L, 10L, 1, 1.0);
+    journal.stop();
+    final Path segment = CartJournalReader.segments(directory).get(0);
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {42}), CartEventCodec.RECORD_SIZE + 30);
+    }
+
+    // When
+    final List<CartEvent> afterCrash = replay(0);
+    journal = open(DataSize.ofMegabytes(1));
+    journal.deleted(3L);
+    journal.stop();
+
+    // Then
+    assertEquals(1, afterCrash.size());
+    final List<CartEvent> events = replay(0);
+    assertEquals(2, events.size());
+    assertEquals(2, events.get(1).sequence());
+    assertEquals(3L, events.get(1).cartId());
+  }
+
+  @Test
+  void test_publish_ConcurrentPublishersThroughASmallBufferLoseNothing() throws Exception {
+    // Given
+    journal = open(DataSize.ofMegabytes(1));
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    // When
+    for (int p = 0; p < 4; p++) {
+      final long cartId = p;
+      executor.submit(() -> {
+        for (int i = 0; i < 1_000; i++) {
+          journal.itemAdded(cartId, i, 1, null);
+        }
+      });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    journal.stop();
+
+    // Then
+    final List<CartEvent> events = replay(0);
+    assertEquals(4_000, events.size());
+    for (long cartId = 0; cartId < 4; cartId++) {
+      final long id = cartId;
+      final List<Long> products = events.stream().filter(event -> event.cartId() == id).map(CartEvent::productId).toList();
+      assertEquals(1_000, products.size());
+      for (int i = 0; i < products.size(); i++) {
+        assertEquals(i, products.get(i));
+      }
+    }
+  }
+
+  @Test
+  void test_publish_WakesTheIdleWriter() throws Exception {
+    // Given
+    journal = open(DataSize.ofMegabytes(1));
+    Thread.sleep(50); // long enough for the writer to park with nothing to write
+
+    // When
+    journal.deleted(7L);
+
+    // Then
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (replay(0).isEmpty() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(List.of(7L), replay(0).stream().map(CartEvent::cartId).toList());
+  }
+
+  private CartJournal open(final DataSize segmentSize) throws IOException {
+    final CartJournal opened = new CartJournal(
+        new CartJournalProperties(true, directory.toString(), segmentSize, 16, Duration.ofMillis(10)),
+        new SimpleMeterRegistry());
+    opened.start();
+    return opened;
+  }
+
+  private List<CartEvent> replay(final long fromSequence) throws IOException {
+    final List<CartEvent> events = new ArrayList<>();
+    new CartJournalReader(directory).replay(fromSequence, events::add);
+    return events;
+  }
+}
@@ -0,0 +1,86 @@
+package co.uk.yapily.journal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferTest {
+
+  @Test
+  void test_offer_RejectsWhenFullAndAcceptsOnceDrained() {
+    // Given
+    final MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(4);
+
+    // When
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer(i));
+    }
+
+    // Then
+    assertFalse(ring.offer(4));
+    assertEquals(4, ring.size());
+    assertEquals(0, ring.poll());
+    assertTrue(ring.offer(4));
+    assertEquals(1, ring.poll());
+    assertEquals(2, ring.poll());
+    assertEquals(3, ring.poll());
+    assertEquals(4, ring.poll());
+    assertNull(ring.poll());
+  }
+
+  @Test
+  void test_constructor_RejectsCapacityThatIsNotAPowerOfTwo() {
+    assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<>(1000));
+  }
+
+  @Test
+  void test_offer_ConcurrentProducersLoseNothing() throws InterruptedException {
+    // Given
+    final int producers = 4;
+    final int perProducer = 50_000;
+    final MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(1024);
+    final ExecutorService executor = Executors.newFixedThreadPool(producers);
+    final CountDownLatch start = new CountDownLatch(1);
+
+    // When
+    for (int p = 0; p < producers; p++) {
+      final int base = p * perProducer;
+      executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < perProducer; i++) {
+          while (!ring.offer(base + i)) {
+            Thread.onSpinWait();
+          }
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    final Set<Integer> consumed = new HashSet<>();
+    final int[] lastPerProducer = new int[producers];
+    Arrays.fill(lastPerProducer, -1);
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (consumed.size() < producers * perProducer && System.nanoTime() < deadline) {
+      final Integer value = ring.poll();
+      if (value != null) {
+        assertTrue(consumed.add(value));
+        // elements of one producer come out in the order they went in
+        assertTrue(value % perProducer > lastPerProducer[value / perProducer]);
+        lastPerProducer[value / perProducer] = value % perProducer;
+      }
+    }
+    executor.shutdownNow();
+
+    // Then
+    assertEquals(producers * perProducer, consumed.size());
+    assertEquals(0, ring.size());
+  }
+}
@@ -0,0 +1,108 @@
+package co.uk.yapily.pricing;
+
+import co.uk.yapily.dto.CartDto;
+import co.uk.yapily.dto.CheckoutDto;
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.entity.PromotionRule;
+import co.uk.yapily.exception.ConflictException;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.repository.CartRepository;
+import co.uk.yapily.repository.ProductRepository;
+import co.uk.yapily.repository.PromotionRuleRepository;
+import co.uk.yapily.service.CartService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(locations = "classpath:application-test.yml")
+class PromotionEngineTest {
+
+  @Autowired
+  private PromotionEngine engine;
+
+  @Autowired
+  private PromotionRuleRepository ruleRepository;
+
+  @Autowired
+  private CartService cartService;
+
+  @Autowired
+  private CartRepository cartRepository;
+
+  @Autowired
+  private ProductRepository productRepository;
+
+  @AfterEach
+  void tearDown() {
+    ruleRepository.deleteAll();
+    engine.refresh();
+  }
+
+  @Test
+  void test_refresh_SwapsRulesWithoutRestart() {
+    // Given
+    final PromotionRules before = engine.current();
+    ruleRepository.save(PromotionRule.builder().name("3 for 2 on food").label("food")
+        .type(PromotionRule.Type.MULTI_BUY).buyQuantity(3).payQuantity(2).active(true).build());
+
+    // When
+    final boolean swapped = engine.refresh();
+    final boolean swappedAgain = engine.refresh();
+
+    // Then
+    assertTrue(swapped);
+    assertFalse(swappedAgain);
+    assertNotSame(before, engine.current());
+    assertEquals(1, engine.current().size());
+    assertEquals(100, engine.current().forLabels(List.of("food")).discountCents(100, 3));
+  }
+
+  @Test
+  void test_checkout_ChargesThePromotionalPrice() throws ServiceException {
+    // Given
+    ruleRepository.save(PromotionRule.builder().name("10% off clothes").label("clothes")
+        .type(PromotionRule.Type.PERCENT_OFF).percentOff(10.0).active(true).build());
+    engine.refresh();
+    final Product shirt = productRepository.save(Product.builder().name("Promo Shirt").price(20.0).labels(new ArrayList<>(List.of("clothes"))).build());
+    final Cart cart = cartRepository.save(Cart.builder().products(new ArrayList<>(List.of(shirt, shirt))).build());
+
+    // When
+    final CartDto quoted = cartService.findById(cart.getId(), true);
+    final CheckoutDto checkout = cartService.checkout(cart.getId());
+
+    // Then
+    assertEquals(36.0, quoted.getAmount());
+    assertEquals(4.0, quoted.getDiscount());
+    assertEquals(36.0, quoted.getProducts().get(0).getLineTotal());
+    assertEquals(36.0, checkout.getAmount());
+    assertEquals(4.0, checkout.getDiscount());
+  }
+
+  @Test
+  void test_checkout_RefusesCartsOverTheirCap() {
+    // Given
+    ruleRepository.save(PromotionRule.builder().name("2 limited per cart").label("limited")
+        .type(PromotionRule.Type.QUANTITY_CAP).maxUnits(2).active(true).build());
+    engine.refresh();
+    final Product badge = productRepository.save(Product.builder().name("Promo Badge").price(5.0).labels(new ArrayList<>(List.of("limited"))).build());
+    final Cart cart = cartRepository.save(Cart.builder().products(new ArrayList<>(List.of(badge, badge, badge))).build());
+
+    // When
+    final ConflictException exception = assertThrows(ConflictException.class, () -> cartService.checkout(cart.getId()));
+
+    // Then
+    assertTrue(exception.getMessage().startsWith("At most 2 units of product " + badge.getId()));
+    assertFalse(cartRepository.findById(cart.getId()).orElseThrow().isCheckout());
+  }
+}
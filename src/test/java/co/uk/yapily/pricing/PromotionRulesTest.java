@@ -0,0 +1,102 @@
+package co.uk.yapily.pricing;
+
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.entity.PromotionRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionRulesTest {
+
+  @Test
+  void test_quote_AppliesMultiBuyThenPercentOff() {
+    // Given
+    final PromotionRules rules = PromotionRules.compile(List.of(
+        multiBuy("3 for 2 on food", "food", 3, 2, 0),
+        percentOff("10% off clothes", "clothes", 10, 0)));
+    final Quote quote = rules.newQuote();
+
+    // When
+    final long food = quote.add(List.of("food"), 1.50, 7);
+    final long clothes = quote.add(List.of("clothes"), 19.99, 1);
+    final long drink = quote.add(List.of("drink"), 2.00, 2);
+
+    // Then
+    assertEquals(300, food);
+    assertEquals(200, clothes);
+    assertEquals(0, drink);
+    assertEquals(34.49, quote.subtotal());
+    assertEquals(5.0, quote.discount());
+    assertEquals(29.49, quote.total());
+  }
+
+  @Test
+  void test_for_labels_CombinesRulesOfEveryLabelByPriority() {
+    // Given
+    final PromotionRules rules = PromotionRules.compile(List.of(
+        percentOff("20% off limited", "limited", 20, 1),
+        percentOff("5% off food", "food", 5, 2),
+        multiBuy("2 for 1 on food", "food", 2, 1, 3),
+        cap("3 limited per cart", "limited", 3, 4)));
+
+    // When
+    final LinePricing pricing = rules.forLabels(List.of("food", "limited"));
+
+    // Then
+    // 4 units at 1.00: 2 charged by the multi-buy of food, then 20% off from limited
+    assertEquals(240, pricing.discountCents(100, 4));
+    assertEquals(3, pricing.maxUnits());
+    assertEquals("limited", pricing.capLabel());
+    assertSame(LinePricing.NONE, rules.forLabels(List.of("drink")));
+    assertSame(LinePricing.NONE, rules.forLabels(null));
+  }
+
+  @Test
+  void test_compile_SkipsInconsistentRules() {
+    // Given
+    final PromotionRule payMore = multiBuy("pay 3 for 2", "food", 2, 3, 0);
+    final PromotionRule tooMuch = percentOff("150% off", "clothes", 150, 0);
+
+    // When
+    final PromotionRules rules = PromotionRules.compile(List.of(payMore, tooMuch));
+
+    // Then
+    assertEquals(0, rules.size());
+    assertSame(LinePricing.NONE, rules.forLabels(List.of("food", "clothes")));
+  }
+
+  @Test
+  void test_cap_violation_ReportsTheFirstLineOverItsCap() {
+    // Given
+    final PromotionRules rules = PromotionRules.compile(List.of(cap("2 limited per cart", "limited", 2, 0)));
+    final Product limited = Product.builder().id(5L).price(10.0).labels(new ArrayList<>(List.of("limited"))).build();
+    final Product food = Product.builder().id(6L).price(1.0).labels(new ArrayList<>(List.of("food"))).build();
+
+    // When
+    final Optional<String> within = rules.capViolation(List.of(limited, food, limited, food, food));
+    final Optional<String> over = rules.capViolation(List.of(limited, limited, limited));
+
+    // Then
+    assertTrue(within.isEmpty());
+    assertEquals("At most 2 units of product 5 can be bought per cart (limited)", over.orElseThrow());
+  }
+
+  private static PromotionRule multiBuy(final String name, final String label, final int buy, final int pay, final int priority) {
+    return PromotionRule.builder().name(name).label(label).type(PromotionRule.Type.MULTI_BUY)
+        .buyQuantity(buy).payQuantity(pay).priority(priority).active(true).build();
+  }
+
+  private static PromotionRule percentOff(final String name, final String label, final double percent, final int priority) {
+    return PromotionRule.builder().name(name).label(label).type(PromotionRule.Type.PERCENT_OFF)
+        .percentOff(percent).priority(priority).active(true).build();
+  }
+
+  private static PromotionRule cap(final String name, final String label, final int maxUnits, final int priority) {
+    return PromotionRule.builder().name(name).label(label).type(PromotionRule.Type.QUANTITY_CAP)
+        .maxUnits(maxUnits).priority(priority).active(true).build();
+  }
+}
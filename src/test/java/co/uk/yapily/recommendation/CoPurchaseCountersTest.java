@@ -0,0 +1,100 @@
+package co.uk.yapily.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoPurchaseCountersTest {
+
+  @Test
+  void test_record_CountsEveryPairBothWays() {
+    // Given
+    final CoPurchaseCounters counters = new CoPurchaseCounters(8);
+
+    // When
+    counters.record(new long[]{1, 2, 3});
+    counters.record(new long[]{1, 2});
+
+    // Then
+    assertEquals(2, counters.count(1, 2));
+    assertEquals(2, counters.count(2, 1));
+    assertEquals(1, counters.count(1, 3));
+    assertEquals(1, counters.count(3, 2));
+    assertEquals(0, counters.count(1, 1));
+    assertEquals(3, counters.products());
+    assertEquals(6, counters.counters());
+  }
+
+  @Test
+  void test_top_OrdersByCountThenId() {
+    // Given
+    final CoPurchaseCounters counters = new CoPurchaseCounters(8);
+    counters.record(new long[]{1, 5, 4});
+    counters.record(new long[]{1, 5});
+    counters.record(new long[]{1, 3});
+
+    // When
+    final long[] top = counters.top(1, 10);
+    final long[] first = counters.top(1, 2);
+
+    // Then
+    assertArrayEquals(new long[]{5, 3, 4}, top);
+    assertArrayEquals(new long[]{5, 3}, first);
+    assertArrayEquals(new long[0], counters.top(99, 10));
+  }
+
+  @Test
+  void test_prune_KeepsFrequentPairsAndBoundsTheRow() {
+    // Given
+    final CoPurchaseCounters counters = new CoPurchaseCounters(4);
+    for (int i = 0; i < 10; i++) {
+      counters.record(new long[]{1, 2});
+      counters.record(new long[]{1, 3});
+    }
+
+    // When
+    for (long related = 100; related < 1000; related++) {
+      counters.record(new long[]{1, related});
+    }
+
+    // Then
+    assertEquals(10, counters.count(1, 2));
+    assertEquals(10, counters.count(1, 3));
+    assertArrayEquals(new long[]{2, 3}, counters.top(1, 2));
+    assertTrue(counters.top(1, 100).length <= 8);
+  }
+
+  @Test
+  void test_write_ReadBackTheSameCounters() throws IOException {
+    // Given
+    final CoPurchaseCounters counters = new CoPurchaseCounters(8);
+    counters.record(new long[]{1, 2, 3});
+    counters.record(new long[]{2, 3});
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    counters.write(new DataOutputStream(bytes));
+
+    // When
+    final CoPurchaseCounters read = new CoPurchaseCounters(8);
+    read.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    // Then
+    assertEquals(counters.counters(), read.counters());
+    assertEquals(2, read.count(3, 2));
+    assertArrayEquals(counters.top(2, 10), read.top(2, 10));
+  }
+
+  @Test
+  void test_read_RejectsForeignData() {
+    // Given
+    final byte[] bytes = new byte[]{0, 0, 0, 1, 0, 0, 0, 1};
+
+    // When / Then
+    assertThrows(IOException.class, () -> new CoPurchaseCounters(8).read(new DataInputStream(new ByteArrayInputStream(bytes))));
+  }
+}
@@ -0,0 +1,87 @@
+package co.uk.yapily.recommendation;
+
+import co.uk.yapily.config.RelatedProductsProperties;
+import co.uk.yapily.entity.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoPurchaseIndexTest {
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void test_record_checkout_CountsDistinctProductsOfTheCart() {
+    // Given
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final CoPurchaseIndex index = newIndex(registry);
+    index.start();
+
+    // When
+    index.recordCheckout(List.of(product(1), product(2), product(2), product(3)));
+    index.recordCheckout(List.of(product(1), product(3)));
+    index.recordCheckout(List.of(product(1), product(1)));
+    index.stop();
+
+    // Then
+    assertArrayEquals(new long[]{3, 2}, index.related(1, 10));
+    assertArrayEquals(new long[]{1, 3}, index.related(2, 10));
+    assertArrayEquals(new long[0], index.related(4, 10));
+    assertEquals(2, registry.get("yapily.related.checkouts").tag("outcome", "counted").counter().count());
+  }
+
+  @Test
+  void test_stop_WritesSnapshotReadAtNextStart() {
+    // Given
+    final CoPurchaseIndex index = newIndex();
+    index.start();
+    index.recordCheckout(List.of(product(7), product(8)));
+    index.stop();
+
+    // When
+    final CoPurchaseIndex restarted = newIndex();
+    restarted.start();
+    restarted.stop();
+
+    // Then
+    assertTrue(Files.exists(directory.resolve(CoPurchaseIndex.SNAPSHOT_FILE)));
+    assertArrayEquals(new long[]{8}, restarted.related(7, 10));
+  }
+
+  @Test
+  void test_disabled_CountsNothing() {
+    // Given
+    final CoPurchaseIndex index = new CoPurchaseIndex(
+        new RelatedProductsProperties(false, directory.toString(), 8, 50, 16, Duration.ofHours(1)), new SimpleMeterRegistry());
+    index.start();
+
+    // When
+    index.recordCheckout(List.of(product(1), product(2)));
+    index.stop();
+
+    // Then
+    assertFalse(index.isEnabled());
+    assertArrayEquals(new long[0], index.related(1, 10));
+  }
+
+  private CoPurchaseIndex newIndex() {
+    return newIndex(new SimpleMeterRegistry());
+  }
+
+  private CoPurchaseIndex newIndex(final SimpleMeterRegistry registry) {
+    return new CoPurchaseIndex(new RelatedProductsProperties(true, directory.toString(), 8, 50, 16, Duration.ofHours(1)),
+        registry);
+  }
+
+  private static Product product(final long id) {
+    return Product.builder().id(id).name("Product " + id).price(1.0).build();
+  }
+}
@@ -0,0 +1,102 @@
+package co.uk.yapily.repository;
+
+import co.uk.yapily.dto.CartDto;
+import co.uk.yapily.dto.CartField;
+import co.uk.yapily.dto.CartProductDto;
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(locations = "classpath:application-test.yml")
+class CartProjectionRepositoryTest {
+
+  @Autowired
+  private CartRepository cartRepository;
+
+  @Autowired
+  private ProductRepository productRepository;
+
+  @Test
+  void test_find_projected_by_id_CountsProductLines() {
+    // Given
+    final Product pen = productRepository.save(Product.builder().name("Projection Pen").price(1.5).labels(List.of("limited")).build());
+    final Product cup = productRepository.save(Product.builder().name("Projection Cup").price(4.0).labels(List.of("food")).build());
+    final Cart cart = cartRepository.save(Cart.builder().products(new ArrayList<>(List.of(pen, pen, cup))).amount(7.0).build());
+    final Cart empty = cartRepository.save(Cart.builder().products(new ArrayList<>()).amount(-1.0).build());
+
+    // When
+    final CartDto projected = cartRepository.findProjectedById(cart.getId(), EnumSet.of(CartField.PRODUCTS, CartField.TOTAL_COST)).orElseThrow();
+    final CartDto projectedEmpty = cartRepository.findProjectedById(empty.getId(), EnumSet.allOf(CartField.class)).orElseThrow();
+
+    // Then
+    final Map<Long, Integer> quantities = projected.getProducts().stream()
+        .collect(Collectors.toMap(CartProductDto::getProductId, CartProductDto::getQuantity));
+    assertEquals(Map.of(pen.getId(), 2, cup.getId(), 1), quantities);
+    assertEquals(7.0, projected.getAmount());
+    assertEquals(List.of(), projectedEmpty.getProducts());
+    assertNull(projectedEmpty.getAmount());
+    assertTrue(cartRepository.findProjectedById(-1L, EnumSet.of(CartField.ID)).isEmpty());
+  }
+
+  @Test
+  void test_find_active_projected_SelectsOnlyRequestedFieldsOfActiveCarts() {
+    // Given
+    final Cart cart = cartRepository.save(Cart.builder().products(new ArrayList<>()).amount(3.0).build());
+    final Cart checkedOut = cartRepository.save(Cart.builder().products(new ArrayList<>()).checkout(true).build());
+
+    // When
+    final List<CartDto> projected = cartRepository.findActiveProjected(EnumSet.of(CartField.CHECKOUT));
+
+    // Then
+    final CartDto found = projected.stream().filter(dto -> cart.getId().equals(dto.getId())).findFirst().orElseThrow();
+    assertFalse(found.isCheckout());
+    assertNull(found.getProducts());
+    assertNull(found.getAmount());
+    assertTrue(projected.stream().noneMatch(dto -> checkedOut.getId().equals(dto.getId())));
+  }
+
+  @Test
+  void test_delete_chunk_ReturnsOnlyCartsThatExisted() {
+    // Given
+    final Product pen = productRepository.save(Product.builder().name("Chunk Pen").price(1.0).build());
+    final Cart cart = cartRepository.save(Cart.builder().products(new ArrayList<>(List.of(pen))).build());
+
+    // When
+    final List<Long> deleted = cartRepository.deleteChunk(List.of(cart.getId(), -1L));
+
+    // Then
+    assertEquals(List.of(cart.getId()), deleted);
+    assertTrue(cartRepository.findById(cart.getId()).isEmpty());
+    assertEquals(List.of(), cartRepository.deleteChunk(List.of(cart.getId())));
+  }
+
+  @Test
+  void test_find_checked_out_ids_before_MatchesCartsWithoutCheckoutDate() {
+    // Given
+    final Cart legacy = cartRepository.save(Cart.builder().products(new ArrayList<>()).checkout(true).build());
+    final Cart recent = cartRepository.save(Cart.builder().products(new ArrayList<>()).checkout(true).checkedOutAt(new Date()).build());
+
+    // When
+    final List<Long> ids = cartRepository.findCheckedOutIdsBefore(new Date(0), PageRequest.of(0, 500));
+
+    // Then
+    assertTrue(ids.contains(legacy.getId()));
+    assertFalse(ids.contains(recent.getId()));
+  }
+}
@@ -0,0 +1,42 @@
+package co.uk.yapily.scheduling;
+
+import co.uk.yapily.config.JobsProperties;
+import co.uk.yapily.service.CartService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CartCleanupJobTest {
+
+  @Mock
+  private CartService cartService;
+
+  @Test
+  void test_run_DeletesArchivedCartsCheckedOutBeforeRetention() throws Exception {
+    // Given
+    final JobsProperties properties = new JobsProperties(true, Duration.ofSeconds(30), Duration.ofMinutes(5),
+        new JobsProperties.CartCleanup(true, Duration.ofHours(1), Duration.ofDays(30)));
+    final CartCleanupJob job = new CartCleanupJob(cartService, properties);
+    final ArgumentCaptor<Date> before = ArgumentCaptor.forClass(Date.class);
+    when(cartService.deleteArchivedBefore(before.capture())).thenReturn(3L);
+
+    // When
+    job.run();
+
+    // Then
+    final Instant expected = Instant.now().minus(Duration.ofDays(30));
+    assertTrue(Duration.between(before.getValue().toInstant(), expected).abs().toSeconds() < 5);
+    assertEquals("cart-cleanup", job.name());
+    assertEquals(Duration.ofHours(1), job.interval());
+  }
+}
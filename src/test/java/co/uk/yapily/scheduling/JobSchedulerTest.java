@@ -0,0 +1,168 @@
+package co.uk.yapily.scheduling;
+
+import co.uk.yapily.config.JobsProperties;
+import co.uk.yapily.entity.ScheduledJob;
+import co.uk.yapily.repository.ScheduledJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(locations = "classpath:application-test.yml")
+class JobSchedulerTest {
+
+  private static final JobsProperties PROPERTIES = new JobsProperties(true, Duration.ofSeconds(30), Duration.ofMinutes(5),
+      new JobsProperties.CartCleanup(false, Duration.ofHours(1), Duration.ofDays(90)));
+
+  @Autowired
+  private ScheduledJobRepository repository;
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Test
+  void test_poll_RunsOncePerIntervalAcrossInstances() {
+    // Given
+    final CountingJob job = new CountingJob("test-once", null);
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final JobScheduler first = scheduler(job, meterRegistry);
+    final JobScheduler second = scheduler(job, meterRegistry);
+
+    // When
+    final boolean firstRan = first.poll(job);
+    final boolean secondRan = second.poll(job);
+    final boolean firstRanAgain = first.poll(job);
+
+    // Then
+    assertTrue(firstRan);
+    assertFalse(secondRan);
+    assertFalse(firstRanAgain);
+    assertEquals(1, job.runs.get());
+    final ScheduledJob state = repository.findById("test-once").orElseThrow();
+    assertEquals("success", state.getLastOutcome());
+    assertNull(state.getLeaseOwner());
+    assertTrue(state.getNextRunAt().isAfter(Instant.now().plus(Duration.ofMinutes(59))));
+    assertEquals(1, meterRegistry.timer("yapily.jobs.runs", "job", "test-once", "outcome", "success").count());
+    assertEquals(2, meterRegistry.counter("yapily.jobs.skips", "job", "test-once", "reason", "not-due").count());
+  }
+
+  @Test
+  void test_poll_SkipsWhileAnotherInstanceHoldsTheLease() throws Exception {
+    // Given
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountingJob job = new CountingJob("test-overlap", () -> {
+      started.countDown();
+      release.await(10, TimeUnit.SECONDS);
+    });
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final JobScheduler first = scheduler(job, meterRegistry);
+    final JobScheduler second = scheduler(job, meterRegistry);
+    repository.save(new ScheduledJob("test-overlap", Instant.now().minusSeconds(1), null, null, null, null, null));
+
+    // When
+    final CompletableFuture<Boolean> run = CompletableFuture.supplyAsync(() -> first.poll(job));
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    // make the job due again while it runs, so only the lease keeps the second instance out
+    final ScheduledJob state = repository.findById("test-overlap").orElseThrow();
+    state.setNextRunAt(Instant.now().minusSeconds(1));
+    repository.save(state);
+    final boolean secondRan = second.poll(job);
+    final boolean firstRanTwice = first.poll(job);
+    release.countDown();
+
+    // Then
+    assertTrue(run.get(10, TimeUnit.SECONDS));
+    assertFalse(secondRan);
+    assertFalse(firstRanTwice);
+    assertEquals(1, job.runs.get());
+    assertEquals(1, meterRegistry.counter("yapily.jobs.skips", "job", "test-overlap", "reason", "leased").count());
+    assertEquals(1, meterRegistry.counter("yapily.jobs.skips", "job", "test-overlap", "reason", "running").count());
+  }
+
+  @Test
+  void test_poll_TakesOverExpiredLease() {
+    // Given
+    final CountingJob job = new CountingJob("test-expired", null);
+    repository.save(new ScheduledJob("test-expired", Instant.now().minusSeconds(60), "crashed-instance",
+        Instant.now().minusSeconds(1), Instant.now().minusSeconds(301), null, null));
+
+    // When
+    final boolean ran = scheduler(job, new SimpleMeterRegistry()).poll(job);
+
+    // Then
+    assertTrue(ran);
+    assertEquals(1, job.runs.get());
+  }
+
+  @Test
+  void test_poll_RecordsFailure() {
+    // Given
+    final CountingJob job = new CountingJob("test-failure", () -> {
+      throw new IllegalStateException("boom");
+    });
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // When
+    final boolean ran = scheduler(job, meterRegistry).poll(job);
+
+    // Then
+    assertTrue(ran);
+    assertEquals("failure", repository.findById("test-failure").orElseThrow().getLastOutcome());
+    assertEquals(1, meterRegistry.timer("yapily.jobs.runs", "job", "test-failure", "outcome", "failure").count());
+  }
+
+  private JobScheduler scheduler(final ClusterJob job, final SimpleMeterRegistry meterRegistry) {
+    return new JobScheduler(List.of(job), PROPERTIES, repository, dataSource, meterRegistry);
+  }
+
+  @FunctionalInterface
+  private interface Body {
+    void run() throws Exception;
+  }
+
+  private static final class CountingJob implements ClusterJob {
+
+    private final String name;
+    private final Body body;
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private CountingJob(final String name, final Body body) {
+      this.name = name;
+      this.body = body;
+    }
+
+    @Override
+    public String name() {
+      return name;
+    }
+
+    @Override
+    public Duration interval() {
+      return Duration.ofHours(1);
+    }
+
+    @Override
+    public void run() throws Exception {
+      runs.incrementAndGet();
+      if (body != null) {
+        body.run();
+      }
+    }
+  }
+}
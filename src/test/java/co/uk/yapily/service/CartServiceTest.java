@@ -2,13 +2,24 @@ package co.uk.yapily.service;
 
 import co.uk.yapily.dto.CartDto;
 import co.uk.yapily.dto.CartItemDto;
+import co.uk.yapily.dto.CartProductDto;
 import co.uk.yapily.dto.CheckoutDto;
 import co.uk.yapily.dto.ProductDto;
 import co.uk.yapily.entity.Cart;
 import co.uk.yapily.entity.Product;
+import co.uk.yapily.entity.PurchaseOrder;
+import co.uk.yapily.exception.ConflictException;
+import co.uk.yapily.exception.NotFoundException;
 import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.journal.CartJournal;
+import co.uk.yapily.pricing.PromotionEngine;
+import co.uk.yapily.pricing.PromotionRules;
+import co.uk.yapily.recommendation.CoPurchaseIndex;
 import co.uk.yapily.repository.CartRepository;
+import co.uk.yapily.store.ActiveCartStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,16 +29,20 @@ import org.modelmapper.TypeToken;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DataRetrievalFailureException;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -47,9 +62,29 @@ class CartServiceTest {
   @Mock
   private ModelMapper modelMapper;
 
+  @Mock
+  private ActiveCartStore cartStore;
+
+  @Mock
+  private CartJournal journal;
+
+  @Mock
+  private CoPurchaseIndex coPurchases;
+
+  @Mock
+  private OrderService orderService;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private PromotionEngine promotions;
+
   @BeforeEach
   public void setUp() {
-    cartService = new CartService(cartRepository, productService, modelMapper);
+    cartService = new CartService(cartRepository, productService, orderService, promotions, modelMapper, cartStore, journal,
+        coPurchases, new SimpleMeterRegistry(), transactionManager);
+    when(promotions.current()).thenReturn(PromotionRules.NONE);
   }
 
   @Test
@@ -84,7 +119,9 @@ class CartServiceTest {
     updatedCartDto.setId(cartId);
 
     final ProductDto productDto = new ProductDto(); // Example product DTO
+    final Product product = Product.builder().id(7L).price(2.5).build();
     when(productService.findById(cartItemDto.getProductId())).thenReturn(productDto); // Mocking productService behavior
+    when(modelMapper.map(productDto, Product.class)).thenReturn(product); // Mocking modelMapper behavior
     when(cartRepository.findById(cartId)).thenReturn(Optional.of(cartEntity)); // Mocking repository behavior
     when(cartRepository.save(any())).thenReturn(cartEntity); // Mocking repository behavior
     when(modelMapper.map(cartEntity, CartDto.class)).thenReturn(updatedCartDto); // Mocking modelMapper behavior
@@ -95,6 +132,7 @@ class CartServiceTest {
     // Assert
     assertNotNull(result);
     assertEquals(updatedCartDto, result);
+    verify(journal).itemAdded(cartId, 7L, 0, 2.5);
   }
 
   @Test
@@ -106,25 +144,35 @@ class CartServiceTest {
     cart.setCheckout(false);
     cart.addProduct(Product.builder().price(20.99).build());
 
-    when(cartRepository.findById(cartId)).thenReturn(Optional.of(cart));
+    when(cartRepository.findForCheckoutById(cartId)).thenReturn(Optional.of(cart));
     when(cartRepository.save(any(Cart.class))).thenReturn(cart);
     when(modelMapper.map(any(Cart.class), eq(CartDto.class))).thenReturn(new CartDto());
+    when(orderService.place(eq(cart), any(), eq(PromotionRules.NONE)))
+        .thenReturn(PurchaseOrder.builder().id(42L).cartId(cartId).amount(20.99).build());
 
     // Act
     final CheckoutDto checkoutDto = cartService.checkout(cartId);
     // Assert
     assertNotNull(checkoutDto.getCart());
     assertTrue(checkoutDto.getAmount() >= 0);
+    assertEquals(42L, checkoutDto.getOrderId());
+    assertEquals(20.99, checkoutDto.getAmount());
+    verify(orderService).place(eq(cart), any(), eq(PromotionRules.NONE));
+    verify(transactionManager).commit(any());
+    verify(journal).checkedOut(cartId, 1, 20.99);
+    verify(coPurchases).recordCheckout(cart.getProducts());
   }
 
   @Test
   void test_delete_Successful() throws ServiceException {
     // Given
     final Long id = 123L; // Example ID
+    when(cartRepository.deleteChunk(List.of(id))).thenReturn(List.of(id));
     // Act
     cartService.delete(id);
     // Assert
-    verify(cartRepository).deleteById(id);
+    verify(cartRepository).deleteChunk(List.of(id));
+    verify(journal).deleted(id);
   }
 
   @Test
@@ -147,6 +195,31 @@ class CartServiceTest {
     verify(cartRepository, times(1)).findById(cartId);
   }
 
+  @Test
+  void test_find_by_id_ExpandProducts_ReadsProductsWithTheCart() throws ServiceException {
+    // Given
+    final Product pen = Product.builder().id(3L).name("Pen").price(1.25).labels(List.of("limited")).build();
+    final Cart cart = new Cart();
+    cart.setProducts(List.of(pen, pen, pen));
+    when(cartRepository.findWithProductsById(1L)).thenReturn(Optional.of(cart));
+    when(modelMapper.map(cart, CartDto.class)).thenReturn(new CartDto());
+
+    // When
+    final CartDto cartDto = cartService.findById(1L, true);
+
+    // Then
+    assertEquals(1, cartDto.getProducts().size());
+    final CartProductDto line = cartDto.getProducts().get(0);
+    assertEquals(3L, line.getProductId());
+    assertEquals(3, line.getQuantity());
+    assertEquals("Pen", line.getName());
+    assertEquals(1.25, line.getUnitPrice());
+    assertEquals(List.of("limited"), line.getLabels());
+    assertEquals(3.75, line.getLineTotal());
+    verify(cartRepository, never()).findById(any());
+    verifyNoInteractions(productService);
+  }
+
   @Test
   void test_find_all_Successful() throws ServiceException {
     // Given
@@ -159,7 +232,7 @@ class CartServiceTest {
     carts.add(cart1);
     carts.add(cart2);
 
-    when(cartRepository.findAll()).thenReturn(carts);
+    when(cartRepository.findByCheckoutFalse()).thenReturn(carts);
 
     final List<CartDto> expectedCartsDto = new ArrayList<>();
     expectedCartsDto.add(new CartDto());
@@ -174,7 +247,7 @@ class CartServiceTest {
     assertEquals(expectedCartsDto.size(), actualCartsDto.size());
     verify(modelMapper, times(1)).map(carts, new TypeToken<List<CartDto>>() {
     }.getType());
-    verify(cartRepository, times(1)).findAll();
+    verify(cartRepository, times(1)).findByCheckoutFalse();
   }
 
   @Test
@@ -262,7 +335,7 @@ class CartServiceTest {
     cart.setId(cartId);
     cart.setCheckout(true);
 
-    when(cartRepository.findById(cartId)).thenReturn(Optional.of(cart));
+    when(cartRepository.findForCheckoutById(cartId)).thenReturn(Optional.of(cart));
     // Act and Assert
     assertThrows(ServiceException.class, () -> cartService.checkout(cartId));
   }
@@ -271,9 +344,9 @@ class CartServiceTest {
   void test_checkout_ShouldThrowExceptionWhenCartNotFound() {
     // Given
     final Long cartId = 1L;
-    when(cartRepository.findById(cartId)).thenReturn(Optional.empty());
+    when(cartRepository.findForCheckoutById(cartId)).thenReturn(Optional.empty());
     // Act and Assert
-    assertThrows(ServiceException.class, () -> cartService.checkout(cartId));
+    assertThrows(NotFoundException.class, () -> cartService.checkout(cartId));
   }
 
   @Test
@@ -284,35 +357,65 @@ class CartServiceTest {
     cart.setId(cartId);
     cart.setCheckout(true); // Set cart to already checked out
 
-    when(cartRepository.findById(cartId)).thenReturn(Optional.of(cart));
+    when(cartRepository.findForCheckoutById(cartId)).thenReturn(Optional.of(cart));
+    // Act and Assert
+    final ServiceException exception = assertThrows(ConflictException.class, () -> cartService.checkout(cartId));
+    assertEquals("Cart is already checked out!", exception.getMessage());
+    assertEquals(0, exception.getStackTrace().length);
+  }
+
+  @Test
+  void test_checkout_ShouldThrowConflictWhenTheOrderIsAlreadyArchived() {
+    // Given
+    final Long cartId = 1L;
+    final Cart cart = new Cart();
+    cart.setId(cartId);
+    when(cartRepository.findForCheckoutById(cartId)).thenReturn(Optional.of(cart));
+    final SQLException duplicate = new SQLException("duplicate key", "23505");
+    when(orderService.place(eq(cart), any(), eq(PromotionRules.NONE))).thenThrow(new DataIntegrityViolationException("duplicate",
+        new ConstraintViolationException("duplicate", duplicate, PurchaseOrder.CART_ID_INDEX)));
+
+    // Act and Assert
+    assertThrows(ConflictException.class, () -> cartService.checkout(cartId));
+    verify(journal, never()).checkedOut(anyLong(), anyInt(), any());
+  }
+
+  @Test
+  void test_checkout_ShouldNotReportOtherIntegrityViolationsAsConflicts() {
+    // Given
+    final Long cartId = 1L;
+    final Cart cart = new Cart();
+    cart.setId(cartId);
+    when(cartRepository.findForCheckoutById(cartId)).thenReturn(Optional.of(cart));
+    final SQLException notNull = new SQLException("null value in column", "23502");
+    when(orderService.place(eq(cart), any(), eq(PromotionRules.NONE))).thenThrow(new DataIntegrityViolationException("not null",
+        new ConstraintViolationException("not null", notNull, "line_items")));
+
     // Act and Assert
     final ServiceException exception = assertThrows(ServiceException.class, () -> cartService.checkout(cartId));
-    assertEquals("An unexpected error occurred while checking out cart: Reason: Cart is already checked out!", exception.getMessage());
+    assertFalse(exception instanceof ConflictException);
   }
 
   @Test
   void test_delete_ShouldLogWarningWhenDeletingNonExistentCart() {
     // Arrange
     final Long id = 456L; // Example non-existent ID
-    doThrow(EmptyResultDataAccessException.class).when(cartRepository).deleteById(id); // Mocking repository behavior
+    when(cartRepository.deleteChunk(List.of(id))).thenReturn(List.of()); // Mocking repository behavior
     // Act
-    try {
-      cartService.delete(id);
-    } catch (final ServiceException e) {
-      // Ignoring ServiceException as it's expected in this scenario
-    }
+    assertDoesNotThrow(() -> cartService.delete(id));
     // Assert
-    verify(cartRepository).deleteById(id);
+    verify(cartRepository).deleteChunk(List.of(id));
+    verify(journal, never()).deleted(anyLong());
   }
 
   @Test
   void test_find_all_ShouldThrowServiceException_whenDataRetrievalFailureExceptionOccurs() {
     // Arrange
-    when(cartRepository.findAll()).thenThrow(DataRetrievalFailureException.class);
+    when(cartRepository.findByCheckoutFalse()).thenThrow(DataRetrievalFailureException.class);
 
     // Act & Assert
     assertThrows(ServiceException.class, () -> cartService.findAll());
-    verify(cartRepository, times(1)).findAll();
+    verify(cartRepository, times(1)).findByCheckoutFalse();
   }
 
   @Test
@@ -325,4 +428,93 @@ class CartServiceTest {
     assertThrows(ServiceException.class, () -> cartService.findById(cartId));
     verify(cartRepository, times(1)).findById(cartId);
   }
+
+  @Test
+  void test_delete_all_DeletesInBoundedChunks() throws ServiceException {
+    // Given
+    final List<Long> ids = new ArrayList<>(LongStream.rangeClosed(1, 1200).boxed().toList());
+    ids.add(1L); // duplicate
+    ids.add(null);
+    when(cartRepository.deleteChunk(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // Act
+    final long deleted = cartService.deleteAll(ids);
+
+    // Assert
+    assertEquals(1200, deleted);
+    verify(cartRepository, times(3)).deleteChunk(anyList());
+    verify(cartRepository, never()).deleteById(any());
+  }
+
+  @Test
+  void test_delete_all_JournalsOnlyCartsThatExisted() throws ServiceException {
+    // Given
+    when(cartRepository.deleteChunk(List.of(1L, 2L, 3L))).thenReturn(List.of(1L, 3L));
+
+    // Act
+    final long deleted = cartService.deleteAll(List.of(1L, 2L, 3L));
+
+    // Assert
+    assertEquals(2, deleted);
+    verify(journal).deleted(1L);
+    verify(journal).deleted(3L);
+    verify(journal, never()).deleted(2L);
+  }
+
+  @Test
+  void test_delete_all_ShouldThrowServiceExceptionOnDataAccessException() {
+    // Given
+    when(cartRepository.deleteChunk(anyList())).thenThrow(DataRetrievalFailureException.class);
+
+    // Act & Assert
+    assertThrows(ServiceException.class, () -> cartService.deleteAll(List.of(1L, 2L)));
+  }
+
+  @Test
+  void test_delete_checked_out_before_DeletesChunksUntilNoneIsLeft() throws ServiceException {
+    // Given
+    final Date before = new Date();
+    final List<Long> fullChunk = LongStream.rangeClosed(1, CartService.BULK_DELETE_CHUNK_SIZE).boxed().toList();
+    final List<Long> lastChunk = List.of(501L, 502L);
+    when(cartRepository.findCheckedOutIdsBefore(eq(before), any())).thenReturn(fullChunk, lastChunk);
+    when(cartRepository.deleteChunk(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // Act
+    final long deleted = cartService.deleteCheckedOutBefore(before);
+
+    // Assert
+    assertEquals(CartService.BULK_DELETE_CHUNK_SIZE + 2, deleted);
+    verify(cartRepository, times(2)).findCheckedOutIdsBefore(eq(before), any());
+    verify(cartRepository).deleteChunk(lastChunk);
+  }
+
+  @Test
+  void test_delete_archived_before_DeletesOnlyArchivedCarts() throws ServiceException {
+    // Given
+    final Date before = new Date();
+    when(cartRepository.findArchivedIdsBefore(eq(before), any())).thenReturn(List.of(3L, 4L));
+    when(cartRepository.deleteChunk(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // Act
+    final long deleted = cartService.deleteArchivedBefore(before);
+
+    // Assert
+    assertEquals(2, deleted);
+    verify(cartRepository).deleteChunk(List.of(3L, 4L));
+    verify(cartRepository, never()).findCheckedOutIdsBefore(any(), any());
+  }
+
+  @Test
+  void test_delete_all_EvictsResidentCartsWhenStoreIsEnabled() throws ServiceException {
+    // Given
+    when(cartStore.isEnabled()).thenReturn(true);
+    when(cartStore.evictAll(anyList(), any())).thenReturn(List.of(1L, 2L));
+
+    // Act
+    final long deleted = cartService.deleteAll(List.of(1L, 2L));
+
+    // Assert
+    assertEquals(2, deleted);
+    verify(cartStore).evictAll(eq(List.of(1L, 2L)), any());
+  }
 }
@@ -0,0 +1,152 @@
+package co.uk.yapily.service;
+
+import co.uk.yapily.dto.CartField;
+import co.uk.yapily.dto.CartProductDto;
+import co.uk.yapily.dto.CheckoutDto;
+import co.uk.yapily.dto.OrderDto;
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.exception.ConflictException;
+import co.uk.yapily.exception.NotFoundException;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.repository.CartRepository;
+import co.uk.yapily.repository.ProductRepository;
+import co.uk.yapily.repository.PurchaseOrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@TestPropertySource(locations = "classpath:application-test.yml")
+class OrderServiceTest {
+
+  @Autowired
+  private OrderService orderService;
+
+  @Autowired
+  private CartService cartService;
+
+  @Autowired
+  private CartRepository cartRepository;
+
+  @Autowired
+  private ProductRepository productRepository;
+
+  @Autowired
+  private PurchaseOrderRepository orderRepository;
+
+  @Test
+  void test_checkout_ArchivesLinesAsTheyWereAtCheckout() throws ServiceException {
+    // Given
+    final Product pen = productRepository.save(Product.builder().name("Order Pen").price(1.25).labels(new ArrayList<>(List.of("limited"))).build());
+    final Product cup = productRepository.save(Product.builder().name("Order Cup").price(4.0).labels(new ArrayList<>(List.of("food"))).build());
+    final Cart cart = cartRepository.save(Cart.builder().products(new ArrayList<>(List.of(pen, pen, pen, cup))).build());
+
+    // When
+    final CheckoutDto checkout = cartService.checkout(cart.getId());
+    pen.setPrice(9.99);
+    productRepository.save(pen);
+    final OrderDto order = orderService.findById(checkout.getOrderId());
+
+    // Then
+    assertEquals(cart.getId(), order.getCartId());
+    assertEquals(7.75, order.getAmount());
+    assertNotNull(order.getPlacedAt());
+    final CartProductDto penLine = order.getProducts().get(0);
+    assertEquals(pen.getId(), penLine.getProductId());
+    assertEquals("Order Pen", penLine.getName());
+    assertEquals(1.25, penLine.getUnitPrice());
+    assertEquals(3, penLine.getQuantity());
+    assertEquals(3.75, penLine.getLineTotal());
+    assertEquals(List.of("limited"), penLine.getLabels());
+    assertEquals(cup.getId(), order.getProducts().get(1).getProductId());
+    assertTrue(cartService.findAll(EnumSet.of(CartField.ID), false).stream().noneMatch(dto -> cart.getId().equals(dto.getId())));
+  }
+
+  @Test
+  void test_delete_archived_before_KeepsOrdersAndCartsWithoutOrder() throws ServiceException {
+    // Given
+    final Cart archived = cartRepository.save(Cart.builder().products(new ArrayList<>()).build());
+    final Long orderId = cartService.checkout(archived.getId()).getOrderId();
+    final Cart legacy = cartRepository.save(Cart.builder().products(new ArrayList<>()).checkout(true).checkedOutAt(new Date(0)).build());
+
+    // When
+    final long deleted = cartService.deleteArchivedBefore(new Date(System.currentTimeMillis() + 60_000));
+
+    // Then
+    assertTrue(deleted >= 1);
+    assertTrue(cartRepository.findById(archived.getId()).isEmpty());
+    assertTrue(cartRepository.findById(legacy.getId()).isPresent());
+    assertTrue(orderRepository.findById(orderId).isPresent());
+  }
+
+  @Test
+  void test_checkout_ConcurrentCheckoutsOfACartPlaceOneOrder() throws Exception {
+    // Given
+    final Product pen = productRepository.save(Product.builder().name("Race Pen").price(2.0).build());
+    final Cart cart = cartRepository.save(Cart.builder().products(new ArrayList<>(List.of(pen))).build());
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final CountDownLatch start = new CountDownLatch(1);
+
+    // When
+    final List<Future<CheckoutDto>> checkouts = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      checkouts.add(executor.submit(() -> {
+        start.await();
+        return cartService.checkout(cart.getId());
+      }));
+    }
+    start.countDown();
+    int placed = 0;
+    int conflicts = 0;
+    for (final Future<CheckoutDto> checkout : checkouts) {
+      try {
+        checkout.get(30, TimeUnit.SECONDS);
+        placed++;
+      } catch (final ExecutionException e) {
+        assertInstanceOf(ConflictException.class, e.getCause());
+        conflicts++;
+      }
+    }
+    executor.shutdown();
+
+    // Then
+    assertEquals(1, placed);
+    assertEquals(3, conflicts);
+    assertTrue(orderRepository.findByCartId(cart.getId()).isPresent());
+  }
+
+  @Test
+  void test_checkout_SecondOrderForACartIsAConflict() throws ServiceException {
+    // Given
+    final Cart cart = cartRepository.save(Cart.builder().products(new ArrayList<>()).build());
+    cartService.checkout(cart.getId());
+    final Cart reopened = cartRepository.findById(cart.getId()).orElseThrow();
+    reopened.setCheckout(false);
+    cartRepository.save(reopened);
+
+    // When / Then
+    assertThrows(ConflictException.class, () -> cartService.checkout(cart.getId()));
+  }
+
+  @Test
+  void test_find_by_id_ThrowsNotFoundForUnknownOrder() {
+    assertThrows(NotFoundException.class, () -> orderService.findById(-1L));
+  }
+}
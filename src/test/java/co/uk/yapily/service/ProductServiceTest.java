@@ -1,27 +1,41 @@
 package co.uk.yapily.service;
 
+import co.uk.yapily.catalog.ProductCatalog;
+import co.uk.yapily.dto.ProductBatchDto;
+import co.uk.yapily.dto.ProductChangesDto;
 import co.uk.yapily.dto.ProductDto;
 import co.uk.yapily.entity.Product;
+import co.uk.yapily.event.ProductChangedEvent;
+import co.uk.yapily.exception.InvalidRequestException;
+import co.uk.yapily.exception.NotFoundException;
 import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.entity.ProductTombstone;
 import co.uk.yapily.repository.ProductRepository;
+import co.uk.yapily.repository.ProductTombstoneRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
+import org.springframework.data.domain.Limit;
 import org.modelmapper.ModelMapper;
 import org.modelmapper.TypeToken;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
@@ -34,12 +48,21 @@ class ProductServiceTest {
   @Mock
   private ProductRepository productRepository;
 
+  @Mock
+  private ProductTombstoneRepository tombstoneRepository;
+
   @Mock
   private ModelMapper modelMapper;
 
+  @Mock
+  private ProductCatalog catalog;
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
   @BeforeEach
   public void setUp() {
-    productService = new ProductService(productRepository, modelMapper);
+    productService = new ProductService(productRepository, tombstoneRepository, modelMapper, catalog, eventPublisher, new SimpleMeterRegistry());
   }
 
   @Test
@@ -53,7 +76,7 @@ class ProductServiceTest {
 
     // When
     when(modelMapper.map(productDto, Product.class)).thenReturn(product);
-    when(productRepository.save(product)).thenReturn(product);
+    when(productRepository.saveVersioned(product)).thenReturn(product);
     when(modelMapper.map(product, ProductDto.class)).thenReturn(productDto);
 
     // Then
@@ -63,6 +86,25 @@ class ProductServiceTest {
     assertEquals("Test Product", savedProduct.getName());
   }
 
+  @Test
+  void test_save_product_PublishesChange() throws ServiceException {
+    // Given
+    final ProductDto productDto = new ProductDto();
+    productDto.setId(5L);
+    final Product product = new Product();
+    product.setUpdatedAt(Instant.parse("2024-03-01T10:15:30Z"));
+    product.setChangeVersion(7L);
+
+    // When
+    when(modelMapper.map(productDto, Product.class)).thenReturn(product);
+    when(productRepository.saveVersioned(product)).thenReturn(product);
+    when(modelMapper.map(product, ProductDto.class)).thenReturn(productDto);
+    productService.save(productDto);
+
+    // Then
+    verify(eventPublisher).publishEvent(ProductChangedEvent.upserted(productDto, Instant.parse("2024-03-01T10:15:30Z"), 7L));
+  }
+
   @Test
   void test_find_by_id_Successful() throws ServiceException {
     // Arrange
@@ -78,6 +120,20 @@ class ProductServiceTest {
     // Assert
     assertNotNull(result);
     assertEquals(productDto, result);
+    verify(catalog).remember(product);
+  }
+
+  @Test
+  void test_find_by_id_ServedFromCatalog() throws ServiceException {
+    // Arrange
+    final ProductDto productDto = new ProductDto();
+    productDto.setId(123L);
+    when(catalog.find(123L)).thenReturn(Optional.of(productDto));
+    // Act
+    final ProductDto result = productService.findById(123L);
+    // Assert
+    assertEquals(productDto, result);
+    verify(productRepository, never()).findById(any());
   }
 
   @Test
@@ -109,10 +165,23 @@ class ProductServiceTest {
   void test_delete_Successful() throws ServiceException {
     // Given
     final Long id = 123L; // Example ID
+    when(productRepository.deleteVersioned(id)).thenReturn(true);
     // Act
     productService.delete(id);
     // Assert
-    verify(productRepository).deleteById(id);
+    verify(productRepository).deleteVersioned(id);
+    verify(eventPublisher).publishEvent(ProductChangedEvent.deleted(id));
+  }
+
+  @Test
+  void test_delete_DoesNotPublishWhenProductDidNotExist() throws ServiceException {
+    // Given
+    final Long id = 789L;
+    when(productRepository.deleteVersioned(id)).thenReturn(false);
+    // Act
+    productService.delete(id);
+    // Assert
+    verify(eventPublisher, never()).publishEvent(any());
   }
 
   @Test
@@ -123,7 +192,7 @@ class ProductServiceTest {
 
     // When
     when(modelMapper.map(productDto, Product.class)).thenReturn(product);
-    when(productRepository.save(product)).thenThrow(DataIntegrityViolationException.class);
+    when(productRepository.saveVersioned(product)).thenThrow(DataIntegrityViolationException.class);
 
     // Act & Assert
     assertThrows(ServiceException.class, () -> productService.save(productDto));
@@ -133,7 +202,7 @@ class ProductServiceTest {
   void test_delete_ShouldLogWarningWhenDeletingNonExistentProduct() {
     // Arrange
     final Long id = 456L; // Example non-existent ID
-    doThrow(EmptyResultDataAccessException.class).when(productRepository).deleteById(id); // Mocking repository behavior
+    doThrow(EmptyResultDataAccessException.class).when(productRepository).deleteVersioned(id); // Mocking repository behavior
     // Act
     try {
       productService.delete(id);
@@ -141,13 +210,13 @@ class ProductServiceTest {
       // Ignoring ServiceException as it's expected in this scenario
     }
     // Assert
-    verify(productRepository).deleteById(id);
+    verify(productRepository).deleteVersioned(id);
   }
 
   @Test
   void test_find_by_id_ShouldThrowServiceExceptionWhenIdIsNull() {
     // Act & Assert
-    assertThrows(ServiceException.class, () -> productService.findById(null));
+    assertThrows(InvalidRequestException.class, () -> productService.findById(null));
   }
 
   @Test
@@ -156,7 +225,9 @@ class ProductServiceTest {
     final Long id = 111L; // Example ID
     when(productRepository.findById(id)).thenReturn(Optional.empty()); // Mocking repository behavior
     // Act & Assert
-    assertThrows(ServiceException.class, () -> productService.findById(id));
+    final NotFoundException exception = assertThrows(NotFoundException.class, () -> productService.findById(id));
+    assertEquals("Product not found with ID: 111", exception.getMessage());
+    assertEquals(0, exception.getStackTrace().length);
   }
 
   @Test
@@ -165,7 +236,8 @@ class ProductServiceTest {
     final Long id = 111L; // Example ID
     when(productRepository.findById(id)).thenThrow(DataRetrievalFailureException.class); // Mocking repository behavior
     // Act & Assert
-    assertThrows(ServiceException.class, () -> productService.findById(id));
+    final ServiceException exception = assertThrows(ServiceException.class, () -> productService.findById(id));
+    assertFalse(exception instanceof NotFoundException);
   }
 
   @Test
@@ -177,4 +249,103 @@ class ProductServiceTest {
     // Assert
     assertNull(result); // find all products will return null
   }
+
+  @Test
+  void test_delete_all_DeletesDistinctIdsInChunks() throws ServiceException {
+    // Arrange
+    when(productRepository.deleteChunk(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    // Act
+    final long deleted = productService.deleteAll(List.of(1L, 2L, 2L, 3L));
+    // Assert
+    assertEquals(3, deleted);
+    verify(productRepository).deleteChunk(List.of(1L, 2L, 3L));
+    verify(productRepository, never()).deleteById(any());
+  }
+
+  @Test
+  void test_delete_all_PublishesOnlyProductsThatExisted() throws ServiceException {
+    // Arrange
+    when(productRepository.deleteChunk(List.of(1L, 2L))).thenReturn(List.of(2L));
+    // Act
+    final long deleted = productService.deleteAll(List.of(1L, 2L));
+    // Assert
+    assertEquals(1, deleted);
+    verify(eventPublisher).publishEvent(ProductChangedEvent.deleted(2L));
+    verify(eventPublisher, never()).publishEvent(ProductChangedEvent.deleted(1L));
+  }
+
+  @Test
+  void test_delete_all_ShouldThrowServiceExceptionOnDataAccessException() {
+    // Arrange
+    when(productRepository.deleteChunk(anyList())).thenThrow(DataRetrievalFailureException.class);
+    // Act & Assert
+    assertThrows(ServiceException.class, () -> productService.deleteAll(List.of(1L)));
+  }
+
+  @Test
+  void test_find_all_by_id_KeepsRequestOrderAndReportsMissingIds() throws ServiceException {
+    // Arrange
+    final ProductDto cached = ProductDto.builder().id(3L).name("Cached").build();
+    final Product product = new Product();
+    product.setId(1L);
+    final ProductDto loaded = ProductDto.builder().id(1L).name("Loaded").build();
+    when(catalog.find(3L)).thenReturn(Optional.of(cached));
+    when(productRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(product));
+    when(modelMapper.map(product, ProductDto.class)).thenReturn(loaded);
+    // Act
+    final ProductBatchDto result = productService.findAllById(List.of(3L, 1L, 2L, 3L));
+    // Assert
+    assertEquals(List.of(cached, loaded), result.getProducts());
+    assertEquals(List.of(2L), result.getMissingIds());
+    verify(productRepository).findAllById(List.of(1L, 2L));
+    verify(catalog).remember(product);
+  }
+
+  @Test
+  void test_find_all_by_id_ShouldThrowInvalidRequestExceptionWhenTooManyIds() {
+    // Arrange
+    final List<Long> ids = LongStream.rangeClosed(1, ProductService.MULTI_GET_MAX_IDS + 1).boxed().toList();
+    // Act & Assert
+    assertThrows(InvalidRequestException.class, () -> productService.findAllById(ids));
+    assertThrows(InvalidRequestException.class, () -> productService.findAllById(List.of()));
+    verifyNoInteractions(productRepository);
+  }
+
+  @Test
+  void test_find_changes_MergesUpsertsAndTombstonesByVersion() throws ServiceException {
+    // Arrange
+    final Product product = new Product();
+    product.setId(1L);
+    product.setChangeVersion(11L);
+    final Product updated = new Product();
+    updated.setId(3L);
+    updated.setChangeVersion(13L);
+    final ProductTombstone tombstone = new ProductTombstone(2L, 12L, Instant.parse("2024-03-01T10:15:30Z"));
+    when(productRepository.currentChangeVersion()).thenReturn(20L);
+    when(productRepository.findByChangeVersionBetweenOrderByChangeVersionAsc(11L, 20L, Limit.of(3))).thenReturn(List.of(product, updated));
+    when(tombstoneRepository.findByChangeVersionBetweenOrderByChangeVersionAsc(11L, 20L, Limit.of(3))).thenReturn(List.of(tombstone));
+    // Act
+    final ProductChangesDto result = productService.findChanges(10L, 2);
+    // Assert
+    assertEquals(2, result.getChanges().size());
+    assertEquals(ProductChangedEvent.ChangeType.UPSERTED, result.getChanges().get(0).getType());
+    assertEquals(1L, result.getChanges().get(0).getProductId());
+    assertEquals(ProductChangedEvent.ChangeType.DELETED, result.getChanges().get(1).getType());
+    assertEquals(2L, result.getChanges().get(1).getProductId());
+    assertEquals(12L, result.getNextSince());
+    assertTrue(result.isHasMore());
+  }
+
+  @Test
+  void test_find_changes_NothingCommittedAfterSince() throws ServiceException {
+    // Arrange
+    when(productRepository.currentChangeVersion()).thenReturn(10L);
+    // Act
+    final ProductChangesDto result = productService.findChanges(10L, 100);
+    // Assert
+    assertTrue(result.getChanges().isEmpty());
+    assertEquals(10L, result.getNextSince());
+    assertFalse(result.isHasMore());
+    verifyNoInteractions(tombstoneRepository);
+  }
 }
@@ -0,0 +1,72 @@
+package co.uk.yapily.service.support;
+
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartLinesTest {
+
+  @Test
+  void test_forEachLine_GroupsByIdInFirstAppearanceOrder() {
+    // Given
+    final Product tea = product(3L, "Tea");
+    final Product coffee = product(1L, "Coffee");
+    final Product teaCopy = product(3L, "Tea, reloaded");
+    final List<Long> ids = new ArrayList<>();
+    final List<Integer> quantities = new ArrayList<>();
+
+    // When
+    final int lines = CartLines.forEachLine(List.of(tea, coffee, teaCopy, coffee, tea), (product, quantity) -> {
+      ids.add(product.getId());
+      quantities.add(quantity);
+    });
+
+    // Then
+    assertEquals(2, lines);
+    assertEquals(List.of(3L, 1L), ids);
+    assertEquals(List.of(3, 2), quantities);
+  }
+
+  @Test
+  void test_forEachLine_DoesNotHashCyclicEntities() {
+    // Given
+    final Product tea = product(1L, "Tea");
+    final Cart cart = new Cart();
+    cart.addProduct(tea);
+    cart.addProduct(tea);
+    tea.getCarts().add(cart);
+    final List<Integer> quantities = new ArrayList<>();
+
+    // When
+    CartLines.forEachLine(cart.getProducts(), (product, quantity) -> quantities.add(quantity));
+
+    // Then
+    assertEquals(List.of(2), quantities);
+  }
+
+  @Test
+  void test_forEachLine_GroupsTransientProductsByReference() {
+    // Given
+    final Product first = new Product();
+    final Product second = new Product();
+    final List<Integer> quantities = new ArrayList<>();
+
+    // When
+    CartLines.forEachLine(List.of(first, second, first), (product, quantity) -> quantities.add(quantity));
+
+    // Then
+    assertEquals(List.of(2, 1), quantities);
+  }
+
+  private static Product product(final Long id, final String name) {
+    final Product product = new Product();
+    product.setId(id);
+    product.setName(name);
+    return product;
+  }
+}
@@ -0,0 +1,59 @@
+package co.uk.yapily.service.support;
+
+import co.uk.yapily.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeVersionBackfillTest {
+
+  @Mock
+  private ProductRepository repository;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Test
+  void test_run_NumbersProductsWithoutVersionInChunks() {
+    // Given
+    final List<Long> ids = LongStream.rangeClosed(1, ChangeVersionBackfill.CHUNK_SIZE + 2).boxed().toList();
+    when(repository.findIdsWithoutChangeVersion()).thenReturn(ids);
+    when(repository.reserveChangeVersions(ChangeVersionBackfill.CHUNK_SIZE)).thenReturn(600L);
+    when(repository.reserveChangeVersions(2)).thenReturn(700L);
+    when(repository.updateChangeVersion(anyLong(), anyLong())).thenReturn(1);
+
+    // When
+    new ChangeVersionBackfill(repository, transactionManager).run(null);
+
+    // Then
+    final InOrder inOrder = inOrder(repository);
+    inOrder.verify(repository).updateChangeVersion(1L, 101L);
+    inOrder.verify(repository).updateChangeVersion((long) ChangeVersionBackfill.CHUNK_SIZE, 600L);
+    inOrder.verify(repository).updateChangeVersion(ChangeVersionBackfill.CHUNK_SIZE + 1L, 699L);
+    inOrder.verify(repository).updateChangeVersion(ChangeVersionBackfill.CHUNK_SIZE + 2L, 700L);
+    verify(transactionManager, times(2)).commit(any());
+  }
+
+  @Test
+  void test_run_NothingToBackfill() {
+    // Given
+    when(repository.findIdsWithoutChangeVersion()).thenReturn(List.of());
+
+    // When
+    new ChangeVersionBackfill(repository, transactionManager).run(null);
+
+    // Then
+    verify(repository, never()).reserveChangeVersions(anyInt());
+    verifyNoInteractions(transactionManager);
+  }
+}
@@ -0,0 +1,156 @@
+package co.uk.yapily.service.support;
+
+import co.uk.yapily.exception.ServiceException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+  private static final int CALLERS = 8;
+
+  private SimpleMeterRegistry registry;
+  private SingleFlight<Long, String> singleFlight;
+  private ExecutorService executor;
+
+  @BeforeEach
+  public void setUp() {
+    registry = new SimpleMeterRegistry();
+    singleFlight = new SingleFlight<>("product", registry);
+    executor = Executors.newFixedThreadPool(CALLERS);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void test_execute_ConcurrentCallersShareOneLoad() throws Exception {
+    // Given
+    final AtomicInteger loads = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final SingleFlight.Loader<String> loader = () -> {
+      loads.incrementAndGet();
+      await(release);
+      return "Coffee";
+    };
+
+    // When
+    final List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      results.add(executor.submit(() -> singleFlight.execute(1L, loader)));
+    }
+    waitForCoalescedCalls(CALLERS - 1);
+    release.countDown();
+
+    // Then
+    for (final Future<String> result : results) {
+      assertEquals("Coffee", result.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, loads.get());
+    assertEquals(1.0, count("executed"));
+    assertEquals(CALLERS - 1.0, count("coalesced"));
+    assertEquals(0.0, registry.get("yapily.coalescing.in.flight").gauge().value());
+  }
+
+  @Test
+  void test_execute_FailureIsSharedWithWaitingCallers() throws Exception {
+    // Given
+    final CountDownLatch release = new CountDownLatch(1);
+    final SingleFlight.Loader<String> loader = () -> {
+      await(release);
+      throw new ServiceException("Product not found with ID: 1");
+    };
+
+    // When
+    final Future<String> leader = executor.submit(() -> singleFlight.execute(1L, loader));
+    waitForInFlight();
+    final Future<String> follower = executor.submit(() -> singleFlight.execute(1L, () -> "never loaded"));
+    waitForCoalescedCalls(1);
+    release.countDown();
+
+    // Then
+    for (final Future<String> result : List.of(leader, follower)) {
+      final Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(ServiceException.class, e.getCause());
+      assertEquals("Product not found with ID: 1", e.getCause().getMessage());
+    }
+  }
+
+  @Test
+  void test_execute_DoesNotCacheCompletedLoads() throws ServiceException {
+    // Given
+    final AtomicInteger loads = new AtomicInteger();
+
+    // When
+    singleFlight.execute(1L, () -> "load " + loads.incrementAndGet());
+    singleFlight.execute(1L, () -> "load " + loads.incrementAndGet());
+
+    // Then
+    assertEquals(2, loads.get());
+    assertEquals(0.0, count("coalesced"));
+  }
+
+  @Test
+  void test_forget_LaterCallersStartAFreshLoad() throws Exception {
+    // Given
+    final CountDownLatch release = new CountDownLatch(1);
+    final Future<String> stale = executor.submit(() -> singleFlight.execute(1L, () -> {
+      await(release);
+      return "before update";
+    }));
+    waitForInFlight();
+
+    // When
+    singleFlight.forget(1L);
+    final String fresh = singleFlight.execute(1L, () -> "after update");
+    release.countDown();
+
+    // Then
+    assertEquals("after update", fresh);
+    assertEquals("before update", stale.get(5, TimeUnit.SECONDS));
+    assertEquals(0.0, count("coalesced"));
+  }
+
+  private double count(final String outcome) {
+    return registry.get("yapily.coalescing.calls").tag("name", "product").tag("outcome", outcome).counter().count();
+  }
+
+  private void waitForInFlight() throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (registry.get("yapily.coalescing.in.flight").gauge().value() < 1 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  private void waitForCoalescedCalls(final int expected) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (count("coalesced") < expected && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  private static void await(final CountDownLatch latch) throws ServiceException {
+    try {
+      if (!latch.await(5, TimeUnit.SECONDS)) {
+        throw new ServiceException("Timed out");
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceException(e);
+    }
+  }
+}
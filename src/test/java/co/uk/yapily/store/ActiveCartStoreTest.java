@@ -0,0 +1,257 @@
+package co.uk.yapily.store;
+
+import co.uk.yapily.config.ActiveCartStoreProperties;
+import co.uk.yapily.entity.Cart;
+import co.uk.yapily.entity.Product;
+import co.uk.yapily.exception.ServiceException;
+import co.uk.yapily.repository.CartRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ActiveCartStoreTest {
+
+  private static final ActiveCartStoreProperties PROPERTIES =
+      new ActiveCartStoreProperties(true, Duration.ofHours(1), 2, 8, Duration.ofMinutes(10));
+
+  /**
+   * Stands in for the database: what was flushed survives a "crash", anything else does not.
+   */
+  private final Map<Long, Cart> database = new ConcurrentHashMap<>();
+
+  private CartRepository cartRepository;
+  private ActiveCartStore store;
+  private Product product;
+
+  @BeforeEach
+  public void setUp() {
+    cartRepository = mock(CartRepository.class);
+    when(cartRepository.findWithProductsById(any())).thenAnswer(invocation -> Optional.ofNullable(database.get(invocation.<Long>getArgument(0)))
+        .map(ActiveCartStoreTest::copy));
+    when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> persist(invocation.getArgument(0)));
+    when(cartRepository.saveAll(anyList())).thenAnswer(invocation -> {
+      final List<Cart> carts = invocation.getArgument(0);
+      carts.forEach(this::persist);
+      return carts;
+    });
+
+    database.put(1L, Cart.builder().id(1L).checkout(false).products(new ArrayList<>()).build());
+    database.put(2L, Cart.builder().id(2L).checkout(false).products(new ArrayList<>()).build());
+    database.put(3L, Cart.builder().id(3L).checkout(false).products(new ArrayList<>()).build());
+    product = Product.builder().id(10L).name("Coffee").price(2.5).build();
+    store = new ActiveCartStore(cartRepository, PROPERTIES);
+  }
+
+  @Test
+  void test_update_IsNotWrittenUntilFlushed() throws ServiceException {
+    // When
+    final int size = store.update(1L, cart -> {
+      cart.addProduct(product);
+      return cart.getProducts().size();
+    });
+
+    // Then
+    assertEquals(1, size);
+    assertEquals(0, database.get(1L).getProducts().size());
+    assertEquals(1, store.dirtyCount());
+    verify(cartRepository, never()).save(any());
+    verify(cartRepository, never()).saveAll(anyList());
+
+    // When
+    store.flushAll();
+
+    // Then
+    assertEquals(1, database.get(1L).getProducts().size());
+    assertEquals(0, store.dirtyCount());
+    assertEquals(1, store.residentCount());
+  }
+
+  @Test
+  void test_flush_PersistsDirtyCartsInBoundedBatches() throws ServiceException {
+    // Given
+    for (long cartId = 1L; cartId <= 3L; cartId++) {
+      store.update(cartId, cart -> cart.getProducts().add(product));
+    }
+
+    // When
+    store.flushAll();
+
+    // Then
+    verify(cartRepository, times(2)).saveAll(anyList()); // batch size is 2
+    assertEquals(1, database.get(3L).getProducts().size());
+  }
+
+  @Test
+  void test_crash_UnflushedMutationsAreLostAndFlushedOnesSurvive() throws ServiceException {
+    // Given
+    store.update(1L, cart -> cart.getProducts().add(product));
+    store.flushAll();
+    store.update(1L, cart -> cart.getProducts().add(product)); // acknowledged but never flushed
+
+    // When the process dies and a new instance starts over the same database
+    final ActiveCartStore restarted = new ActiveCartStore(cartRepository, PROPERTIES);
+    final int size = restarted.update(1L, cart -> cart.getProducts().size());
+
+    // Then
+    assertEquals(1, size);
+  }
+
+  @Test
+  void test_stop_FlushesEverythingOnGracefulShutdown() throws ServiceException {
+    // Given
+    store.start();
+    store.update(1L, cart -> cart.getProducts().add(product));
+    store.update(2L, cart -> cart.getProducts().add(product));
+
+    // When
+    store.stop();
+
+    // Then
+    assertEquals(1, database.get(1L).getProducts().size());
+    assertEquals(1, database.get(2L).getProducts().size());
+  }
+
+  @Test
+  void test_flush_and_evict_ActionSeesAcknowledgedChanges() throws ServiceException {
+    // Given
+    store.update(1L, cart -> cart.getProducts().add(product));
+
+    // When
+    final int persistedSize = store.flushAndEvict(1L, () -> database.get(1L).getProducts().size());
+
+    // Then
+    assertEquals(1, persistedSize);
+    assertEquals(0, store.residentCount());
+    assertEquals(0, store.dirtyCount());
+  }
+
+  @Test
+  void test_evict_DeletedCartIsNotFlushedBack() throws ServiceException {
+    // Given
+    store.update(1L, cart -> cart.getProducts().add(product));
+
+    // When
+    store.evict(1L, () -> database.remove(1L));
+    store.flushAll();
+
+    // Then
+    assertFalse(database.containsKey(1L));
+    verify(cartRepository, never()).saveAll(anyList());
+  }
+
+  @Test
+  void test_flush_FailedFlushIsRetried() throws ServiceException {
+    // Given
+    store.update(1L, cart -> cart.getProducts().add(product));
+    doThrow(new DataAccessResourceFailureException("database down"))
+        .doAnswer(invocation -> {
+          final List<Cart> carts = invocation.getArgument(0);
+          carts.forEach(this::persist);
+          return carts;
+        })
+        .when(cartRepository).saveAll(anyList());
+
+    // When
+    store.flushAll();
+
+    // Then
+    assertEquals(1, store.dirtyCount());
+    assertEquals(0, database.get(1L).getProducts().size());
+
+    // When
+    store.flushAll();
+
+    // Then
+    assertEquals(0, store.dirtyCount());
+    assertEquals(1, database.get(1L).getProducts().size());
+  }
+
+  @Test
+  void test_update_ShouldNotMarkDirtyWhenMutationFails() {
+    // When
+    assertThrows(ServiceException.class, () -> store.update(1L, cart -> {
+      throw new ServiceException("cart is checked out");
+    }));
+
+    // Then
+    assertEquals(0, store.dirtyCount());
+  }
+
+  @Test
+  void test_update_ShouldThrowServiceExceptionWhenCartNotFound() {
+    assertThrows(ServiceException.class, () -> store.update(99L, cart -> null));
+  }
+
+  @Test
+  void test_read_if_resident_OnlyReadsResidentCarts() throws ServiceException {
+    // Given
+    assertTrue(store.readIfResident(1L, cart -> cart.getProducts().size()).isEmpty());
+    store.update(1L, cart -> cart.getProducts().add(product));
+
+    // When
+    final Optional<Integer> size = store.readIfResident(1L, cart -> cart.getProducts().size());
+
+    // Then
+    assertEquals(Optional.of(1), size);
+  }
+
+  @Test
+  void test_update_ConcurrentMutationsOfTheSameCartAreNotLost() throws Exception {
+    // Given
+    final int threads = 8;
+    final int updatesPerThread = 250;
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch start = new CountDownLatch(1);
+
+    // When
+    for (int i = 0; i < threads; i++) {
+      executor.submit(() -> {
+        start.await();
+        for (int j = 0; j < updatesPerThread; j++) {
+          store.update(1L, cart -> cart.getProducts().add(product));
+          if (j % 50 == 0) {
+            store.flushAll();
+          }
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    store.flushAll();
+
+    // Then
+    assertEquals(threads * updatesPerThread, database.get(1L).getProducts().size());
+  }
+
+  private Cart persist(final Cart cart) {
+    database.put(cart.getId(), copy(cart));
+    return cart;
+  }
+
+  private static Cart copy(final Cart cart) {
+    return Cart.builder()
+        .id(cart.getId())
+        .checkout(cart.isCheckout())
+        .amount(cart.getAmount())
+        .products(new ArrayList<>(cart.getProducts()))
+        .build();
+  }
+}
@@ -0,0 +1,119 @@
+package co.uk.yapily.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongHashMapTest {
+
+  @Test
+  void test_put_GetReplaceAndRemove() {
+    // Given
+    final LongLongHashMap map = new LongLongHashMap(4);
+
+    // When
+    map.put(1L, 10L);
+    map.put(2L, 20L);
+    map.put(1L, 11L);
+
+    // Then
+    assertEquals(2, map.size());
+    assertEquals(11L, map.get(1L, -1));
+    assertEquals(-1L, map.get(3L, -1));
+    assertTrue(map.remove(1L));
+    assertFalse(map.remove(1L));
+    assertFalse(map.containsKey(1L));
+    assertEquals(20L, map.get(2L, -1));
+  }
+
+  @Test
+  void test_addTo_StartsFromZero() {
+    // Given
+    final LongLongHashMap map = new LongLongHashMap(4);
+
+    // When
+    map.addTo(7L, 2);
+    final long total = map.addTo(7L, 3);
+
+    // Then
+    assertEquals(5L, total);
+    assertEquals(5L, map.get(7L, 0));
+  }
+
+  @Test
+  void test_remove_KeepsCollidingKeysReachable() {
+    // Given
+    final LongLongHashMap map = new LongLongHashMap(16);
+    for (long key = 0; key < 1_000; key++) {
+      map.put(key * 1_024, key);
+    }
+
+    // When
+    for (long key = 0; key < 1_000; key += 2) {
+      map.remove(key * 1_024);
+    }
+
+    // Then
+    assertEquals(500, map.size());
+    for (long key = 1; key < 1_000; key += 2) {
+      assertEquals(key, map.get(key * 1_024, -1));
+    }
+  }
+
+  @Test
+  void test_operations_MatchHashMap() {
+    // Given
+    final Random random = new Random(42);
+    final LongLongHashMap map = new LongLongHashMap(0);
+    final Map<Long, Long> expected = new HashMap<>();
+
+    // When
+    for (int i = 0; i < 100_000; i++) {
+      final long key = random.nextInt(5_000) - 2_500;
+      switch (random.nextInt(3)) {
+        case 0 -> {
+          map.put(key, i);
+          expected.put(key, (long) i);
+        }
+        case 1 -> assertEquals(expected.remove(key) != null, map.remove(key));
+        default -> assertEquals(expected.getOrDefault(key, -1L), map.get(key, -1));
+      }
+    }
+
+    // Then
+    assertEquals(expected.size(), map.size());
+    final Map<Long, Long> actual = new HashMap<>();
+    map.forEach(actual::put);
+    assertEquals(expected, actual);
+    assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray(), map.sortedKeys());
+  }
+
+  @Test
+  void test_copy_IsIndependent() {
+    // Given
+    final LongLongHashMap map = new LongLongHashMap(4);
+    map.put(1L, 1L);
+
+    // When
+    final LongLongHashMap copy = map.copy();
+    map.put(2L, 2L);
+    copy.remove(1L);
+
+    // Then
+    assertEquals(2, map.size());
+    assertTrue(copy.isEmpty());
+  }
+
+  @Test
+  void test_put_RejectsReservedKey() {
+    // Given
+    final LongLongHashMap map = new LongLongHashMap(4);
+
+    // When / Then
+    assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 1L));
+  }
+}
@@ -0,0 +1,69 @@
+package co.uk.yapily.warmup;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyStabilityTrackerTest {
+
+  @Test
+  void test_record_StableOnceMediansStopImproving() {
+    // Given
+    final LatencyStabilityTracker tracker = new LatencyStabilityTracker(3, 2, 2, 0.1);
+    final long[] medians = {1_000, 500, 200, 195, 190};
+
+    // When
+    int batchesUntilStable = 0;
+    boolean stable = false;
+    for (final long median : medians) {
+      batchesUntilStable++;
+      stable = recordBatch(tracker, median);
+      if (stable) {
+        break;
+      }
+    }
+
+    // Then
+    assertTrue(stable);
+    assertEquals(5, batchesUntilStable);
+    assertEquals(1_000, tracker.firstMedian());
+    assertEquals(190, tracker.lastMedian());
+  }
+
+  @Test
+  void test_record_OutlierDoesNotMoveTheMedian() {
+    // Given
+    final LatencyStabilityTracker tracker = new LatencyStabilityTracker(3, 1, 1, 0.1);
+    recordBatch(tracker, 100);
+
+    // When
+    tracker.record(100);
+    tracker.record(50_000);
+    final boolean stable = tracker.record(101);
+
+    // Then
+    assertTrue(stable);
+    assertEquals(101, tracker.lastMedian());
+  }
+
+  @Test
+  void test_record_NotStableBeforeMinBatches() {
+    // Given
+    final LatencyStabilityTracker tracker = new LatencyStabilityTracker(1, 4, 1, 0.1);
+
+    // When
+    tracker.record(100);
+    tracker.record(100);
+    final boolean stable = tracker.record(100);
+
+    // Then
+    assertFalse(stable);
+    assertTrue(tracker.record(100));
+  }
+
+  private static boolean recordBatch(final LatencyStabilityTracker tracker, final long median) {
+    tracker.record(median - 1);
+    tracker.record(median);
+    return tracker.record(median + 1);
+  }
+}